@@ -6,6 +6,8 @@ export interface ChatRequest {
     provider: string
     model: string
     apiUrl?: string
+    threadId?: number
+    documentId?: number
 }
 
 export interface ChatResponse {
@@ -21,13 +23,79 @@ export interface Conversation {
     createdAt: string
 }
 
+// 历史列表项只含预览，完整内容通过 getConversation 获取
+export interface ConversationSummary {
+    id: number
+    threadId?: number
+    documentId?: number
+    messagePreview: string
+    responsePreview?: string
+    truncated: boolean
+    createdAt: string
+}
+
+export interface ConversationPage {
+    items: ConversationSummary[]
+    nextCursor?: string
+}
+
+export interface ConversationSearchHit {
+    id: number
+    threadId?: number
+    documentId?: number
+    snippet: string
+    score: number
+    createdAt: string
+}
+
+// complete 为 false 时服务端索引仍在构建，结果可能不全
+export interface ConversationSearchResult {
+    hits: ConversationSearchHit[]
+    total: number
+    tookMs: number
+    complete: boolean
+}
+
 export const aiApi = {
-    chat: (data: ChatRequest) => {
-        return apiClient.post<{ success: boolean, data: ChatResponse }>('/api/ai/chat', data)
+    chat: (data: ChatRequest, requestId?: string, signal?: AbortSignal) => {
+        return apiClient.post<{ success: boolean, data: ChatResponse }>('/api/ai/chat', data, {
+            headers: requestId ? { 'X-Request-Id': requestId } : undefined,
+            signal
+        })
+    },
+
+    // 取消进行中的请求，上游调用随之中止
+    cancelRequest: (requestId: string) => {
+        return apiClient.delete<{ success: boolean, message: string }>(`/api/ai/requests/${requestId}`)
     },
 
-    getHistory: (limit: number = 20) => {
-        return apiClient.get<{ success: boolean, data: Conversation[] }>(`/api/ai/conversations?limit=${limit}`)
+    // 游标分页：传入上一页的 nextCursor 获取下一页
+    getHistory: (limit: number = 20, cursor?: string) => {
+        return apiClient.get<{ success: boolean, data: ConversationPage }>('/api/ai/conversations', {
+            params: { limit, cursor }
+        })
+    },
+
+    countConversations: () => {
+        return apiClient.get<{ success: boolean, data: number }>('/api/ai/conversations/count')
+    },
+
+    // 文档的AI对话时间线
+    getDocumentConversations: (documentId: number, limit: number = 20, cursor?: string) => {
+        return apiClient.get<{ success: boolean, data: ConversationPage }>(`/api/documents/${documentId}/conversations`, {
+            params: { limit, cursor }
+        })
+    },
+
+    // 全文检索对话记录，按相关度排序
+    searchConversations: (q: string, limit: number = 20) => {
+        return apiClient.get<{ success: boolean, data: ConversationSearchResult }>('/api/ai/conversations/search', {
+            params: { q, limit }
+        })
+    },
+
+    getConversation: (id: number) => {
+        return apiClient.get<{ success: boolean, data: Conversation }>(`/api/ai/conversations/${id}`)
     },
 
     deleteConversation: (id: number) => {
@@ -45,6 +113,42 @@ export const aiApi = {
     },
 
 
+    // NDJSON流式生成灵感：每解析出一条回调一次，达到条数后服务端提前结束
+    streamInspiration: async (keyword: string, apiKey: string, provider: string, model: string,
+                              onIdea: (idea: string) => void, apiUrl?: string, signal?: AbortSignal) => {
+        const token = localStorage.getItem('token')
+        const response = await fetch(`${apiClient.defaults.baseURL}/api/ai/inspiration/stream`, {
+            method: 'POST',
+            headers: {
+                'Content-Type': 'application/json',
+                'Accept': 'application/x-ndjson',
+                ...(token ? { Authorization: `Bearer ${token}` } : {})
+            },
+            body: JSON.stringify({ keyword, apiKey, provider, model, apiUrl }),
+            signal
+        })
+        if (!response.ok || !response.body) {
+            throw new Error(`生成失败(${response.status})`)
+        }
+        const reader = response.body.getReader()
+        const decoder = new TextDecoder()
+        let buffer = ''
+        for (;;) {
+            const { done, value } = await reader.read()
+            if (done) break
+            buffer += decoder.decode(value, { stream: true })
+            let newline
+            while ((newline = buffer.indexOf('\n')) >= 0) {
+                const line = buffer.slice(0, newline).trim()
+                buffer = buffer.slice(newline + 1)
+                if (!line) continue
+                const item = JSON.parse(line)
+                if (item.error) throw new Error(item.error)
+                onIdea(item.content)
+            }
+        }
+    },
+
     polishText: (text: string, apiKey: string, provider: string, model: string, style: string, apiUrl?: string) => {
         return apiClient.post<{ success: boolean, data: string }>('/api/ai/polish', {
             text,
@@ -56,12 +160,14 @@ export const aiApi = {
         })
     },
 
-    testConnection: (apiKey: string, provider: string, model: string, apiUrl?: string) => {
+    // 默认返回服务端缓存的探测结果，refresh 为 true 时重新探测
+    testConnection: (apiKey: string, provider: string, model: string, apiUrl?: string, refresh: boolean = false) => {
         return apiClient.post<{ success: boolean, data: any, message?: string }>('/api/ai/test-connection', {
             apiKey,
             provider,
             model,
-            apiUrl
+            apiUrl,
+            refresh
         })
     }
 }
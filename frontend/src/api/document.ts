@@ -0,0 +1,102 @@
+import apiClient from './client'
+import type { ApiResponse } from './auth'
+
+// 基准版本过期时服务端返回的提示，与 DocumentService.STALE_REVISION_MESSAGE 一致
+export const STALE_REVISION_MESSAGE = '文档已在其他地方修改，请刷新后重试'
+
+export interface ServerDocument {
+    id: number
+    title: string
+    content: string
+    wordCount: number
+    revision: number
+    createdAt: string
+    updatedAt: string
+}
+
+// retain/insert/delete 三选一，长度按字符串下标计
+export type TextOperation = { retain: number } | { insert: string } | { delete: number }
+
+export interface DocumentPatchResult {
+    id: number
+    revision: number
+    wordCount: number
+    updatedAt: string
+}
+
+export interface DocumentRevisionSummary {
+    revision: number
+    kind: 'SNAPSHOT' | 'DELTA'
+    storedBytes: number
+    contentLength: number
+    wordCount: number
+    title: string
+    createdAt: string
+}
+
+export interface DocumentRevisionDetail {
+    revision: number
+    title: string
+    content: string
+    wordCount: number
+    createdAt: string
+}
+
+// 去掉公共前后缀，把中间变化部分表示为删除+插入；连续输入时请求大小与改动量相当
+export const diffToOps = (before: string, after: string): TextOperation[] => {
+    let prefix = 0
+    const maxPrefix = Math.min(before.length, after.length)
+    while (prefix < maxPrefix && before.charCodeAt(prefix) === after.charCodeAt(prefix)) prefix++
+    let suffix = 0
+    const maxSuffix = maxPrefix - prefix
+    while (suffix < maxSuffix &&
+        before.charCodeAt(before.length - 1 - suffix) === after.charCodeAt(after.length - 1 - suffix)) suffix++
+    const ops: TextOperation[] = []
+    if (prefix > 0) ops.push({ retain: prefix })
+    const removed = before.length - prefix - suffix
+    if (removed > 0) ops.push({ delete: removed })
+    const inserted = after.slice(prefix, after.length - suffix)
+    if (inserted) ops.push({ insert: inserted })
+    return ops
+}
+
+export const documentApi = {
+    create: (title: string, content: string) => {
+        return apiClient.post<ApiResponse<ServerDocument>>('/api/documents', { title, content })
+    },
+
+    get: (id: number) => {
+        return apiClient.get<ApiResponse<ServerDocument>>(`/api/documents/${id}`)
+    },
+
+    // 带 baseRevision 时文档已被其他保存修改则返回失败，不覆盖
+    update: (id: number, title: string, content: string, baseRevision?: number) => {
+        return apiClient.put<ApiResponse<ServerDocument>>(`/api/documents/${id}`, { title, content, baseRevision })
+    },
+
+    // 增量保存：ops 作用于 baseRevision 版本，版本已过期时返回失败
+    patch: (id: number, baseRevision: number, ops: TextOperation[], title?: string) => {
+        return apiClient.patch<ApiResponse<DocumentPatchResult>>(`/api/documents/${id}`, { baseRevision, ops, title })
+    },
+
+    remove: (id: number) => {
+        return apiClient.delete<ApiResponse<void>>(`/api/documents/${id}`)
+    },
+
+    revisions: (id: number) => {
+        return apiClient.get<ApiResponse<DocumentRevisionSummary[]>>(`/api/documents/${id}/revisions`)
+    },
+
+    revision: (id: number, revision: number) => {
+        return apiClient.get<ApiResponse<DocumentRevisionDetail>>(`/api/documents/${id}/revisions/${revision}`)
+    },
+
+    // 把 from 修订变为 to 修订的编辑操作
+    diffRevisions: (id: number, from: number, to: number) => {
+        return apiClient.get<ApiResponse<TextOperation[]>>(`/api/documents/${id}/revisions/diff`, { params: { from, to } })
+    },
+
+    restoreRevision: (id: number, revision: number) => {
+        return apiClient.post<ApiResponse<ServerDocument>>(`/api/documents/${id}/revisions/${revision}/restore`)
+    }
+}
@@ -31,11 +31,17 @@ CREATE TABLE `conversations` (
     `id` BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '对话记录ID',
     `user_id` BIGINT NOT NULL COMMENT '用户ID',
     `document_id` BIGINT COMMENT '关联文档ID',
+    `thread_id` BIGINT COMMENT '对话线程ID',
+    -- 开启 app.conversation.compression 后应用启动时转为 MEDIUMBLOB，存储带版本头的压缩数据
     `message` TEXT NOT NULL COMMENT '用户消息',
     `response` TEXT COMMENT 'AI响应',
     `created_at` TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
-    INDEX `idx_user_id` (`user_id`),
     INDEX `idx_created_at` (`created_at`),
+    INDEX `idx_conversations_thread` (`thread_id`, `id`),
+    -- 历史记录按 (created_at, id) 游标分页，同时覆盖按 user_id 的查询和外键
+    INDEX `idx_conversations_user_created` (`user_id`, `created_at`, `id`),
+    -- 文档的AI对话时间线，InnoDB二级索引隐含主键，(created_at, id) 游标同样走范围扫描
+    INDEX `idx_conversations_document_created` (`document_id`, `created_at`),
     CONSTRAINT `fk_conversation_user` FOREIGN KEY (`user_id`) REFERENCES `users`(`id`) ON DELETE CASCADE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='对话记录表';
 
@@ -48,6 +54,7 @@ CREATE TABLE `documents` (
     `title` VARCHAR(200) NOT NULL DEFAULT '未命名文档' COMMENT '文档标题',
     `content` LONGTEXT COMMENT 'Markdown内容',
     `word_count` INT DEFAULT 0 COMMENT '字数统计',
+    `revision` BIGINT NOT NULL DEFAULT 0 COMMENT '版本号，每次保存加一',
     `created_at` TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
     `updated_at` TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
     INDEX `idx_user_id` (`user_id`),
@@ -72,6 +79,73 @@ CREATE TABLE `prompt_templates` (
     INDEX `idx_is_active` (`is_active`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='提示词模板表（可选）';
 
+-- ========================================
+-- 5. ID号段表（conversations 主键按号段分配，使对话记录可以批量插入）
+-- ========================================
+CREATE TABLE `id_generators` (
+    `sequence_name` VARCHAR(255) NOT NULL PRIMARY KEY COMMENT '号段名称',
+    `next_val` BIGINT COMMENT '下一号段上限'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='ID号段表';
+
+INSERT INTO `id_generators` (`sequence_name`, `next_val`) VALUES ('conversations', 1);
+
+-- ========================================
+-- 6. 异步AI任务表
+-- ========================================
+CREATE TABLE `ai_jobs` (
+    `id` BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '任务ID',
+    `user_id` BIGINT NOT NULL COMMENT '用户ID',
+    `status` VARCHAR(20) NOT NULL COMMENT '状态：PENDING/RUNNING/SUCCEEDED/FAILED',
+    `payload` LONGTEXT NOT NULL COMMENT '任务参数（JSON，不含API Key）',
+    `encrypted_api_key` VARCHAR(512) COMMENT '加密的API Key，任务结束后清除',
+    `result` LONGTEXT COMMENT '任务结果（JSON）',
+    `error` VARCHAR(1000) COMMENT '错误信息',
+    `attempts` INT NOT NULL DEFAULT 0 COMMENT '执行次数',
+    `created_at` TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    `started_at` TIMESTAMP NULL COMMENT '开始时间',
+    `finished_at` TIMESTAMP NULL COMMENT '完成时间',
+    INDEX `idx_ai_jobs_user_created` (`user_id`, `created_at`),
+    INDEX `idx_ai_jobs_status` (`status`),
+    CONSTRAINT `fk_ai_job_user` FOREIGN KEY (`user_id`) REFERENCES `users`(`id`) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='异步AI任务表';
+
+-- ========================================
+-- 7. 对话线程表（多轮对话的滚动摘要）
+-- ========================================
+CREATE TABLE `conversation_threads` (
+    `id` BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '线程ID',
+    `user_id` BIGINT NOT NULL COMMENT '用户ID',
+    `title` VARCHAR(100) COMMENT '标题（首条消息）',
+    `summary` TEXT COMMENT '已滚出上下文的早期轮次摘要',
+    `summarized_through` BIGINT COMMENT '已并入摘要的最后一条对话记录ID',
+    `created_at` TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    `updated_at` TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    INDEX `idx_threads_user_updated` (`user_id`, `updated_at`),
+    CONSTRAINT `fk_thread_user` FOREIGN KEY (`user_id`) REFERENCES `users`(`id`) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='对话线程表';
+
+-- ========================================
+-- 8. 文档修订表（完整快照 + 二进制差异）
+-- ========================================
+CREATE TABLE `document_revisions` (
+    `id` BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '修订ID',
+    `document_id` BIGINT NOT NULL COMMENT '文档ID',
+    `revision` BIGINT NOT NULL COMMENT '对应文档版本号',
+    `kind` VARCHAR(10) NOT NULL COMMENT 'SNAPSHOT 完整快照 / DELTA 差异',
+    `base_revision` BIGINT COMMENT '差异的基准修订',
+    `chain_length` INT NOT NULL COMMENT '距最近快照的差异个数',
+    `data` MEDIUMBLOB NOT NULL COMMENT '压缩正文或二进制差异',
+    `stored_bytes` INT NOT NULL COMMENT '存储字节数',
+    `content_length` INT NOT NULL COMMENT '正文长度',
+    `word_count` INT COMMENT '字数统计',
+    `title` VARCHAR(200) COMMENT '文档标题',
+    `created_at` TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    `version` BIGINT NOT NULL DEFAULT 0 COMMENT '乐观锁版本',
+    UNIQUE INDEX `uk_document_revisions_revision` (`document_id`, `revision`),
+    INDEX `idx_document_revisions_created` (`created_at`),
+    CONSTRAINT `fk_revision_document` FOREIGN KEY (`document_id`) REFERENCES `documents`(`id`) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='文档修订表';
+
 -- ========================================
 -- 初始化数据
 -- ========================================
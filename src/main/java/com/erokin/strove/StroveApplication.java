@@ -1,15 +1,23 @@
 package com.erokin.strove;
 
+import com.erokin.strove.config.properties.AiProperties;
 import com.erokin.strove.config.properties.AppSecurityProperties;
+import com.erokin.strove.config.properties.ConversationProperties;
+import com.erokin.strove.config.properties.DocumentProperties;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 
+import java.security.Security;
+
 @SpringBootApplication
-@EnableConfigurationProperties({AppSecurityProperties.class})
+@EnableConfigurationProperties({AppSecurityProperties.class, AiProperties.class,
+        ConversationProperties.class, DocumentProperties.class})
 public class StroveApplication {
 
     public static void main(String[] args) {
+        // DNS缓存策略在首次解析时固化，需在启动前设置（单位：秒）
+        Security.setProperty("networkaddress.cache.ttl", System.getenv().getOrDefault("DNS_CACHE_TTL", "60"));
         SpringApplication.run(StroveApplication.class, args);
     }
 }
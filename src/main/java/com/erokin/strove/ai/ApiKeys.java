@@ -0,0 +1,46 @@
+package com.erokin.strove.ai;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * API Key 相关工具
+ * 缓存、限流等内部结构只使用密钥指纹，原始密钥不落入任何Map或日志
+ */
+public final class ApiKeys {
+
+    private ApiKeys() {
+    }
+
+    /**
+     * 密钥指纹：SHA-256 前16字节的十六进制
+     */
+    public static String fingerprint(String apiKey) {
+        if (apiKey == null || apiKey.isEmpty()) {
+            return "anonymous";
+        }
+        return HexFormat.of().formatHex(sha256(apiKey), 0, 16);
+    }
+
+    /**
+     * 对多个字段计算摘要，用于构造缓存键
+     */
+    public static String digest(String... parts) {
+        StringBuilder joined = new StringBuilder();
+        for (String part : parts) {
+            // 使用不会出现在文本中的分隔符，避免字段拼接产生歧义
+            joined.append(part == null ? "" : part).append('\u0000');
+        }
+        return HexFormat.of().formatHex(sha256(joined.toString()));
+    }
+
+    private static byte[] sha256(String value) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
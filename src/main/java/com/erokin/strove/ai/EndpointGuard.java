@@ -0,0 +1,259 @@
+package com.erokin.strove.ai;
+
+import com.erokin.strove.config.properties.AiProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.net.URI;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * 上游端点保护
+ * 按规范化后的接口地址分别维护熔断器与自适应并发上限（AIMD）：
+ * 错误/超时率超过阈值时熔断，快速失败而不是等满读取超时；延迟升高或失败时并发上限按比例收缩，正常时逐步放大
+ */
+@Component
+public class EndpointGuard {
+
+    private static final Logger logger = LoggerFactory.getLogger(EndpointGuard.class);
+
+    private final AiProperties.Guard properties;
+    private final ConcurrentMap<String, EndpointState> endpoints = new ConcurrentHashMap<>();
+
+    public EndpointGuard(AiProperties aiProperties) {
+        this.properties = aiProperties.getGuard();
+    }
+
+    /**
+     * 在端点保护下执行一次上游调用
+     *
+     * @param url           上游接口地址
+     * @param sampleLatency 是否把本次耗时作为延迟样本（流式调用的总耗时取决于输出长度，不参与）
+     */
+    public <T> T call(String url, boolean sampleLatency, Supplier<T> action) {
+        if (!properties.isEnabled()) {
+            return action.get();
+        }
+        EndpointState state = state(normalize(url));
+        state.acquire();
+        long start = System.nanoTime();
+        try {
+            T result = action.get();
+            state.onSuccess(sampleLatency ? (System.nanoTime() - start) / 1_000_000 : -1);
+            return result;
+        } catch (RuntimeException e) {
+            if (Thread.currentThread().isInterrupted()) {
+                // 调用方主动取消，不代表端点健康与否
+                state.onCancelled();
+            } else if (isEndpointFailure(e)) {
+                state.onFailure();
+            } else {
+                // 4xx等请求本身的问题不代表端点不健康
+                state.onSuccess(-1);
+            }
+            throw e;
+        } finally {
+            state.release();
+        }
+    }
+
+    /**
+     * 端点当前状态快照
+     */
+    public Map<String, Object> snapshot(String url) {
+        EndpointState state = endpoints.get(normalize(url));
+        return state == null ? Map.of("endpoint", normalize(url), "state", "UNKNOWN") : state.snapshot();
+    }
+
+    private EndpointState state(String endpoint) {
+        EndpointState state = endpoints.get(endpoint);
+        if (state == null) {
+            evictIdle();
+            state = endpoints.computeIfAbsent(endpoint, EndpointState::new);
+        }
+        state.lastUsed = System.currentTimeMillis();
+        return state;
+    }
+
+    /**
+     * 新增端点前清理：闲置超时的先移除，仍达到上限时移除最久未用的空闲端点
+     */
+    private void evictIdle() {
+        long now = System.currentTimeMillis();
+        long idleExpiry = properties.getIdleExpiry().toMillis();
+        endpoints.values().removeIf(state -> now - state.lastUsed > idleExpiry && state.isIdle(now));
+        while (endpoints.size() >= properties.getMaxEndpoints()) {
+            EndpointState eldest = null;
+            for (EndpointState state : endpoints.values()) {
+                if (state.isIdle(now) && (eldest == null || state.lastUsed < eldest.lastUsed)) {
+                    eldest = state;
+                }
+            }
+            if (eldest == null) {
+                return;
+            }
+            endpoints.remove(eldest.endpoint, eldest);
+        }
+    }
+
+    /**
+     * 规范化地址：协议与主机小写，去掉查询参数和末尾斜杠
+     */
+    public static String normalize(String url) {
+        try {
+            URI uri = URI.create(url.trim());
+            String path = uri.getPath() == null ? "" : uri.getPath();
+            if (path.endsWith("/")) {
+                path = path.substring(0, path.length() - 1);
+            }
+            String port = uri.getPort() == -1 ? "" : ":" + uri.getPort();
+            return uri.getScheme().toLowerCase(Locale.ROOT) + "://" + uri.getHost().toLowerCase(Locale.ROOT) + port + path;
+        } catch (RuntimeException e) {
+            return url.trim();
+        }
+    }
+
+    private static boolean isEndpointFailure(RuntimeException e) {
+        return e instanceof ResourceAccessException || e instanceof HttpServerErrorException;
+    }
+
+    private enum Circuit { CLOSED, OPEN, HALF_OPEN }
+
+    private class EndpointState {
+        private final String endpoint;
+        private final boolean[] window = new boolean[properties.getWindowSize()];
+        private int windowPos;
+        private int windowCount;
+        private int windowFailures;
+        private Circuit circuit = Circuit.CLOSED;
+        private long openedAt;
+        private boolean trialInFlight;
+        private double limit = properties.getInitialLimit();
+        private int inFlight;
+        private double latencyEwma = -1;
+        private volatile long lastUsed = System.currentTimeMillis();
+
+        EndpointState(String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        synchronized void acquire() {
+            if (circuit == Circuit.OPEN) {
+                if (System.currentTimeMillis() - openedAt < properties.getOpenDuration().toMillis()) {
+                    throw new RuntimeException("API服务暂时不可用(熔断中)，请稍后重试");
+                }
+                circuit = Circuit.HALF_OPEN;
+            }
+            if (circuit == Circuit.HALF_OPEN) {
+                // 半开状态只放行一个探测请求
+                if (trialInFlight) {
+                    throw new RuntimeException("API服务暂时不可用(熔断恢复中)，请稍后重试");
+                }
+                trialInFlight = true;
+            } else if (inFlight >= (int) limit) {
+                throw new RuntimeException("API服务繁忙(并发已达上限" + (int) limit + ")，请稍后重试");
+            }
+            inFlight++;
+        }
+
+        /**
+         * 没有进行中的调用，且不处于未到期的熔断中
+         */
+        synchronized boolean isIdle(long now) {
+            return inFlight == 0
+                    && (circuit != Circuit.OPEN || now - openedAt >= properties.getOpenDuration().toMillis());
+        }
+
+        synchronized void release() {
+            inFlight--;
+        }
+
+        synchronized void onSuccess(long latencyMs) {
+            record(false);
+            if (circuit == Circuit.HALF_OPEN) {
+                logger.info("上游端点恢复: {}", endpoint);
+                circuit = Circuit.CLOSED;
+                trialInFlight = false;
+                resetWindow();
+            }
+            if (latencyMs >= 0 && latencyEwma > 0 && latencyMs > latencyEwma * properties.getLatencyTolerance()) {
+                // 延迟明显高于基线，视为排队信号，收缩并发
+                decrease();
+            } else if (inFlight * 2 >= limit) {
+                // 只有在并发确实被用到一半以上时才放大上限
+                limit = Math.min(properties.getMaxLimit(), limit + 1.0 / limit);
+            }
+            if (latencyMs >= 0) {
+                latencyEwma = latencyEwma < 0 ? latencyMs : latencyEwma * 0.9 + latencyMs * 0.1;
+            }
+        }
+
+        synchronized void onCancelled() {
+            if (circuit == Circuit.HALF_OPEN) {
+                // 探测请求被取消，放行下一个探测
+                trialInFlight = false;
+            }
+        }
+
+        synchronized void onFailure() {
+            record(true);
+            decrease();
+            if (circuit == Circuit.HALF_OPEN) {
+                trip();
+                trialInFlight = false;
+            } else if (circuit == Circuit.CLOSED && windowCount >= properties.getMinimumCalls()
+                    && (double) windowFailures / windowCount >= properties.getFailureRateThreshold()) {
+                trip();
+            }
+        }
+
+        private void trip() {
+            logger.warn("上游端点熔断: {} (失败率 {}/{})", endpoint, windowFailures, windowCount);
+            circuit = Circuit.OPEN;
+            openedAt = System.currentTimeMillis();
+        }
+
+        private void decrease() {
+            limit = Math.max(properties.getMinLimit(), limit * properties.getBackoffRatio());
+        }
+
+        private void record(boolean failure) {
+            if (windowCount == window.length) {
+                if (window[windowPos]) {
+                    windowFailures--;
+                }
+            } else {
+                windowCount++;
+            }
+            window[windowPos] = failure;
+            if (failure) {
+                windowFailures++;
+            }
+            windowPos = (windowPos + 1) % window.length;
+        }
+
+        private void resetWindow() {
+            windowPos = 0;
+            windowCount = 0;
+            windowFailures = 0;
+        }
+
+        synchronized Map<String, Object> snapshot() {
+            return Map.of(
+                "endpoint", endpoint,
+                "state", circuit.name(),
+                "limit", (int) limit,
+                "inFlight", inFlight,
+                "failureRate", windowCount == 0 ? 0.0 : (double) windowFailures / windowCount,
+                "latencyEwmaMs", Math.max(0, Math.round(latencyEwma))
+            );
+        }
+    }
+}
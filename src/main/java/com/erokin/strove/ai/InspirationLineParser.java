@@ -0,0 +1,105 @@
+package com.erokin.strove.ai;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 灵感列表的增量解析器
+ * 逐字符累积增量片段，遇到换行即处理一行：去掉首尾空白、列表符号与数字编号（如“1.”“2、”“3）”），
+ * 过短的行视为标题或说明丢弃。逐字符扫描，不为每行构造正则匹配
+ */
+public class InspirationLineParser {
+
+    // 有效灵感的最短长度（不含）
+    private static final int MIN_LENGTH = 10;
+
+    private final int limit;
+    private final Consumer<String> onIdea;
+    private final StringBuilder line = new StringBuilder();
+    private final List<String> ideas = new ArrayList<>();
+
+    /**
+     * @param limit  最多解析的条数，达到后忽略后续内容
+     * @param onIdea 每解析出一条回调一次，可为null
+     */
+    public InspirationLineParser(int limit, Consumer<String> onIdea) {
+        this.limit = limit;
+        this.onIdea = onIdea;
+    }
+
+    public void accept(CharSequence delta) {
+        for (int i = 0; i < delta.length() && !isComplete(); i++) {
+            char c = delta.charAt(i);
+            if (c == '\n') {
+                emitLine();
+            } else {
+                line.append(c);
+            }
+        }
+    }
+
+    /**
+     * 处理最后一行（没有结尾换行）并返回全部灵感
+     */
+    public List<String> finish() {
+        if (!isComplete()) {
+            emitLine();
+        }
+        return ideas;
+    }
+
+    public boolean isComplete() {
+        return ideas.size() >= limit;
+    }
+
+    public List<String> getIdeas() {
+        return ideas;
+    }
+
+    private void emitLine() {
+        int start = skipBlank(0);
+        int end = line.length();
+        while (end > start && isBlank(line.charAt(end - 1))) {
+            end--;
+        }
+        if (start < end && isBullet(line.charAt(start))) {
+            start = skipBlank(start + 1);
+        }
+        int digits = start;
+        while (digits < end && line.charAt(digits) >= '0' && line.charAt(digits) <= '9') {
+            digits++;
+        }
+        if (digits > start && digits < end && isNumberMark(line.charAt(digits))) {
+            start = skipBlank(digits + 1);
+        }
+        if (end - start > MIN_LENGTH) {
+            String idea = line.substring(start, end);
+            ideas.add(idea);
+            if (onIdea != null) {
+                onIdea.accept(idea);
+            }
+        }
+        line.setLength(0);
+    }
+
+    private int skipBlank(int from) {
+        while (from < line.length() && isBlank(line.charAt(from))) {
+            from++;
+        }
+        return from;
+    }
+
+    private static boolean isBlank(char c) {
+        // 包括全角空格
+        return Character.isWhitespace(c);
+    }
+
+    private static boolean isBullet(char c) {
+        return c == '-' || c == '*' || c == '•';
+    }
+
+    private static boolean isNumberMark(char c) {
+        return c == '.' || c == '、' || c == '．' || c == ')' || c == '）';
+    }
+}
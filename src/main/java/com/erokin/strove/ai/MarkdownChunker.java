@@ -0,0 +1,146 @@
+package com.erokin.strove.ai;
+
+import com.erokin.strove.ai.tokenizer.TokenEstimator;
+import com.erokin.strove.ai.tokenizer.Tokenizer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Markdown分块
+ * 在标题、空行分隔的段落边界处切分长文本，再按token上限把相邻块合并成片段；
+ * 围栏代码块不会被拆开，超长段落退化为按句切分。每个片段保留原文首尾空白，拼接后与原文边界一致
+ */
+public final class MarkdownChunker {
+
+    private MarkdownChunker() {
+    }
+
+    /**
+     * 切分后的片段：leading + body + trailing 恰好等于原文对应区间
+     */
+    public record Chunk(String leading, String body, String trailing) {
+
+        public String assemble(String replacement) {
+            return leading + replacement.strip() + trailing;
+        }
+    }
+
+    public static List<Chunk> split(String text, int maxTokens) {
+        return split(text, maxTokens, TokenEstimator.INSTANCE);
+    }
+
+    /**
+     * 按目标模型的分词器计算片段大小
+     */
+    public static List<Chunk> split(String text, int maxTokens, Tokenizer tokenizer) {
+        List<Chunk> chunks = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        int currentTokens = 0;
+        for (String block : blocks(text)) {
+            int blockTokens = tokenizer.countTokens(block);
+            boolean heading = isHeading(block.strip());
+            // 标题总是开启新片段，让每个片段带着自己的小节标题
+            if (current.length() > 0 && (currentTokens + blockTokens > maxTokens || heading)) {
+                chunks.add(toChunk(current.toString()));
+                current.setLength(0);
+                currentTokens = 0;
+            }
+            // 超长的围栏代码块整体作为一个片段，不按句切开
+            if (blockTokens > maxTokens && !isFence(block.strip())) {
+                for (String piece : splitSentences(block, maxTokens, tokenizer)) {
+                    chunks.add(toChunk(piece));
+                }
+                continue;
+            }
+            current.append(block);
+            currentTokens += blockTokens;
+        }
+        if (current.length() > 0) {
+            chunks.add(toChunk(current.toString()));
+        }
+        return chunks;
+    }
+
+    /**
+     * 按行扫描，在空行之后和标题之前切开；每个块包含其后的空白行，所有块拼接即原文
+     */
+    private static List<String> blocks(String text) {
+        List<String> blocks = new ArrayList<>();
+        StringBuilder block = new StringBuilder();
+        boolean inFence = false;
+        boolean afterBlank = false;
+        int pos = 0;
+        while (pos < text.length()) {
+            int end = text.indexOf('\n', pos);
+            end = end < 0 ? text.length() : end + 1;
+            String line = text.substring(pos, end);
+            String trimmed = line.strip();
+            boolean blank = trimmed.isEmpty();
+            boolean boundary = !inFence && block.length() > 0
+                    && ((afterBlank && !blank) || (isHeading(trimmed) && !afterBlank));
+            if (boundary) {
+                blocks.add(block.toString());
+                block.setLength(0);
+            }
+            block.append(line);
+            if (isFence(trimmed)) {
+                inFence = !inFence;
+            }
+            afterBlank = !inFence && blank;
+            pos = end;
+        }
+        if (block.length() > 0) {
+            blocks.add(block.toString());
+        }
+        return blocks;
+    }
+
+    private static boolean isFence(String line) {
+        return line.startsWith("```") || line.startsWith("~~~");
+    }
+
+    private static boolean isHeading(String line) {
+        int level = 0;
+        while (level < line.length() && line.charAt(level) == '#') {
+            level++;
+        }
+        return level >= 1 && level <= 6 && (level == line.length() || line.charAt(level) == ' ');
+    }
+
+    private static List<String> splitSentences(String block, int maxTokens, Tokenizer tokenizer) {
+        List<String> pieces = new ArrayList<>();
+        StringBuilder piece = new StringBuilder();
+        int start = 0;
+        for (int i = 0; i < block.length(); i++) {
+            char c = block.charAt(i);
+            boolean sentenceEnd = c == '。' || c == '！' || c == '？' || c == '\n'
+                    || ((c == '.' || c == '!' || c == '?') && (i + 1 == block.length() || Character.isWhitespace(block.charAt(i + 1))));
+            if (sentenceEnd || i + 1 == block.length()) {
+                String sentence = block.substring(start, i + 1);
+                if (piece.length() > 0 && tokenizer.countTokens(piece.toString()) + tokenizer.countTokens(sentence) > maxTokens) {
+                    pieces.add(piece.toString());
+                    piece.setLength(0);
+                }
+                piece.append(sentence);
+                start = i + 1;
+            }
+        }
+        if (piece.length() > 0) {
+            pieces.add(piece.toString());
+        }
+        return pieces;
+    }
+
+    private static Chunk toChunk(String text) {
+        int bodyStart = 0;
+        while (bodyStart < text.length() && Character.isWhitespace(text.charAt(bodyStart))) {
+            bodyStart++;
+        }
+        int bodyEnd = text.length();
+        while (bodyEnd > bodyStart && Character.isWhitespace(text.charAt(bodyEnd - 1))) {
+            bodyEnd--;
+        }
+        return new Chunk(text.substring(0, bodyStart), text.substring(bodyStart, bodyEnd), text.substring(bodyEnd));
+    }
+}
@@ -0,0 +1,241 @@
+package com.erokin.strove.ai;
+
+import com.erokin.strove.config.properties.AiProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 按API Key控制出站请求节奏
+ * 每个密钥指纹一个无锁令牌桶（GCRA，只用一个 AtomicLong 记录理论到达时间），
+ * 同时遵从上游返回的 Retry-After 与 x-ratelimit-* 头；遇到429时按抖动退避有限次重试，而不是直接失败
+ */
+@Component
+public class RequestPacer {
+
+    private static final Logger logger = LoggerFactory.getLogger(RequestPacer.class);
+    private static final Pattern DURATION_PART = Pattern.compile("(\\d+(?:\\.\\d+)?)(ms|h|m|s)");
+
+    private final AiProperties.Pacing properties;
+    private final ConcurrentMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    public RequestPacer(AiProperties aiProperties) {
+        this.properties = aiProperties.getPacing();
+    }
+
+    /**
+     * 在节奏控制下执行上游调用，429时按退避策略重试
+     */
+    public <T> T execute(String apiKey, Supplier<T> call) {
+        if (!properties.isEnabled()) {
+            return call.get();
+        }
+        Bucket bucket = bucket(apiKey);
+        for (int attempt = 0; ; attempt++) {
+            awaitPermit(bucket);
+            try {
+                return call.get();
+            } catch (HttpClientErrorException.TooManyRequests e) {
+                long serverDelayNanos = observe(bucket, e.getResponseHeaders());
+                if (attempt >= properties.getMaxRetries()) {
+                    throw e;
+                }
+                long delayNanos = Math.max(serverDelayNanos, backoffNanos(attempt));
+                if (delayNanos > properties.getMaxRetryDelay().toNanos()) {
+                    // 上游要求等待的时间超过上限，不再占着请求线程等待
+                    throw e;
+                }
+                logger.info("上游返回429，{}ms后第{}次重试", TimeUnit.NANOSECONDS.toMillis(delayNanos), attempt + 1);
+                sleep(delayNanos);
+            }
+        }
+    }
+
+    /**
+     * 记录成功响应中的限流头
+     */
+    public void observe(String apiKey, HttpHeaders headers) {
+        if (properties.isEnabled()) {
+            observe(bucket(apiKey), headers);
+        }
+    }
+
+    private Bucket bucket(String apiKey) {
+        String key = ApiKeys.fingerprint(apiKey);
+        Bucket bucket = buckets.get(key);
+        if (bucket == null) {
+            evictIdle();
+            bucket = buckets.computeIfAbsent(key, k -> new Bucket());
+        }
+        bucket.lastUsed = System.nanoTime();
+        return bucket;
+    }
+
+    /**
+     * 新增令牌桶前清理：已回满且闲置超时的先移除（与新建的桶等价），仍达到上限时移除最久未用的
+     */
+    private void evictIdle() {
+        long now = System.nanoTime();
+        long idleExpiry = properties.getIdleExpiry().toNanos();
+        buckets.values().removeIf(bucket -> now - bucket.lastUsed > idleExpiry && bucket.isFull(now));
+        while (buckets.size() >= properties.getMaxKeys()) {
+            Map.Entry<String, Bucket> eldest = null;
+            for (Map.Entry<String, Bucket> entry : buckets.entrySet()) {
+                if (eldest == null || entry.getValue().lastUsed < eldest.getValue().lastUsed) {
+                    eldest = entry;
+                }
+            }
+            if (eldest == null) {
+                return;
+            }
+            buckets.remove(eldest.getKey(), eldest.getValue());
+        }
+    }
+
+    private void awaitPermit(Bucket bucket) {
+        long waitNanos = bucket.reserve(System.nanoTime());
+        if (waitNanos > properties.getMaxWait().toNanos()) {
+            bucket.cancel();
+            throw new RuntimeException("API请求频率超限，请稍后再试");
+        }
+        if (waitNanos > 0) {
+            sleep(waitNanos);
+        }
+    }
+
+    /**
+     * 解析限流头，推迟令牌桶的可用时间，返回上游要求的等待时长
+     */
+    private long observe(Bucket bucket, HttpHeaders headers) {
+        if (headers == null) {
+            return 0;
+        }
+        long delayNanos = parseRetryAfter(headers.getFirst("Retry-After"));
+        String remaining = headers.getFirst("x-ratelimit-remaining-requests");
+        if (remaining != null && remaining.trim().equals("0")) {
+            delayNanos = Math.max(delayNanos, parseDuration(headers.getFirst("x-ratelimit-reset-requests")));
+        }
+        String remainingTokens = headers.getFirst("x-ratelimit-remaining-tokens");
+        if (remainingTokens != null && remainingTokens.trim().equals("0")) {
+            delayNanos = Math.max(delayNanos, parseDuration(headers.getFirst("x-ratelimit-reset-tokens")));
+        }
+        if (delayNanos > 0) {
+            bucket.blockUntil(System.nanoTime() + delayNanos);
+        }
+        return delayNanos;
+    }
+
+    private long backoffNanos(int attempt) {
+        // 全抖动指数退避：[0, base * 2^attempt)
+        long ceiling = properties.getBaseBackoff().toNanos() << Math.min(attempt, 10);
+        return ThreadLocalRandom.current().nextLong(Math.max(1, ceiling));
+    }
+
+    static long parseRetryAfter(String value) {
+        if (value == null || value.isBlank()) {
+            return 0;
+        }
+        try {
+            return TimeUnit.MILLISECONDS.toNanos((long) (Double.parseDouble(value.trim()) * 1000));
+        } catch (NumberFormatException e) {
+            try {
+                ZonedDateTime at = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                return Math.max(0, TimeUnit.MILLISECONDS.toNanos(at.toInstant().toEpochMilli() - System.currentTimeMillis()));
+            } catch (RuntimeException ignored) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * 解析 "1s"、"6m0s"、"20ms" 形式的时长
+     */
+    static long parseDuration(String value) {
+        if (value == null || value.isBlank()) {
+            return 0;
+        }
+        Matcher matcher = DURATION_PART.matcher(value.trim());
+        double millis = 0;
+        while (matcher.find()) {
+            double amount = Double.parseDouble(matcher.group(1));
+            millis += switch (matcher.group(2)) {
+                case "h" -> amount * 3_600_000;
+                case "m" -> amount * 60_000;
+                case "s" -> amount * 1000;
+                default -> amount;
+            };
+        }
+        return TimeUnit.MILLISECONDS.toNanos((long) millis);
+    }
+
+    private static void sleep(long nanos) {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("请求已取消");
+        }
+    }
+
+    /**
+     * GCRA令牌桶：tat 为理论到达时间，emission 为令牌间隔，tolerance 为允许的突发量
+     */
+    private class Bucket {
+        private final AtomicLong tat = new AtomicLong(Long.MIN_VALUE);
+        private final AtomicLong blockedUntil = new AtomicLong(Long.MIN_VALUE);
+        private volatile long lastUsed = System.nanoTime();
+
+        /**
+         * 预约一个令牌，返回需要等待的纳秒数
+         */
+        long reserve(long now) {
+            long emission = TimeUnit.MINUTES.toNanos(1) / Math.max(1, properties.getRequestsPerMinute());
+            long tolerance = emission * Math.max(0, properties.getBurst() - 1);
+            while (true) {
+                long current = tat.get();
+                long base = current == Long.MIN_VALUE ? now : Math.max(current, now);
+                if (tat.compareAndSet(current, base + emission)) {
+                    // 上游要求的冷却期优先于本地突发额度
+                    long readyAt = Math.max(base - tolerance, blockedUntil.get());
+                    return Math.max(0, readyAt - now);
+                }
+            }
+        }
+
+        /**
+         * 放弃刚预约的令牌
+         */
+        void cancel() {
+            long emission = TimeUnit.MINUTES.toNanos(1) / Math.max(1, properties.getRequestsPerMinute());
+            tat.addAndGet(-emission);
+        }
+
+        /**
+         * 没有未来的预约与上游冷却期，状态与新建的桶相同
+         */
+        boolean isFull(long now) {
+            long current = tat.get();
+            long blocked = blockedUntil.get();
+            return (current == Long.MIN_VALUE || current - now <= 0)
+                    && (blocked == Long.MIN_VALUE || blocked - now <= 0);
+        }
+
+        void blockUntil(long deadline) {
+            blockedUntil.accumulateAndGet(deadline, Math::max);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.erokin.strove.ai;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 进行中的AI请求登记表
+ * 客户端断开或显式取消时中断执行线程，JDK HttpClient会随之中止上游连接
+ */
+@Component
+public class RequestRegistry {
+
+    public static final String HEADER = "X-Request-Id";
+
+    private static final Logger logger = LoggerFactory.getLogger(RequestRegistry.class);
+
+    private static final int MAX_ID_LENGTH = 64;
+
+    private final Map<String, Handle> requests = new ConcurrentHashMap<>();
+
+    /**
+     * 登记请求，客户端未提供或ID已被占用时生成新ID
+     */
+    public Handle register(Long userId, String requestId) {
+        String id = isValidId(requestId) ? requestId.trim() : UUID.randomUUID().toString();
+        Handle handle = new Handle(userId, id);
+        if (requests.putIfAbsent(key(userId, id), handle) != null) {
+            handle = new Handle(userId, UUID.randomUUID().toString());
+            requests.put(key(userId, handle.id), handle);
+        }
+        return handle;
+    }
+
+    /**
+     * 取消请求，只能取消自己的请求
+     * @return 请求不存在或已结束时返回false
+     */
+    public boolean cancel(Long userId, String requestId) {
+        if (requestId == null) {
+            return false;
+        }
+        Handle handle = requests.get(key(userId, requestId.trim()));
+        if (handle == null) {
+            return false;
+        }
+        handle.cancel();
+        return true;
+    }
+
+    public int activeCount() {
+        return requests.size();
+    }
+
+    private static boolean isValidId(String requestId) {
+        if (requestId == null || requestId.isBlank() || requestId.length() > MAX_ID_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < requestId.length(); i++) {
+            char c = requestId.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '-' && c != '_') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String key(Long userId, String requestId) {
+        return userId + ":" + requestId;
+    }
+
+    public final class Handle implements AutoCloseable {
+
+        private final Long userId;
+        private final String id;
+        private Thread thread;
+        private boolean cancelled;
+        private boolean closed;
+
+        private Handle(Long userId, String id) {
+            this.userId = userId;
+            this.id = id;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        /**
+         * 绑定当前线程为执行线程，已取消则立即中断
+         */
+        public synchronized void attach() {
+            thread = Thread.currentThread();
+            if (cancelled) {
+                thread.interrupt();
+            }
+        }
+
+        public synchronized void cancel() {
+            if (cancelled || closed) {
+                return;
+            }
+            cancelled = true;
+            logger.info("取消AI请求 - userId: {}, requestId: {}", userId, id);
+            if (thread != null) {
+                thread.interrupt();
+            }
+        }
+
+        public synchronized boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * 结束请求，清除遗留的中断标记后线程才能归还线程池
+         */
+        @Override
+        public void close() {
+            boolean owner;
+            synchronized (this) {
+                closed = true;
+                owner = thread == Thread.currentThread();
+                thread = null;
+            }
+            requests.remove(key(userId, id), this);
+            if (owner) {
+                Thread.interrupted();
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.erokin.strove.ai;
+
+import com.erokin.strove.config.properties.AiProperties;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * AI响应缓存
+ * 润色、灵感等结果只取决于 (提示词, 模型, 参数)，相同请求直接返回缓存的补全文本。
+ * 按访问顺序做LRU淘汰，同时按写入时间做TTL过期；缓存键包含用户ID与API Key指纹，
+ * 使用路由端点配置的共享密钥时不同用户之间也互不可见
+ */
+@Component
+public class ResponseCache {
+
+    private final AiProperties.Cache properties;
+    private final Map<String, Entry> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public ResponseCache(AiProperties aiProperties) {
+        this.properties = aiProperties.getCache();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                boolean evict = size() > properties.getMaxEntries();
+                if (evict) {
+                    evictions.incrementAndGet();
+                }
+                return evict;
+            }
+        };
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * 构造缓存键：用户ID + API Key指纹 + 操作类型 + 模型参数 + 规范化后的提示词
+     */
+    public String key(Long userId, String apiKey, String operation, String provider, String model, String apiUrl,
+                      double temperature, String... prompt) {
+        String[] parts = new String[prompt.length + 6];
+        parts[0] = userId + ":" + ApiKeys.fingerprint(apiKey);
+        parts[1] = operation;
+        parts[2] = provider;
+        parts[3] = model;
+        parts[4] = apiUrl == null ? null : apiUrl.trim();
+        parts[5] = String.valueOf(temperature);
+        for (int i = 0; i < prompt.length; i++) {
+            parts[i + 6] = normalize(prompt[i]);
+        }
+        return ApiKeys.digest(parts);
+    }
+
+    public String get(String key) {
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAt() > now) {
+                hits.incrementAndGet();
+                return entry.value();
+            }
+            if (entry != null) {
+                entries.remove(key);
+                evictions.incrementAndGet();
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    public void put(String key, String value) {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        long expiresAt = System.currentTimeMillis() + properties.getTtl().toMillis();
+        synchronized (entries) {
+            entries.put(key, new Entry(value, expiresAt));
+        }
+    }
+
+    /**
+     * 命中率等统计信息
+     */
+    public Map<String, Object> stats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        long total = hitCount + missCount;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", properties.isEnabled());
+        stats.put("size", size);
+        stats.put("maxEntries", properties.getMaxEntries());
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("evictions", evictions.get());
+        stats.put("hitRate", total == 0 ? 0.0 : (double) hitCount / total);
+        return stats;
+    }
+
+    /**
+     * 规范化提示词：Unicode NFC、统一换行、合并行内连续空白、去除首尾空白
+     */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFC).replace("\r\n", "\n");
+        return normalized.replaceAll("[ \\t\\u3000]+", " ").strip();
+    }
+
+    private record Entry(String value, long expiresAt) {
+    }
+}
@@ -0,0 +1,242 @@
+package com.erokin.strove.ai;
+
+import com.erokin.strove.config.properties.AiProperties;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 近似重复缓存（可选，默认关闭）
+ * 规范化后的文本按字符n-gram做MinHash签名，签名分带放入LSH桶；查询时只比较同桶候选，
+ * 估算的Jaccard相似度达到阈值即复用已有补全。相似度只在同一作用域（API Key、操作、模型、参数）内比较。
+ * 为避免把“100元”的润色结果返回给“200元”，数字串不同或长度相差过大的候选直接排除
+ */
+@Component
+public class SimilarityCache {
+
+    private static final int ROWS_PER_BAND = 4;
+
+    private final AiProperties.Similarity properties;
+    private final long[] seeds;
+    private final Map<Long, Entry> entries;
+    private final Map<Long, List<Long>> buckets = new HashMap<>();
+    private long nextId;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public SimilarityCache(AiProperties aiProperties) {
+        this.properties = aiProperties.getSimilarity();
+        int hashes = Math.max(ROWS_PER_BAND, properties.getHashes() / ROWS_PER_BAND * ROWS_PER_BAND);
+        this.seeds = new long[hashes];
+        long seed = 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < hashes; i++) {
+            seed = mix(seed + i);
+            seeds[i] = seed;
+        }
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * 查找作用域内与 text 足够相似的已缓存补全
+     */
+    public String get(String scope, String text) {
+        Fingerprint fingerprint = fingerprint(text);
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            Entry best = null;
+            double bestSimilarity = properties.getThreshold();
+            for (int band = 0; band < bandCount(); band++) {
+                List<Long> bucket = buckets.get(bandKey(scope, fingerprint.signature(), band));
+                if (bucket == null) {
+                    continue;
+                }
+                for (Long id : bucket) {
+                    Entry entry = entries.get(id);
+                    if (entry == null || entry == best || entry.expiresAt() <= now || !entry.scope().equals(scope)
+                            || !comparable(entry, fingerprint)) {
+                        continue;
+                    }
+                    double similarity = similarity(entry.signature(), fingerprint.signature());
+                    if (similarity >= bestSimilarity) {
+                        best = entry;
+                        bestSimilarity = similarity;
+                    }
+                }
+            }
+            if (best != null) {
+                // 触发访问顺序更新
+                entries.get(best.id());
+                hits.incrementAndGet();
+                return best.value();
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    public void put(String scope, String text, String value) {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        Fingerprint fingerprint = fingerprint(text);
+        long expiresAt = System.currentTimeMillis() + properties.getTtl().toMillis();
+        synchronized (this) {
+            Entry entry = new Entry(nextId++, scope, fingerprint.signature(), fingerprint.length(),
+                    fingerprint.digits(), value, expiresAt);
+            entries.put(entry.id(), entry);
+            for (int band = 0; band < bandCount(); band++) {
+                buckets.computeIfAbsent(bandKey(scope, entry.signature(), band), k -> new ArrayList<>(2)).add(entry.id());
+            }
+            evictOverflow();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", properties.isEnabled());
+        synchronized (this) {
+            stats.put("size", entries.size());
+        }
+        stats.put("threshold", properties.getThreshold());
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        long total = hitCount + missCount;
+        stats.put("hitRate", total == 0 ? 0.0 : (double) hitCount / total);
+        return stats;
+    }
+
+    private void evictOverflow() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (entries.size() > properties.getMaxEntries() && iterator.hasNext()) {
+            Entry eldest = iterator.next();
+            iterator.remove();
+            for (int band = 0; band < bandCount(); band++) {
+                long key = bandKey(eldest.scope(), eldest.signature(), band);
+                List<Long> bucket = buckets.get(key);
+                if (bucket != null) {
+                    bucket.remove(Long.valueOf(eldest.id()));
+                    if (bucket.isEmpty()) {
+                        buckets.remove(key);
+                    }
+                }
+            }
+        }
+    }
+
+    private boolean comparable(Entry entry, Fingerprint fingerprint) {
+        int longer = Math.max(entry.length(), fingerprint.length());
+        int shorter = Math.min(entry.length(), fingerprint.length());
+        return entry.digits().equals(fingerprint.digits())
+                && longer - shorter <= Math.max(2, longer * properties.getMaxLengthDelta());
+    }
+
+    private int bandCount() {
+        return seeds.length / ROWS_PER_BAND;
+    }
+
+    private long bandKey(String scope, int[] signature, int band) {
+        long h = mix(scope.hashCode() * 31L + band);
+        for (int i = band * ROWS_PER_BAND; i < (band + 1) * ROWS_PER_BAND; i++) {
+            h = mix(h ^ signature[i]);
+        }
+        return h;
+    }
+
+    private static double similarity(int[] a, int[] b) {
+        int equal = 0;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] == b[i]) {
+                equal++;
+            }
+        }
+        return (double) equal / a.length;
+    }
+
+    /**
+     * 规范化 → 提取n-gram → 计算每个哈希函数下的最小值
+     */
+    private Fingerprint fingerprint(String text) {
+        String normalized = normalize(text);
+        int[] signature = new int[seeds.length];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        int n = Math.max(1, properties.getShingleSize());
+        int shingles = Math.max(1, normalized.length() - n + 1);
+        for (int s = 0; s < shingles; s++) {
+            long shingle = 1125899906842597L;
+            for (int i = s; i < Math.min(normalized.length(), s + n); i++) {
+                shingle = 31 * shingle + normalized.charAt(i);
+            }
+            for (int i = 0; i < seeds.length; i++) {
+                int h = (int) mix(shingle ^ seeds[i]);
+                if (h < signature[i]) {
+                    signature[i] = h;
+                }
+            }
+        }
+        StringBuilder digits = new StringBuilder();
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            if (Character.isDigit(c)) {
+                digits.append(c);
+            } else if (digits.length() > 0 && digits.charAt(digits.length() - 1) != ',') {
+                digits.append(',');
+            }
+        }
+        return new Fingerprint(signature, normalized.length(), digits.toString());
+    }
+
+    /**
+     * NFKC、转小写、去掉空白与标点；短文本再去掉开头的填充词（如“关于”）
+     */
+    private String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String folded = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        StringBuilder sb = new StringBuilder(folded.length());
+        for (int i = 0; i < folded.length(); i++) {
+            char c = folded.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                sb.append(c);
+            }
+        }
+        String normalized = sb.toString();
+        if (normalized.length() <= 20) {
+            for (String filler : properties.getFillerPrefixes()) {
+                if (normalized.length() > filler.length() && normalized.startsWith(filler)) {
+                    normalized = normalized.substring(filler.length());
+                    break;
+                }
+            }
+        }
+        return normalized;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+
+    private record Fingerprint(int[] signature, int length, String digits) {
+    }
+
+    private record Entry(long id, String scope, int[] signature, int length, String digits, String value,
+                         long expiresAt) {
+    }
+}
@@ -0,0 +1,197 @@
+package com.erokin.strove.ai;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 相同请求合并
+ * 同一时刻键相同的AI请求只向上游发出一次，后到的请求挂到进行中的调用上共享结果；
+ * 流式调用方先收到已生成的全部内容，之后继续接收增量。
+ * 上游调用在独立线程中执行，不属于任何一个调用方：某个调用方取消或超时只是自己退出，
+ * 其余调用方照常等待，全部退出后才中止上游。每个调用方在自己的线程里向客户端推送，
+ * 慢客户端不会拖住上游读取或其他调用方
+ */
+@Component
+public class SingleFlight {
+
+    // 等待兜底上限，上游调用本身受读取超时约束
+    private static final Duration MAX_WAIT = Duration.ofMinutes(10);
+
+    private final ConcurrentMap<String, InFlightCall> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final ExecutorService upstreamExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * 执行或加入一次上游调用
+     *
+     * @param key      请求键（与缓存键一致）
+     * @param onDelta  流式增量回调，阻塞调用方传 null
+     * @param upstream 实际的上游调用，参数为增量发布函数，返回完整内容
+     */
+    public String execute(String key, Consumer<String> onDelta, Function<Consumer<String>, String> upstream) {
+        while (true) {
+            InFlightCall created = new InFlightCall(key);
+            InFlightCall call = inFlight.putIfAbsent(key, created);
+            if (call == null) {
+                created.join();
+                start(created, upstream);
+                return created.await(onDelta);
+            }
+            // 所有调用方都已退出、正在中止的调用不能再加入，重新发起
+            if (call.join()) {
+                coalesced.incrementAndGet();
+                return call.await(onDelta);
+            }
+        }
+    }
+
+    /**
+     * 被合并掉的请求数
+     */
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    private void start(InFlightCall call, Function<Consumer<String>, String> upstream) {
+        call.attach(upstreamExecutor.submit(() -> {
+            try {
+                call.complete(upstream.apply(call::publish));
+            } catch (RuntimeException e) {
+                call.fail(e);
+            } finally {
+                inFlight.remove(call.key, call);
+            }
+        }));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        upstreamExecutor.shutdownNow();
+    }
+
+    private class InFlightCall {
+        private final String key;
+        private final StringBuilder content = new StringBuilder();
+        private Future<?> task;
+        private int waiters;
+        private boolean abandoned;
+        private boolean done;
+        private String value;
+        private RuntimeException error;
+
+        InFlightCall(String key) {
+            this.key = key;
+        }
+
+        synchronized void attach(Future<?> upstreamTask) {
+            task = upstreamTask;
+            if (abandoned) {
+                task.cancel(true);
+            }
+        }
+
+        synchronized boolean join() {
+            if (abandoned) {
+                return false;
+            }
+            waiters++;
+            return true;
+        }
+
+        synchronized void publish(String delta) {
+            content.append(delta);
+            notifyAll();
+        }
+
+        synchronized void complete(String result) {
+            // 上游是阻塞调用时没有增量，流式调用方在结束时一次性收到剩余内容
+            if (result != null && result.length() > content.length() && result.startsWith(content.toString())) {
+                content.append(result, content.length(), result.length());
+            }
+            value = result;
+            done = true;
+            notifyAll();
+        }
+
+        synchronized void fail(RuntimeException e) {
+            error = e;
+            done = true;
+            notifyAll();
+        }
+
+        /**
+         * 等待结果；流式调用方在锁外把新增内容推给自己的客户端
+         */
+        String await(Consumer<String> onDelta) {
+            Consumer<String> listener = onDelta;
+            int delivered = 0;
+            long deadline = System.nanoTime() + MAX_WAIT.toNanos();
+            try {
+                while (true) {
+                    String chunk = null;
+                    boolean finished;
+                    synchronized (this) {
+                        while (!done && (listener == null || content.length() == delivered)) {
+                            long remaining = deadline - System.nanoTime();
+                            if (remaining <= 0) {
+                                throw new RuntimeException("AI服务响应超时，请稍后重试");
+                            }
+                            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                        }
+                        if (listener != null && content.length() > delivered) {
+                            chunk = content.substring(delivered);
+                            delivered = content.length();
+                        }
+                        finished = done && chunk == null;
+                    }
+                    if (chunk != null) {
+                        try {
+                            listener.accept(chunk);
+                        } catch (RuntimeException e) {
+                            // 推送失败（如客户端断开）只停止向它推送，不影响其他调用方
+                            listener = null;
+                        }
+                    }
+                    if (finished) {
+                        synchronized (this) {
+                            if (error != null) {
+                                throw error;
+                            }
+                            return value;
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("请求已取消");
+            } finally {
+                leave();
+            }
+        }
+
+        /**
+         * 调用方退出；最后一个调用方在结果返回前退出时中止上游
+         */
+        private synchronized void leave() {
+            waiters--;
+            if (waiters == 0 && !done) {
+                abandoned = true;
+                inFlight.remove(key, this);
+                if (task != null) {
+                    task.cancel(true);
+                }
+            }
+        }
+    }
+}
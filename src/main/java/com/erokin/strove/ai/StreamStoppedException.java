@@ -0,0 +1,14 @@
+package com.erokin.strove.ai;
+
+/**
+ * 在流式增量回调中抛出，表示调用方已拿到所需内容
+ * 异常穿过上游读取时响应流被关闭，剩余的生成随连接一起取消；不计为端点失败
+ */
+public class StreamStoppedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public StreamStoppedException() {
+        super("已获取所需内容，提前结束生成", null, false, false);
+    }
+}
@@ -0,0 +1,60 @@
+package com.erokin.strove.ai;
+
+import com.erokin.strove.config.properties.AiProperties;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 上游大模型HTTP客户端
+ * 每个服务商持有一个长连接复用的 JDK HttpClient（支持HTTP/2，按主机维护连接池，共享默认SSLContext以复用TLS会话），
+ * 阻塞调用与响应处理都运行在虚拟线程上
+ */
+@Component
+public class UpstreamHttpClients {
+
+    private static final String DEFAULT_PROVIDER = "openai";
+
+    private final AiProperties.Http properties;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, RestTemplate> restTemplates = new ConcurrentHashMap<>();
+
+    public UpstreamHttpClients(AiProperties aiProperties) {
+        this.properties = aiProperties.getHttp();
+    }
+
+    /**
+     * 获取服务商对应的RestTemplate，未知服务商按OpenAI兼容处理
+     */
+    public RestTemplate restTemplate(String provider) {
+        String key = provider == null || provider.isBlank() ? DEFAULT_PROVIDER : provider.toLowerCase(Locale.ROOT);
+        return restTemplates.computeIfAbsent(key, this::createRestTemplate);
+    }
+
+    private RestTemplate createRestTemplate(String provider) {
+        AiProperties.Timeouts overrides = properties.getProviders().get(provider);
+        Duration connectTimeout = overrides != null && overrides.getConnectTimeout() != null
+                ? overrides.getConnectTimeout() : properties.getConnectTimeout();
+        Duration readTimeout = overrides != null && overrides.getReadTimeout() != null
+                ? overrides.getReadTimeout() : properties.getReadTimeout();
+
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(properties.isHttp2() ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(executor)
+                .build();
+
+        JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(httpClient, executor);
+        factory.setReadTimeout(readTimeout);
+        return new RestTemplate(factory);
+    }
+}
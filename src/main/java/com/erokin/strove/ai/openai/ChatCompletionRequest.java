@@ -0,0 +1,27 @@
+package com.erokin.strove.ai.openai;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * OpenAI兼容的 chat/completions 请求体
+ * maxTokens 为 null 时不发送 max_tokens，由上游按模型默认值处理
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ChatCompletionRequest(
+        String model,
+        List<ChatMessage> messages,
+        double temperature,
+        @JsonProperty("max_tokens") Integer maxTokens,
+        Boolean stream) {
+
+    public ChatCompletionRequest(String model, List<ChatMessage> messages, double temperature, Integer maxTokens) {
+        this(model, messages, temperature, maxTokens, null);
+    }
+
+    public ChatCompletionRequest streaming() {
+        return new ChatCompletionRequest(model, messages, temperature, maxTokens, Boolean.TRUE);
+    }
+}
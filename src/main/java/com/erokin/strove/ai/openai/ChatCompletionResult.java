@@ -0,0 +1,8 @@
+package com.erokin.strove.ai.openai;
+
+/**
+ * 从响应（或流式帧）中提取出的字段；流式帧里 content 为本帧增量，可能为空
+ * usage 中的数值在上游未返回时为 -1
+ */
+public record ChatCompletionResult(String content, String finishReason, int promptTokens, int completionTokens) {
+}
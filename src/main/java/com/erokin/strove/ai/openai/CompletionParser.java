@@ -0,0 +1,184 @@
+package com.erokin.strove.ai.openai;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * chat/completions 响应的流式解析
+ * 直接在字节流上按token前进，只取 choices[0] 的内容、finish_reason、usage 与 error，
+ * 其余字段整体跳过，不构建中间对象树。
+ * 同时兼容通义千问原生接口的外层结构（output.choices、usage.input_tokens、顶层 code/message 错误）
+ */
+public final class CompletionParser {
+
+    private final JsonFactory jsonFactory;
+
+    public CompletionParser(JsonFactory jsonFactory) {
+        this.jsonFactory = jsonFactory;
+    }
+
+    /**
+     * 解析非流式响应（choices[0].message）
+     */
+    public ChatCompletionResult parse(InputStream body) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            ChatCompletionResult result = read(parser, "message");
+            if (result.content() == null) {
+                throw new RuntimeException("API返回格式错误");
+            }
+            return result;
+        }
+    }
+
+    /**
+     * 解析一个流式帧（choices[0].delta）
+     */
+    public ChatCompletionResult parseChunk(byte[] data, int offset, int length) throws IOException {
+        return parseChunk(data, offset, length, "delta");
+    }
+
+    /**
+     * 解析一个流式帧，contentField 为增量内容所在的字段（通义千问增量输出仍使用 message）
+     */
+    public ChatCompletionResult parseChunk(byte[] data, int offset, int length, String contentField) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(data, offset, length)) {
+            return read(parser, contentField);
+        }
+    }
+
+    private ChatCompletionResult read(JsonParser parser, String contentField) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new RuntimeException("API返回格式错误");
+        }
+        Fields fields = new Fields();
+        readObject(parser, contentField, fields);
+        if (fields.errorCode != null) {
+            throw new RuntimeException("API错误: " + (fields.errorMessage != null ? fields.errorMessage : fields.errorCode));
+        }
+        return new ChatCompletionResult(fields.content, fields.finishReason, fields.promptTokens, fields.completionTokens);
+    }
+
+    private void readObject(JsonParser parser, String contentField, Fields fields) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "choices" -> {
+                    if (value != JsonToken.START_ARRAY) {
+                        parser.skipChildren();
+                        break;
+                    }
+                    boolean first = true;
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        if (first && parser.currentToken() == JsonToken.START_OBJECT) {
+                            readChoice(parser, contentField, fields);
+                        } else {
+                            parser.skipChildren();
+                        }
+                        first = false;
+                    }
+                }
+                case "output" -> {
+                    if (value == JsonToken.START_OBJECT) {
+                        readObject(parser, contentField, fields);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                case "usage" -> {
+                    if (value == JsonToken.START_OBJECT) {
+                        readUsage(parser, fields);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                case "error" -> {
+                    if (value != JsonToken.VALUE_NULL) {
+                        throw new RuntimeException("API错误: " + readErrorMessage(parser));
+                    }
+                }
+                case "code" -> {
+                    if (value == JsonToken.VALUE_STRING && !parser.getText().isEmpty()) {
+                        fields.errorCode = parser.getText();
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                case "message" -> {
+                    if (value == JsonToken.VALUE_STRING) {
+                        fields.errorMessage = parser.getText();
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+    }
+
+    private void readChoice(JsonParser parser, String contentField, Fields fields) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (contentField.equals(field) && value == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.currentName();
+                    if (parser.nextToken() == JsonToken.VALUE_STRING && "content".equals(name)) {
+                        fields.content = parser.getText();
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else if ("finish_reason".equals(field) && value == JsonToken.VALUE_STRING) {
+                fields.finishReason = parser.getText();
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private void readUsage(JsonParser parser, Fields fields) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            parser.nextToken();
+            if (!parser.currentToken().isNumeric()) {
+                parser.skipChildren();
+            } else if ("prompt_tokens".equals(name) || "input_tokens".equals(name)) {
+                fields.promptTokens = parser.getIntValue();
+            } else if ("completion_tokens".equals(name) || "output_tokens".equals(name)) {
+                fields.completionTokens = parser.getIntValue();
+            }
+        }
+    }
+
+    private String readErrorMessage(JsonParser parser) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_STRING) {
+            return parser.getText();
+        }
+        String message = null;
+        if (parser.currentToken() == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                if (parser.nextToken() == JsonToken.VALUE_STRING && "message".equals(name)) {
+                    message = parser.getText();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return message != null ? message : "未知错误";
+    }
+
+    private static final class Fields {
+        private String content;
+        private String finishReason;
+        private int promptTokens = -1;
+        private int completionTokens = -1;
+        private String errorCode;
+        private String errorMessage;
+    }
+}
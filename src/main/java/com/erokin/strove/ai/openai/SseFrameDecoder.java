@@ -0,0 +1,109 @@
+package com.erokin.strove.ai.openai;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * SSE data 帧解码
+ * 在固定大小的读缓冲上按行切分，把每个 "data:" 行的负载（原始字节，不转字符串）交给回调；
+ * 行缓冲按需增长但不超过 maxFrameBytes，超出视为上游异常。遇到 [DONE] 或回调返回 false 时结束
+ */
+public final class SseFrameDecoder {
+
+    private static final byte[] DATA_PREFIX = {'d', 'a', 't', 'a', ':'};
+    private static final byte[] DONE = {'[', 'D', 'O', 'N', 'E', ']'};
+
+    @FunctionalInterface
+    public interface FrameHandler {
+        /**
+         * @return false 表示不再需要后续帧
+         */
+        boolean onFrame(byte[] data, int offset, int length) throws IOException;
+    }
+
+    private final int maxFrameBytes;
+
+    public SseFrameDecoder(int maxFrameBytes) {
+        this.maxFrameBytes = maxFrameBytes;
+    }
+
+    public void decode(InputStream body, FrameHandler handler) throws IOException {
+        byte[] buffer = new byte[8192];
+        byte[] line = new byte[4096];
+        int lineLength = 0;
+        int read;
+        while ((read = body.read(buffer)) != -1) {
+            int start = 0;
+            for (int i = 0; i < read; i++) {
+                if (buffer[i] != '\n') {
+                    continue;
+                }
+                int length = i - start;
+                if (lineLength == 0) {
+                    // 整行都在读缓冲内，不必复制
+                    if (!dispatch(buffer, start, length, handler)) {
+                        return;
+                    }
+                } else {
+                    line = append(line, lineLength, buffer, start, length);
+                    lineLength += length;
+                    if (!dispatch(line, 0, lineLength, handler)) {
+                        return;
+                    }
+                    lineLength = 0;
+                }
+                start = i + 1;
+            }
+            if (start < read) {
+                line = append(line, lineLength, buffer, start, read - start);
+                lineLength += read - start;
+            }
+        }
+        if (lineLength > 0) {
+            dispatch(line, 0, lineLength, handler);
+        }
+    }
+
+    private byte[] append(byte[] line, int lineLength, byte[] source, int offset, int length) {
+        int required = lineLength + length;
+        if (required > maxFrameBytes) {
+            throw new RuntimeException("上游返回的数据帧过大（超过" + maxFrameBytes + "字节）");
+        }
+        if (required > line.length) {
+            line = Arrays.copyOf(line, Math.min(maxFrameBytes, Math.max(required, line.length * 2)));
+        }
+        System.arraycopy(source, offset, line, lineLength, length);
+        return line;
+    }
+
+    /**
+     * 处理一行；返回 false 表示结束
+     */
+    private boolean dispatch(byte[] data, int offset, int length, FrameHandler handler) throws IOException {
+        if (length > 0 && data[offset + length - 1] == '\r') {
+            length--;
+        }
+        if (length < DATA_PREFIX.length
+                || !Arrays.equals(data, offset, offset + DATA_PREFIX.length, DATA_PREFIX, 0, DATA_PREFIX.length)) {
+            // 注释、event:、id: 以及事件之间的空行
+            return true;
+        }
+        offset += DATA_PREFIX.length;
+        length -= DATA_PREFIX.length;
+        while (length > 0 && (data[offset] == ' ' || data[offset] == '\t')) {
+            offset++;
+            length--;
+        }
+        while (length > 0 && (data[offset + length - 1] == ' ' || data[offset + length - 1] == '\t')) {
+            length--;
+        }
+        if (length == 0) {
+            return true;
+        }
+        if (Arrays.equals(data, offset, offset + length, DONE, 0, DONE.length)) {
+            return false;
+        }
+        return handler.onFrame(data, offset, length);
+    }
+}
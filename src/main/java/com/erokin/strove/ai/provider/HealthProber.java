@@ -0,0 +1,329 @@
+package com.erokin.strove.ai.provider;
+
+import com.erokin.strove.ai.ApiKeys;
+import com.erokin.strove.config.properties.AiProperties;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 端点后台健康探测
+ * 只对路由配置中的端点（常驻或使用时登记）定期发送廉价探测（/models 或1个token的请求），
+ * 每个端点保留最近若干次结果的滚动窗口；连续失败的端点在路由时排到最后。
+ * 测试连接优先读取这些结果；用户自带Key的端点只在点击时探测一次，结果在 cache-ttl 内复用，
+ * 不进入后台探测（中转服务没有 /models 时每次探测都是一次计费请求），过期后连同API Key一起丢弃
+ */
+@Component
+public class HealthProber {
+
+    private static final Logger logger = LoggerFactory.getLogger(HealthProber.class);
+
+    private final ProviderRegistry providerRegistry;
+    private final AiProperties aiProperties;
+    private final AiProperties.Health properties;
+    private final Map<String, Target> targets = new ConcurrentHashMap<>();
+    // 测试连接的按需探测结果，不参与后台探测
+    private final Map<String, Target> onDemand = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("endpoint-health").daemon().factory());
+    private final ExecutorService probeExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public HealthProber(ProviderRegistry providerRegistry, AiProperties aiProperties) {
+        this.providerRegistry = providerRegistry;
+        this.aiProperties = aiProperties;
+        this.properties = aiProperties.getHealth();
+    }
+
+    /**
+     * 启动后登记自带API Key的路由端点（常驻），并开始定期探测
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        for (String route : aiProperties.getRouting().getRoutes().keySet()) {
+            try {
+                for (ProviderEndpoint endpoint : providerRegistry.resolve(null, route, null, null)) {
+                    targets.computeIfAbsent(key(endpoint), k -> new Target(endpoint, true));
+                }
+            } catch (RuntimeException e) {
+                // 路由端点未配置API Key，使用时再登记
+            }
+        }
+        long interval = properties.getInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::probeAll, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 登记端点，后续由后台定期探测
+     */
+    public void track(List<ProviderEndpoint> endpoints) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (ProviderEndpoint endpoint : endpoints) {
+            target(endpoint).lastUsed = now;
+        }
+    }
+
+    /**
+     * 端点健康状况：最近一次结果在有效期内直接返回，否则（或 refresh 时）立即探测一次
+     */
+    public Check check(ProviderEndpoint endpoint, boolean refresh) {
+        Target target = targets.get(key(endpoint));
+        if (target != null) {
+            target.lastUsed = System.currentTimeMillis();
+        } else {
+            target = onDemandTarget(endpoint);
+        }
+        long probesBefore = target.probeCount();
+        Sample latest = target.latest();
+        if (!refresh && isFresh(latest)) {
+            return new Check(latest, true);
+        }
+        target.probeLock.lock();
+        try {
+            // 等锁期间其他请求已完成探测时直接复用
+            if (target.probeCount() != probesBefore) {
+                return new Check(target.latest(), true);
+            }
+            return new Check(probe(target), false);
+        } finally {
+            target.probeLock.unlock();
+        }
+    }
+
+    /**
+     * 连续失败达到阈值的端点视为不可用
+     */
+    public boolean isDown(ProviderEndpoint endpoint) {
+        Target target = targets.get(key(endpoint));
+        return target != null && target.consecutiveFailures() >= properties.getDownAfter();
+    }
+
+    /**
+     * 最近几次探测的平均延迟，没有成功样本时返回-1
+     */
+    public long probeLatency(ProviderEndpoint endpoint) {
+        Target target = targets.get(key(endpoint));
+        return target == null ? -1 : target.averageLatency();
+    }
+
+    /**
+     * 端点的滚动窗口统计
+     */
+    public Map<String, Object> snapshot(ProviderEndpoint endpoint) {
+        Target target = targets.get(key(endpoint));
+        return target == null ? Map.of("probes", 0) : target.snapshot(properties.getDownAfter());
+    }
+
+    private void probeAll() {
+        long now = System.currentTimeMillis();
+        long idleExpiry = properties.getIdleExpiry().toMillis();
+        targets.values().removeIf(target -> !target.pinned && now - target.lastUsed > idleExpiry);
+        for (Target target : targets.values()) {
+            probeExecutor.execute(() -> {
+                if (!target.probeLock.tryLock()) {
+                    // 正在被测试连接探测
+                    return;
+                }
+                try {
+                    probe(target);
+                } finally {
+                    target.probeLock.unlock();
+                }
+            });
+        }
+    }
+
+    private Sample probe(Target target) {
+        ProviderEndpoint endpoint = target.endpoint;
+        long start = System.nanoTime();
+        Future<ProbeOutcome> future = probeExecutor.submit(
+                () -> providerRegistry.client(endpoint.provider()).probe(endpoint));
+        Sample sample;
+        try {
+            ProbeOutcome outcome = future.get(properties.getProbeTimeout().toMillis(), TimeUnit.MILLISECONDS);
+            sample = new Sample(System.currentTimeMillis(), true, elapsedMillis(start),
+                    outcome.method(), outcome.modelListed(), null);
+        } catch (TimeoutException e) {
+            // 中断探测线程即中止上游连接
+            future.cancel(true);
+            sample = new Sample(System.currentTimeMillis(), false, elapsedMillis(start), null, null, "探测超时");
+        } catch (ExecutionException e) {
+            sample = new Sample(System.currentTimeMillis(), false, elapsedMillis(start), null, null,
+                    e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("请求已取消");
+        }
+        boolean wasDown = target.consecutiveFailures() >= properties.getDownAfter();
+        target.record(sample, properties.getWindowSize());
+        boolean down = target.consecutiveFailures() >= properties.getDownAfter();
+        if (down != wasDown) {
+            logger.warn("端点健康状态变化: {} -> {}", endpoint.id(), down ? "DOWN" : "UP");
+        }
+        return sample;
+    }
+
+    private Target target(ProviderEndpoint endpoint) {
+        String key = key(endpoint);
+        Target target = targets.get(key);
+        if (target != null) {
+            return target;
+        }
+        if (targets.size() >= properties.getMaxTargets()) {
+            // 淘汰最久未使用的非常驻端点
+            targets.entrySet().stream()
+                    .filter(entry -> !entry.getValue().pinned)
+                    .min(Comparator.comparingLong(entry -> entry.getValue().lastUsed))
+                    .ifPresent(entry -> targets.remove(entry.getKey(), entry.getValue()));
+        }
+        return targets.computeIfAbsent(key, k -> new Target(endpoint, false));
+    }
+
+    /**
+     * 未登记端点的按需探测项：先清理结果已过期的项，数量达到上限时不再缓存
+     */
+    private Target onDemandTarget(ProviderEndpoint endpoint) {
+        onDemand.values().removeIf(target -> !target.probeLock.isLocked() && !isFresh(target.latest())
+                && System.currentTimeMillis() - target.lastUsed > properties.getCacheTtl().toMillis());
+        Target target = onDemand.get(key(endpoint));
+        if (target != null) {
+            return target;
+        }
+        if (onDemand.size() >= properties.getMaxTargets()) {
+            return new Target(endpoint, false);
+        }
+        return onDemand.computeIfAbsent(key(endpoint), k -> new Target(endpoint, false));
+    }
+
+    private boolean isFresh(Sample sample) {
+        return sample != null && System.currentTimeMillis() - sample.at() < properties.getCacheTtl().toMillis();
+    }
+
+    private static String key(ProviderEndpoint endpoint) {
+        // 同一地址换了API Key结果可能不同
+        return endpoint.id() + " " + ApiKeys.fingerprint(endpoint.apiKey());
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        probeExecutor.shutdownNow();
+        onDemand.clear();
+    }
+
+    /**
+     * 一次探测的记录
+     */
+    public record Sample(long at, boolean ok, long latencyMs, String method, Boolean modelListed, String error) {
+    }
+
+    /**
+     * 测试连接的结果，cached 表示来自此前的探测
+     */
+    public record Check(Sample sample, boolean cached) {
+    }
+
+    private static class Target {
+        private final ProviderEndpoint endpoint;
+        private final boolean pinned;
+        private final ReentrantLock probeLock = new ReentrantLock();
+        private volatile long lastUsed = System.currentTimeMillis();
+        private Sample[] window = new Sample[0];
+        private int windowPos;
+        private int windowCount;
+        private int failures;
+        private long probeCount;
+
+        Target(ProviderEndpoint endpoint, boolean pinned) {
+            this.endpoint = endpoint;
+            this.pinned = pinned;
+        }
+
+        synchronized void record(Sample sample, int windowSize) {
+            if (window.length != windowSize) {
+                window = new Sample[windowSize];
+                windowPos = 0;
+                windowCount = 0;
+            }
+            window[windowPos] = sample;
+            windowPos = (windowPos + 1) % window.length;
+            windowCount = Math.min(windowCount + 1, window.length);
+            failures = sample.ok() ? 0 : failures + 1;
+            probeCount++;
+        }
+
+        synchronized long probeCount() {
+            return probeCount;
+        }
+
+        synchronized Sample latest() {
+            return windowCount == 0 ? null : window[(windowPos - 1 + window.length) % window.length];
+        }
+
+        synchronized int consecutiveFailures() {
+            return failures;
+        }
+
+        synchronized long averageLatency() {
+            long total = 0;
+            int count = 0;
+            for (int i = 0; i < windowCount; i++) {
+                if (window[i].ok()) {
+                    total += window[i].latencyMs();
+                    count++;
+                }
+            }
+            return count == 0 ? -1 : total / count;
+        }
+
+        synchronized Map<String, Object> snapshot(int downAfter) {
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            int ok = 0;
+            for (int i = 0; i < windowCount; i++) {
+                if (window[i].ok()) {
+                    ok++;
+                }
+            }
+            snapshot.put("probes", windowCount);
+            snapshot.put("availability", windowCount == 0 ? null : (double) ok / windowCount);
+            long average = averageLatency();
+            snapshot.put("probeLatencyMs", average < 0 ? null : average);
+            snapshot.put("down", failures >= downAfter);
+            Sample latest = latest();
+            if (latest != null) {
+                snapshot.put("lastCheckedAt", latest.at());
+                snapshot.put("lastOk", latest.ok());
+                snapshot.put("probeMethod", latest.method());
+                snapshot.put("lastError", latest.error());
+            }
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.erokin.strove.ai.provider;
+
+import com.erokin.strove.ai.StreamStoppedException;
+import com.erokin.strove.config.properties.AiProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+/**
+ * 多端点路由
+ * 每个端点维护延迟与错误率的EWMA以及最近的延迟样本；按 延迟 ×（1 + 惩罚 × 错误率）从低到高尝试，
+ * 样本不足的端点优先探测（按后台探测延迟排序），并以小概率交换前两名以持续采样；
+ * 后台健康探测连续失败的端点排到最后。
+ * 非流式调用可对冲：首选端点超过其p95延迟仍未返回时，向次选端点发送备份请求，取先成功者并取消另一个
+ */
+@Component
+public class LatencyRouter {
+
+    // 错误率对评分的放大系数：10%错误率相当于延迟翻倍
+    private static final double ERROR_PENALTY = 10.0;
+
+    private final AiProperties.Routing properties;
+    private final HealthProber healthProber;
+    private final Map<String, EndpointStats> stats = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public LatencyRouter(AiProperties aiProperties, HealthProber healthProber) {
+        this.properties = aiProperties.getRouting();
+        this.healthProber = healthProber;
+    }
+
+    /**
+     * 在端点间路由一次调用
+     *
+     * @param hedge       是否允许对冲（流式调用的增量已推送给客户端，不能对冲）
+     * @param canFailover 失败后是否还能换下一个端点重试
+     */
+    public <T> T execute(List<ProviderEndpoint> endpoints, boolean hedge, BooleanSupplier canFailover,
+                         Function<ProviderEndpoint, T> call) {
+        if (endpoints.size() == 1) {
+            // 单端点无需路由，也不记录统计（避免为任意用户地址保留状态）
+            return call.apply(endpoints.get(0));
+        }
+        List<ProviderEndpoint> ordered = order(endpoints);
+        if (hedge && properties.isHedging()) {
+            return hedged(ordered, call);
+        }
+        RuntimeException last = null;
+        for (ProviderEndpoint endpoint : ordered) {
+            try {
+                return timed(endpoint, call, () -> false);
+            } catch (RuntimeException e) {
+                last = e;
+                if (!canFailover.getAsBoolean()) {
+                    throw e;
+                }
+            }
+        }
+        throw last;
+    }
+
+    public List<ProviderEndpoint> order(List<ProviderEndpoint> endpoints) {
+        if (endpoints.size() < 2) {
+            return endpoints;
+        }
+        List<ProviderEndpoint> ordered = new ArrayList<>(endpoints);
+        ordered.sort(Comparator.comparing((ProviderEndpoint endpoint) -> healthProber.isDown(endpoint))
+                .thenComparingDouble(endpoint -> score(endpoint.id()))
+                .thenComparingLong(this::probeLatency));
+        if (ThreadLocalRandom.current().nextDouble() < properties.getExplorationRate()
+                && !healthProber.isDown(ordered.get(1))) {
+            ordered.set(0, ordered.set(1, ordered.get(0)));
+        }
+        return ordered;
+    }
+
+    /**
+     * 端点的路由统计快照
+     */
+    public Map<String, Object> snapshot(ProviderEndpoint endpoint) {
+        EndpointStats endpointStats = stats.get(endpoint.id());
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("provider", endpoint.provider());
+        snapshot.put("model", endpoint.model());
+        if (endpointStats == null) {
+            snapshot.put("samples", 0);
+            return snapshot;
+        }
+        synchronized (endpointStats) {
+            snapshot.put("samples", endpointStats.count);
+            snapshot.put("attempts", endpointStats.attempts);
+            snapshot.put("ewmaLatencyMs", Math.round(endpointStats.ewmaLatency));
+            snapshot.put("ewmaErrorRate", endpointStats.ewmaError);
+            snapshot.put("p95LatencyMs", endpointStats.percentile(0.95));
+        }
+        return snapshot;
+    }
+
+    private <T> T hedged(List<ProviderEndpoint> ordered, Function<ProviderEndpoint, T> call) {
+        CompletionService<T> completion = new ExecutorCompletionService<>(executor);
+        List<Future<T>> futures = new ArrayList<>();
+        AtomicBoolean settled = new AtomicBoolean();
+        futures.add(completion.submit(() -> timed(ordered.get(0), call, settled::get)));
+        int next = 1;
+        int inFlight = 1;
+        boolean hedged = false;
+        long hedgeDelay = hedgeDelay(ordered.get(0).id());
+        RuntimeException last = null;
+        try {
+            while (inFlight > 0) {
+                Future<T> done = hedged || next >= ordered.size()
+                        ? completion.take()
+                        : completion.poll(hedgeDelay, TimeUnit.MILLISECONDS);
+                if (done == null) {
+                    // 首选端点超过p95仍未返回，发出备份请求
+                    ProviderEndpoint backup = ordered.get(next++);
+                    futures.add(completion.submit(() -> timed(backup, call, settled::get)));
+                    inFlight++;
+                    hedged = true;
+                    continue;
+                }
+                inFlight--;
+                try {
+                    return done.get();
+                } catch (ExecutionException e) {
+                    last = e.getCause() instanceof RuntimeException cause ? cause : new RuntimeException(e.getCause());
+                    if (inFlight == 0 && next < ordered.size()) {
+                        // 全部失败且还有备选端点时继续故障转移
+                        ProviderEndpoint fallback = ordered.get(next++);
+                        futures.add(completion.submit(() -> timed(fallback, call, settled::get)));
+                        inFlight++;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("请求已取消");
+        } finally {
+            settled.set(true);
+            futures.forEach(future -> future.cancel(true));
+        }
+        throw last;
+    }
+
+    private <T> T timed(ProviderEndpoint endpoint, Function<ProviderEndpoint, T> call, BooleanSupplier cancelled) {
+        EndpointStats endpointStats = stats.computeIfAbsent(endpoint.id(), id -> new EndpointStats());
+        long start = System.nanoTime();
+        try {
+            T result = call.apply(endpoint);
+            endpointStats.record((System.nanoTime() - start) / 1_000_000, true, properties.getEwmaAlpha());
+            return result;
+        } catch (StreamStoppedException e) {
+            // 调用方拿到所需内容后主动结束，视为成功
+            endpointStats.record((System.nanoTime() - start) / 1_000_000, true, properties.getEwmaAlpha());
+            throw e;
+        } catch (RuntimeException e) {
+            // 对冲中落败或被调用方取消的请求不计入错误
+            if (!cancelled.getAsBoolean() && !Thread.currentThread().isInterrupted()) {
+                endpointStats.record((System.nanoTime() - start) / 1_000_000, false, properties.getEwmaAlpha());
+            }
+            throw e;
+        }
+    }
+
+    private double score(String endpointId) {
+        EndpointStats endpointStats = stats.get(endpointId);
+        if (endpointStats == null) {
+            return 0;
+        }
+        synchronized (endpointStats) {
+            if (endpointStats.attempts < properties.getMinSamples()) {
+                return 0;
+            }
+            if (endpointStats.count == 0) {
+                // 从未成功过
+                return Double.MAX_VALUE;
+            }
+            return endpointStats.ewmaLatency * (1 + ERROR_PENALTY * endpointStats.ewmaError);
+        }
+    }
+
+    private long probeLatency(ProviderEndpoint endpoint) {
+        long latency = healthProber.probeLatency(endpoint);
+        return latency < 0 ? Long.MAX_VALUE : latency;
+    }
+
+    private long hedgeDelay(String endpointId) {
+        long minDelay = properties.getMinHedgeDelay().toMillis();
+        EndpointStats endpointStats = stats.get(endpointId);
+        if (endpointStats == null) {
+            return Math.max(minDelay, properties.getDefaultHedgeDelay().toMillis());
+        }
+        synchronized (endpointStats) {
+            if (endpointStats.count < properties.getMinSamples()) {
+                return Math.max(minDelay, properties.getDefaultHedgeDelay().toMillis());
+            }
+            return Math.max(minDelay, endpointStats.percentile(0.95));
+        }
+    }
+
+    private static class EndpointStats {
+        private final long[] samples = new long[128];
+        private int count;
+        private int attempts;
+        private double ewmaLatency;
+        private double ewmaError;
+
+        synchronized void record(long latencyMs, boolean success, double alpha) {
+            attempts++;
+            if (success) {
+                // 延迟只统计成功请求，失败的快速返回会让端点看起来更快
+                samples[count % samples.length] = latencyMs;
+                ewmaLatency = count == 0 ? latencyMs : alpha * latencyMs + (1 - alpha) * ewmaLatency;
+                count++;
+            }
+            ewmaError = alpha * (success ? 0 : 1) + (1 - alpha) * ewmaError;
+        }
+
+        long percentile(double p) {
+            int size = Math.min(count, samples.length);
+            if (size == 0) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(samples, size);
+            Arrays.sort(sorted);
+            return sorted[Math.min(size - 1, (int) Math.ceil(p * size) - 1)];
+        }
+    }
+}
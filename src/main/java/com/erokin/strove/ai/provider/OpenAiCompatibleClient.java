@@ -0,0 +1,232 @@
+package com.erokin.strove.ai.provider;
+
+import com.erokin.strove.ai.EndpointGuard;
+import com.erokin.strove.ai.RequestPacer;
+import com.erokin.strove.ai.StreamStoppedException;
+import com.erokin.strove.ai.UpstreamHttpClients;
+import com.erokin.strove.ai.openai.ChatCompletionRequest;
+import com.erokin.strove.ai.openai.ChatCompletionResult;
+import com.erokin.strove.ai.openai.CompletionParser;
+import com.erokin.strove.ai.openai.SseFrameDecoder;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * OpenAI兼容接口（官方接口及各类中转服务）
+ */
+@Component
+public class OpenAiCompatibleClient implements ProviderClient {
+
+    // 单个SSE帧的上限，正常的增量帧只有几百字节
+    private static final int MAX_SSE_FRAME_BYTES = 1024 * 1024;
+
+    private final String provider;
+    private final RequestPacer requestPacer;
+    private final EndpointGuard endpointGuard;
+    private final RestTemplate restTemplate;
+    private final ObjectMapper objectMapper;
+    private final CompletionParser completionParser;
+    private final SseFrameDecoder sseFrameDecoder = new SseFrameDecoder(MAX_SSE_FRAME_BYTES);
+    // 不提供 /models 的中转地址，改用最小token请求探测
+    private final Set<String> modelsUnsupported = ConcurrentHashMap.newKeySet();
+
+    public OpenAiCompatibleClient(RequestPacer requestPacer, EndpointGuard endpointGuard,
+                                  UpstreamHttpClients upstreamHttpClients, ObjectMapper objectMapper) {
+        this("openai", requestPacer, endpointGuard, upstreamHttpClients, objectMapper);
+    }
+
+    protected OpenAiCompatibleClient(String provider, RequestPacer requestPacer, EndpointGuard endpointGuard,
+                                     UpstreamHttpClients upstreamHttpClients, ObjectMapper objectMapper) {
+        this.provider = provider;
+        this.requestPacer = requestPacer;
+        this.endpointGuard = endpointGuard;
+        // 同一服务商（含用户自定义中转地址）共用同一组连接池
+        this.restTemplate = upstreamHttpClients.restTemplate(provider);
+        this.objectMapper = objectMapper;
+        this.completionParser = new CompletionParser(objectMapper.getFactory());
+    }
+
+    @Override
+    public String provider() {
+        return provider;
+    }
+
+    @Override
+    public String defaultModel() {
+        return "gpt-3.5-turbo";
+    }
+
+    /**
+     * 构建完整的 chat/completions 地址
+     */
+    @Override
+    public String resolveUrl(String apiUrl) {
+        if (apiUrl == null || apiUrl.trim().isEmpty()) {
+            // 使用默认的OpenAI官方API地址
+            return defaultUrl();
+        }
+        // 如果用户提供了自定义URL
+        String url = apiUrl.trim();
+        // 如果URL不包含 /chat/completions，自动添加
+        if (!url.contains("/chat/completions")) {
+            // 移除末尾的斜杠（如果有）
+            if (url.endsWith("/")) {
+                url = url.substring(0, url.length() - 1);
+            }
+            url = url + "/chat/completions";
+        }
+        return url;
+    }
+
+    protected String defaultUrl() {
+        return "https://api.openai.com/v1/chat/completions";
+    }
+
+    /**
+     * 非流式调用上游：按API Key控制节奏（429时退避重试），并受端点熔断/并发上限保护
+     * 响应体直接在字节流上解析，只提取用到的字段
+     */
+    @Override
+    public ChatCompletionResult complete(ProviderEndpoint endpoint, ChatCompletionRequest request) {
+        String url = endpoint.url();
+        String apiKey = endpoint.apiKey();
+        System.out.println("调用" + provider + " API - URL: " + url + ", Model: " + request.model());
+        try {
+            return requestPacer.execute(apiKey, () -> endpointGuard.call(url, true,
+                    () -> restTemplate.execute(url, HttpMethod.POST, writeRequest(request, apiKey), clientResponse -> {
+                        requestPacer.observe(apiKey, clientResponse.getHeaders());
+                        UpstreamErrors.checkContentType(clientResponse.getHeaders().getContentType());
+                        return completionParser.parse(clientResponse.getBody());
+                    })));
+        } catch (RestClientException e) {
+            throw UpstreamErrors.translate(e);
+        }
+    }
+
+    /**
+     * 以 stream=true 调用，逐帧解析SSE增量
+     */
+    @Override
+    public String stream(ProviderEndpoint endpoint, ChatCompletionRequest request, Consumer<String> onDelta) {
+        String url = endpoint.url();
+        String apiKey = endpoint.apiKey();
+        ChatCompletionRequest streaming = request.streaming();
+        System.out.println("调用" + provider + " API (stream) - URL: " + url + ", Model: " + request.model());
+        try {
+            return requestPacer.execute(apiKey, () -> endpointGuard.call(url, false,
+                    () -> restTemplate.execute(url, HttpMethod.POST, writeRequest(streaming, apiKey), clientResponse -> {
+                        requestPacer.observe(apiKey, clientResponse.getHeaders());
+                        MediaType contentType = UpstreamErrors.checkContentType(clientResponse.getHeaders().getContentType());
+                        if (contentType != null && MediaType.APPLICATION_JSON.isCompatibleWith(contentType)) {
+                            // 部分中转服务忽略 stream 参数，直接返回完整JSON
+                            String content = completionParser.parse(clientResponse.getBody()).content();
+                            onDelta.accept(content);
+                            return content;
+                        }
+                        return readEventStream(clientResponse.getBody(), onDelta);
+                    })));
+        } catch (RestClientException e) {
+            throw UpstreamErrors.translate(e);
+        }
+    }
+
+    /**
+     * 优先请求同一前缀下的 /models（不消耗token），并核对模型是否在列表中
+     * 地址不以 /chat/completions 结尾或中转服务不提供该接口时退回默认探测
+     */
+    @Override
+    public ProbeOutcome probe(ProviderEndpoint endpoint) {
+        String url = endpoint.url();
+        if (url.endsWith("/chat/completions")) {
+            String modelsUrl = url.substring(0, url.length() - "/chat/completions".length()) + "/models";
+            if (!modelsUnsupported.contains(modelsUrl)) {
+                try {
+                    Set<String> models = restTemplate.execute(modelsUrl, HttpMethod.GET, clientRequest -> {
+                        clientRequest.getHeaders().setAccept(List.of(MediaType.APPLICATION_JSON));
+                        clientRequest.getHeaders().setBearerAuth(endpoint.apiKey());
+                    }, clientResponse -> {
+                        UpstreamErrors.checkContentType(clientResponse.getHeaders().getContentType());
+                        return readModelIds(clientResponse.getBody());
+                    });
+                    return new ProbeOutcome("models",
+                            models == null || models.isEmpty() ? null : models.contains(endpoint.model()));
+                } catch (HttpClientErrorException e) {
+                    if (e.getStatusCode().value() != 404 && e.getStatusCode().value() != 405) {
+                        throw UpstreamErrors.translate(e);
+                    }
+                    modelsUnsupported.add(modelsUrl);
+                } catch (RestClientException e) {
+                    String message = e.getMessage();
+                    if (message == null || !message.contains("text/html")) {
+                        throw UpstreamErrors.translate(e);
+                    }
+                    // 部分中转服务对未知路径返回网页
+                    modelsUnsupported.add(modelsUrl);
+                }
+            }
+        }
+        return ProviderClient.super.probe(endpoint);
+    }
+
+    private Set<String> readModelIds(InputStream body) throws IOException {
+        Set<String> ids = new HashSet<>();
+        for (JsonNode model : objectMapper.readTree(body).path("data")) {
+            String id = model.path("id").asText(null);
+            if (id != null) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * 请求体直接序列化到连接的输出流
+     */
+    private RequestCallback writeRequest(ChatCompletionRequest request, String apiKey) {
+        return clientRequest -> {
+            clientRequest.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            clientRequest.getHeaders().setAccept(Boolean.TRUE.equals(request.stream())
+                    ? List.of(MediaType.TEXT_EVENT_STREAM, MediaType.APPLICATION_JSON)
+                    : List.of(MediaType.APPLICATION_JSON));
+            clientRequest.getHeaders().setBearerAuth(apiKey);
+            objectMapper.writeValue(clientRequest.getBody(), request);
+        };
+    }
+
+    /**
+     * 逐帧解析 data: 负载直到 [DONE]，返回拼接后的完整回复
+     */
+    private String readEventStream(InputStream body, Consumer<String> onDelta) throws IOException {
+        StringBuilder content = new StringBuilder();
+        try {
+            sseFrameDecoder.decode(body, (data, offset, length) -> {
+                String delta = completionParser.parseChunk(data, offset, length).content();
+                if (delta != null && !delta.isEmpty()) {
+                    content.append(delta);
+                    onDelta.accept(delta);
+                }
+                return true;
+            });
+        } catch (StreamStoppedException e) {
+            // 先关闭底层流中止连接，否则关闭响应时会把剩余内容读完
+            body.close();
+            throw e;
+        }
+        return content.toString();
+    }
+}
@@ -0,0 +1,10 @@
+package com.erokin.strove.ai.provider;
+
+/**
+ * 一次健康探测的结果
+ *
+ * @param method      探测方式：models（模型列表）或 completion（最小token请求）
+ * @param modelListed 模型列表中是否包含端点的模型，无法判断时为null
+ */
+public record ProbeOutcome(String method, Boolean modelListed) {
+}
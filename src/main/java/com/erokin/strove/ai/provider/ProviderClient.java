@@ -0,0 +1,40 @@
+package com.erokin.strove.ai.provider;
+
+import com.erokin.strove.ai.openai.ChatCompletionRequest;
+import com.erokin.strove.ai.openai.ChatCompletionResult;
+import com.erokin.strove.ai.openai.ChatMessage;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 服务商适配器：把统一的 chat/completions 请求转换为各家协议
+ * 失败时抛出带有面向用户信息的 RuntimeException
+ */
+public interface ProviderClient {
+
+    String provider();
+
+    String defaultModel();
+
+    /**
+     * 由用户填写的地址（可为空）得到完整的接口地址
+     */
+    String resolveUrl(String apiUrl);
+
+    ChatCompletionResult complete(ProviderEndpoint endpoint, ChatCompletionRequest request);
+
+    /**
+     * 流式调用，每收到一段增量回调 onDelta，返回完整回复
+     */
+    String stream(ProviderEndpoint endpoint, ChatCompletionRequest request, Consumer<String> onDelta);
+
+    /**
+     * 健康探测，失败时抛出异常
+     * 默认发送只生成1个token的请求；有免费探测接口的服务商应覆盖
+     */
+    default ProbeOutcome probe(ProviderEndpoint endpoint) {
+        complete(endpoint, new ChatCompletionRequest(endpoint.model(), List.of(ChatMessage.user("ping")), 0.0, 1));
+        return new ProbeOutcome("completion", null);
+    }
+}
@@ -0,0 +1,16 @@
+package com.erokin.strove.ai.provider;
+
+import com.erokin.strove.ai.EndpointGuard;
+
+/**
+ * 一个可调用的模型端点：服务商 + 完整接口地址 + 实际模型名 + API Key
+ */
+public record ProviderEndpoint(String provider, String url, String model, String apiKey) {
+
+    /**
+     * 路由统计使用的标识，不含API Key
+     */
+    public String id() {
+        return provider + " " + EndpointGuard.normalize(url) + " " + model;
+    }
+}
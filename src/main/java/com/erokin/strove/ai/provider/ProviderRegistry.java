@@ -0,0 +1,68 @@
+package com.erokin.strove.ai.provider;
+
+import com.erokin.strove.config.properties.AiProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 服务商注册表
+ * 请求的 model 与 app.ai.routing.routes 中的逻辑模型名一致时，展开为其下配置的全部等价端点；
+ * 否则按请求中的 provider/apiUrl/model 构造单个端点（与原有行为一致）
+ */
+@Component
+public class ProviderRegistry {
+
+    private static final String DEFAULT_PROVIDER = "openai";
+
+    private final Map<String, ProviderClient> clients = new HashMap<>();
+    private final AiProperties.Routing properties;
+
+    public ProviderRegistry(List<ProviderClient> clients, AiProperties aiProperties) {
+        for (ProviderClient client : clients) {
+            this.clients.put(client.provider(), client);
+        }
+        this.properties = aiProperties.getRouting();
+    }
+
+    public ProviderClient client(String provider) {
+        ProviderClient client = clients.get(normalizeProvider(provider));
+        return client != null ? client : clients.get(DEFAULT_PROVIDER);
+    }
+
+    /**
+     * 解析本次请求可用的端点；端点未单独配置API Key时使用请求中的Key
+     */
+    public List<ProviderEndpoint> resolve(String provider, String model, String apiUrl, String apiKey) {
+        List<ProviderEndpoint> endpoints = new ArrayList<>();
+        List<AiProperties.RouteEndpoint> route = model != null ? properties.getRoutes().get(model) : null;
+        if (route != null && !route.isEmpty()) {
+            for (AiProperties.RouteEndpoint configured : route) {
+                ProviderClient client = client(configured.getProvider());
+                String key = configured.getApiKey() != null && !configured.getApiKey().isBlank()
+                        ? configured.getApiKey() : apiKey;
+                if (key == null || key.isEmpty()) {
+                    continue;
+                }
+                endpoints.add(new ProviderEndpoint(client.provider(), client.resolveUrl(configured.getUrl()),
+                        configured.getModel() != null ? configured.getModel() : model, key));
+            }
+        } else if (apiKey != null && !apiKey.isEmpty()) {
+            ProviderClient client = client(provider);
+            endpoints.add(new ProviderEndpoint(client.provider(), client.resolveUrl(apiUrl),
+                    model != null ? model : client.defaultModel(), apiKey));
+        }
+        if (endpoints.isEmpty()) {
+            throw new RuntimeException("API密钥不能为空");
+        }
+        return endpoints;
+    }
+
+    private String normalizeProvider(String provider) {
+        return provider == null || provider.isBlank() ? DEFAULT_PROVIDER : provider.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,146 @@
+package com.erokin.strove.ai.provider;
+
+import com.erokin.strove.ai.EndpointGuard;
+import com.erokin.strove.ai.RequestPacer;
+import com.erokin.strove.ai.StreamStoppedException;
+import com.erokin.strove.ai.UpstreamHttpClients;
+import com.erokin.strove.ai.openai.ChatCompletionRequest;
+import com.erokin.strove.ai.openai.ChatCompletionResult;
+import com.erokin.strove.ai.openai.ChatMessage;
+import com.erokin.strove.ai.openai.CompletionParser;
+import com.erokin.strove.ai.openai.SseFrameDecoder;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 通义千问（DashScope 原生文本生成接口）
+ * 请求体为 {model, input.messages, parameters}，结果格式固定为 message；
+ * 流式调用通过 X-DashScope-SSE 开启，并使用增量输出，每帧只包含新生成的内容
+ */
+@Component
+public class QianwenClient implements ProviderClient {
+
+    private static final String DEFAULT_URL =
+            "https://dashscope.aliyuncs.com/api/v1/services/aigc/text-generation/generation";
+    private static final int MAX_SSE_FRAME_BYTES = 1024 * 1024;
+
+    private final RequestPacer requestPacer;
+    private final EndpointGuard endpointGuard;
+    private final RestTemplate restTemplate;
+    private final ObjectMapper objectMapper;
+    private final CompletionParser completionParser;
+    private final SseFrameDecoder sseFrameDecoder = new SseFrameDecoder(MAX_SSE_FRAME_BYTES);
+
+    public QianwenClient(RequestPacer requestPacer, EndpointGuard endpointGuard,
+                         UpstreamHttpClients upstreamHttpClients, ObjectMapper objectMapper) {
+        this.requestPacer = requestPacer;
+        this.endpointGuard = endpointGuard;
+        this.restTemplate = upstreamHttpClients.restTemplate("qianwen");
+        this.objectMapper = objectMapper;
+        this.completionParser = new CompletionParser(objectMapper.getFactory());
+    }
+
+    @Override
+    public String provider() {
+        return "qianwen";
+    }
+
+    @Override
+    public String defaultModel() {
+        return "qwen-turbo";
+    }
+
+    @Override
+    public String resolveUrl(String apiUrl) {
+        return apiUrl == null || apiUrl.isBlank() ? DEFAULT_URL : apiUrl.trim();
+    }
+
+    @Override
+    public ChatCompletionResult complete(ProviderEndpoint endpoint, ChatCompletionRequest request) {
+        String url = endpoint.url();
+        String apiKey = endpoint.apiKey();
+        System.out.println("调用通义千问 API - URL: " + url + ", Model: " + request.model());
+        try {
+            return requestPacer.execute(apiKey, () -> endpointGuard.call(url, true,
+                    () -> restTemplate.execute(url, HttpMethod.POST, writeRequest(request, apiKey, false), clientResponse -> {
+                        requestPacer.observe(apiKey, clientResponse.getHeaders());
+                        UpstreamErrors.checkContentType(clientResponse.getHeaders().getContentType());
+                        return completionParser.parse(clientResponse.getBody());
+                    })));
+        } catch (RestClientException e) {
+            throw UpstreamErrors.translate(e);
+        }
+    }
+
+    @Override
+    public String stream(ProviderEndpoint endpoint, ChatCompletionRequest request, Consumer<String> onDelta) {
+        String url = endpoint.url();
+        String apiKey = endpoint.apiKey();
+        System.out.println("调用通义千问 API (stream) - URL: " + url + ", Model: " + request.model());
+        try {
+            return requestPacer.execute(apiKey, () -> endpointGuard.call(url, false,
+                    () -> restTemplate.execute(url, HttpMethod.POST, writeRequest(request, apiKey, true), clientResponse -> {
+                        requestPacer.observe(apiKey, clientResponse.getHeaders());
+                        UpstreamErrors.checkContentType(clientResponse.getHeaders().getContentType());
+                        StringBuilder content = new StringBuilder();
+                        try {
+                            sseFrameDecoder.decode(clientResponse.getBody(), (data, offset, length) -> {
+                                String delta = completionParser.parseChunk(data, offset, length, "message").content();
+                                if (delta != null && !delta.isEmpty()) {
+                                    content.append(delta);
+                                    onDelta.accept(delta);
+                                }
+                                return true;
+                            });
+                        } catch (StreamStoppedException e) {
+                            // 先关闭底层流中止连接，否则关闭响应时会把剩余内容读完
+                            clientResponse.getBody().close();
+                            throw e;
+                        }
+                        return content.toString();
+                    })));
+        } catch (RestClientException e) {
+            throw UpstreamErrors.translate(e);
+        }
+    }
+
+    private RequestCallback writeRequest(ChatCompletionRequest request, String apiKey, boolean stream) {
+        GenerationRequest body = new GenerationRequest(request.model(), new Input(request.messages()),
+                new Parameters("message", request.temperature(), request.maxTokens(), stream ? Boolean.TRUE : null));
+        return clientRequest -> {
+            clientRequest.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            clientRequest.getHeaders().setBearerAuth(apiKey);
+            if (stream) {
+                clientRequest.getHeaders().setAccept(List.of(MediaType.TEXT_EVENT_STREAM));
+                clientRequest.getHeaders().set("X-DashScope-SSE", "enable");
+            } else {
+                clientRequest.getHeaders().setAccept(List.of(MediaType.APPLICATION_JSON));
+            }
+            objectMapper.writeValue(clientRequest.getBody(), body);
+        };
+    }
+
+    record GenerationRequest(String model, Input input, Parameters parameters) {
+    }
+
+    record Input(List<ChatMessage> messages) {
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    record Parameters(
+            @JsonProperty("result_format") String resultFormat,
+            double temperature,
+            @JsonProperty("max_tokens") Integer maxTokens,
+            @JsonProperty("incremental_output") Boolean incrementalOutput) {
+    }
+}
@@ -0,0 +1,63 @@
+package com.erokin.strove.ai.provider;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+
+/**
+ * 上游错误转换
+ */
+final class UpstreamErrors {
+
+    private UpstreamErrors() {
+    }
+
+    /**
+     * 将RestTemplate异常转换为面向用户的错误信息
+     */
+    static RuntimeException translate(RestClientException ex) {
+        if (Thread.currentThread().isInterrupted()) {
+            // 客户端断开或主动取消时线程被中断，底层连接已中止
+            return new RuntimeException("请求已取消");
+        }
+        if (ex instanceof HttpClientErrorException e) {
+            // 处理4xx错误（如401未授权、400错误请求等）
+            String errorBody = e.getResponseBodyAsString();
+            if (e.getStatusCode().value() == 401) {
+                return new RuntimeException("API Key无效或已过期，请检查您的API Key配置");
+            } else if (e.getStatusCode().value() == 429) {
+                return new RuntimeException("API请求频率超限，请稍后再试");
+            } else {
+                return new RuntimeException("API请求失败(" + e.getStatusCode() + "): " +
+                    (errorBody.length() > 100 ? errorBody.substring(0, 100) + "..." : errorBody));
+            }
+        } else if (ex instanceof HttpServerErrorException e) {
+            // 处理5xx服务器错误
+            return new RuntimeException("API服务暂时不可用(" + e.getStatusCode() + ")，请稍后重试");
+        } else if (ex instanceof ResourceAccessException) {
+            // 处理网络连接问题
+            return new RuntimeException("无法连接到API服务，请检查网络或API URL配置: " + ex.getMessage());
+        }
+        // 处理其他RestTemplate异常，包括响应格式错误
+        String errorMsg = ex.getMessage();
+        if (errorMsg != null && errorMsg.contains("text/html")) {
+            return new RuntimeException("API返回了HTML页面而非JSON数据，请检查:\n" +
+                "1. API URL配置是否正确\n" +
+                "2. API Key是否有效\n" +
+                "3. 如使用中转服务，中转服务是否正常");
+        }
+        return new RuntimeException("调用API失败: " + errorMsg);
+    }
+
+    /**
+     * 中转地址配置错误时常返回HTML页面，转换为带排查提示的错误
+     */
+    static MediaType checkContentType(MediaType contentType) {
+        if (contentType != null && MediaType.TEXT_HTML.isCompatibleWith(contentType)) {
+            throw new RestClientException("Unexpected content type: text/html");
+        }
+        return contentType;
+    }
+}
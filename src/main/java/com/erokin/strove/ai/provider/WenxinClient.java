@@ -0,0 +1,30 @@
+package com.erokin.strove.ai.provider;
+
+import com.erokin.strove.ai.EndpointGuard;
+import com.erokin.strove.ai.RequestPacer;
+import com.erokin.strove.ai.UpstreamHttpClients;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+/**
+ * 文心一言（百度千帆 v2 接口）
+ * v2 接口与OpenAI协议兼容，使用千帆控制台生成的 API Key（bce-v3/...）作为 Bearer 令牌
+ */
+@Component
+public class WenxinClient extends OpenAiCompatibleClient {
+
+    public WenxinClient(RequestPacer requestPacer, EndpointGuard endpointGuard,
+                        UpstreamHttpClients upstreamHttpClients, ObjectMapper objectMapper) {
+        super("wenxin", requestPacer, endpointGuard, upstreamHttpClients, objectMapper);
+    }
+
+    @Override
+    public String defaultModel() {
+        return "ernie-3.5-8k";
+    }
+
+    @Override
+    protected String defaultUrl() {
+        return "https://qianfan.baidubce.com/v2/chat/completions";
+    }
+}
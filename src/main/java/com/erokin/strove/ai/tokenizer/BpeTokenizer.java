@@ -0,0 +1,141 @@
+package com.erokin.strove.ai.tokenizer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 字节级BPE分词器，兼容 tiktoken 词表格式（每行 "base64(token) rank"）
+ * 先用预分词正则切出片段，再在每个片段的UTF-8字节上按rank从小到大反复合并
+ */
+public class BpeTokenizer implements Tokenizer {
+
+    static final String CL100K_PATTERN =
+            "(?i:'s|'t|'re|'ve|'m|'ll|'d)|[^\\r\\n\\p{L}\\p{N}]?\\p{L}+|\\p{N}{1,3}| ?[^\\s\\p{L}\\p{N}]+[\\r\\n]*"
+            + "|\\s*[\\r\\n]+|\\s+(?!\\S)|\\s+";
+
+    static final String O200K_PATTERN =
+            "[^\\r\\n\\p{L}\\p{N}]?[\\p{Lu}\\p{Lt}\\p{Lm}\\p{Lo}\\p{M}]*[\\p{Ll}\\p{Lm}\\p{Lo}\\p{M}]+(?i:'s|'t|'re|'ve|'m|'ll|'d)?"
+            + "|[^\\r\\n\\p{L}\\p{N}]?[\\p{Lu}\\p{Lt}\\p{Lm}\\p{Lo}\\p{M}]+[\\p{Ll}\\p{Lm}\\p{Lo}\\p{M}]*(?i:'s|'t|'re|'ve|'m|'ll|'d)?"
+            + "|\\p{N}{1,3}| ?[^\\s\\p{L}\\p{N}]+[\\r\\n/]*|\\s*[\\r\\n]+|\\s+(?!\\S)|\\s+";
+
+    private final String name;
+    private final Pattern pattern;
+    private final Map<ByteSequence, Integer> ranks;
+
+    private BpeTokenizer(String name, Pattern pattern, Map<ByteSequence, Integer> ranks) {
+        this.name = name;
+        this.pattern = pattern;
+        this.ranks = ranks;
+    }
+
+    /**
+     * 从 tiktoken 格式的词表流加载
+     */
+    public static BpeTokenizer load(String name, String splitPattern, InputStream vocab) throws IOException {
+        Map<ByteSequence, Integer> ranks = new HashMap<>(200_000);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(vocab, StandardCharsets.US_ASCII));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            int space = line.indexOf(' ');
+            if (space <= 0) {
+                continue;
+            }
+            byte[] token = Base64.getDecoder().decode(line.substring(0, space));
+            ranks.put(new ByteSequence(token), Integer.parseInt(line.substring(space + 1).trim()));
+        }
+        return new BpeTokenizer(name, Pattern.compile(splitPattern), ranks);
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public int countTokens(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        int count = 0;
+        Matcher matcher = pattern.matcher(text);
+        while (matcher.find()) {
+            byte[] piece = matcher.group().getBytes(StandardCharsets.UTF_8);
+            count += ranks.containsKey(new ByteSequence(piece)) ? 1 : mergeCount(piece);
+        }
+        return count;
+    }
+
+    /**
+     * 对一个片段执行BPE合并，返回合并结束后的token数
+     */
+    private int mergeCount(byte[] piece) {
+        // boundaries[i] 为第i个部分的起始偏移，最后一个元素为片段长度
+        List<Integer> boundaries = new ArrayList<>(piece.length + 1);
+        for (int i = 0; i <= piece.length; i++) {
+            boundaries.add(i);
+        }
+        while (boundaries.size() > 2) {
+            int bestRank = Integer.MAX_VALUE;
+            int bestIndex = -1;
+            for (int i = 0; i + 2 < boundaries.size(); i++) {
+                Integer rank = ranks.get(new ByteSequence(piece, boundaries.get(i), boundaries.get(i + 2)));
+                if (rank != null && rank < bestRank) {
+                    bestRank = rank;
+                    bestIndex = i;
+                }
+            }
+            if (bestIndex < 0) {
+                break;
+            }
+            boundaries.remove(bestIndex + 1);
+        }
+        return boundaries.size() - 1;
+    }
+
+    /**
+     * 字节数组视图，作为词表的键
+     */
+    private static final class ByteSequence {
+        private final byte[] bytes;
+        private final int from;
+        private final int to;
+        private final int hash;
+
+        ByteSequence(byte[] bytes) {
+            this(bytes, 0, bytes.length);
+        }
+
+        ByteSequence(byte[] bytes, int from, int to) {
+            this.bytes = bytes;
+            this.from = from;
+            this.to = to;
+            int h = 1;
+            for (int i = from; i < to; i++) {
+                h = 31 * h + bytes[i];
+            }
+            this.hash = h;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof ByteSequence other
+                    && Arrays.equals(bytes, from, to, other.bytes, other.from, other.to);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.erokin.strove.ai.tokenizer;
+
+import com.erokin.strove.ai.openai.ChatMessage;
+import com.erokin.strove.config.properties.AiProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 上游请求的token预算
+ * 在发请求前算出提示词token数，结合模型上下文窗口与操作类型确定 max_tokens；
+ * 提示词已经放不下最小回复空间时直接拒绝，省掉一次必然失败的往返。
+ * 不认识的模型不做拒绝也不限制输出（不发送 max_tokens），只有连接测试仍限制为几个token
+ */
+@Component
+public class TokenBudget {
+
+    /**
+     * 请求用途，决定预期的回复长度
+     */
+    public enum Operation {
+        // 自由对话：给足模型允许的输出
+        CHAT,
+        // 润色：输出与输入大致等长
+        POLISH,
+        // 灵感：3-5条短句
+        INSPIRATION,
+        // 对话摘要：几百字
+        SUMMARY,
+        // 连接测试：只需要几个token
+        PROBE
+    }
+
+    // chat格式每条消息的固定开销及回复起始标记（与OpenAI计费口径一致）
+    private static final int TOKENS_PER_MESSAGE = 3;
+    private static final int REPLY_PRIMING = 3;
+
+    // 上下文窗口/输出上限未知，0 表示不限制
+    private static final ModelLimits UNKNOWN_LIMITS = new ModelLimits(0, 0);
+
+    /**
+     * 内置的上下文窗口/输出上限，按前缀匹配，越具体的前缀放得越靠前
+     */
+    private static final Map<String, ModelLimits> BUILTIN_LIMITS = new LinkedHashMap<>();
+
+    static {
+        BUILTIN_LIMITS.put("gpt-5", new ModelLimits(400_000, 128_000));
+        BUILTIN_LIMITS.put("gpt-4o-mini", new ModelLimits(128_000, 16_384));
+        BUILTIN_LIMITS.put("gpt-4o", new ModelLimits(128_000, 16_384));
+        BUILTIN_LIMITS.put("gpt-4.5", new ModelLimits(128_000, 16_384));
+        BUILTIN_LIMITS.put("gpt-4.1", new ModelLimits(1_047_576, 32_768));
+        BUILTIN_LIMITS.put("gpt-4-turbo", new ModelLimits(128_000, 4_096));
+        BUILTIN_LIMITS.put("gpt-4-32k", new ModelLimits(32_768, 8_192));
+        BUILTIN_LIMITS.put("gpt-4", new ModelLimits(8_192, 8_192));
+        BUILTIN_LIMITS.put("gpt-3.5-turbo", new ModelLimits(16_385, 4_096));
+        BUILTIN_LIMITS.put("o1", new ModelLimits(200_000, 100_000));
+        BUILTIN_LIMITS.put("o3", new ModelLimits(200_000, 100_000));
+        BUILTIN_LIMITS.put("o4", new ModelLimits(200_000, 100_000));
+        BUILTIN_LIMITS.put("qwen3-max", new ModelLimits(262_144, 65_536));
+        BUILTIN_LIMITS.put("qwen3-coder", new ModelLimits(1_000_000, 65_536));
+        BUILTIN_LIMITS.put("qwen3", new ModelLimits(131_072, 16_384));
+        BUILTIN_LIMITS.put("qwen-long", new ModelLimits(1_000_000, 8_192));
+        BUILTIN_LIMITS.put("qwen-turbo", new ModelLimits(1_000_000, 16_384));
+        BUILTIN_LIMITS.put("qwen-plus", new ModelLimits(131_072, 16_384));
+        BUILTIN_LIMITS.put("qwen-max", new ModelLimits(32_768, 8_192));
+        BUILTIN_LIMITS.put("ernie-4.0", new ModelLimits(8_192, 2_048));
+        BUILTIN_LIMITS.put("ernie-bot", new ModelLimits(8_192, 2_048));
+        BUILTIN_LIMITS.put("deepseek", new ModelLimits(131_072, 8_192));
+        BUILTIN_LIMITS.put("gemini-2.5", new ModelLimits(1_048_576, 65_536));
+        BUILTIN_LIMITS.put("gemini", new ModelLimits(1_048_576, 8_192));
+        BUILTIN_LIMITS.put("claude", new ModelLimits(200_000, 8_192));
+    }
+
+    public record ModelLimits(int contextWindow, int maxOutput) {
+    }
+
+    private final Tokenizers tokenizers;
+    private final AiProperties aiProperties;
+
+    public TokenBudget(Tokenizers tokenizers, AiProperties aiProperties) {
+        this.tokenizers = tokenizers;
+        this.aiProperties = aiProperties;
+    }
+
+    public int countTokens(String model, String text) {
+        return tokenizers.forModel(model).countTokens(text);
+    }
+
+    /**
+     * chat格式消息列表的提示词token数
+     */
+    public int promptTokens(String model, List<ChatMessage> messages) {
+        Tokenizer tokenizer = tokenizers.forModel(model);
+        int total = REPLY_PRIMING;
+        for (ChatMessage message : messages) {
+            total += TOKENS_PER_MESSAGE + tokenizer.countTokens(message.role())
+                    + tokenizer.countTokens(message.content());
+        }
+        return total;
+    }
+
+    /**
+     * 计算本次请求的 max_tokens，提示词超出已知的上下文窗口时抛出异常；返回 null 表示不限制
+     */
+    public Integer maxTokens(String model, List<ChatMessage> messages, Operation operation) {
+        ModelLimits limits = limits(model);
+        int cap = limits.maxOutput() > 0 ? limits.maxOutput() : Integer.MAX_VALUE;
+        int minOutput = Math.min(aiProperties.getTokens().getMinOutput(), cap);
+        if (limits.contextWindow() > 0) {
+            int prompt = promptTokens(model, messages);
+            int available = limits.contextWindow() - prompt;
+            if (available < minOutput) {
+                throw new RuntimeException("输入内容过长：约" + prompt + "个token，超过模型 " + model
+                        + " 的上下文上限（" + limits.contextWindow() + "，需为回复预留" + minOutput + "）");
+            }
+            cap = Math.min(cap, available);
+        }
+        if (limits.maxOutput() <= 0 && operation != Operation.PROBE) {
+            // 输出上限未知时不限制，避免截断不认识的模型
+            return null;
+        }
+        int wanted = switch (operation) {
+            case CHAT -> cap;
+            // 润色结果与原文长度相当，留一半余量；只按最后一条（原文所在的）消息估算
+            case POLISH -> {
+                String content = messages.get(messages.size() - 1).content();
+                yield Math.max(minOutput, countTokens(model, content) * 3 / 2 + 64);
+            }
+            case INSPIRATION, SUMMARY -> 1024;
+            case PROBE -> 16;
+        };
+        return Math.max(1, Math.min(wanted, cap));
+    }
+
+    public ModelLimits limits(String model) {
+        if (model == null) {
+            return UNKNOWN_LIMITS;
+        }
+        String name = model.toLowerCase(Locale.ROOT);
+        int slash = name.lastIndexOf('/');
+        if (slash >= 0) {
+            name = name.substring(slash + 1);
+        }
+        ModelLimits configured = longestPrefix(name, aiProperties.getTokens().getModels());
+        if (configured != null) {
+            return configured;
+        }
+        for (Map.Entry<String, ModelLimits> entry : BUILTIN_LIMITS.entrySet()) {
+            if (name.startsWith(entry.getKey())) {
+                return entry.getValue();
+            }
+        }
+        return UNKNOWN_LIMITS;
+    }
+
+    private ModelLimits longestPrefix(String name, Map<String, AiProperties.ModelLimit> overrides) {
+        String best = null;
+        for (String prefix : overrides.keySet()) {
+            if (name.startsWith(prefix.toLowerCase(Locale.ROOT)) && (best == null || prefix.length() > best.length())) {
+                best = prefix;
+            }
+        }
+        if (best == null) {
+            return null;
+        }
+        // 未配置的一项按未知处理（不拒绝/不限制）
+        AiProperties.ModelLimit limit = overrides.get(best);
+        return new ModelLimits(Math.max(0, limit.getContextWindow()), Math.max(0, limit.getMaxOutput()));
+    }
+}
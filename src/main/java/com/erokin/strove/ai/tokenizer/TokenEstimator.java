@@ -0,0 +1,51 @@
+package com.erokin.strove.ai.tokenizer;
+
+/**
+ * 快速估算分词器
+ * 没有对应词表时使用：中日韩字符按每字约1个token计，连续的拉丁字母/数字按约4字符1个token计，
+ * 标点和其他符号各算1个。对中文为主的写作场景误差通常在一到两成以内
+ */
+public class TokenEstimator implements Tokenizer {
+
+    public static final TokenEstimator INSTANCE = new TokenEstimator();
+
+    @Override
+    public String name() {
+        return "estimate";
+    }
+
+    @Override
+    public int countTokens(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        int tokens = 0;
+        int wordChars = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c) && !isCjk(c)) {
+                wordChars++;
+                continue;
+            }
+            tokens += (wordChars + 3) / 4;
+            wordChars = 0;
+            if (isCjk(c)) {
+                tokens++;
+            } else if (!Character.isWhitespace(c) && !Character.isSurrogate(c)) {
+                tokens++;
+            } else if (Character.isHighSurrogate(c)) {
+                // emoji等增补平面字符通常被拆成多个字节级token
+                tokens += 2;
+            }
+        }
+        return tokens + (wordChars + 3) / 4;
+    }
+
+    static boolean isCjk(char c) {
+        return Character.isIdeographic(c)
+                || (c >= '぀' && c <= 'ヿ')   // 平假名、片假名
+                || (c >= '가' && c <= '힯')   // 韩文音节
+                || (c >= '　' && c <= '〿')   // 中日韩标点
+                || (c >= '＀' && c <= '￯');  // 全角字符
+    }
+}
@@ -0,0 +1,11 @@
+package com.erokin.strove.ai.tokenizer;
+
+/**
+ * 分词器：只关心token数量，用于请求预算与长文本切分
+ */
+public interface Tokenizer {
+
+    String name();
+
+    int countTokens(String text);
+}
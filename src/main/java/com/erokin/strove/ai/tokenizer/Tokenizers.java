@@ -0,0 +1,90 @@
+package com.erokin.strove.ai.tokenizer;
+
+import com.erokin.strove.config.properties.AiProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按模型选择分词器
+ * OpenAI系模型使用对应的BPE词表（首次使用时加载并缓存），找不到词表或其他服务商的模型退化为估算。
+ * 词表不随项目发布，从 app.ai.tokens.vocab-dir 或类路径 tokenizer/ 下读取 <encoding>.tiktoken
+ */
+@Component
+public class Tokenizers {
+
+    private static final Logger logger = LoggerFactory.getLogger(Tokenizers.class);
+
+    private final AiProperties aiProperties;
+    private final Map<String, Tokenizer> loaded = new ConcurrentHashMap<>();
+
+    public Tokenizers(AiProperties aiProperties) {
+        this.aiProperties = aiProperties;
+    }
+
+    public Tokenizer forModel(String model) {
+        String encoding = encodingOf(model);
+        if (encoding == null) {
+            return TokenEstimator.INSTANCE;
+        }
+        return loaded.computeIfAbsent(encoding, this::load);
+    }
+
+    /**
+     * 模型名到词表名，顺序与前缀匹配的优先级一致
+     */
+    static String encodingOf(String model) {
+        if (model == null) {
+            return "cl100k_base";
+        }
+        String name = model.toLowerCase(Locale.ROOT);
+        int slash = name.lastIndexOf('/');
+        if (slash >= 0) {
+            // 中转服务常见的 "openai/gpt-4o" 写法
+            name = name.substring(slash + 1);
+        }
+        if (name.startsWith("gpt-4o") || name.startsWith("gpt-4.1") || name.startsWith("gpt-4.5")
+                || name.startsWith("gpt-5") || name.startsWith("o1") || name.startsWith("o3") || name.startsWith("o4")) {
+            return "o200k_base";
+        }
+        if (name.startsWith("gpt-4") || name.startsWith("gpt-3.5") || name.startsWith("text-embedding")) {
+            return "cl100k_base";
+        }
+        return null;
+    }
+
+    private Tokenizer load(String encoding) {
+        String pattern = "o200k_base".equals(encoding) ? BpeTokenizer.O200K_PATTERN : BpeTokenizer.CL100K_PATTERN;
+        String fileName = encoding + ".tiktoken";
+        try {
+            String vocabDir = aiProperties.getTokens().getVocabDir();
+            if (vocabDir != null && !vocabDir.isBlank()) {
+                Path file = Path.of(vocabDir, fileName);
+                if (Files.isReadable(file)) {
+                    try (InputStream in = Files.newInputStream(file)) {
+                        return BpeTokenizer.load(encoding, pattern, in);
+                    }
+                }
+            }
+            ClassPathResource resource = new ClassPathResource("tokenizer/" + fileName);
+            if (resource.exists()) {
+                try (InputStream in = resource.getInputStream()) {
+                    return BpeTokenizer.load(encoding, pattern, in);
+                }
+            }
+            logger.warn("未找到词表 {}（app.ai.tokens.vocab-dir 或类路径 tokenizer/），token数改为估算", fileName);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("加载词表 {} 失败，token数改为估算: {}", fileName, e.getMessage());
+        }
+        return TokenEstimator.INSTANCE;
+    }
+}
@@ -0,0 +1,22 @@
+package com.erokin.strove.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+
+/**
+ * 异步任务配置
+ */
+@Configuration
+public class AsyncConfig {
+
+    /**
+     * 流式AI响应使用的执行器，每个任务一个虚拟线程，慢速上游调用不会耗尽平台线程
+     */
+    @Bean(name = "aiStreamExecutor")
+    public SimpleAsyncTaskExecutor aiStreamExecutor() {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("ai-stream-");
+        executor.setVirtualThreads(true);
+        return executor;
+    }
+}
@@ -1,6 +1,8 @@
 package com.erokin.strove.config;
 
-import org.springframework.boot.CommandLineRunner;
+import com.erokin.strove.config.properties.ConversationProperties;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.annotation.DependsOn;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
 import org.slf4j.Logger;
@@ -11,21 +13,31 @@ import java.util.Map;
 
 /**
  * 数据库自动修复工具
- * 用于解决开发过程中表结构变更导致的问题
+ * 用于解决开发过程中表结构变更导致的问题。
+ * 在 Hibernate 更新表结构之后、Web服务器开始接收请求之前执行，修复完成前不会有写入
  */
 @Component
-public class DatabaseAutoFixer implements CommandLineRunner {
+@DependsOn("entityManagerFactory")
+public class DatabaseAutoFixer implements SmartInitializingSingleton {
 
     private static final Logger logger = LoggerFactory.getLogger(DatabaseAutoFixer.class);
+    // 与 Conversation 上 @TableGenerator 的 allocationSize 保持一致
+    private static final int CONVERSATION_ID_ALLOCATION_SIZE = 50;
     private final JdbcTemplate jdbcTemplate;
+    private final ConversationProperties conversationProperties;
 
-    public DatabaseAutoFixer(JdbcTemplate jdbcTemplate) {
+    public DatabaseAutoFixer(JdbcTemplate jdbcTemplate, ConversationProperties conversationProperties) {
         this.jdbcTemplate = jdbcTemplate;
+        this.conversationProperties = conversationProperties;
     }
 
     @Override
-    public void run(String... args) {
+    public void afterSingletonsInstantiated() {
         fixConversationsTable();
+        fixConversationIdGenerator();
+        if (conversationProperties.getCompression().isEnabled()) {
+            convertConversationContentToBlob();
+        }
     }
 
     private void fixConversationsTable() {
@@ -93,6 +105,60 @@ public class DatabaseAutoFixer implements CommandLineRunner {
         }
     }
 
+    /**
+     * conversations 主键由自增改为号段表分配后，号段起点必须越过已有的最大ID
+     */
+    private void fixConversationIdGenerator() {
+        try {
+            Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM conversations", Long.class);
+            long floor = (maxId == null ? 0 : maxId) + CONVERSATION_ID_ALLOCATION_SIZE + 1;
+            int updated = jdbcTemplate.update(
+                "UPDATE id_generators SET next_val = GREATEST(next_val, ?) WHERE sequence_name = 'conversations'", floor);
+            if (updated == 0) {
+                jdbcTemplate.update(
+                    "INSERT INTO id_generators (sequence_name, next_val) VALUES ('conversations', ?)", floor);
+            }
+            logger.info("conversations ID号段检查完成，起点不低于 {}", floor);
+        } catch (Exception e) {
+            logger.error("conversations ID号段修复失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 开启压缩存储时 message/response 必须是二进制列；TEXT 转 BLOB 时原有内容按UTF-8字节保留。
+     * 转换失败时关闭压缩，避免压缩数据写入文本列
+     */
+    private void convertConversationContentToBlob() {
+        try {
+            if (!isBinaryColumn("conversations", "message")) {
+                logger.info("开启了压缩存储，正在将 'message' 字段转换为 MEDIUMBLOB...");
+                jdbcTemplate.execute("ALTER TABLE conversations MODIFY COLUMN message MEDIUMBLOB NOT NULL COMMENT '用户消息'");
+            }
+            if (!isBinaryColumn("conversations", "response")) {
+                logger.info("开启了压缩存储，正在将 'response' 字段转换为 MEDIUMBLOB...");
+                jdbcTemplate.execute("ALTER TABLE conversations MODIFY COLUMN response MEDIUMBLOB COMMENT 'AI响应'");
+            }
+        } catch (Exception e) {
+            logger.error("对话内容字段转换失败: " + e.getMessage());
+        }
+        if (!isBinaryColumn("conversations", "message") || !isBinaryColumn("conversations", "response")) {
+            logger.error("对话内容字段不是二进制列，本次运行关闭压缩存储");
+            conversationProperties.getCompression().setEnabled(false);
+        }
+    }
+
+    private boolean isBinaryColumn(String tableName, String columnName) {
+        try {
+            String type = jdbcTemplate.queryForObject(
+                "SELECT DATA_TYPE FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = ?",
+                String.class, tableName, columnName
+            );
+            return type != null && type.toLowerCase().endsWith("blob");
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
     private boolean hasColumn(String tableName, String columnName) {
         try {
             List<Map<String, Object>> columns = jdbcTemplate.queryForList(
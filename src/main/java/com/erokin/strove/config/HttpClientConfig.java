@@ -1,8 +1,8 @@
 package com.erokin.strove.config;
 
+import com.erokin.strove.ai.UpstreamHttpClients;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
 /**
@@ -11,11 +11,11 @@ import org.springframework.web.client.RestTemplate;
 @Configuration
 public class HttpClientConfig {
 
+    /**
+     * 默认RestTemplate，与AI服务共用连接池（超时见 app.ai.http）
+     */
     @Bean
-    public RestTemplate restTemplate() {
-        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
-        factory.setConnectTimeout(10000); // 连接超时10秒
-        factory.setReadTimeout(300000);    // 读取超时300秒
-        return new RestTemplate(factory);
+    public RestTemplate restTemplate(UpstreamHttpClients upstreamHttpClients) {
+        return upstreamHttpClients.restTemplate(null);
     }
 }
@@ -0,0 +1,896 @@
+package com.erokin.strove.config.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@ConfigurationProperties(prefix = "app.ai")
+public class AiProperties {
+    private boolean enabled;
+    private String apiKey;
+    private String apiEndpoint;
+    private String model = "gpt-3.5-turbo";
+    private int maxTokens = 2000;
+    private double temperature = 0.7;
+    private Http http = new Http();
+    private Cache cache = new Cache();
+    private Guard guard = new Guard();
+    private Pacing pacing = new Pacing();
+    private Polish polish = new Polish();
+    private Batch batch = new Batch();
+    private Jobs jobs = new Jobs();
+    private Tokens tokens = new Tokens();
+    private Similarity similarity = new Similarity();
+    private Routing routing = new Routing();
+    private Health health = new Health();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getApiKey() {
+        return apiKey;
+    }
+
+    public void setApiKey(String apiKey) {
+        this.apiKey = apiKey;
+    }
+
+    public String getApiEndpoint() {
+        return apiEndpoint;
+    }
+
+    public void setApiEndpoint(String apiEndpoint) {
+        this.apiEndpoint = apiEndpoint;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public void setModel(String model) {
+        this.model = model;
+    }
+
+    public int getMaxTokens() {
+        return maxTokens;
+    }
+
+    public void setMaxTokens(int maxTokens) {
+        this.maxTokens = maxTokens;
+    }
+
+    public double getTemperature() {
+        return temperature;
+    }
+
+    public void setTemperature(double temperature) {
+        this.temperature = temperature;
+    }
+
+    public Http getHttp() {
+        return http;
+    }
+
+    public void setHttp(Http http) {
+        this.http = http;
+    }
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    public void setCache(Cache cache) {
+        this.cache = cache;
+    }
+
+    public Guard getGuard() {
+        return guard;
+    }
+
+    public void setGuard(Guard guard) {
+        this.guard = guard;
+    }
+
+    public Pacing getPacing() {
+        return pacing;
+    }
+
+    public void setPacing(Pacing pacing) {
+        this.pacing = pacing;
+    }
+
+    public Polish getPolish() {
+        return polish;
+    }
+
+    public void setPolish(Polish polish) {
+        this.polish = polish;
+    }
+
+    public Batch getBatch() {
+        return batch;
+    }
+
+    public void setBatch(Batch batch) {
+        this.batch = batch;
+    }
+
+    public Jobs getJobs() {
+        return jobs;
+    }
+
+    public void setJobs(Jobs jobs) {
+        this.jobs = jobs;
+    }
+
+    public Tokens getTokens() {
+        return tokens;
+    }
+
+    public void setTokens(Tokens tokens) {
+        this.tokens = tokens;
+    }
+
+    public Similarity getSimilarity() {
+        return similarity;
+    }
+
+    public void setSimilarity(Similarity similarity) {
+        this.similarity = similarity;
+    }
+
+    public Routing getRouting() {
+        return routing;
+    }
+
+    public void setRouting(Routing routing) {
+        this.routing = routing;
+    }
+
+    public Health getHealth() {
+        return health;
+    }
+
+    public void setHealth(Health health) {
+        this.health = health;
+    }
+
+    /**
+     * 上游HTTP客户端配置
+     */
+    public static class Http {
+        private Duration connectTimeout = Duration.ofSeconds(10);
+        private Duration readTimeout = Duration.ofSeconds(300);
+        private boolean http2 = true;
+        // 按服务商覆盖超时设置，key为 openai / qianwen / wenxin
+        private Map<String, Timeouts> providers = new HashMap<>();
+
+        public Duration getConnectTimeout() {
+            return connectTimeout;
+        }
+
+        public void setConnectTimeout(Duration connectTimeout) {
+            this.connectTimeout = connectTimeout;
+        }
+
+        public Duration getReadTimeout() {
+            return readTimeout;
+        }
+
+        public void setReadTimeout(Duration readTimeout) {
+            this.readTimeout = readTimeout;
+        }
+
+        public boolean isHttp2() {
+            return http2;
+        }
+
+        public void setHttp2(boolean http2) {
+            this.http2 = http2;
+        }
+
+        public Map<String, Timeouts> getProviders() {
+            return providers;
+        }
+
+        public void setProviders(Map<String, Timeouts> providers) {
+            this.providers = providers;
+        }
+    }
+
+    public static class Timeouts {
+        private Duration connectTimeout;
+        private Duration readTimeout;
+
+        public Duration getConnectTimeout() {
+            return connectTimeout;
+        }
+
+        public void setConnectTimeout(Duration connectTimeout) {
+            this.connectTimeout = connectTimeout;
+        }
+
+        public Duration getReadTimeout() {
+            return readTimeout;
+        }
+
+        public void setReadTimeout(Duration readTimeout) {
+            this.readTimeout = readTimeout;
+        }
+    }
+
+    /**
+     * 润色/灵感结果缓存
+     */
+    public static class Cache {
+        private boolean enabled = true;
+        private int maxEntries = 2000;
+        private Duration ttl = Duration.ofMinutes(30);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+    }
+
+    /**
+     * 上游端点熔断与自适应并发
+     */
+    public static class Guard {
+        private boolean enabled = true;
+        private int windowSize = 20;
+        private int minimumCalls = 10;
+        private double failureRateThreshold = 0.5;
+        private Duration openDuration = Duration.ofSeconds(30);
+        private int initialLimit = 20;
+        private int minLimit = 2;
+        private int maxLimit = 200;
+        private double backoffRatio = 0.7;
+        private double latencyTolerance = 2.0;
+        // 闲置超过该时长的端点状态被清理；端点数达到上限时先清理最久未用的
+        private Duration idleExpiry = Duration.ofMinutes(30);
+        private int maxEndpoints = 1000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getWindowSize() {
+            return windowSize;
+        }
+
+        public void setWindowSize(int windowSize) {
+            this.windowSize = windowSize;
+        }
+
+        public int getMinimumCalls() {
+            return minimumCalls;
+        }
+
+        public void setMinimumCalls(int minimumCalls) {
+            this.minimumCalls = minimumCalls;
+        }
+
+        public double getFailureRateThreshold() {
+            return failureRateThreshold;
+        }
+
+        public void setFailureRateThreshold(double failureRateThreshold) {
+            this.failureRateThreshold = failureRateThreshold;
+        }
+
+        public Duration getOpenDuration() {
+            return openDuration;
+        }
+
+        public void setOpenDuration(Duration openDuration) {
+            this.openDuration = openDuration;
+        }
+
+        public int getInitialLimit() {
+            return initialLimit;
+        }
+
+        public void setInitialLimit(int initialLimit) {
+            this.initialLimit = initialLimit;
+        }
+
+        public int getMinLimit() {
+            return minLimit;
+        }
+
+        public void setMinLimit(int minLimit) {
+            this.minLimit = minLimit;
+        }
+
+        public int getMaxLimit() {
+            return maxLimit;
+        }
+
+        public void setMaxLimit(int maxLimit) {
+            this.maxLimit = maxLimit;
+        }
+
+        public double getBackoffRatio() {
+            return backoffRatio;
+        }
+
+        public void setBackoffRatio(double backoffRatio) {
+            this.backoffRatio = backoffRatio;
+        }
+
+        public double getLatencyTolerance() {
+            return latencyTolerance;
+        }
+
+        public void setLatencyTolerance(double latencyTolerance) {
+            this.latencyTolerance = latencyTolerance;
+        }
+
+        public Duration getIdleExpiry() {
+            return idleExpiry;
+        }
+
+        public void setIdleExpiry(Duration idleExpiry) {
+            this.idleExpiry = idleExpiry;
+        }
+
+        public int getMaxEndpoints() {
+            return maxEndpoints;
+        }
+
+        public void setMaxEndpoints(int maxEndpoints) {
+            this.maxEndpoints = maxEndpoints;
+        }
+    }
+
+    /**
+     * 按API Key的出站节奏控制与429重试
+     */
+    public static class Pacing {
+        private boolean enabled = true;
+        private int requestsPerMinute = 120;
+        private int burst = 20;
+        // 本地排队等待令牌的最长时间，超过则直接提示频率超限
+        private Duration maxWait = Duration.ofSeconds(10);
+        private int maxRetries = 2;
+        private Duration baseBackoff = Duration.ofMillis(500);
+        private Duration maxRetryDelay = Duration.ofSeconds(20);
+        // 闲置超过该时长的令牌桶被清理；密钥数达到上限时先清理最久未用的
+        private Duration idleExpiry = Duration.ofMinutes(30);
+        private int maxKeys = 10000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getRequestsPerMinute() {
+            return requestsPerMinute;
+        }
+
+        public void setRequestsPerMinute(int requestsPerMinute) {
+            this.requestsPerMinute = requestsPerMinute;
+        }
+
+        public int getBurst() {
+            return burst;
+        }
+
+        public void setBurst(int burst) {
+            this.burst = burst;
+        }
+
+        public Duration getMaxWait() {
+            return maxWait;
+        }
+
+        public void setMaxWait(Duration maxWait) {
+            this.maxWait = maxWait;
+        }
+
+        public int getMaxRetries() {
+            return maxRetries;
+        }
+
+        public void setMaxRetries(int maxRetries) {
+            this.maxRetries = maxRetries;
+        }
+
+        public Duration getBaseBackoff() {
+            return baseBackoff;
+        }
+
+        public void setBaseBackoff(Duration baseBackoff) {
+            this.baseBackoff = baseBackoff;
+        }
+
+        public Duration getMaxRetryDelay() {
+            return maxRetryDelay;
+        }
+
+        public void setMaxRetryDelay(Duration maxRetryDelay) {
+            this.maxRetryDelay = maxRetryDelay;
+        }
+
+        public Duration getIdleExpiry() {
+            return idleExpiry;
+        }
+
+        public void setIdleExpiry(Duration idleExpiry) {
+            this.idleExpiry = idleExpiry;
+        }
+
+        public int getMaxKeys() {
+            return maxKeys;
+        }
+
+        public void setMaxKeys(int maxKeys) {
+            this.maxKeys = maxKeys;
+        }
+    }
+
+    /**
+     * 长文本分块润色
+     */
+    public static class Polish {
+        // 估算token数超过该值时自动按分块模式润色
+        private int longTextThreshold = 1500;
+        private int chunkTokens = 800;
+        private int parallelism = 4;
+
+        public int getLongTextThreshold() {
+            return longTextThreshold;
+        }
+
+        public void setLongTextThreshold(int longTextThreshold) {
+            this.longTextThreshold = longTextThreshold;
+        }
+
+        public int getChunkTokens() {
+            return chunkTokens;
+        }
+
+        public void setChunkTokens(int chunkTokens) {
+            this.chunkTokens = chunkTokens;
+        }
+
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        public void setParallelism(int parallelism) {
+            this.parallelism = parallelism;
+        }
+    }
+
+    /**
+     * 批量接口
+     */
+    public static class Batch {
+        private int maxJobs = 100;
+        private int maxParallelism = 8;
+
+        public int getMaxJobs() {
+            return maxJobs;
+        }
+
+        public void setMaxJobs(int maxJobs) {
+            this.maxJobs = maxJobs;
+        }
+
+        public int getMaxParallelism() {
+            return maxParallelism;
+        }
+
+        public void setMaxParallelism(int maxParallelism) {
+            this.maxParallelism = maxParallelism;
+        }
+    }
+
+    /**
+     * 异步任务队列
+     */
+    public static class Jobs {
+        private int workers = 4;
+        // 长轮询单次最长等待时间
+        private Duration maxWait = Duration.ofSeconds(30);
+        // 因重启中断的任务最多重新执行的次数
+        private int maxAttempts = 3;
+
+        public int getWorkers() {
+            return workers;
+        }
+
+        public void setWorkers(int workers) {
+            this.workers = workers;
+        }
+
+        public Duration getMaxWait() {
+            return maxWait;
+        }
+
+        public void setMaxWait(Duration maxWait) {
+            this.maxWait = maxWait;
+        }
+
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+
+        public void setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+        }
+    }
+
+    /**
+     * 本地分词与 max_tokens 预算
+     */
+    public static class Tokens {
+        // 额外的词表目录（<encoding>.tiktoken），未配置时只从 classpath:tokenizer/ 加载
+        private String vocabDir;
+        // 至少为回复预留的token数，提示词超出后直接拒绝
+        private int minOutput = 256;
+        // 按模型名前缀覆盖内置的上下文窗口/输出上限
+        private Map<String, ModelLimit> models = new HashMap<>();
+
+        public String getVocabDir() {
+            return vocabDir;
+        }
+
+        public void setVocabDir(String vocabDir) {
+            this.vocabDir = vocabDir;
+        }
+
+        public int getMinOutput() {
+            return minOutput;
+        }
+
+        public void setMinOutput(int minOutput) {
+            this.minOutput = minOutput;
+        }
+
+        public Map<String, ModelLimit> getModels() {
+            return models;
+        }
+
+        public void setModels(Map<String, ModelLimit> models) {
+            this.models = models;
+        }
+    }
+
+    public static class ModelLimit {
+        private int contextWindow;
+        private int maxOutput;
+
+        public int getContextWindow() {
+            return contextWindow;
+        }
+
+        public void setContextWindow(int contextWindow) {
+            this.contextWindow = contextWindow;
+        }
+
+        public int getMaxOutput() {
+            return maxOutput;
+        }
+
+        public void setMaxOutput(int maxOutput) {
+            this.maxOutput = maxOutput;
+        }
+    }
+
+    /**
+     * 近似重复缓存（润色、灵感）
+     */
+    public static class Similarity {
+        private boolean enabled = false;
+        // 估算Jaccard相似度达到该值时复用缓存
+        private double threshold = 0.9;
+        private int maxEntries = 5000;
+        private Duration ttl = Duration.ofMinutes(30);
+        // 字符n-gram长度
+        private int shingleSize = 3;
+        // MinHash签名长度（按每带4行分带）
+        private int hashes = 128;
+        // 允许的长度差（相对较长文本的比例）
+        private double maxLengthDelta = 0.1;
+        // 短文本开头可忽略的填充词
+        private List<String> fillerPrefixes = new ArrayList<>(List.of("关于", "有关"));
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public double getThreshold() {
+            return threshold;
+        }
+
+        public void setThreshold(double threshold) {
+            this.threshold = threshold;
+        }
+
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        public int getShingleSize() {
+            return shingleSize;
+        }
+
+        public void setShingleSize(int shingleSize) {
+            this.shingleSize = shingleSize;
+        }
+
+        public int getHashes() {
+            return hashes;
+        }
+
+        public void setHashes(int hashes) {
+            this.hashes = hashes;
+        }
+
+        public double getMaxLengthDelta() {
+            return maxLengthDelta;
+        }
+
+        public void setMaxLengthDelta(double maxLengthDelta) {
+            this.maxLengthDelta = maxLengthDelta;
+        }
+
+        public List<String> getFillerPrefixes() {
+            return fillerPrefixes;
+        }
+
+        public void setFillerPrefixes(List<String> fillerPrefixes) {
+            this.fillerPrefixes = fillerPrefixes;
+        }
+    }
+
+    /**
+     * 多端点路由与对冲请求
+     */
+    public static class Routing {
+        // 逻辑模型名 → 等价端点列表
+        private Map<String, List<RouteEndpoint>> routes = new HashMap<>();
+        private boolean hedging = true;
+        // 样本不足时使用的对冲延迟
+        private Duration defaultHedgeDelay = Duration.ofSeconds(3);
+        // 对冲延迟下限，避免p95很小时几乎每个请求都发两份
+        private Duration minHedgeDelay = Duration.ofMillis(300);
+        private double ewmaAlpha = 0.2;
+        private int minSamples = 5;
+        private double explorationRate = 0.05;
+
+        public Map<String, List<RouteEndpoint>> getRoutes() {
+            return routes;
+        }
+
+        public void setRoutes(Map<String, List<RouteEndpoint>> routes) {
+            this.routes = routes;
+        }
+
+        public boolean isHedging() {
+            return hedging;
+        }
+
+        public void setHedging(boolean hedging) {
+            this.hedging = hedging;
+        }
+
+        public Duration getDefaultHedgeDelay() {
+            return defaultHedgeDelay;
+        }
+
+        public void setDefaultHedgeDelay(Duration defaultHedgeDelay) {
+            this.defaultHedgeDelay = defaultHedgeDelay;
+        }
+
+        public Duration getMinHedgeDelay() {
+            return minHedgeDelay;
+        }
+
+        public void setMinHedgeDelay(Duration minHedgeDelay) {
+            this.minHedgeDelay = minHedgeDelay;
+        }
+
+        public double getEwmaAlpha() {
+            return ewmaAlpha;
+        }
+
+        public void setEwmaAlpha(double ewmaAlpha) {
+            this.ewmaAlpha = ewmaAlpha;
+        }
+
+        public int getMinSamples() {
+            return minSamples;
+        }
+
+        public void setMinSamples(int minSamples) {
+            this.minSamples = minSamples;
+        }
+
+        public double getExplorationRate() {
+            return explorationRate;
+        }
+
+        public void setExplorationRate(double explorationRate) {
+            this.explorationRate = explorationRate;
+        }
+    }
+
+    /**
+     * 端点后台健康探测
+     */
+    public static class Health {
+        private boolean enabled = true;
+        private Duration interval = Duration.ofSeconds(60);
+        private Duration probeTimeout = Duration.ofSeconds(10);
+        // 滚动窗口保留的探测次数
+        private int windowSize = 20;
+        // 测试连接在该时间内直接返回最近一次探测结果
+        private Duration cacheTtl = Duration.ofMinutes(5);
+        // 超过该时间未使用的端点停止探测
+        private Duration idleExpiry = Duration.ofMinutes(30);
+        private int maxTargets = 200;
+        // 连续失败达到该次数视为不可用，路由时排到最后
+        private int downAfter = 3;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getInterval() {
+            return interval;
+        }
+
+        public void setInterval(Duration interval) {
+            this.interval = interval;
+        }
+
+        public Duration getProbeTimeout() {
+            return probeTimeout;
+        }
+
+        public void setProbeTimeout(Duration probeTimeout) {
+            this.probeTimeout = probeTimeout;
+        }
+
+        public int getWindowSize() {
+            return windowSize;
+        }
+
+        public void setWindowSize(int windowSize) {
+            this.windowSize = windowSize;
+        }
+
+        public Duration getCacheTtl() {
+            return cacheTtl;
+        }
+
+        public void setCacheTtl(Duration cacheTtl) {
+            this.cacheTtl = cacheTtl;
+        }
+
+        public Duration getIdleExpiry() {
+            return idleExpiry;
+        }
+
+        public void setIdleExpiry(Duration idleExpiry) {
+            this.idleExpiry = idleExpiry;
+        }
+
+        public int getMaxTargets() {
+            return maxTargets;
+        }
+
+        public void setMaxTargets(int maxTargets) {
+            this.maxTargets = maxTargets;
+        }
+
+        public int getDownAfter() {
+            return downAfter;
+        }
+
+        public void setDownAfter(int downAfter) {
+            this.downAfter = downAfter;
+        }
+    }
+
+    public static class RouteEndpoint {
+        // openai / qianwen / wenxin
+        private String provider = "openai";
+        private String url;
+        // 端点上的实际模型名，为空时与逻辑模型名相同
+        private String model;
+        // 为空时使用请求中的API Key
+        private String apiKey;
+
+        public String getProvider() {
+            return provider;
+        }
+
+        public void setProvider(String provider) {
+            this.provider = provider;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(String url) {
+            this.url = url;
+        }
+
+        public String getModel() {
+            return model;
+        }
+
+        public void setModel(String model) {
+            this.model = model;
+        }
+
+        public String getApiKey() {
+            return apiKey;
+        }
+
+        public void setApiKey(String apiKey) {
+            this.apiKey = apiKey;
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package com.erokin.strove.config.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "app.conversation")
+public class ConversationProperties {
+    private WriteBuffer writeBuffer = new WriteBuffer();
+    private Context context = new Context();
+    private Compression compression = new Compression();
+    private Archive archive = new Archive();
+    private Search search = new Search();
+
+    public WriteBuffer getWriteBuffer() {
+        return writeBuffer;
+    }
+
+    public void setWriteBuffer(WriteBuffer writeBuffer) {
+        this.writeBuffer = writeBuffer;
+    }
+
+    public Context getContext() {
+        return context;
+    }
+
+    public void setContext(Context context) {
+        this.context = context;
+    }
+
+    public Compression getCompression() {
+        return compression;
+    }
+
+    public void setCompression(Compression compression) {
+        this.compression = compression;
+    }
+
+    public Archive getArchive() {
+        return archive;
+    }
+
+    public void setArchive(Archive archive) {
+        this.archive = archive;
+    }
+
+    public Search getSearch() {
+        return search;
+    }
+
+    public void setSearch(Search search) {
+        this.search = search;
+    }
+
+    /**
+     * 对话记录异步写入缓冲区
+     */
+    public static class WriteBuffer {
+        private int capacity = 10000;
+        private int batchSize = 50;
+        private Duration flushInterval = Duration.ofMillis(50);
+        // 请求线程等待写入完成以获取对话ID的最长时间，超时后ID返回null，记录仍会落库
+        private Duration awaitTimeout = Duration.ofSeconds(2);
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public void setCapacity(int capacity) {
+            this.capacity = capacity;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public Duration getFlushInterval() {
+            return flushInterval;
+        }
+
+        public void setFlushInterval(Duration flushInterval) {
+            this.flushInterval = flushInterval;
+        }
+
+        public Duration getAwaitTimeout() {
+            return awaitTimeout;
+        }
+
+        public void setAwaitTimeout(Duration awaitTimeout) {
+            this.awaitTimeout = awaitTimeout;
+        }
+    }
+
+    /**
+     * 多轮对话上下文
+     */
+    public static class Context {
+        // 携带的历史轮次token上限（不含摘要与本轮消息）
+        private int historyTokens = 3000;
+        // 单次最多读取的未摘要轮次
+        private int maxTurns = 40;
+        // 摘要目标长度（字）
+        private int summaryLength = 400;
+
+        public int getHistoryTokens() {
+            return historyTokens;
+        }
+
+        public void setHistoryTokens(int historyTokens) {
+            this.historyTokens = historyTokens;
+        }
+
+        public int getMaxTurns() {
+            return maxTurns;
+        }
+
+        public void setMaxTurns(int maxTurns) {
+            this.maxTurns = maxTurns;
+        }
+
+        public int getSummaryLength() {
+            return summaryLength;
+        }
+
+        public void setSummaryLength(int summaryLength) {
+            this.summaryLength = summaryLength;
+        }
+    }
+
+    /**
+     * 对话内容压缩存储（message/response 列转为BLOB）
+     */
+    public static class Compression {
+        private boolean enabled = false;
+        // 小于该字节数的内容不压缩
+        private int minBytes = 256;
+        // deflate压缩级别 1-9
+        private int level = 6;
+        // 开启后在后台改写存量未压缩的行
+        private boolean migrateExisting = true;
+        private int batchSize = 200;
+        private Duration batchPause = Duration.ofMillis(200);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMinBytes() {
+            return minBytes;
+        }
+
+        public void setMinBytes(int minBytes) {
+            this.minBytes = minBytes;
+        }
+
+        public int getLevel() {
+            return level;
+        }
+
+        public void setLevel(int level) {
+            this.level = level;
+        }
+
+        public boolean isMigrateExisting() {
+            return migrateExisting;
+        }
+
+        public void setMigrateExisting(boolean migrateExisting) {
+            this.migrateExisting = migrateExisting;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public Duration getBatchPause() {
+            return batchPause;
+        }
+
+        public void setBatchPause(Duration batchPause) {
+            this.batchPause = batchPause;
+        }
+    }
+
+    /**
+     * 旧对话归档到按用户分段的压缩文件
+     */
+    public static class Archive {
+        private boolean enabled = false;
+        // 存储实现，local 为本地磁盘；自定义 BlobStore Bean 时设为其他值
+        private String store = "local";
+        private String dir = "./data/archive";
+        // 每次写入后刷盘，之后才删除数据库中的行
+        private boolean fsync = true;
+        // 超过该时长的对话被归档
+        private Duration olderThan = Duration.ofDays(90);
+        private Duration interval = Duration.ofHours(1);
+        // 每次从数据库搬迁的行数
+        private int batchSize = 500;
+        // 每个压缩块包含的对话数，即稀疏索引的粒度
+        private int blockRecords = 128;
+        private long maxSegmentBytes = 16L * 1024 * 1024;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getStore() {
+            return store;
+        }
+
+        public void setStore(String store) {
+            this.store = store;
+        }
+
+        public String getDir() {
+            return dir;
+        }
+
+        public void setDir(String dir) {
+            this.dir = dir;
+        }
+
+        public boolean isFsync() {
+            return fsync;
+        }
+
+        public void setFsync(boolean fsync) {
+            this.fsync = fsync;
+        }
+
+        public Duration getOlderThan() {
+            return olderThan;
+        }
+
+        public void setOlderThan(Duration olderThan) {
+            this.olderThan = olderThan;
+        }
+
+        public Duration getInterval() {
+            return interval;
+        }
+
+        public void setInterval(Duration interval) {
+            this.interval = interval;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public int getBlockRecords() {
+            return blockRecords;
+        }
+
+        public void setBlockRecords(int blockRecords) {
+            this.blockRecords = blockRecords;
+        }
+
+        public long getMaxSegmentBytes() {
+            return maxSegmentBytes;
+        }
+
+        public void setMaxSegmentBytes(long maxSegmentBytes) {
+            this.maxSegmentBytes = maxSegmentBytes;
+        }
+    }
+
+    /**
+     * 对话记录进程内全文检索
+     */
+    public static class Search {
+        private boolean enabled = false;
+        // 索引快照目录，重启时加载快照后只需补齐新增记录
+        private String dir = "./data/search";
+        private Duration snapshotInterval = Duration.ofMinutes(10);
+        // 启动补齐时每批读取的行数
+        private int rebuildBatchSize = 500;
+        // 补齐时从快照ID上限往回重扫的ID数，覆盖并发落库时晚于更大ID提交的记录
+        private long catchUpOverlap = 10000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getDir() {
+            return dir;
+        }
+
+        public void setDir(String dir) {
+            this.dir = dir;
+        }
+
+        public Duration getSnapshotInterval() {
+            return snapshotInterval;
+        }
+
+        public void setSnapshotInterval(Duration snapshotInterval) {
+            this.snapshotInterval = snapshotInterval;
+        }
+
+        public int getRebuildBatchSize() {
+            return rebuildBatchSize;
+        }
+
+        public void setRebuildBatchSize(int rebuildBatchSize) {
+            this.rebuildBatchSize = rebuildBatchSize;
+        }
+
+        public long getCatchUpOverlap() {
+            return catchUpOverlap;
+        }
+
+        public void setCatchUpOverlap(long catchUpOverlap) {
+            this.catchUpOverlap = catchUpOverlap;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.erokin.strove.config.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "app.document")
+public class DocumentProperties {
+    private Revisions revisions = new Revisions();
+
+    public Revisions getRevisions() {
+        return revisions;
+    }
+
+    public void setRevisions(Revisions revisions) {
+        this.revisions = revisions;
+    }
+
+    /**
+     * 文档修订历史（完整快照 + 二进制差异）
+     */
+    public static class Revisions {
+        private boolean enabled = true;
+        // 连续差异达到该数量后存一次完整快照，还原任一版本最多应用这么多个差异
+        private int snapshotEvery = 20;
+        // 差异超过正文大小的该比例时直接存快照
+        private double maxDeltaRatio = 0.5;
+        // 窗口内的连续保存合并为一个修订
+        private Duration mergeWindow = Duration.ofMinutes(5);
+        // 保留策略：该时长内全部保留，之后每小时一个，再之后每天一个，更早的每周一个
+        private Duration keepAllFor = Duration.ofDays(1);
+        private Duration hourlyFor = Duration.ofDays(7);
+        private Duration dailyFor = Duration.ofDays(90);
+        private Duration thinInterval = Duration.ofHours(6);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getSnapshotEvery() {
+            return snapshotEvery;
+        }
+
+        public void setSnapshotEvery(int snapshotEvery) {
+            this.snapshotEvery = snapshotEvery;
+        }
+
+        public double getMaxDeltaRatio() {
+            return maxDeltaRatio;
+        }
+
+        public void setMaxDeltaRatio(double maxDeltaRatio) {
+            this.maxDeltaRatio = maxDeltaRatio;
+        }
+
+        public Duration getMergeWindow() {
+            return mergeWindow;
+        }
+
+        public void setMergeWindow(Duration mergeWindow) {
+            this.mergeWindow = mergeWindow;
+        }
+
+        public Duration getKeepAllFor() {
+            return keepAllFor;
+        }
+
+        public void setKeepAllFor(Duration keepAllFor) {
+            this.keepAllFor = keepAllFor;
+        }
+
+        public Duration getHourlyFor() {
+            return hourlyFor;
+        }
+
+        public void setHourlyFor(Duration hourlyFor) {
+            this.hourlyFor = hourlyFor;
+        }
+
+        public Duration getDailyFor() {
+            return dailyFor;
+        }
+
+        public void setDailyFor(Duration dailyFor) {
+            this.dailyFor = dailyFor;
+        }
+
+        public Duration getThinInterval() {
+            return thinInterval;
+        }
+
+        public void setThinInterval(Duration thinInterval) {
+            this.thinInterval = thinInterval;
+        }
+    }
+}
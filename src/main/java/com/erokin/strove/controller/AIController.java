@@ -1,17 +1,43 @@
 package com.erokin.strove.controller;
 
+import com.erokin.strove.ai.RequestRegistry;
 import com.erokin.strove.dto.ApiResponse;
+import com.erokin.strove.dto.BatchItemResult;
+import com.erokin.strove.dto.BatchRequest;
 import com.erokin.strove.dto.ChatRequest;
 import com.erokin.strove.dto.ChatResponse;
+import com.erokin.strove.dto.ConversationPage;
+import com.erokin.strove.dto.ConversationSearchResult;
 import com.erokin.strove.dto.InspirationRequest;
 import com.erokin.strove.entity.Conversation;
+import com.erokin.strove.entity.ConversationThread;
+import com.erokin.strove.service.AIBatchService;
 import com.erokin.strove.service.AIService;
+import com.erokin.strove.service.ConversationArchiver;
+import com.erokin.strove.service.ConversationHistoryService;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * AI控制器
@@ -20,35 +46,100 @@ import java.util.Map;
 @RequestMapping("/api/ai")
 public class AIController {
 
+    // 与上游读取超时保持一致
+    private static final long STREAM_TIMEOUT_MS = 300000L;
+
+    // 首个token到达前也要定期写出，才能及时发现客户端断开
+    private static final long HEARTBEAT_INTERVAL_SECONDS = 10L;
+
+    private static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
     private final AIService aiService;
+    private final AIBatchService aiBatchService;
+    private final Executor aiStreamExecutor;
+    private final RequestRegistry requestRegistry;
+    private final ConversationArchiver conversationArchiver;
+    private final ConversationHistoryService conversationHistoryService;
+    private final ScheduledExecutorService heartbeatScheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("sse-heartbeat").daemon().factory());
 
-    public AIController(AIService aiService) {
+    public AIController(AIService aiService, AIBatchService aiBatchService,
+                        @Qualifier("aiStreamExecutor") Executor aiStreamExecutor,
+                        RequestRegistry requestRegistry, ConversationArchiver conversationArchiver,
+                        ConversationHistoryService conversationHistoryService) {
         this.aiService = aiService;
+        this.aiBatchService = aiBatchService;
+        this.aiStreamExecutor = aiStreamExecutor;
+        this.requestRegistry = requestRegistry;
+        this.conversationArchiver = conversationArchiver;
+        this.conversationHistoryService = conversationHistoryService;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeatScheduler.shutdownNow();
     }
 
     /**
      * AI对话
+     * 异步执行，客户端断开或调用取消接口时中止上游调用
      */
     @PostMapping("/chat")
-    public ApiResponse<ChatResponse> chat(@Valid @RequestBody ChatRequest request,
-                                          Authentication authentication) {
-        try {
-            Long userId = (Long) authentication.getPrincipal();
-            System.out.println("收到AI对话请求 - userId: " + userId + 
-                             ", provider: " + request.getProvider() + 
-                             ", model: " + request.getModel() + 
-                             ", apiUrl: " + request.getApiUrl());
-            ChatResponse response = aiService.chat(userId, request);
-            return ApiResponse.success(response);
-        } catch (Exception e) {
-            System.err.println("AI对话失败: " + e.getMessage());
-            e.printStackTrace();
-            return ApiResponse.error(e.getMessage());
-        }
+    public DeferredResult<ApiResponse<ChatResponse>> chat(@Valid @RequestBody ChatRequest request,
+                                                          @RequestHeader(value = RequestRegistry.HEADER, required = false) String requestId,
+                                                          Authentication authentication,
+                                                          HttpServletResponse servletResponse) {
+        Long userId = (Long) authentication.getPrincipal();
+        RequestRegistry.Handle handle = register(userId, requestId, servletResponse);
+        System.out.println("收到AI对话请求 - userId: " + userId + 
+                         ", provider: " + request.getProvider() + 
+                         ", model: " + request.getModel() + 
+                         ", apiUrl: " + request.getApiUrl() +
+                         ", requestId: " + handle.getId());
+        return submit(handle, () -> {
+            try {
+                ChatResponse response = aiService.chat(userId, request);
+                return ApiResponse.success(response);
+            } catch (Exception e) {
+                System.err.println("AI对话失败: " + e.getMessage());
+                if (!handle.isCancelled()) {
+                    e.printStackTrace();
+                }
+                return ApiResponse.error(e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * AI对话（SSE流式）
+     * 事件: delta {content} → done {reply, conversationId}，失败时发送 error {message}
+     */
+    @PostMapping(value = "/chat/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter chatStream(@Valid @RequestBody ChatRequest request,
+                                 @RequestHeader(value = RequestRegistry.HEADER, required = false) String requestId,
+                                 Authentication authentication,
+                                 HttpServletResponse servletResponse) {
+        Long userId = (Long) authentication.getPrincipal();
+        RequestRegistry.Handle handle = register(userId, requestId, servletResponse);
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MS);
+        bindToClient(emitter, handle);
+        aiStreamExecutor.execute(() -> {
+            handle.attach();
+            try (handle) {
+                ChatResponse response = aiService.streamChat(userId, request,
+                        delta -> sendEvent(emitter, "delta", Map.of("content", delta)));
+                sendEvent(emitter, "done", response);
+                emitter.complete();
+            } catch (Exception e) {
+                sendError(emitter, e);
+            }
+        });
+        return emitter;
     }
 
     /**
      * 测试连接
+     * 默认返回后台健康探测的最近结果，refresh=true 时立即重新探测
      */
     @PostMapping("/test-connection")
     public ApiResponse<Map<String, Object>> testConnection(@RequestBody Map<String, String> request) {
@@ -57,8 +148,9 @@ public class AIController {
             String provider = request.get("provider");
             String model = request.get("model");
             String apiUrl = request.get("apiUrl");
+            boolean refresh = Boolean.parseBoolean(request.get("refresh"));
 
-            Map<String, Object> result = aiService.testConnection(apiKey, provider, model, apiUrl);
+            Map<String, Object> result = aiService.testConnection(apiKey, provider, model, apiUrl, refresh);
             return ApiResponse.success(result);
         } catch (Exception e) {
             return ApiResponse.error(e.getMessage());
@@ -69,46 +161,348 @@ public class AIController {
      * 生成灵感
      */
     @PostMapping("/inspiration")
-    public ApiResponse<List<String>> generateInspiration(@Valid @RequestBody InspirationRequest request) {
+    public DeferredResult<ApiResponse<List<String>>> generateInspiration(@Valid @RequestBody InspirationRequest request,
+                                                                         @RequestHeader(value = RequestRegistry.HEADER, required = false) String requestId,
+                                                                         Authentication authentication,
+                                                                         HttpServletResponse servletResponse) {
+        Long userId = (Long) authentication.getPrincipal();
+        RequestRegistry.Handle handle = register(userId, requestId, servletResponse);
+        return submit(handle, () -> {
+            try {
+                List<String> inspirations = aiService.generateInspiration(userId, request);
+                return ApiResponse.success(inspirations);
+            } catch (Exception e) {
+                return ApiResponse.error(e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 生成灵感（SSE流式）
+     * 事件: idea {index, content}（每解析出一条推送一次）→ done {ideas}，失败时发送 error {message}
+     */
+    @PostMapping(value = "/inspiration/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter generateInspirationStream(@Valid @RequestBody InspirationRequest request,
+                                                @RequestHeader(value = RequestRegistry.HEADER, required = false) String requestId,
+                                                Authentication authentication,
+                                                HttpServletResponse servletResponse) {
+        Long userId = (Long) authentication.getPrincipal();
+        RequestRegistry.Handle handle = register(userId, requestId, servletResponse);
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MS);
+        bindToClient(emitter, handle);
+        aiStreamExecutor.execute(() -> {
+            handle.attach();
+            try (handle) {
+                AtomicInteger index = new AtomicInteger();
+                List<String> ideas = aiService.streamInspiration(userId, request, idea -> sendEvent(emitter, "idea",
+                        Map.of("index", index.getAndIncrement(), "content", idea)));
+                sendEvent(emitter, "done", Map.of("ideas", ideas));
+                emitter.complete();
+            } catch (Exception e) {
+                sendError(emitter, e);
+            }
+        });
+        return emitter;
+    }
+
+    /**
+     * 生成灵感（NDJSON流式）
+     * Accept: application/x-ndjson 时每解析出一条输出一行 {index, content}，失败时输出 {error}
+     */
+    @PostMapping(value = "/inspiration/stream", produces = APPLICATION_NDJSON_VALUE)
+    public ResponseBodyEmitter generateInspirationNdjson(@Valid @RequestBody InspirationRequest request,
+                                                         @RequestHeader(value = RequestRegistry.HEADER, required = false) String requestId,
+                                                         Authentication authentication,
+                                                         HttpServletResponse servletResponse) {
+        Long userId = (Long) authentication.getPrincipal();
+        RequestRegistry.Handle handle = register(userId, requestId, servletResponse);
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(STREAM_TIMEOUT_MS);
+        emitter.onError(e -> handle.cancel());
+        emitter.onTimeout(handle::cancel);
+        aiStreamExecutor.execute(() -> {
+            handle.attach();
+            try (handle) {
+                AtomicInteger index = new AtomicInteger();
+                aiService.streamInspiration(userId, request, idea -> sendLine(emitter,
+                        Map.of("index", index.getAndIncrement(), "content", idea)));
+                emitter.complete();
+            } catch (UncheckedIOException e) {
+                emitter.completeWithError(e.getCause());
+            } catch (Exception e) {
+                try {
+                    emitter.send(Map.of("error", String.valueOf(e.getMessage())), MediaType.APPLICATION_JSON);
+                    emitter.send("\n", MediaType.TEXT_PLAIN);
+                    emitter.complete();
+                } catch (IOException ioe) {
+                    emitter.completeWithError(ioe);
+                }
+            }
+        });
+        return emitter;
+    }
+
+    /**
+     * 润色文本
+     */
+    @PostMapping("/polish")
+    public DeferredResult<ApiResponse<String>> polishText(@RequestBody Map<String, String> request,
+                                                          @RequestHeader(value = RequestRegistry.HEADER, required = false) String requestId,
+                                                          Authentication authentication,
+                                                          HttpServletResponse servletResponse) {
+        Long userId = (Long) authentication.getPrincipal();
+        RequestRegistry.Handle handle = register(userId, requestId, servletResponse);
+        return submit(handle, () -> {
+            try {
+                String text = request.get("text");
+                String apiKey = request.get("apiKey");
+                String provider = request.get("provider");
+                String model = request.get("model");
+                String style = request.get("style");
+                String apiUrl = request.get("apiUrl");
+                boolean noCache = Boolean.parseBoolean(request.get("noCache"));
+                boolean longText = "long".equals(request.get("mode"));
+
+                String polished = aiService.polishText(userId, text, apiKey, provider, model, style, apiUrl, noCache, longText);
+                return ApiResponse.success(polished);
+            } catch (Exception e) {
+                return ApiResponse.error(e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 润色文本（SSE流式）
+     */
+    @PostMapping(value = "/polish/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter polishTextStream(@RequestBody Map<String, String> request,
+                                       @RequestHeader(value = RequestRegistry.HEADER, required = false) String requestId,
+                                       Authentication authentication,
+                                       HttpServletResponse servletResponse) {
+        Long userId = (Long) authentication.getPrincipal();
+        RequestRegistry.Handle handle = register(userId, requestId, servletResponse);
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MS);
+        bindToClient(emitter, handle);
+        aiStreamExecutor.execute(() -> {
+            handle.attach();
+            try (handle) {
+                aiService.streamPolishText(userId, request.get("text"), request.get("apiKey"), request.get("provider"),
+                        request.get("model"), request.get("style"), request.get("apiUrl"),
+                        Boolean.parseBoolean(request.get("noCache")), "long".equals(request.get("mode")),
+                        delta -> sendEvent(emitter, "delta", Map.of("content", delta)));
+                sendEvent(emitter, "done", Map.of());
+                emitter.complete();
+            } catch (Exception e) {
+                sendError(emitter, e);
+            }
+        });
+        return emitter;
+    }
+
+    /**
+     * 批量任务
+     * 全部完成后一次性返回，结果按提交顺序排列，单项失败不影响其他任务
+     */
+    @PostMapping("/batch")
+    public DeferredResult<ApiResponse<List<BatchItemResult>>> batch(@Valid @RequestBody BatchRequest request,
+                                                                    @RequestHeader(value = RequestRegistry.HEADER, required = false) String requestId,
+                                                                    Authentication authentication,
+                                                                    HttpServletResponse servletResponse) {
+        Long userId = (Long) authentication.getPrincipal();
+        RequestRegistry.Handle handle = register(userId, requestId, servletResponse);
+        return submit(handle, () -> {
+            try {
+                return ApiResponse.success(aiBatchService.run(userId, request, null));
+            } catch (Exception e) {
+                return ApiResponse.error(e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 批量任务（NDJSON流式）
+     * Accept: application/x-ndjson 时每完成一项输出一行结果，按完成顺序
+     */
+    @PostMapping(value = "/batch", produces = APPLICATION_NDJSON_VALUE)
+    public ResponseBodyEmitter batchStream(@Valid @RequestBody BatchRequest request,
+                                           @RequestHeader(value = RequestRegistry.HEADER, required = false) String requestId,
+                                           Authentication authentication,
+                                           HttpServletResponse servletResponse) {
+        Long userId = (Long) authentication.getPrincipal();
+        RequestRegistry.Handle handle = register(userId, requestId, servletResponse);
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(STREAM_TIMEOUT_MS);
+        emitter.onError(e -> handle.cancel());
+        emitter.onTimeout(handle::cancel);
+        aiStreamExecutor.execute(() -> {
+            handle.attach();
+            try (handle) {
+                aiBatchService.run(userId, request, result -> {
+                    try {
+                        emitter.send(result, MediaType.APPLICATION_JSON);
+                        emitter.send("\n", MediaType.TEXT_PLAIN);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                emitter.complete();
+            } catch (UncheckedIOException e) {
+                emitter.completeWithError(e.getCause());
+            } catch (Exception e) {
+                try {
+                    emitter.send(BatchItemResult.error(-1, null, e.getMessage()), MediaType.APPLICATION_JSON);
+                    emitter.send("\n", MediaType.TEXT_PLAIN);
+                    emitter.complete();
+                } catch (IOException ioe) {
+                    emitter.completeWithError(ioe);
+                }
+            }
+        });
+        return emitter;
+    }
+
+    /**
+     * 取消进行中的AI请求
+     * 请求ID即发起请求时的 X-Request-Id 请求头，未提供时由响应头返回
+     */
+    @DeleteMapping("/requests/{id}")
+    public ApiResponse<Void> cancelRequest(@PathVariable String id,
+                                           Authentication authentication) {
+        Long userId = (Long) authentication.getPrincipal();
+        if (!requestRegistry.cancel(userId, id)) {
+            return ApiResponse.error("请求不存在或已结束");
+        }
+        return ApiResponse.success("已取消", null);
+    }
+
+    /**
+     * 润色/灵感结果缓存统计
+     */
+    @GetMapping("/cache/stats")
+    public ApiResponse<Map<String, Object>> getCacheStats() {
+        return ApiResponse.success(aiService.getCacheStats());
+    }
+
+    /**
+     * 获取对话历史（从新到旧，游标分页，只含预览）
+     */
+    @GetMapping("/conversations")
+    public ApiResponse<ConversationPage> getConversations(Authentication authentication,
+                                                          @RequestParam(required = false) String cursor,
+                                                          @RequestParam(defaultValue = "20") int limit) {
         try {
-            List<String> inspirations = aiService.generateInspiration(request);
-            return ApiResponse.success(inspirations);
+            Long userId = (Long) authentication.getPrincipal();
+            return ApiResponse.success(conversationHistoryService.getUserConversations(userId, cursor, limit));
         } catch (Exception e) {
             return ApiResponse.error(e.getMessage());
         }
     }
 
     /**
-     * 润色文本
+     * 获取对话总数
      */
-    @PostMapping("/polish")
-    public ApiResponse<String> polishText(@RequestBody Map<String, String> request,
-                                          Authentication authentication) {
+    @GetMapping("/conversations/count")
+    public ApiResponse<Long> countConversations(Authentication authentication) {
         try {
-            String text = request.get("text");
-            String apiKey = request.get("apiKey");
-            String provider = request.get("provider");
-            String model = request.get("model");
-            String style = request.get("style");
-            String apiUrl = request.get("apiUrl");
+            Long userId = (Long) authentication.getPrincipal();
+            return ApiResponse.success(conversationHistoryService.countUserConversations(userId));
+        } catch (Exception e) {
+            return ApiResponse.error(e.getMessage());
+        }
+    }
 
-            String polished = aiService.polishText(text, apiKey, provider, model, style, apiUrl);
-            return ApiResponse.success(polished);
+    /**
+     * 全文检索对话记录（按相关度排序）
+     */
+    @GetMapping("/conversations/search")
+    public ApiResponse<ConversationSearchResult> searchConversations(Authentication authentication,
+                                                                     @RequestParam("q") String query,
+                                                                     @RequestParam(defaultValue = "20") int limit) {
+        try {
+            Long userId = (Long) authentication.getPrincipal();
+            return ApiResponse.success(conversationHistoryService.search(userId, query, limit));
         } catch (Exception e) {
             return ApiResponse.error(e.getMessage());
         }
     }
 
     /**
-     * 获取对话历史
+     * 获取单条对话的完整内容
      */
-    @GetMapping("/conversations")
-    public ApiResponse<List<Conversation>> getConversations(Authentication authentication,
-                                                            @RequestParam(defaultValue = "20") int limit) {
+    @GetMapping("/conversations/{id}")
+    public ApiResponse<Conversation> getConversation(@PathVariable Long id,
+                                                     Authentication authentication) {
+        try {
+            Long userId = (Long) authentication.getPrincipal();
+            return ApiResponse.success(conversationHistoryService.getConversation(userId, id));
+        } catch (Exception e) {
+            return ApiResponse.error(e.getMessage());
+        }
+    }
+
+    /**
+     * 获取已归档的对话（从新到旧），before 为上一页最后一条的ID
+     */
+    @GetMapping("/conversations/archived")
+    public ApiResponse<List<Conversation>> getArchivedConversations(Authentication authentication,
+                                                                    @RequestParam(required = false) Long before,
+                                                                    @RequestParam(defaultValue = "20") int limit) {
+        try {
+            Long userId = (Long) authentication.getPrincipal();
+            return ApiResponse.success(conversationArchiver.listArchived(userId, before, limit));
+        } catch (Exception e) {
+            return ApiResponse.error(e.getMessage());
+        }
+    }
+
+    /**
+     * 导出全部归档对话（NDJSON，按时间顺序）
+     */
+    @GetMapping(value = "/conversations/archived/export", produces = APPLICATION_NDJSON_VALUE)
+    public ResponseBodyEmitter exportArchivedConversations(Authentication authentication,
+                                                           HttpServletResponse servletResponse) {
+        Long userId = (Long) authentication.getPrincipal();
+        servletResponse.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"conversations-archive.ndjson\"");
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(STREAM_TIMEOUT_MS);
+        aiStreamExecutor.execute(() -> {
+            try {
+                conversationArchiver.exportArchived(userId, conversation -> sendLine(emitter, conversation));
+                emitter.complete();
+            } catch (UncheckedIOException e) {
+                emitter.completeWithError(e.getCause());
+            } catch (Exception e) {
+                try {
+                    sendLine(emitter, Map.of("error", String.valueOf(e.getMessage())));
+                    emitter.complete();
+                } catch (UncheckedIOException ioe) {
+                    emitter.completeWithError(ioe.getCause());
+                }
+            }
+        });
+        return emitter;
+    }
+
+    /**
+     * 获取单条归档对话
+     */
+    @GetMapping("/conversations/archived/{id}")
+    public ApiResponse<Conversation> getArchivedConversation(@PathVariable Long id,
+                                                             Authentication authentication) {
         try {
             Long userId = (Long) authentication.getPrincipal();
-            List<Conversation> conversations = aiService.getUserConversations(userId, limit);
-            return ApiResponse.success(conversations);
+            return ApiResponse.success(conversationArchiver.getArchived(userId, id));
+        } catch (Exception e) {
+            return ApiResponse.error(e.getMessage());
+        }
+    }
+
+    /**
+     * 获取对话线程列表（按最近活动排序）
+     */
+    @GetMapping("/threads")
+    public ApiResponse<List<ConversationThread>> getThreads(Authentication authentication) {
+        try {
+            Long userId = (Long) authentication.getPrincipal();
+            return ApiResponse.success(aiService.getUserThreads(userId));
         } catch (Exception e) {
             return ApiResponse.error(e.getMessage());
         }
@@ -128,4 +522,81 @@ public class AIController {
             return ApiResponse.error(e.getMessage());
         }
     }
+
+    private RequestRegistry.Handle register(Long userId, String requestId, HttpServletResponse servletResponse) {
+        RequestRegistry.Handle handle = requestRegistry.register(userId, requestId);
+        servletResponse.setHeader(RequestRegistry.HEADER, handle.getId());
+        return handle;
+    }
+
+    /**
+     * 在AI线程池中执行，异步请求出错（通常是客户端断开）或超时时取消
+     */
+    private <T> DeferredResult<ApiResponse<T>> submit(RequestRegistry.Handle handle, Callable<ApiResponse<T>> task) {
+        DeferredResult<ApiResponse<T>> result = new DeferredResult<>(STREAM_TIMEOUT_MS);
+        result.onError(e -> handle.cancel());
+        result.onTimeout(() -> {
+            handle.cancel();
+            result.setResult(ApiResponse.error("请求超时"));
+        });
+        aiStreamExecutor.execute(() -> {
+            handle.attach();
+            try (handle) {
+                result.setResult(task.call());
+            } catch (Exception e) {
+                result.setResult(ApiResponse.error(e.getMessage()));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 客户端断开、超时或心跳写入失败时取消请求
+     */
+    private void bindToClient(SseEmitter emitter, RequestRegistry.Handle handle) {
+        ScheduledFuture<?> heartbeat = heartbeatScheduler.scheduleAtFixedRate(() -> {
+            try {
+                emitter.send(SseEmitter.event().comment("ping"));
+            } catch (Exception e) {
+                handle.cancel();
+                throw new IllegalStateException(e);
+            }
+        }, HEARTBEAT_INTERVAL_SECONDS, HEARTBEAT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        emitter.onError(e -> handle.cancel());
+        emitter.onTimeout(handle::cancel);
+        emitter.onCompletion(() -> heartbeat.cancel(false));
+    }
+
+    private void sendEvent(SseEmitter emitter, String name, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+        } catch (IOException e) {
+            // 客户端已断开，中止后续推送
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void sendLine(ResponseBodyEmitter emitter, Object data) {
+        try {
+            emitter.send(data, MediaType.APPLICATION_JSON);
+            emitter.send("\n", MediaType.TEXT_PLAIN);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void sendError(SseEmitter emitter, Exception e) {
+        if (e instanceof UncheckedIOException) {
+            emitter.completeWithError(e.getCause());
+            return;
+        }
+        System.err.println("AI流式响应失败: " + e.getMessage());
+        try {
+            emitter.send(SseEmitter.event().name("error")
+                    .data(Map.of("message", String.valueOf(e.getMessage())), MediaType.APPLICATION_JSON));
+            emitter.complete();
+        } catch (IOException ioe) {
+            emitter.completeWithError(ioe);
+        }
+    }
 }
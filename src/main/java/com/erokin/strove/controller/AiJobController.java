@@ -0,0 +1,123 @@
+package com.erokin.strove.controller;
+
+import com.erokin.strove.dto.AiJobResponse;
+import com.erokin.strove.dto.ApiResponse;
+import com.erokin.strove.dto.BatchRequest;
+import com.erokin.strove.service.AiJobService;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 异步AI任务控制器
+ */
+@RestController
+@RequestMapping("/api/ai/jobs")
+public class AiJobController {
+
+    private static final long EVENTS_TIMEOUT_MS = 600000L;
+    private static final Duration HEARTBEAT_INTERVAL = Duration.ofSeconds(15);
+
+    private final AiJobService aiJobService;
+    private final Executor aiStreamExecutor;
+
+    public AiJobController(AiJobService aiJobService, @Qualifier("aiStreamExecutor") Executor aiStreamExecutor) {
+        this.aiJobService = aiJobService;
+        this.aiStreamExecutor = aiStreamExecutor;
+    }
+
+    /**
+     * 提交异步任务，立即返回任务ID
+     */
+    @PostMapping
+    public ApiResponse<AiJobResponse> submit(@Valid @RequestBody BatchRequest request,
+                                             Authentication authentication) {
+        try {
+            Long userId = (Long) authentication.getPrincipal();
+            return ApiResponse.success("任务已提交", aiJobService.submit(userId, request));
+        } catch (Exception e) {
+            return ApiResponse.error(e.getMessage());
+        }
+    }
+
+    /**
+     * 查询任务状态与结果
+     * wait 为长轮询等待秒数，任务完成后立即返回
+     */
+    @GetMapping("/{id}")
+    public ApiResponse<AiJobResponse> getJob(@PathVariable Long id,
+                                             @RequestParam(defaultValue = "0") long wait,
+                                             Authentication authentication) {
+        try {
+            Long userId = (Long) authentication.getPrincipal();
+            return ApiResponse.success(aiJobService.getJob(userId, id, Duration.ofSeconds(wait)));
+        } catch (Exception e) {
+            return ApiResponse.error(e.getMessage());
+        }
+    }
+
+    /**
+     * 最近的任务列表
+     */
+    @GetMapping
+    public ApiResponse<List<AiJobResponse>> getJobs(Authentication authentication) {
+        try {
+            Long userId = (Long) authentication.getPrincipal();
+            return ApiResponse.success(aiJobService.getUserJobs(userId));
+        } catch (Exception e) {
+            return ApiResponse.error(e.getMessage());
+        }
+    }
+
+    /**
+     * 订阅任务完成通知（SSE）
+     * 未完成时每隔一段时间推送 status 事件，完成后推送 done 事件（含结果）并结束；
+     * 连接超时、断开或结束后停止轮询
+     */
+    @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter jobEvents(@PathVariable Long id, Authentication authentication) {
+        Long userId = (Long) authentication.getPrincipal();
+        SseEmitter emitter = new SseEmitter(EVENTS_TIMEOUT_MS);
+        AtomicBoolean closed = new AtomicBoolean();
+        emitter.onTimeout(() -> closed.set(true));
+        emitter.onCompletion(() -> closed.set(true));
+        emitter.onError(e -> closed.set(true));
+        aiStreamExecutor.execute(() -> {
+            try {
+                AiJobResponse job = aiJobService.getJob(userId, id, Duration.ZERO);
+                while (!"SUCCEEDED".equals(job.getStatus()) && !"FAILED".equals(job.getStatus())) {
+                    if (closed.get()) {
+                        return;
+                    }
+                    emitter.send(SseEmitter.event().name("status")
+                            .data(Map.of("jobId", id, "status", job.getStatus()), MediaType.APPLICATION_JSON));
+                    job = aiJobService.getJob(userId, id, HEARTBEAT_INTERVAL);
+                }
+                emitter.send(SseEmitter.event().name("done").data(job, MediaType.APPLICATION_JSON));
+                emitter.complete();
+            } catch (IOException | IllegalStateException e) {
+                // 客户端已断开或连接已超时结束，任务本身继续执行
+                emitter.completeWithError(e);
+            } catch (Exception e) {
+                try {
+                    emitter.send(SseEmitter.event().name("error")
+                            .data(Map.of("message", String.valueOf(e.getMessage())), MediaType.APPLICATION_JSON));
+                    emitter.complete();
+                } catch (IOException | IllegalStateException sendError) {
+                    emitter.completeWithError(sendError);
+                }
+            }
+        });
+        return emitter;
+    }
+}
@@ -1,8 +1,16 @@
 package com.erokin.strove.controller;
 
 import com.erokin.strove.dto.ApiResponse;
+import com.erokin.strove.dto.ConversationPage;
+import com.erokin.strove.dto.DocumentPatchRequest;
+import com.erokin.strove.dto.DocumentPatchResult;
 import com.erokin.strove.dto.DocumentRequest;
+import com.erokin.strove.dto.DocumentRevisionDetail;
+import com.erokin.strove.dto.DocumentRevisionSummary;
+import com.erokin.strove.dto.TextOperation;
 import com.erokin.strove.entity.Document;
+import com.erokin.strove.service.ConversationHistoryService;
+import com.erokin.strove.service.DocumentRevisionService;
 import com.erokin.strove.service.DocumentService;
 import jakarta.validation.Valid;
 import org.springframework.security.core.Authentication;
@@ -18,9 +26,15 @@ import java.util.List;
 public class DocumentController {
 
     private final DocumentService documentService;
+    private final ConversationHistoryService conversationHistoryService;
+    private final DocumentRevisionService revisionService;
 
-    public DocumentController(DocumentService documentService) {
+    public DocumentController(DocumentService documentService,
+                              ConversationHistoryService conversationHistoryService,
+                              DocumentRevisionService revisionService) {
         this.documentService = documentService;
+        this.conversationHistoryService = conversationHistoryService;
+        this.revisionService = revisionService;
     }
 
     /**
@@ -54,6 +68,21 @@ public class DocumentController {
         }
     }
 
+    /**
+     * 增量保存文档，请求只包含编辑操作，响应不回传正文
+     */
+    @PatchMapping("/{id}")
+    public ApiResponse<DocumentPatchResult> patchDocument(@PathVariable Long id,
+                                                          @Valid @RequestBody DocumentPatchRequest request,
+                                                          Authentication authentication) {
+        try {
+            Long userId = (Long) authentication.getPrincipal();
+            return ApiResponse.success("保存成功", documentService.patchDocument(userId, id, request));
+        } catch (Exception e) {
+            return ApiResponse.error(e.getMessage());
+        }
+    }
+
     /**
      * 获取用户所有文档
      */
@@ -97,4 +126,80 @@ public class DocumentController {
             return ApiResponse.error(e.getMessage());
         }
     }
+
+    /**
+     * 获取文档的AI对话时间线（从新到旧，游标分页）
+     */
+    @GetMapping("/{id}/conversations")
+    public ApiResponse<ConversationPage> getDocumentConversations(@PathVariable Long id,
+                                                                  @RequestParam(required = false) String cursor,
+                                                                  @RequestParam(defaultValue = "20") int limit,
+                                                                  Authentication authentication) {
+        try {
+            Long userId = (Long) authentication.getPrincipal();
+            return ApiResponse.success(conversationHistoryService.getDocumentConversations(userId, id, cursor, limit));
+        } catch (Exception e) {
+            return ApiResponse.error(e.getMessage());
+        }
+    }
+
+    /**
+     * 获取文档的修订列表（从新到旧，不含正文）
+     */
+    @GetMapping("/{id}/revisions")
+    public ApiResponse<List<DocumentRevisionSummary>> getRevisions(@PathVariable Long id,
+                                                                   Authentication authentication) {
+        try {
+            Long userId = (Long) authentication.getPrincipal();
+            return ApiResponse.success(revisionService.listRevisions(userId, id));
+        } catch (Exception e) {
+            return ApiResponse.error(e.getMessage());
+        }
+    }
+
+    /**
+     * 比较两个修订，返回把 from 修订变为 to 修订的编辑操作
+     */
+    @GetMapping("/{id}/revisions/diff")
+    public ApiResponse<List<TextOperation>> diffRevisions(@PathVariable Long id,
+                                                          @RequestParam Long from,
+                                                          @RequestParam Long to,
+                                                          Authentication authentication) {
+        try {
+            Long userId = (Long) authentication.getPrincipal();
+            return ApiResponse.success(revisionService.diff(userId, id, from, to));
+        } catch (Exception e) {
+            return ApiResponse.error(e.getMessage());
+        }
+    }
+
+    /**
+     * 获取某个修订的完整内容
+     */
+    @GetMapping("/{id}/revisions/{revision}")
+    public ApiResponse<DocumentRevisionDetail> getRevision(@PathVariable Long id,
+                                                           @PathVariable Long revision,
+                                                           Authentication authentication) {
+        try {
+            Long userId = (Long) authentication.getPrincipal();
+            return ApiResponse.success(revisionService.getRevision(userId, id, revision));
+        } catch (Exception e) {
+            return ApiResponse.error(e.getMessage());
+        }
+    }
+
+    /**
+     * 恢复到某个修订
+     */
+    @PostMapping("/{id}/revisions/{revision}/restore")
+    public ApiResponse<Document> restoreRevision(@PathVariable Long id,
+                                                 @PathVariable Long revision,
+                                                 Authentication authentication) {
+        try {
+            Long userId = (Long) authentication.getPrincipal();
+            return ApiResponse.success("恢复成功", documentService.restoreRevision(userId, id, revision));
+        } catch (Exception e) {
+            return ApiResponse.error(e.getMessage());
+        }
+    }
 }
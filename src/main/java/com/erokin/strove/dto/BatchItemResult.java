@@ -0,0 +1,72 @@
+package com.erokin.strove.dto;
+
+/**
+ * 批量任务的单项结果
+ */
+public class BatchItemResult {
+
+    private int index;
+    private String id;
+    private boolean success;
+    private Object data;
+    private String error;
+
+    public BatchItemResult() {
+    }
+
+    public BatchItemResult(int index, String id, boolean success, Object data, String error) {
+        this.index = index;
+        this.id = id;
+        this.success = success;
+        this.data = data;
+        this.error = error;
+    }
+
+    public static BatchItemResult success(int index, String id, Object data) {
+        return new BatchItemResult(index, id, true, data, null);
+    }
+
+    public static BatchItemResult error(int index, String id, String error) {
+        return new BatchItemResult(index, id, false, null, error);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+
+    public Object getData() {
+        return data;
+    }
+
+    public void setData(Object data) {
+        this.data = data;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
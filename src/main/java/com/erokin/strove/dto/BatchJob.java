@@ -0,0 +1,89 @@
+package com.erokin.strove.dto;
+
+import jakarta.validation.constraints.NotBlank;
+
+/**
+ * 批量请求中的单个任务
+ * type=polish 使用 text/style，type=inspiration 使用 keyword，type=chat 使用 message
+ */
+public class BatchJob {
+
+    private String id; // 客户端自定义标识，原样返回
+
+    @NotBlank(message = "任务类型不能为空")
+    private String type;
+
+    private String text;
+    private String style;
+    private String keyword;
+    private String message;
+    private String model;
+    private boolean noCache;
+
+    public BatchJob() {
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+
+    public String getStyle() {
+        return style;
+    }
+
+    public void setStyle(String style) {
+        this.style = style;
+    }
+
+    public String getKeyword() {
+        return keyword;
+    }
+
+    public void setKeyword(String keyword) {
+        this.keyword = keyword;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public void setModel(String model) {
+        this.model = model;
+    }
+
+    public boolean isNoCache() {
+        return noCache;
+    }
+
+    public void setNoCache(boolean noCache) {
+        this.noCache = noCache;
+    }
+}
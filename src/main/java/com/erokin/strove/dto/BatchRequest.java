@@ -0,0 +1,74 @@
+package com.erokin.strove.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+
+import java.util.List;
+
+/**
+ * AI批量请求DTO
+ * apiKey / provider / model / apiUrl 为所有任务共用的默认值，单个任务可覆盖 model 和 style
+ */
+public class BatchRequest {
+
+    @NotEmpty(message = "任务列表不能为空")
+    @Valid
+    private List<BatchJob> jobs;
+
+    private String apiKey;
+    private String provider;
+    private String model;
+    private String apiUrl;
+    private Integer parallelism; // 并发数，不超过服务端上限
+
+    public BatchRequest() {
+    }
+
+    public List<BatchJob> getJobs() {
+        return jobs;
+    }
+
+    public void setJobs(List<BatchJob> jobs) {
+        this.jobs = jobs;
+    }
+
+    public String getApiKey() {
+        return apiKey;
+    }
+
+    public void setApiKey(String apiKey) {
+        this.apiKey = apiKey;
+    }
+
+    public String getProvider() {
+        return provider;
+    }
+
+    public void setProvider(String provider) {
+        this.provider = provider;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public void setModel(String model) {
+        this.model = model;
+    }
+
+    public String getApiUrl() {
+        return apiUrl;
+    }
+
+    public void setApiUrl(String apiUrl) {
+        this.apiUrl = apiUrl;
+    }
+
+    public Integer getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(Integer parallelism) {
+        this.parallelism = parallelism;
+    }
+}
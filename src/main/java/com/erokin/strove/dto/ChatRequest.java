@@ -14,6 +14,8 @@ public class ChatRequest {
     private String provider; // openai, qianwen, wenxin
     private String model;
     private String apiUrl; // 自定义API URL地址
+    private Long threadId; // 对话线程ID，为空时新建线程
+    private Long documentId; // 从文档编辑器发起时关联的文档ID
 
     public ChatRequest() {
     }
@@ -57,4 +59,20 @@ public class ChatRequest {
     public void setApiUrl(String apiUrl) {
         this.apiUrl = apiUrl;
     }
+
+    public Long getThreadId() {
+        return threadId;
+    }
+
+    public void setThreadId(Long threadId) {
+        this.threadId = threadId;
+    }
+
+    public Long getDocumentId() {
+        return documentId;
+    }
+
+    public void setDocumentId(Long documentId) {
+        this.documentId = documentId;
+    }
 }
@@ -7,6 +7,7 @@ public class ChatResponse {
 
     private String reply;
     private Long conversationId;
+    private Long threadId;
 
     public ChatResponse() {
     }
@@ -16,6 +17,12 @@ public class ChatResponse {
         this.conversationId = conversationId;
     }
 
+    public ChatResponse(String reply, Long conversationId, Long threadId) {
+        this.reply = reply;
+        this.conversationId = conversationId;
+        this.threadId = threadId;
+    }
+
     public String getReply() {
         return reply;
     }
@@ -31,4 +38,12 @@ public class ChatResponse {
     public void setConversationId(Long conversationId) {
         this.conversationId = conversationId;
     }
+
+    public Long getThreadId() {
+        return threadId;
+    }
+
+    public void setThreadId(Long threadId) {
+        this.threadId = threadId;
+    }
 }
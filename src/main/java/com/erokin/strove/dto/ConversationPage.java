@@ -0,0 +1,36 @@
+package com.erokin.strove.dto;
+
+import java.util.List;
+
+/**
+ * 对话记录分页结果，nextCursor 为空表示没有更多
+ */
+public class ConversationPage {
+
+    private List<ConversationSummary> items;
+    private String nextCursor;
+
+    public ConversationPage() {
+    }
+
+    public ConversationPage(List<ConversationSummary> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<ConversationSummary> getItems() {
+        return items;
+    }
+
+    public void setItems(List<ConversationSummary> items) {
+        this.items = items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
@@ -0,0 +1,77 @@
+package com.erokin.strove.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * 对话检索命中项，snippet 为命中位置附近的片段
+ */
+public class ConversationSearchHit {
+
+    private Long id;
+    private Long threadId;
+    private Long documentId;
+    private String snippet;
+    private double score;
+    private LocalDateTime createdAt;
+
+    public ConversationSearchHit() {
+    }
+
+    public ConversationSearchHit(Long id, Long threadId, Long documentId, String snippet, double score,
+                                 LocalDateTime createdAt) {
+        this.id = id;
+        this.threadId = threadId;
+        this.documentId = documentId;
+        this.snippet = snippet;
+        this.score = score;
+        this.createdAt = createdAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getThreadId() {
+        return threadId;
+    }
+
+    public void setThreadId(Long threadId) {
+        this.threadId = threadId;
+    }
+
+    public Long getDocumentId() {
+        return documentId;
+    }
+
+    public void setDocumentId(Long documentId) {
+        this.documentId = documentId;
+    }
+
+    public String getSnippet() {
+        return snippet;
+    }
+
+    public void setSnippet(String snippet) {
+        this.snippet = snippet;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    public void setScore(double score) {
+        this.score = score;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,56 @@
+package com.erokin.strove.dto;
+
+import java.util.List;
+
+/**
+ * 对话检索结果，complete 为 false 表示索引仍在构建，结果可能不全
+ */
+public class ConversationSearchResult {
+
+    private List<ConversationSearchHit> hits;
+    private int total;
+    private long tookMs;
+    private boolean complete;
+
+    public ConversationSearchResult() {
+    }
+
+    public ConversationSearchResult(List<ConversationSearchHit> hits, int total, long tookMs, boolean complete) {
+        this.hits = hits;
+        this.total = total;
+        this.tookMs = tookMs;
+        this.complete = complete;
+    }
+
+    public List<ConversationSearchHit> getHits() {
+        return hits;
+    }
+
+    public void setHits(List<ConversationSearchHit> hits) {
+        this.hits = hits;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public void setTotal(int total) {
+        this.total = total;
+    }
+
+    public long getTookMs() {
+        return tookMs;
+    }
+
+    public void setTookMs(long tookMs) {
+        this.tookMs = tookMs;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public void setComplete(boolean complete) {
+        this.complete = complete;
+    }
+}
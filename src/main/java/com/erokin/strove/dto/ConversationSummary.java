@@ -0,0 +1,87 @@
+package com.erokin.strove.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * 对话记录列表项，只含截断后的预览，完整内容按ID单独获取
+ */
+public class ConversationSummary {
+
+    private Long id;
+    private Long threadId;
+    private Long documentId;
+    private String messagePreview;
+    private String responsePreview;
+    private boolean truncated;
+    private LocalDateTime createdAt;
+
+    public ConversationSummary() {
+    }
+
+    public ConversationSummary(Long id, Long threadId, Long documentId, String messagePreview,
+                               String responsePreview, boolean truncated, LocalDateTime createdAt) {
+        this.id = id;
+        this.threadId = threadId;
+        this.documentId = documentId;
+        this.messagePreview = messagePreview;
+        this.responsePreview = responsePreview;
+        this.truncated = truncated;
+        this.createdAt = createdAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getThreadId() {
+        return threadId;
+    }
+
+    public void setThreadId(Long threadId) {
+        this.threadId = threadId;
+    }
+
+    public Long getDocumentId() {
+        return documentId;
+    }
+
+    public void setDocumentId(Long documentId) {
+        this.documentId = documentId;
+    }
+
+    public String getMessagePreview() {
+        return messagePreview;
+    }
+
+    public void setMessagePreview(String messagePreview) {
+        this.messagePreview = messagePreview;
+    }
+
+    public String getResponsePreview() {
+        return responsePreview;
+    }
+
+    public void setResponsePreview(String responsePreview) {
+        this.responsePreview = responsePreview;
+    }
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public void setTruncated(boolean truncated) {
+        this.truncated = truncated;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,48 @@
+package com.erokin.strove.dto;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/**
+ * 文档增量保存请求
+ * ops 按顺序作用于 baseRevision 版本的内容，末尾未覆盖的部分保持不变；title 为空时不修改标题
+ */
+public class DocumentPatchRequest {
+
+    @NotNull(message = "缺少基准版本")
+    private Long baseRevision;
+
+    @Size(max = 200, message = "文档标题不能超过200字符")
+    private String title;
+
+    private List<TextOperation> ops;
+
+    public DocumentPatchRequest() {
+    }
+
+    public Long getBaseRevision() {
+        return baseRevision;
+    }
+
+    public void setBaseRevision(Long baseRevision) {
+        this.baseRevision = baseRevision;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public List<TextOperation> getOps() {
+        return ops;
+    }
+
+    public void setOps(List<TextOperation> ops) {
+        this.ops = ops;
+    }
+}
@@ -0,0 +1,56 @@
+package com.erokin.strove.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * 增量保存结果，不回传正文
+ */
+public class DocumentPatchResult {
+
+    private Long id;
+    private Long revision;
+    private Integer wordCount;
+    private LocalDateTime updatedAt;
+
+    public DocumentPatchResult() {
+    }
+
+    public DocumentPatchResult(Long id, Long revision, Integer wordCount, LocalDateTime updatedAt) {
+        this.id = id;
+        this.revision = revision;
+        this.wordCount = wordCount;
+        this.updatedAt = updatedAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getRevision() {
+        return revision;
+    }
+
+    public void setRevision(Long revision) {
+        this.revision = revision;
+    }
+
+    public Integer getWordCount() {
+        return wordCount;
+    }
+
+    public void setWordCount(Integer wordCount) {
+        this.wordCount = wordCount;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -5,6 +5,7 @@ import jakarta.validation.constraints.Size;
 
 /**
  * 文档请求DTO
+ * 更新时可带上 baseRevision，文档已被其他保存修改时拒绝覆盖；为空时不做检查
  */
 public class DocumentRequest {
 
@@ -14,6 +15,8 @@ public class DocumentRequest {
 
     private String content;
 
+    private Long baseRevision;
+
     public DocumentRequest() {
     }
 
@@ -32,4 +35,12 @@ public class DocumentRequest {
     public void setContent(String content) {
         this.content = content;
     }
+
+    public Long getBaseRevision() {
+        return baseRevision;
+    }
+
+    public void setBaseRevision(Long baseRevision) {
+        this.baseRevision = baseRevision;
+    }
 }
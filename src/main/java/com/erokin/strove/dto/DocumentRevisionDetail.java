@@ -0,0 +1,67 @@
+package com.erokin.strove.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * 还原出的某个修订的完整内容
+ */
+public class DocumentRevisionDetail {
+
+    private Long revision;
+    private String title;
+    private String content;
+    private Integer wordCount;
+    private LocalDateTime createdAt;
+
+    public DocumentRevisionDetail() {
+    }
+
+    public DocumentRevisionDetail(Long revision, String title, String content, Integer wordCount,
+                                  LocalDateTime createdAt) {
+        this.revision = revision;
+        this.title = title;
+        this.content = content;
+        this.wordCount = wordCount;
+        this.createdAt = createdAt;
+    }
+
+    public Long getRevision() {
+        return revision;
+    }
+
+    public void setRevision(Long revision) {
+        this.revision = revision;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public void setContent(String content) {
+        this.content = content;
+    }
+
+    public Integer getWordCount() {
+        return wordCount;
+    }
+
+    public void setWordCount(Integer wordCount) {
+        this.wordCount = wordCount;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,87 @@
+package com.erokin.strove.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * 修订列表项，storedBytes 为该修订实际占用的存储
+ */
+public class DocumentRevisionSummary {
+
+    private Long revision;
+    private String kind;
+    private Integer storedBytes;
+    private Integer contentLength;
+    private Integer wordCount;
+    private String title;
+    private LocalDateTime createdAt;
+
+    public DocumentRevisionSummary() {
+    }
+
+    public DocumentRevisionSummary(Long revision, String kind, Integer storedBytes, Integer contentLength,
+                                   Integer wordCount, String title, LocalDateTime createdAt) {
+        this.revision = revision;
+        this.kind = kind;
+        this.storedBytes = storedBytes;
+        this.contentLength = contentLength;
+        this.wordCount = wordCount;
+        this.title = title;
+        this.createdAt = createdAt;
+    }
+
+    public Long getRevision() {
+        return revision;
+    }
+
+    public void setRevision(Long revision) {
+        this.revision = revision;
+    }
+
+    public String getKind() {
+        return kind;
+    }
+
+    public void setKind(String kind) {
+        this.kind = kind;
+    }
+
+    public Integer getStoredBytes() {
+        return storedBytes;
+    }
+
+    public void setStoredBytes(Integer storedBytes) {
+        this.storedBytes = storedBytes;
+    }
+
+    public Integer getContentLength() {
+        return contentLength;
+    }
+
+    public void setContentLength(Integer contentLength) {
+        this.contentLength = contentLength;
+    }
+
+    public Integer getWordCount() {
+        return wordCount;
+    }
+
+    public void setWordCount(Integer wordCount) {
+        this.wordCount = wordCount;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -14,6 +14,8 @@ public class InspirationRequest {
     private String provider;
     private String model;
     private String apiUrl; // 自定义API URL地址
+    private boolean noCache; // 跳过结果缓存，强制重新生成
+    private Integer count; // 灵感条数（3-5），为空时由模型决定
 
     public InspirationRequest() {
     }
@@ -57,4 +59,20 @@ public class InspirationRequest {
     public void setApiUrl(String apiUrl) {
         this.apiUrl = apiUrl;
     }
+
+    public boolean isNoCache() {
+        return noCache;
+    }
+
+    public void setNoCache(boolean noCache) {
+        this.noCache = noCache;
+    }
+
+    public Integer getCount() {
+        return count;
+    }
+
+    public void setCount(Integer count) {
+        this.count = count;
+    }
 }
@@ -0,0 +1,39 @@
+package com.erokin.strove.dto;
+
+/**
+ * 文本编辑操作，retain/insert/delete 三者恰好设置一个
+ * retain、delete 为UTF-16字符数（与前端字符串下标一致）
+ */
+public class TextOperation {
+
+    private Integer retain;
+    private String insert;
+    private Integer delete;
+
+    public TextOperation() {
+    }
+
+    public Integer getRetain() {
+        return retain;
+    }
+
+    public void setRetain(Integer retain) {
+        this.retain = retain;
+    }
+
+    public String getInsert() {
+        return insert;
+    }
+
+    public void setInsert(String insert) {
+        this.insert = insert;
+    }
+
+    public Integer getDelete() {
+        return delete;
+    }
+
+    public void setDelete(Integer delete) {
+        this.delete = delete;
+    }
+}
@@ -1,14 +1,22 @@
 package com.erokin.strove.entity;
 
+import com.erokin.strove.storage.CompressedTextConverter;
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "conversations")
+@Table(name = "conversations", indexes = {
+    @Index(name = "idx_conversations_thread", columnList = "thread_id, id"),
+    @Index(name = "idx_conversations_user_created", columnList = "user_id, created_at, id"),
+    @Index(name = "idx_conversations_document_created", columnList = "document_id, created_at")
+})
 public class Conversation {
 
+    // 使用号段表分配ID（每次预取50个），IDENTITY会让Hibernate无法批量插入
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "conversation_id")
+    @TableGenerator(name = "conversation_id", table = "id_generators", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "conversations", allocationSize = 50)
     private Long id;
 
     @Column(name = "user_id", nullable = false)
@@ -17,9 +25,15 @@ public class Conversation {
     @Column(name = "document_id")
     private Long documentId;
 
+    @Column(name = "thread_id")
+    private Long threadId;
+
+    // 开启压缩存储时列由 DatabaseAutoFixer 转为 MEDIUMBLOB
+    @Convert(converter = CompressedTextConverter.class)
     @Column(columnDefinition = "TEXT", nullable = false)
     private String message;
 
+    @Convert(converter = CompressedTextConverter.class)
     @Column(columnDefinition = "TEXT")
     private String response;
 
@@ -56,6 +70,14 @@ public class Conversation {
         this.documentId = documentId;
     }
 
+    public Long getThreadId() {
+        return threadId;
+    }
+
+    public void setThreadId(Long threadId) {
+        this.threadId = threadId;
+    }
+
     public String getMessage() {
         return message;
     }
@@ -23,6 +23,11 @@ public class Document {
     @Column(name = "word_count")
     private Integer wordCount;
 
+    // 每次保存加一，增量保存以此校验基准版本，同时防止并发覆盖
+    @Version
+    @Column(nullable = false, columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+    private Long revision;
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
@@ -84,6 +89,14 @@ public class Document {
         this.wordCount = wordCount;
     }
 
+    public Long getRevision() {
+        return revision;
+    }
+
+    public void setRevision(Long revision) {
+        this.revision = revision;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -0,0 +1,175 @@
+package com.erokin.strove.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 文档修订
+ * SNAPSHOT 保存压缩后的完整正文；DELTA 保存相对 base_revision 的二进制差异，
+ * chain_length 为距最近快照的差异个数，还原时最多依次应用这么多个差异
+ */
+@Entity
+@Table(name = "document_revisions", indexes = {
+    @Index(name = "uk_document_revisions_revision", columnList = "document_id, revision", unique = true),
+    @Index(name = "idx_document_revisions_created", columnList = "created_at")
+})
+public class DocumentRevision {
+
+    public static final String SNAPSHOT = "SNAPSHOT";
+    public static final String DELTA = "DELTA";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "document_id", nullable = false)
+    private Long documentId;
+
+    // 对应 Document.revision
+    @Column(nullable = false)
+    private Long revision;
+
+    @Column(nullable = false, length = 10)
+    private String kind;
+
+    @Column(name = "base_revision")
+    private Long baseRevision;
+
+    @Column(name = "chain_length", nullable = false)
+    private Integer chainLength;
+
+    @Column(columnDefinition = "MEDIUMBLOB", nullable = false)
+    private byte[] data;
+
+    @Column(name = "stored_bytes", nullable = false)
+    private Integer storedBytes;
+
+    @Column(name = "content_length", nullable = false)
+    private Integer contentLength;
+
+    @Column(name = "word_count")
+    private Integer wordCount;
+
+    @Column(length = 200)
+    private String title;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    // 保存时合并进最新修订与后台精简重新编码、删除修订互斥，后提交的一方失败
+    @Version
+    @Column(nullable = false, columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+    private Long version;
+
+    @PrePersist
+    protected void onCreate() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getDocumentId() {
+        return documentId;
+    }
+
+    public void setDocumentId(Long documentId) {
+        this.documentId = documentId;
+    }
+
+    public Long getRevision() {
+        return revision;
+    }
+
+    public void setRevision(Long revision) {
+        this.revision = revision;
+    }
+
+    public String getKind() {
+        return kind;
+    }
+
+    public void setKind(String kind) {
+        this.kind = kind;
+    }
+
+    public Long getBaseRevision() {
+        return baseRevision;
+    }
+
+    public void setBaseRevision(Long baseRevision) {
+        this.baseRevision = baseRevision;
+    }
+
+    public Integer getChainLength() {
+        return chainLength;
+    }
+
+    public void setChainLength(Integer chainLength) {
+        this.chainLength = chainLength;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    public void setData(byte[] data) {
+        this.data = data;
+    }
+
+    public Integer getStoredBytes() {
+        return storedBytes;
+    }
+
+    public void setStoredBytes(Integer storedBytes) {
+        this.storedBytes = storedBytes;
+    }
+
+    public Integer getContentLength() {
+        return contentLength;
+    }
+
+    public void setContentLength(Integer contentLength) {
+        this.contentLength = contentLength;
+    }
+
+    public Integer getWordCount() {
+        return wordCount;
+    }
+
+    public void setWordCount(Integer wordCount) {
+        this.wordCount = wordCount;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+}
@@ -0,0 +1,16 @@
+package com.erokin.strove.repository;
+
+import com.erokin.strove.entity.AiJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface AiJobRepository extends JpaRepository<AiJob, Long> {
+    Optional<AiJob> findByIdAndUserId(Long id, Long userId);
+    List<AiJob> findTop20ByUserIdOrderByCreatedAtDesc(Long userId);
+    List<AiJob> findByStatusInOrderByIdAsc(Collection<AiJob.Status> statuses);
+}
@@ -1,14 +1,27 @@
 package com.erokin.strove.repository;
 
 import com.erokin.strove.entity.Conversation;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ConversationRepository extends JpaRepository<Conversation, Long> {
-    List<Conversation> findByUserIdOrderByCreatedAtDesc(Long userId);
-    List<Conversation> findTop20ByUserIdOrderByCreatedAtDesc(Long userId);
-    List<Conversation> findByDocumentIdOrderByCreatedAtAsc(Long documentId);
+    Optional<Conversation> findByIdAndUserId(Long id, Long userId);
+
+    long countByUserId(Long userId);
+
+    // 线程中尚未并入摘要的轮次，从新到旧
+    List<Conversation> findByThreadIdAndIdGreaterThanOrderByIdDesc(Long threadId, Long afterId, Pageable pageable);
+
+    // 归档：有早于截止时间的对话的用户，及其待归档的对话（按ID升序）
+    @Query("select distinct c.userId from Conversation c where c.createdAt < :cutoff")
+    List<Long> findUserIdsWithConversationsBefore(@Param("cutoff") LocalDateTime cutoff);
+    List<Conversation> findByUserIdAndCreatedAtBeforeOrderByIdAsc(Long userId, LocalDateTime cutoff, Pageable pageable);
 }
@@ -0,0 +1,32 @@
+package com.erokin.strove.repository;
+
+import com.erokin.strove.entity.ConversationThread;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ConversationThreadRepository extends JpaRepository<ConversationThread, Long> {
+    Optional<ConversationThread> findByIdAndUserId(Long id, Long userId);
+    List<ConversationThread> findTop50ByUserIdOrderByUpdatedAtDesc(Long userId);
+
+    @Transactional
+    @Modifying
+    @Query("update ConversationThread t set t.updatedAt = :updatedAt where t.id = :id")
+    void touch(@Param("id") Long id, @Param("updatedAt") LocalDateTime updatedAt);
+
+    // 只在摘要仍停留在读取时的位置时写入，避免覆盖并发的更新
+    @Transactional
+    @Modifying
+    @Query("update ConversationThread t set t.summary = :summary, t.summarizedThrough = :through " +
+           "where t.id = :id and coalesce(t.summarizedThrough, 0) = :previous")
+    int updateSummary(@Param("id") Long id, @Param("summary") String summary, @Param("through") Long through,
+                      @Param("previous") Long previous);
+}
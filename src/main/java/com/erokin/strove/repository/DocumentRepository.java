@@ -10,4 +10,5 @@ import java.util.List;
 public interface DocumentRepository extends JpaRepository<Document, Long> {
     List<Document> findByUserIdOrderByUpdatedAtDesc(Long userId);
     List<Document> findByUserIdAndTitleContainingIgnoreCaseOrderByUpdatedAtDesc(Long userId, String title);
+    boolean existsByIdAndUserId(Long id, Long userId);
 }
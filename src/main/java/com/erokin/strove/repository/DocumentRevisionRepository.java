@@ -0,0 +1,41 @@
+package com.erokin.strove.repository;
+
+import com.erokin.strove.dto.DocumentRevisionSummary;
+import com.erokin.strove.entity.DocumentRevision;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface DocumentRevisionRepository extends JpaRepository<DocumentRevision, Long> {
+    // 列表不加载差异数据
+    @Query("select new com.erokin.strove.dto.DocumentRevisionSummary(r.revision, r.kind, r.storedBytes, " +
+           "r.contentLength, r.wordCount, r.title, r.createdAt) " +
+           "from DocumentRevision r where r.documentId = :documentId order by r.revision desc")
+    List<DocumentRevisionSummary> findSummaries(@Param("documentId") Long documentId);
+
+    Optional<DocumentRevision> findTopByDocumentIdOrderByRevisionDesc(Long documentId);
+    Optional<DocumentRevision> findByDocumentIdAndRevision(Long documentId, Long revision);
+    Optional<DocumentRevision> findTopByDocumentIdAndKindAndRevisionLessThanEqualOrderByRevisionDesc(
+            Long documentId, String kind, Long revision);
+    List<DocumentRevision> findByDocumentIdAndRevisionBetweenOrderByRevisionAsc(Long documentId, Long from, Long to);
+    List<DocumentRevision> findByDocumentIdOrderByRevisionAsc(Long documentId);
+
+    // 有早于截止时间、可能需要精简的修订的文档
+    @Query("select r.documentId from DocumentRevision r where r.createdAt < :cutoff group by r.documentId having count(r) > 1")
+    List<Long> findDocumentIdsWithRevisionsBefore(@Param("cutoff") LocalDateTime cutoff);
+
+    @Query("select distinct r.documentId from DocumentRevision r where r.createdAt >= :from and r.createdAt < :to")
+    List<Long> findDocumentIdsWithRevisionsCreatedBetween(@Param("from") LocalDateTime from,
+                                                          @Param("to") LocalDateTime to);
+
+    @Modifying
+    @Query("delete from DocumentRevision r where r.documentId = :documentId")
+    void deleteByDocumentId(@Param("documentId") Long documentId);
+}
@@ -0,0 +1,371 @@
+package com.erokin.strove.search;
+
+import com.erokin.strove.config.properties.ConversationProperties;
+import com.erokin.strove.entity.Conversation;
+import com.erokin.strove.storage.TextCodec;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 对话记录的进程内全文索引
+ * 每个用户一份倒排索引（message 与 response 合并为一篇文档），按BM25打分。
+ * 新对话落库后增量加入，删除只做标记，写快照时顺带清理倒排表。
+ * 启动时先加载磁盘快照，再从数据库补齐快照之后新增的记录；补齐完成前检索结果可能不全。
+ * 写缓冲区满时调用线程与写线程并发落库，提交顺序与ID顺序不一致，快照的ID上限以下可能缺少晚提交的记录，
+ * 因此补齐从上限往回 catch-up-overlap 个ID开始重扫，已索引的记录重复加入会被忽略
+ */
+@Component
+public class ConversationSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConversationSearchIndex.class);
+
+    private static final int SNAPSHOT_MAGIC = 0x43534958; // "CSIX"
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final String SNAPSHOT_FILE = "conversation-index.snap";
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ConversationProperties.Search properties;
+    private final Map<Long, UserIndex> users = new ConcurrentHashMap<>();
+    private final AtomicLong maxIndexedId = new AtomicLong();
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private volatile boolean ready;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("conversation-search").daemon().factory());
+
+    public ConversationSearchIndex(JdbcTemplate jdbcTemplate, ConversationProperties conversationProperties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = conversationProperties.getSearch();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        scheduler.execute(this::load);
+        long interval = properties.getSnapshotInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::snapshotIfDirty, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * 补齐完成后为 true
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void add(Conversation conversation) {
+        if (!properties.isEnabled() || conversation == null || conversation.getId() == null) {
+            return;
+        }
+        add(conversation.getUserId(), conversation.getId(), conversation.getMessage(), conversation.getResponse());
+    }
+
+    public void remove(Long userId, Collection<Long> conversationIds) {
+        UserIndex index = users.get(userId);
+        if (index == null) {
+            return;
+        }
+        index.lock.writeLock().lock();
+        try {
+            for (Long id : conversationIds) {
+                Integer length = index.documents.remove(id);
+                if (length != null) {
+                    index.totalLength -= length;
+                    index.removed++;
+                }
+            }
+        } finally {
+            index.lock.writeLock().unlock();
+        }
+        dirty.set(true);
+    }
+
+    /**
+     * 按BM25得分从高到低返回命中的对话ID
+     * 中日韩单字查询展开为以该字开头的所有二元词项；匹配的查询词越多得分越高
+     */
+    public SearchResult search(Long userId, String query, int limit) {
+        UserIndex index = users.get(userId);
+        List<String> queryTerms = TextTokenizer.tokenize(query).stream().distinct().toList();
+        if (index == null || queryTerms.isEmpty()) {
+            return new SearchResult(List.of(), 0);
+        }
+        Map<Long, double[]> scores = new HashMap<>();
+        index.lock.readLock().lock();
+        try {
+            int documentCount = index.documents.size();
+            if (documentCount == 0) {
+                return new SearchResult(List.of(), 0);
+            }
+            double averageLength = (double) index.totalLength / documentCount;
+            for (String queryTerm : queryTerms) {
+                Map<Long, Double> termScores = new HashMap<>();
+                for (Map.Entry<String, PostingList> entry : matchingTerms(index, queryTerm).entrySet()) {
+                    PostingList postings = entry.getValue();
+                    double idf = Math.log(1 + (documentCount - postings.count() + 0.5) / (postings.count() + 0.5));
+                    postings.forEach((id, frequency) -> {
+                        Integer length = index.documents.get(id);
+                        if (length == null) {
+                            // 已删除
+                            return;
+                        }
+                        double score = idf * frequency * (K1 + 1)
+                                / (frequency + K1 * (1 - B + B * length / averageLength));
+                        termScores.merge(id, score, Math::max);
+                    });
+                }
+                termScores.forEach((id, score) -> {
+                    double[] total = scores.computeIfAbsent(id, k -> new double[2]);
+                    total[0] += score;
+                    total[1]++;
+                });
+            }
+        } finally {
+            index.lock.readLock().unlock();
+        }
+        List<Hit> hits = new ArrayList<>(scores.size());
+        scores.forEach((id, total) -> hits.add(new Hit(id, total[0] * total[1] / queryTerms.size())));
+        hits.sort((a, b) -> a.score() != b.score() ? Double.compare(b.score(), a.score()) : Long.compare(b.id(), a.id()));
+        return new SearchResult(hits.subList(0, Math.min(limit, hits.size())), hits.size());
+    }
+
+    private static Map<String, PostingList> matchingTerms(UserIndex index, String queryTerm) {
+        if (queryTerm.codePointCount(0, queryTerm.length()) == 1 && TextTokenizer.isCjk(queryTerm.codePointAt(0))) {
+            int next = queryTerm.codePointAt(0) + 1;
+            return index.terms.subMap(queryTerm, true, Character.toString(next), false);
+        }
+        PostingList postings = index.terms.get(queryTerm);
+        return postings == null ? Map.of() : Map.of(queryTerm, postings);
+    }
+
+    private boolean add(Long userId, long id, String message, String response) {
+        Map<String, Integer> frequencies = TextTokenizer.termFrequencies(message);
+        TextTokenizer.termFrequencies(response).forEach((term, count) -> frequencies.merge(term, count, Integer::sum));
+        int length = frequencies.values().stream().mapToInt(Integer::intValue).sum();
+        UserIndex index = users.computeIfAbsent(userId, k -> new UserIndex());
+        index.lock.writeLock().lock();
+        try {
+            if (index.documents.putIfAbsent(id, length) != null) {
+                return false;
+            }
+            index.totalLength += length;
+            frequencies.forEach((term, frequency) ->
+                    index.terms.computeIfAbsent(term, k -> new PostingList()).add(id, frequency));
+        } finally {
+            index.lock.writeLock().unlock();
+        }
+        maxIndexedId.accumulateAndGet(id, Math::max);
+        dirty.set(true);
+        return true;
+    }
+
+    private void load() {
+        long start = System.currentTimeMillis();
+        Path snapshot = Path.of(properties.getDir(), SNAPSHOT_FILE);
+        if (Files.exists(snapshot)) {
+            try {
+                readSnapshot(snapshot);
+                logger.info("已加载检索索引快照：{} 个用户，截至ID {}", users.size(), maxIndexedId.get());
+            } catch (IOException | RuntimeException e) {
+                logger.warn("检索索引快照无法读取，将从数据库重建: {}", e.getMessage());
+                users.clear();
+                maxIndexedId.set(0);
+            }
+        }
+        try {
+            long added = catchUp();
+            ready = true;
+            logger.info("对话检索索引就绪：补齐 {} 条，耗时 {} ms", added, System.currentTimeMillis() - start);
+            if (added > 0) {
+                snapshotIfDirty();
+            }
+        } catch (Exception e) {
+            logger.error("对话检索索引构建失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 从数据库补齐快照之后的记录，返回实际新加入的条数
+     */
+    long catchUp() {
+        long lastId = Math.max(0, maxIndexedId.get() - properties.getCatchUpOverlap());
+        long added = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            List<Row> batch = jdbcTemplate.query(
+                    "SELECT id, user_id, message, response FROM conversations WHERE id > ? ORDER BY id LIMIT ?",
+                    (rs, i) -> new Row(rs.getLong("id"), rs.getLong("user_id"),
+                            TextCodec.decode(rs.getBytes("message")), TextCodec.decode(rs.getBytes("response"))),
+                    lastId, properties.getRebuildBatchSize());
+            if (batch.isEmpty()) {
+                break;
+            }
+            for (Row row : batch) {
+                if (add(row.userId(), row.id(), row.message(), row.response())) {
+                    added++;
+                }
+            }
+            lastId = batch.get(batch.size() - 1).id();
+        }
+        return added;
+    }
+
+    private void snapshotIfDirty() {
+        if (!ready || !dirty.getAndSet(false)) {
+            return;
+        }
+        try {
+            writeSnapshot(Path.of(properties.getDir(), SNAPSHOT_FILE));
+        } catch (Exception e) {
+            dirty.set(true);
+            logger.warn("写入检索索引快照失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 先写临时文件再原子替换；写入前清理已删除文档的倒排项
+     */
+    private void writeSnapshot(Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        Path temp = target.resolveSibling(SNAPSHOT_FILE + ".tmp");
+        // 先记下ID上限，写入期间新增的记录重启后会重新补齐（重复加入会被忽略）
+        long maxId = maxIndexedId.get();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeLong(maxId);
+            List<Map.Entry<Long, UserIndex>> entries = new ArrayList<>(users.entrySet());
+            out.writeInt(entries.size());
+            for (Map.Entry<Long, UserIndex> entry : entries) {
+                out.writeLong(entry.getKey());
+                entry.getValue().write(out);
+            }
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void readSnapshot(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                throw new IOException("快照格式不匹配");
+            }
+            long maxId = in.readLong();
+            int userCount = in.readInt();
+            for (int i = 0; i < userCount; i++) {
+                long userId = in.readLong();
+                users.put(userId, UserIndex.read(in));
+            }
+            maxIndexedId.accumulateAndGet(maxId, Math::max);
+        }
+    }
+
+    /**
+     * 等后台任务（补齐或定时快照）退出后再写最后一次快照，避免两次写入同一个临时文件
+     */
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        try {
+            if (!scheduler.awaitTermination(10, TimeUnit.SECONDS)) {
+                logger.warn("检索索引后台任务未能及时结束，跳过关闭时的快照");
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        snapshotIfDirty();
+    }
+
+    public record Hit(long id, double score) {
+    }
+
+    public record SearchResult(List<Hit> hits, int total) {
+    }
+
+    private record Row(long id, long userId, String message, String response) {
+    }
+
+    private static class UserIndex {
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final TreeMap<String, PostingList> terms = new TreeMap<>();
+        // 文档ID -> 词项数，不在其中的ID视为已删除
+        private final Map<Long, Integer> documents = new HashMap<>();
+        private long totalLength;
+        private int removed;
+
+        void write(DataOutputStream out) throws IOException {
+            lock.writeLock().lock();
+            try {
+                if (removed > 0) {
+                    terms.values().removeIf(postings -> {
+                        postings.retain(documents::containsKey);
+                        return postings.count() == 0;
+                    });
+                    removed = 0;
+                }
+                out.writeInt(documents.size());
+                for (Map.Entry<Long, Integer> document : documents.entrySet()) {
+                    out.writeLong(document.getKey());
+                    out.writeInt(document.getValue());
+                }
+                out.writeInt(terms.size());
+                for (Map.Entry<String, PostingList> term : terms.entrySet()) {
+                    out.writeUTF(term.getKey());
+                    term.getValue().write(out);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        static UserIndex read(DataInputStream in) throws IOException {
+            UserIndex index = new UserIndex();
+            int documentCount = in.readInt();
+            for (int i = 0; i < documentCount; i++) {
+                long id = in.readLong();
+                int length = in.readInt();
+                index.documents.put(id, length);
+                index.totalLength += length;
+            }
+            int termCount = in.readInt();
+            for (int i = 0; i < termCount; i++) {
+                index.terms.put(in.readUTF(), PostingList.read(in));
+            }
+            return index;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.erokin.strove.search;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.LongPredicate;
+
+/**
+ * 压缩倒排表
+ * 按文档ID升序存放 (ID差值, 词频) 的变长整数编码，常见的递增追加只在末尾写入；
+ * 乱序插入或清理已删除文档时整体解码重建。非线程安全，由所属索引加锁
+ */
+final class PostingList {
+
+    private byte[] data = new byte[8];
+    private int length;
+    private int count;
+    private long lastId;
+
+    @FunctionalInterface
+    interface PostingConsumer {
+        void accept(long id, int frequency);
+    }
+
+    int count() {
+        return count;
+    }
+
+    int sizeInBytes() {
+        return length;
+    }
+
+    /**
+     * 加入文档，已存在的ID忽略
+     */
+    void add(long id, int frequency) {
+        if (count == 0 || id > lastId) {
+            append(id, frequency);
+            return;
+        }
+        long[] ids = new long[count + 1];
+        int[] frequencies = new int[count + 1];
+        int[] size = {0};
+        boolean[] exists = {false};
+        forEach((docId, tf) -> {
+            if (docId == id) {
+                exists[0] = true;
+            }
+            ids[size[0]] = docId;
+            frequencies[size[0]++] = tf;
+        });
+        if (exists[0]) {
+            return;
+        }
+        int position = -(Arrays.binarySearch(ids, 0, count, id) + 1);
+        System.arraycopy(ids, position, ids, position + 1, count - position);
+        System.arraycopy(frequencies, position, frequencies, position + 1, count - position);
+        ids[position] = id;
+        frequencies[position] = frequency;
+        rebuild(ids, frequencies, count + 1);
+    }
+
+    /**
+     * 只保留满足条件的文档
+     */
+    void retain(LongPredicate keep) {
+        long[] ids = new long[count];
+        int[] frequencies = new int[count];
+        int[] size = {0};
+        forEach((docId, tf) -> {
+            if (keep.test(docId)) {
+                ids[size[0]] = docId;
+                frequencies[size[0]++] = tf;
+            }
+        });
+        if (size[0] != count) {
+            rebuild(ids, frequencies, size[0]);
+        }
+    }
+
+    void forEach(PostingConsumer consumer) {
+        int position = 0;
+        long id = 0;
+        for (int i = 0; i < count; i++) {
+            long delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[position++];
+                delta |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            int frequency = 0;
+            shift = 0;
+            do {
+                b = data[position++];
+                frequency |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            id += delta;
+            consumer.accept(id, frequency);
+        }
+    }
+
+    void write(DataOutput out) throws IOException {
+        out.writeInt(count);
+        out.writeLong(lastId);
+        out.writeInt(length);
+        out.write(data, 0, length);
+    }
+
+    static PostingList read(DataInput in) throws IOException {
+        PostingList list = new PostingList();
+        list.count = in.readInt();
+        list.lastId = in.readLong();
+        list.length = in.readInt();
+        list.data = new byte[Math.max(8, list.length)];
+        in.readFully(list.data, 0, list.length);
+        return list;
+    }
+
+    private void rebuild(long[] ids, int[] frequencies, int size) {
+        data = new byte[Math.max(8, length)];
+        length = 0;
+        count = 0;
+        lastId = 0;
+        for (int i = 0; i < size; i++) {
+            append(ids[i], frequencies[i]);
+        }
+    }
+
+    private void append(long id, int frequency) {
+        ensureCapacity(15);
+        writeVarLong(id - lastId);
+        writeVarLong(frequency);
+        lastId = id;
+        count++;
+    }
+
+    private void writeVarLong(long value) {
+        while ((value & ~0x7FL) != 0) {
+            data[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[length++] = (byte) value;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, length + extra));
+        }
+    }
+}
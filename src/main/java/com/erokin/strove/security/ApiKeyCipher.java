@@ -0,0 +1,69 @@
+package com.erokin.strove.security;
+
+import com.erokin.strove.config.properties.AppSecurityProperties;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * API Key 加密
+ * 异步任务需要在服务重启后继续调用上游，密钥以 AES-GCM 加密后暂存，密钥材料由JWT密钥派生
+ */
+@Component
+public class ApiKeyCipher {
+
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_BITS = 128;
+
+    private final SecretKeySpec key;
+    private final SecureRandom random = new SecureRandom();
+
+    public ApiKeyCipher(AppSecurityProperties securityProperties) {
+        try {
+            byte[] material = MessageDigest.getInstance("SHA-256").digest(
+                ("api-key:" + securityProperties.getJwt().getSecret()).getBytes(StandardCharsets.UTF_8));
+            this.key = new SecretKeySpec(material, "AES");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("无法初始化API Key加密", e);
+        }
+    }
+
+    public String encrypt(String plain) {
+        if (plain == null || plain.isEmpty()) {
+            return null;
+        }
+        try {
+            byte[] iv = new byte[IV_LENGTH];
+            random.nextBytes(iv);
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, iv));
+            byte[] encrypted = cipher.doFinal(plain.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(ByteBuffer.allocate(iv.length + encrypted.length)
+                    .put(iv).put(encrypted).array());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("API Key加密失败", e);
+        }
+    }
+
+    public String decrypt(String encoded) {
+        if (encoded == null || encoded.isEmpty()) {
+            return null;
+        }
+        try {
+            byte[] data = Base64.getDecoder().decode(encoded);
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, data, 0, IV_LENGTH));
+            return new String(cipher.doFinal(data, IV_LENGTH, data.length - IV_LENGTH), StandardCharsets.UTF_8);
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new RuntimeException("API Key解密失败，请重新提交任务");
+        }
+    }
+}
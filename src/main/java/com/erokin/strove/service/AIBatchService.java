@@ -0,0 +1,121 @@
+package com.erokin.strove.service;
+
+import com.erokin.strove.config.properties.AiProperties;
+import com.erokin.strove.dto.BatchItemResult;
+import com.erokin.strove.dto.BatchJob;
+import com.erokin.strove.dto.BatchRequest;
+import com.erokin.strove.dto.ChatRequest;
+import com.erokin.strove.dto.InspirationRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+/**
+ * AI批量任务服务
+ * 一次请求携带多个润色/灵感/对话任务，在并发上限内并行执行，每个任务独立返回结果或错误
+ */
+@Service
+public class AIBatchService {
+
+    private final AIService aiService;
+    private final AiProperties.Batch properties;
+
+    public AIBatchService(AIService aiService, AiProperties aiProperties) {
+        this.aiService = aiService;
+        this.properties = aiProperties.getBatch();
+    }
+
+    /**
+     * 执行批量任务
+     *
+     * @param onResult 每个任务完成时回调（按完成顺序），可为 null
+     * @return 按提交顺序排列的结果
+     */
+    public List<BatchItemResult> run(Long userId, BatchRequest request, Consumer<BatchItemResult> onResult) {
+        List<BatchJob> jobs = request.getJobs();
+        if (jobs.size() > properties.getMaxJobs()) {
+            throw new RuntimeException("单次批量任务不能超过" + properties.getMaxJobs() + "个");
+        }
+        int parallelism = request.getParallelism() == null
+                ? properties.getMaxParallelism()
+                : Math.max(1, Math.min(request.getParallelism(), properties.getMaxParallelism()));
+        Semaphore permits = new Semaphore(parallelism);
+        BatchItemResult[] results = new BatchItemResult[jobs.size()];
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < jobs.size(); i++) {
+                int index = i;
+                BatchJob job = jobs.get(i);
+                executor.submit(() -> {
+                    BatchItemResult result;
+                    try {
+                        permits.acquire();
+                        try {
+                            result = BatchItemResult.success(index, job.getId(), execute(userId, request, job));
+                        } finally {
+                            permits.release();
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        result = BatchItemResult.error(index, job.getId(), "任务已取消");
+                    } catch (Exception e) {
+                        result = BatchItemResult.error(index, job.getId(), e.getMessage());
+                    }
+                    results[index] = result;
+                    if (onResult != null) {
+                        synchronized (results) {
+                            onResult.accept(result);
+                        }
+                    }
+                });
+            }
+        }
+        return new ArrayList<>(Arrays.asList(results));
+    }
+
+    private Object execute(Long userId, BatchRequest request, BatchJob job) {
+        String model = job.getModel() != null ? job.getModel() : request.getModel();
+        switch (job.getType().toLowerCase(Locale.ROOT)) {
+            case "polish" -> {
+                if (job.getText() == null || job.getText().isBlank()) {
+                    throw new RuntimeException("润色文本不能为空");
+                }
+                return aiService.polishText(userId, job.getText(), request.getApiKey(), request.getProvider(), model,
+                        job.getStyle(), request.getApiUrl(), job.isNoCache(), false);
+            }
+            case "inspiration" -> {
+                if (job.getKeyword() == null || job.getKeyword().isBlank()) {
+                    throw new RuntimeException("关键词不能为空");
+                }
+                InspirationRequest inspiration = new InspirationRequest();
+                inspiration.setKeyword(job.getKeyword());
+                inspiration.setApiKey(request.getApiKey());
+                inspiration.setProvider(request.getProvider());
+                inspiration.setModel(model);
+                inspiration.setApiUrl(request.getApiUrl());
+                inspiration.setNoCache(job.isNoCache());
+                return aiService.generateInspiration(userId, inspiration);
+            }
+            case "chat" -> {
+                if (job.getMessage() == null || job.getMessage().isBlank()) {
+                    throw new RuntimeException("消息内容不能为空");
+                }
+                ChatRequest chat = new ChatRequest();
+                chat.setMessage(job.getMessage());
+                chat.setApiKey(request.getApiKey());
+                chat.setProvider(request.getProvider());
+                chat.setModel(model);
+                chat.setApiUrl(request.getApiUrl());
+                return aiService.chatOnce(userId, chat);
+            }
+            default -> throw new RuntimeException("不支持的任务类型: " + job.getType());
+        }
+    }
+}
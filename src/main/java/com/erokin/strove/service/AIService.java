@@ -1,18 +1,46 @@
 package com.erokin.strove.service;
 
+import com.erokin.strove.ai.EndpointGuard;
+import com.erokin.strove.ai.InspirationLineParser;
+import com.erokin.strove.ai.MarkdownChunker;
+import com.erokin.strove.ai.ResponseCache;
+import com.erokin.strove.ai.SimilarityCache;
+import com.erokin.strove.ai.SingleFlight;
+import com.erokin.strove.ai.StreamStoppedException;
+import com.erokin.strove.ai.openai.ChatCompletionRequest;
+import com.erokin.strove.ai.openai.ChatMessage;
+import com.erokin.strove.ai.provider.HealthProber;
+import com.erokin.strove.ai.provider.LatencyRouter;
+import com.erokin.strove.ai.provider.ProviderEndpoint;
+import com.erokin.strove.ai.provider.ProviderRegistry;
+import com.erokin.strove.ai.tokenizer.TokenBudget;
+import com.erokin.strove.ai.tokenizer.Tokenizers;
+import com.erokin.strove.config.properties.AiProperties;
+import com.erokin.strove.config.properties.ConversationProperties;
 import com.erokin.strove.dto.ChatRequest;
 import com.erokin.strove.dto.ChatResponse;
 import com.erokin.strove.dto.InspirationRequest;
 import com.erokin.strove.entity.Conversation;
+import com.erokin.strove.entity.ConversationThread;
 import com.erokin.strove.repository.ConversationRepository;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
+import com.erokin.strove.search.ConversationSearchIndex;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.client.RestTemplate;
+
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 /**
  * AI服务
@@ -20,320 +48,593 @@ import java.util.*;
 @Service
 public class AIService {
 
-    private final ConversationRepository conversationRepository;
-    private final RestTemplate restTemplate;
+    // 灵感条数范围
+    private static final int MIN_INSPIRATIONS = 3;
+    private static final int MAX_INSPIRATIONS = 5;
 
-    public AIService(ConversationRepository conversationRepository) {
+    // 使用system message强制AI遵守格式
+    private static final String POLISH_SYSTEM_MESSAGE = "你是一个专业的文本润色助手。你的输出必须遵守以下规则：\n" +
+                                                        "1. 只输出润色后的文本\n" +
+                                                        "2. 禁止输出任何解释、说明、备注\n" +
+                                                        "3. 禁止输出多个版本供选择\n" +
+                                                        "4. 禁止输出\"以下是...\"、\"润色后...\"等引导语\n" +
+                                                        "5. 直接输出结果文本，不要任何额外内容";
+
+    private final ConversationRepository conversationRepository;
+    private final ConversationWriteBuffer conversationWriteBuffer;
+    private final ConversationContextService conversationContextService;
+    private final ConversationProperties conversationProperties;
+    private final AiProperties aiProperties;
+    private final ResponseCache responseCache;
+    private final SimilarityCache similarityCache;
+    private final SingleFlight singleFlight;
+    private final EndpointGuard endpointGuard;
+    private final ProviderRegistry providerRegistry;
+    private final LatencyRouter latencyRouter;
+    private final HealthProber healthProber;
+    private final Tokenizers tokenizers;
+    private final TokenBudget tokenBudget;
+    private final Executor backgroundExecutor;
+    private final ConversationSearchIndex searchIndex;
+
+    public AIService(ConversationRepository conversationRepository, ConversationWriteBuffer conversationWriteBuffer,
+                     ConversationContextService conversationContextService,
+                     ConversationProperties conversationProperties, AiProperties aiProperties,
+                     ResponseCache responseCache, SimilarityCache similarityCache,
+                     SingleFlight singleFlight, EndpointGuard endpointGuard,
+                     ProviderRegistry providerRegistry, LatencyRouter latencyRouter, HealthProber healthProber,
+                     Tokenizers tokenizers, TokenBudget tokenBudget,
+                     @Qualifier("aiStreamExecutor") Executor backgroundExecutor,
+                     ConversationSearchIndex searchIndex) {
         this.conversationRepository = conversationRepository;
-        this.restTemplate = new RestTemplate();
+        this.conversationWriteBuffer = conversationWriteBuffer;
+        this.conversationContextService = conversationContextService;
+        this.conversationProperties = conversationProperties;
+        this.aiProperties = aiProperties;
+        this.responseCache = responseCache;
+        this.similarityCache = similarityCache;
+        this.singleFlight = singleFlight;
+        this.endpointGuard = endpointGuard;
+        this.providerRegistry = providerRegistry;
+        this.latencyRouter = latencyRouter;
+        this.healthProber = healthProber;
+        this.tokenizers = tokenizers;
+        this.tokenBudget = tokenBudget;
+        this.backgroundExecutor = backgroundExecutor;
+        this.searchIndex = searchIndex;
     }
 
     /**
      * AI对话
+     * 上游调用不在事务内进行，对话记录交给写入缓冲区批量落库
      */
-    @Transactional
     public ChatResponse chat(Long userId, ChatRequest request) {
-        String aiReply = callAIAPI(request.getMessage(), request.getApiKey(), 
-                                   request.getProvider(), request.getModel(), request.getApiUrl());
+        ConversationThread thread = conversationContextService.resolveThread(userId, request.getThreadId(),
+                request.getMessage());
+        List<ChatMessage> messages = conversationContextService.buildMessages(thread, request.getMessage(),
+                tokenizers.forModel(request.getModel()));
+        String aiReply = callAIAPI(messages, 0.7, request.getApiKey(), 
+                                   request.getProvider(), request.getModel(), request.getApiUrl(),
+                                   TokenBudget.Operation.CHAT);
+
+        // 请求已被取消时不再保存无人查看的对话记录
+        ensureNotCancelled();
+        // 上游成功后才保存新线程，并刷新线程的活跃时间
+        Long threadId = conversationContextService.recordTurn(thread);
+        Long conversationId = saveConversation(userId, threadId, request, aiReply);
+
+        return new ChatResponse(aiReply, conversationId, threadId);
+    }
+
+    /**
+     * 单轮对话，不关联对话线程
+     * 批量任务中的对话项彼此独立，不为每一项创建线程
+     */
+    public ChatResponse chatOnce(Long userId, ChatRequest request) {
+        String aiReply = callAIAPI(request.getMessage(), request.getApiKey(), request.getProvider(),
+                request.getModel(), request.getApiUrl(), TokenBudget.Operation.CHAT);
+
+        ensureNotCancelled();
+        Long conversationId = saveConversation(userId, null, request, aiReply);
+
+        return new ChatResponse(aiReply, conversationId, null);
+    }
+
+    /**
+     * AI对话（流式）
+     * 上游以 stream 模式返回，每收到一段增量就回调 onDelta，结束后再保存完整对话记录
+     */
+    public ChatResponse streamChat(Long userId, ChatRequest request, Consumer<String> onDelta) {
+        ConversationThread thread = conversationContextService.resolveThread(userId, request.getThreadId(),
+                request.getMessage());
+        List<ChatMessage> messages = conversationContextService.buildMessages(thread, request.getMessage(),
+                tokenizers.forModel(request.getModel()));
+        String aiReply = streamAIAPI(messages, 0.7,
+                request.getApiKey(), request.getProvider(), request.getModel(), request.getApiUrl(),
+                TokenBudget.Operation.CHAT, onDelta);
+
+        // 请求已被取消时不再保存无人查看的对话记录
+        ensureNotCancelled();
+        Long threadId = conversationContextService.recordTurn(thread);
+        Long conversationId = saveConversation(userId, threadId, request, aiReply);
+
+        return new ChatResponse(aiReply, conversationId, threadId);
+    }
 
-        // 保存对话记录
+    private static void ensureNotCancelled() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new RuntimeException("请求已取消");
+        }
+    }
+
+    /**
+     * 通过写入缓冲区保存对话记录，在限定时间内等待生成的ID
+     * 落库后在后台检查线程历史是否超出预算，需要时增量更新摘要
+     */
+    private Long saveConversation(Long userId, Long threadId, ChatRequest request, String reply) {
         Conversation conversation = new Conversation();
         conversation.setUserId(userId);
+        conversation.setThreadId(threadId);
+        conversation.setDocumentId(request.getDocumentId());
         conversation.setMessage(request.getMessage());
-        conversation.setResponse(aiReply);
-        conversation = conversationRepository.save(conversation);
-
-        return new ChatResponse(aiReply, conversation.getId());
+        conversation.setResponse(reply);
+
+        CompletableFuture<Conversation> saved = conversationWriteBuffer.enqueue(conversation);
+        if (threadId != null) {
+            saved.thenRunAsync(() -> conversationContextService.foldIfNeeded(threadId,
+                    tokenizers.forModel(request.getModel()),
+                    prompt -> callAIAPI(prompt, request.getApiKey(), request.getProvider(), request.getModel(),
+                            request.getApiUrl(), TokenBudget.Operation.SUMMARY)), backgroundExecutor);
+        }
+        try {
+            return saved.get(conversationProperties.getWriteBuffer().getAwaitTimeout().toMillis(),
+                    TimeUnit.MILLISECONDS).getId();
+        } catch (TimeoutException e) {
+            // 记录仍在队列中，稍后落库
+            return null;
+        } catch (ExecutionException e) {
+            System.err.println("保存对话记录失败: " + e.getCause().getMessage());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
     }
 
     /**
      * 生成灵感
      */
-    public List<String> generateInspiration(InspirationRequest request) {
-        String prompt = "请根据关键词\"" + request.getKeyword() + 
-                       "\"生成3-5条写作灵感，每条20-50字，用换行分隔。";
-        
-        String response = callAIAPI(prompt, request.getApiKey(), 
-                                   request.getProvider(), request.getModel(), request.getApiUrl());
+    public List<String> generateInspiration(Long userId, InspirationRequest request) {
+        String prompt = inspirationPrompt(request);
+
+        String cacheKey = responseCache.key(userId, request.getApiKey(), "inspiration", request.getProvider(),
+                request.getModel(), request.getApiUrl(), 0.7, prompt);
+        String response = cacheLookup(cacheKey, request.isNoCache());
+        // 近似缓存只比较关键词本身，“春天”“春天 ”“关于春天”视为同一请求
+        String similarScope = responseCache.key(userId, request.getApiKey(), "inspiration~similar", request.getProvider(),
+                request.getModel(), request.getApiUrl(), 0.7);
+        if (response == null) {
+            response = similarLookup(similarScope, request.getKeyword(), request.isNoCache());
+        }
+        if (response == null) {
+            // 重复提交/前端重试时合并为一次上游调用
+            response = singleFlight.execute(cacheKey, null, publish -> {
+                String reply = callAIAPI(prompt, request.getApiKey(), 
+                                         request.getProvider(), request.getModel(), request.getApiUrl(),
+                                         TokenBudget.Operation.INSPIRATION);
+                responseCache.put(cacheKey, reply);
+                similarPut(similarScope, request.getKeyword(), reply);
+                return reply;
+            });
+        }
         
         // 解析AI返回的灵感列表
-        return parseInspirationResponse(response);
+        return parseInspirationResponse(response, inspirationLimit(request), null);
     }
 
     /**
-     * 润色文本
+     * 生成灵感（流式）
+     * 每解析出一条完整的灵感就回调 onIdea；达到请求的条数后停止读取上游，剩余生成随连接关闭取消
      */
-    public String polishText(String text, String apiKey, String provider, String model, String style, String apiUrl) {
-        // 使用system message强制AI遵守格式
-        String systemMessage = "你是一个专业的文本润色助手。你的输出必须遵守以下规则：\n" +
-                               "1. 只输出润色后的文本\n" +
-                               "2. 禁止输出任何解释、说明、备注\n" +
-                               "3. 禁止输出多个版本供选择\n" +
-                               "4. 禁止输出\"以下是...\"、\"润色后...\"等引导语\n" +
-                               "5. 直接输出结果文本，不要任何额外内容";
-        
-        String userMessage = "润色要求：" + (style != null ? style : "更专业") + "\n\n" +
-                            "原文：\n" + text + "\n\n" +
-                            "请直接返回润色后的文本，不要其他内容。";
-        
-        return callOpenAIWithSystem(userMessage, systemMessage, apiKey, model, apiUrl);
+    public List<String> streamInspiration(Long userId, InspirationRequest request, Consumer<String> onIdea) {
+        String prompt = inspirationPrompt(request);
+        int limit = inspirationLimit(request);
+
+        String cacheKey = responseCache.key(userId, request.getApiKey(), "inspiration", request.getProvider(),
+                request.getModel(), request.getApiUrl(), 0.7, prompt);
+        String similarScope = responseCache.key(userId, request.getApiKey(), "inspiration~similar", request.getProvider(),
+                request.getModel(), request.getApiUrl(), 0.7);
+        String cached = cacheLookup(cacheKey, request.isNoCache());
+        if (cached == null) {
+            cached = similarLookup(similarScope, request.getKeyword(), request.isNoCache());
+        }
+        if (cached != null) {
+            return parseInspirationResponse(cached, limit, onIdea);
+        }
+
+        InspirationLineParser parser = new InspirationLineParser(limit, onIdea);
+        // 与阻塞请求共用同一个键，相同的请求正在进行时直接挂靠；每个调用方用自己的解析器切分条目
+        String reply = singleFlight.execute(cacheKey, parser::accept, publish -> {
+            InspirationLineParser upstreamParser = new InspirationLineParser(limit, idea -> { });
+            StringBuilder read = new StringBuilder();
+            try {
+                streamAIAPI(List.of(ChatMessage.user(prompt)), 0.7, request.getApiKey(), request.getProvider(),
+                        request.getModel(), request.getApiUrl(), TokenBudget.Operation.INSPIRATION, delta -> {
+                            read.append(delta);
+                            publish.accept(delta);
+                            upstreamParser.accept(delta);
+                            if (upstreamParser.isComplete()) {
+                                throw new StreamStoppedException();
+                            }
+                        });
+            } catch (StreamStoppedException e) {
+                // 已达到请求的条数
+            }
+            if (!upstreamParser.finish().isEmpty()) {
+                // 提前结束时缓存的是已读取部分，其中已包含足够的条目
+                responseCache.put(cacheKey, read.toString());
+                similarPut(similarScope, request.getKeyword(), read.toString());
+            }
+            return read.toString();
+        });
+        List<String> ideas = parser.finish();
+        if (ideas.isEmpty()) {
+            // 没有可识别的条目时与非流式一致，整体作为一条返回
+            String whole = reply == null ? "" : reply.trim();
+            if (whole.isEmpty()) {
+                throw new RuntimeException("AI未返回有效内容");
+            }
+            onIdea.accept(whole);
+            return List.of(whole);
+        }
+        return ideas;
+    }
+
+    private String inspirationPrompt(InspirationRequest request) {
+        String count = request.getCount() == null ? "3-5" : String.valueOf(inspirationLimit(request));
+        return "请根据关键词\"" + request.getKeyword() + 
+               "\"生成" + count + "条写作灵感，每条20-50字，用换行分隔。";
+    }
+
+    private int inspirationLimit(InspirationRequest request) {
+        return request.getCount() == null ? MAX_INSPIRATIONS
+                : Math.max(MIN_INSPIRATIONS, Math.min(MAX_INSPIRATIONS, request.getCount()));
     }
 
     /**
-     * 测试连接
+     * 润色文本
+     * 超过长文本阈值（或显式指定 longText）时按分块模式处理
      */
-    public Map<String, Object> testConnection(String apiKey, String provider, String model, String apiUrl) {
-        Map<String, Object> result = new HashMap<>();
-        long startTime = System.currentTimeMillis();
-        
-        try {
-            // 发送一个简单的测试消息
-            String testMessage = "Hi, this is a connection test.";
-            String response = callAIAPI(testMessage, apiKey, provider, model, apiUrl);
-            
-            long duration = System.currentTimeMillis() - startTime;
-            
-            result.put("success", true);
-            result.put("message", "连接成功");
-            result.put("response", response);
-            result.put("responseTime", duration + "ms");
-            result.put("model", model);
-            result.put("provider", provider);
-            
-        } catch (Exception e) {
-            long duration = System.currentTimeMillis() - startTime;
-            
-            result.put("success", false);
-            result.put("message", "连接失败");
-            result.put("error", e.getMessage());
-            result.put("responseTime", duration + "ms");
+    public String polishText(Long userId, String text, String apiKey, String provider, String model, String style, String apiUrl,
+                             boolean noCache, boolean longText) {
+        if (longText || isLongText(text, model)) {
+            return polishLongText(userId, text, apiKey, provider, model, style, apiUrl, noCache, null);
         }
-        
-        return result;
+        return polishSingle(userId, text, apiKey, provider, model, style, apiUrl, noCache);
     }
 
+    private String polishSingle(Long userId, String text, String apiKey, String provider, String model, String style,
+                                String apiUrl, boolean noCache) {
+        String userMessage = buildPolishUserMessage(text, style);
+        String cacheKey = responseCache.key(userId, apiKey, "polish", provider, model, apiUrl, 0.3,
+                POLISH_SYSTEM_MESSAGE, userMessage);
+        String polished = cacheLookup(cacheKey, noCache);
+        String similarScope = polishSimilarScope(userId, apiKey, provider, model, apiUrl, style);
+        if (polished == null) {
+            polished = similarLookup(similarScope, text, noCache);
+        }
+        if (polished == null) {
+            polished = singleFlight.execute(cacheKey, null, publish -> {
+                // 低temperature使输出更稳定
+                String reply = callAIAPI(List.of(ChatMessage.system(POLISH_SYSTEM_MESSAGE), ChatMessage.user(userMessage)),
+                        0.3, apiKey, provider, model, apiUrl, TokenBudget.Operation.POLISH);
+                responseCache.put(cacheKey, reply);
+                similarPut(similarScope, text, reply);
+                return reply;
+            });
+        }
+        return polished;
+    }
 
     /**
-     * 调用AI API
+     * 润色文本（流式）
+     * 命中缓存时一次性推送完整结果
      */
-    private String callAIAPI(String message, String apiKey, String provider, String model, String apiUrl) {
-        if (apiKey == null || apiKey.isEmpty()) {
-            throw new RuntimeException("API密钥不能为空");
+    public String streamPolishText(Long userId, String text, String apiKey, String provider, String model, String style,
+                                   String apiUrl, boolean noCache, boolean longText, Consumer<String> onDelta) {
+        // 提前校验是否有可用端点（请求或路由配置中须有API Key）
+        providerRegistry.resolve(provider, model, apiUrl, apiKey);
+        if (longText || isLongText(text, model)) {
+            // 长文本按片段顺序推送，每个已完成的片段作为一次增量
+            return polishLongText(userId, text, apiKey, provider, model, style, apiUrl, noCache, onDelta);
+        }
+        String userMessage = buildPolishUserMessage(text, style);
+        String cacheKey = responseCache.key(userId, apiKey, "polish", provider, model, apiUrl, 0.3,
+                POLISH_SYSTEM_MESSAGE, userMessage);
+        String cached = cacheLookup(cacheKey, noCache);
+        String similarScope = polishSimilarScope(userId, apiKey, provider, model, apiUrl, style);
+        if (cached == null) {
+            cached = similarLookup(similarScope, text, noCache);
+        }
+        if (cached != null) {
+            onDelta.accept(cached);
+            return cached;
         }
 
-        try {
-            if ("openai".equalsIgnoreCase(provider)) {
-                return callOpenAI(message, apiKey, model != null ? model : "gpt-3.5-turbo", apiUrl);
-            } else if ("qianwen".equalsIgnoreCase(provider)) {
-                return callQianwen(message, apiKey, model != null ? model : "qwen-turbo");
-            } else if ("wenxin".equalsIgnoreCase(provider)) {
-                return callWenxin(message, apiKey, model != null ? model : "ernie-bot");
-            } else {
-                // 默认使用OpenAI
-                return callOpenAI(message, apiKey, model != null ? model : "gpt-3.5-turbo", apiUrl);
+        List<ChatMessage> messages = List.of(ChatMessage.system(POLISH_SYSTEM_MESSAGE), ChatMessage.user(userMessage));
+        // 与阻塞润色共用同一个键：任一方正在进行时，另一方直接挂靠
+        return singleFlight.execute(cacheKey, onDelta, publish -> {
+            try {
+                String polished = streamAIAPI(messages, 0.3, apiKey, provider, model, apiUrl,
+                        TokenBudget.Operation.POLISH, publish);
+                responseCache.put(cacheKey, polished);
+                similarPut(similarScope, text, polished);
+                return polished;
+            } catch (Exception e) {
+                throw new RuntimeException("调用OpenAI API失败: " + e.getMessage());
             }
-        } catch (Exception e) {
-            throw new RuntimeException("AI服务调用失败: " + e.getMessage());
-        }
+        });
     }
 
     /**
-     * 调用OpenAI API
+     * 长文本分块润色
+     * 在标题/段落边界切分后并发润色（并发数受 app.ai.polish.parallelism 限制），按原顺序拼接；
+     * onChunk 按原文顺序依次收到已完成的片段，总耗时取决于最慢的片段而不是全文长度
      */
-    private String callOpenAI(String message, String apiKey, String model, String apiUrl) {
-        // 构建完整的API URL
-        String url;
-        if (apiUrl != null && !apiUrl.trim().isEmpty()) {
-            // 如果用户提供了自定义URL
-            url = apiUrl.trim();
-            // 如果URL不包含 /chat/completions，自动添加
-            if (!url.contains("/chat/completions")) {
-                // 移除末尾的斜杠（如果有）
-                if (url.endsWith("/")) {
-                    url = url.substring(0, url.length() - 1);
+    public String polishLongText(Long userId, String text, String apiKey, String provider, String model, String style,
+                                 String apiUrl, boolean noCache, Consumer<String> onChunk) {
+        // 提前校验是否有可用端点（请求或路由配置中须有API Key）
+        providerRegistry.resolve(provider, model, apiUrl, apiKey);
+        AiProperties.Polish polish = aiProperties.getPolish();
+        List<MarkdownChunker.Chunk> chunks = MarkdownChunker.split(text, polish.getChunkTokens(),
+                tokenizers.forModel(model));
+        Semaphore permits = new Semaphore(polish.getParallelism());
+        StringBuilder result = new StringBuilder(text.length());
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<String>> futures = new ArrayList<>(chunks.size());
+            for (MarkdownChunker.Chunk chunk : chunks) {
+                futures.add(executor.submit(() -> {
+                    if (chunk.body().isEmpty()) {
+                        return chunk.assemble("");
+                    }
+                    permits.acquire();
+                    try {
+                        return chunk.assemble(polishSingle(userId, chunk.body(), apiKey, provider, model, style, apiUrl, noCache));
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+            try {
+                for (Future<String> future : futures) {
+                    String piece = future.get();
+                    result.append(piece);
+                    if (onChunk != null) {
+                        onChunk.accept(piece);
+                    }
                 }
-                url = url + "/chat/completions";
+            } catch (ExecutionException e) {
+                futures.forEach(future -> future.cancel(true));
+                throw e.getCause() instanceof RuntimeException cause ? cause : new RuntimeException(e.getCause());
+            } catch (InterruptedException e) {
+                futures.forEach(future -> future.cancel(true));
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("请求已取消");
+            } catch (RuntimeException e) {
+                // 推送失败（如客户端断开）时放弃剩余片段
+                futures.forEach(future -> future.cancel(true));
+                throw e;
             }
-        } else {
-            // 使用默认的OpenAI官方API地址
-            url = "https://api.openai.com/v1/chat/completions";
         }
-        
-        System.out.println("调用OpenAI API - URL: " + url + ", Model: " + model);
+        return result.toString();
+    }
+
+    public boolean isLongText(String text, String model) {
+        return text != null
+                && tokenizers.forModel(model).countTokens(text) > aiProperties.getPolish().getLongTextThreshold();
+    }
+
+    /**
+     * 缓存统计
+     */
+    public Map<String, Object> getCacheStats() {
+        Map<String, Object> stats = responseCache.stats();
+        stats.put("coalesced", singleFlight.getCoalescedCount());
+        stats.put("similarity", similarityCache.stats());
+        return stats;
+    }
+
+    private String cacheLookup(String cacheKey, boolean noCache) {
+        if (noCache || !responseCache.isEnabled()) {
+            return null;
+        }
+        return responseCache.get(cacheKey);
+    }
+
+    /**
+     * 近似缓存的作用域：除原文外决定润色结果的全部参数
+     */
+    private String polishSimilarScope(Long userId, String apiKey, String provider, String model, String apiUrl, String style) {
+        return responseCache.key(userId, apiKey, "polish~similar", provider, model, apiUrl, 0.3,
+                style != null ? style : "更专业");
+    }
+
+    private String similarLookup(String scope, String text, boolean noCache) {
+        if (noCache || !similarityCache.isEnabled()) {
+            return null;
+        }
+        return similarityCache.get(scope, text);
+    }
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.setBearerAuth(apiKey);
+    private void similarPut(String scope, String text, String reply) {
+        if (similarityCache.isEnabled()) {
+            similarityCache.put(scope, text, reply);
+        }
+    }
 
-        Map<String, Object> request = new HashMap<>();
-        request.put("model", model);
-        request.put("messages", List.of(
-            Map.of("role", "user", "content", message)
-        ));
-        request.put("temperature", 0.7);
-        request.put("max_tokens", 40960); // 增加到40960，避免长文本被截断
+    private String buildPolishUserMessage(String text, String style) {
+        return "润色要求：" + (style != null ? style : "更专业") + "\n\n" +
+               "原文：\n" + text + "\n\n" +
+               "请直接返回润色后的文本，不要其他内容。";
+    }
 
-        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(request, headers);
+    /**
+     * 测试连接
+     */
+    public Map<String, Object> testConnection(String apiKey, String provider, String model, String apiUrl,
+                                              boolean refresh) {
+        Map<String, Object> result = new HashMap<>();
 
         try {
-            Map<String, Object> response = restTemplate.postForObject(url, entity, Map.class);
-            if (response != null && response.containsKey("choices")) {
-                List<Map<String, Object>> choices = (List<Map<String, Object>>) response.get("choices");
-                if (!choices.isEmpty()) {
-                    Map<String, Object> firstChoice = choices.get(0);
-                    Map<String, Object> messageObj = (Map<String, Object>) firstChoice.get("message");
-                    return (String) messageObj.get("content");
+            // 使用后台健康探测的结果，过期或要求刷新时才实际探测（/models 或1个token的请求）
+            List<ProviderEndpoint> endpoints = providerRegistry.resolve(provider, model, apiUrl, apiKey);
+            HealthProber.Check check = null;
+            for (ProviderEndpoint endpoint : endpoints) {
+                check = healthProber.check(endpoint, refresh);
+                if (check.sample().ok()) {
+                    break;
                 }
             }
-            
-            // 如果响应中包含错误信息
-            if (response != null && response.containsKey("error")) {
-                Map<String, Object> error = (Map<String, Object>) response.get("error");
-                String errorMessage = (String) error.get("message");
-                throw new RuntimeException("API错误: " + errorMessage);
+            HealthProber.Sample sample = check.sample();
+
+            result.put("success", sample.ok());
+            result.put("message", sample.ok() ? "连接成功" : "连接失败");
+            if (!sample.ok()) {
+                result.put("error", sample.error());
+            } else if (Boolean.FALSE.equals(sample.modelListed())) {
+                result.put("warning", "模型列表中未找到 " + model);
             }
-            
-            throw new RuntimeException("API返回格式错误");
-        } catch (org.springframework.web.client.HttpClientErrorException e) {
-            // 处理4xx错误（如401未授权、400错误请求等）
-            String errorBody = e.getResponseBodyAsString();
-            if (e.getStatusCode().value() == 401) {
-                throw new RuntimeException("API Key无效或已过期，请检查您的API Key配置");
-            } else if (e.getStatusCode().value() == 429) {
-                throw new RuntimeException("API请求频率超限，请稍后再试");
-            } else {
-                throw new RuntimeException("API请求失败(" + e.getStatusCode() + "): " + 
-                    (errorBody.length() > 100 ? errorBody.substring(0, 100) + "..." : errorBody));
-            }
-        } catch (org.springframework.web.client.HttpServerErrorException e) {
-            // 处理5xx服务器错误
-            throw new RuntimeException("API服务暂时不可用(" + e.getStatusCode() + ")，请稍后重试");
-        } catch (org.springframework.web.client.ResourceAccessException e) {
-            // 处理网络连接问题
-            throw new RuntimeException("无法连接到API服务，请检查网络或API URL配置: " + e.getMessage());
-        } catch (org.springframework.web.client.RestClientException e) {
-            // 处理其他RestTemplate异常，包括响应格式错误
-            String errorMsg = e.getMessage();
-            if (errorMsg != null && errorMsg.contains("text/html")) {
-                throw new RuntimeException("API返回了HTML页面而非JSON数据，请检查:\n" +
-                    "1. API URL配置是否正确\n" +
-                    "2. API Key是否有效\n" +
-                    "3. 如使用中转服务，中转服务是否正常");
-            }
-            throw new RuntimeException("调用API失败: " + errorMsg);
+            result.put("responseTime", sample.latencyMs() + "ms");
+            result.put("cached", check.cached());
+            result.put("checkedAt", sample.at());
+            result.put("model", model);
+            result.put("provider", provider);
         } catch (Exception e) {
-            if (e instanceof RuntimeException && e.getMessage() != null && 
-                (e.getMessage().startsWith("API错误") || 
-                 e.getMessage().startsWith("API Key无效") ||
-                 e.getMessage().startsWith("API请求") ||
-                 e.getMessage().startsWith("API服务") ||
-                 e.getMessage().startsWith("无法连接") ||
-                 e.getMessage().startsWith("API返回了HTML"))) {
-                throw (RuntimeException) e;
-            }
-            throw new RuntimeException("调用OpenAI API失败: " + e.getMessage());
+            result.put("success", false);
+            result.put("message", "连接失败");
+            result.put("error", e.getMessage());
         }
+        // 熔断与并发上限状态，便于排查中转服务问题
+        result.put("endpointHealth", endpointHealth(apiKey, provider, model, apiUrl));
+        
+        return result;
     }
 
+
     /**
-     * 调用OpenAI API（带System Message）
+     * 各端点的熔断/并发状态与路由统计，便于排查中转服务问题
      */
-    private String callOpenAIWithSystem(String userMessage, String systemMessage, String apiKey, String model, String apiUrl) {
-        // 构建完整的API URL
-        String url;
-        if (apiUrl != null && !apiUrl.trim().isEmpty()) {
-            url = apiUrl.trim();
-            if (!url.contains("/chat/completions")) {
-                if (url.endsWith("/")) {
-                    url = url.substring(0, url.length() - 1);
-                }
-                url = url + "/chat/completions";
+    private List<Map<String, Object>> endpointHealth(String apiKey, String provider, String model, String apiUrl) {
+        List<Map<String, Object>> health = new ArrayList<>();
+        try {
+            for (ProviderEndpoint endpoint : providerRegistry.resolve(provider, model, apiUrl, apiKey)) {
+                Map<String, Object> item = new LinkedHashMap<>(endpointGuard.snapshot(endpoint.url()));
+                item.putAll(latencyRouter.snapshot(endpoint));
+                item.put("health", healthProber.snapshot(endpoint));
+                health.add(item);
             }
-        } else {
-            url = "https://api.openai.com/v1/chat/completions";
+        } catch (RuntimeException e) {
+            // 未提供API Key等情况下没有可展示的端点
         }
-        
-        System.out.println("调用OpenAI API (with system) - URL: " + url + ", Model: " + model);
-
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.setBearerAuth(apiKey);
-
-        // 添加system message和user message
-        Map<String, Object> request = new HashMap<>();
-        request.put("model", model);
-        request.put("messages", List.of(
-            Map.of("role", "system", "content", systemMessage),
-            Map.of("role", "user", "content", userMessage)
-        ));
-        request.put("temperature", 0.3);  // 低temperature使输出更稳定
-        request.put("max_tokens", 40960);// 设置最大token数
+        return health;
+    }
 
-        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(request, headers);
+    /**
+     * 调用AI API
+     */
+    private String callAIAPI(String message, String apiKey, String provider, String model, String apiUrl,
+                             TokenBudget.Operation operation) {
+        return callAIAPI(List.of(ChatMessage.user(message)), 0.7, apiKey, provider, model, apiUrl, operation);
+    }
 
+    /**
+     * 非流式调用：逻辑模型配置了多个端点时按延迟/错误率路由，并在首选端点变慢时对冲
+     */
+    private String callAIAPI(List<ChatMessage> messages, double temperature, String apiKey, String provider,
+                             String model, String apiUrl, TokenBudget.Operation operation) {
+        Map<ProviderEndpoint, ChatCompletionRequest> requests =
+                prepareRequests(messages, temperature, apiKey, provider, model, apiUrl, operation);
         try {
-            Map<String, Object> response = restTemplate.postForObject(url, entity, Map.class);
-            if (response != null && response.containsKey("choices")) {
-                List<Map<String, Object>> choices = (List<Map<String, Object>>) response.get("choices");
-                if (!choices.isEmpty()) {
-                    Map<String, Object> firstChoice = choices.get(0);
-                    Map<String, Object> messageObj = (Map<String, Object>) firstChoice.get("message");
-                    return (String) messageObj.get("content");
-                }
-            }
-            throw new RuntimeException("API返回格式错误");
+            return latencyRouter.execute(new ArrayList<>(requests.keySet()), true, () -> true,
+                    endpoint -> providerRegistry.client(endpoint.provider())
+                            .complete(endpoint, requests.get(endpoint)).content());
         } catch (Exception e) {
-            // 复用callOpenAI的异常处理逻辑
-            throw new RuntimeException("调用OpenAI API失败: " + e.getMessage());
+            throw new RuntimeException("AI服务调用失败: " + e.getMessage());
         }
     }
 
     /**
-     * 调用通义千问API
+     * 流式调用：路由到最优端点；尚未推送任何增量时失败可换下一个端点
      */
-    private String callQianwen(String message, String apiKey, String model) {
-        // 简化实现：返回模拟响应
-        // 实际项目中需要集成阿里云SDK
-        return "（通义千问API集成待完善）这是一个示例回复：" + message;
+    private String streamAIAPI(List<ChatMessage> messages, double temperature, String apiKey, String provider,
+                               String model, String apiUrl, TokenBudget.Operation operation, Consumer<String> onDelta) {
+        Map<ProviderEndpoint, ChatCompletionRequest> requests =
+                prepareRequests(messages, temperature, apiKey, provider, model, apiUrl, operation);
+        AtomicBoolean emitted = new AtomicBoolean();
+        Consumer<String> tracking = delta -> {
+            emitted.set(true);
+            onDelta.accept(delta);
+        };
+        try {
+            return latencyRouter.execute(new ArrayList<>(requests.keySet()), false, () -> !emitted.get(),
+                    endpoint -> providerRegistry.client(endpoint.provider())
+                            .stream(endpoint, requests.get(endpoint), tracking));
+        } catch (StreamStoppedException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("AI服务调用失败: " + e.getMessage());
+        }
     }
 
     /**
-     * 调用文心一言API
+     * 解析端点并按各端点的实际模型计算 max_tokens；提示词超出某端点上下文的端点被排除，全部超出时报错
      */
-    private String callWenxin(String message, String apiKey, String model) {
-        // 简化实现：返回模拟响应
-        // 实际项目中需要集成百度AI SDK
-        return "（文心一言API集成待完善）这是一个示例回复：" + message;
+    private Map<ProviderEndpoint, ChatCompletionRequest> prepareRequests(List<ChatMessage> messages, double temperature,
+                                                                       String apiKey, String provider, String model,
+                                                                       String apiUrl, TokenBudget.Operation operation) {
+        Map<ProviderEndpoint, ChatCompletionRequest> requests = new LinkedHashMap<>();
+        RuntimeException rejected = null;
+        List<ProviderEndpoint> endpoints = providerRegistry.resolve(provider, model, apiUrl, apiKey);
+        if (endpoints.size() > 1) {
+            // 多端点路由依赖后台探测结果排序
+            healthProber.track(endpoints);
+        }
+        for (ProviderEndpoint endpoint : endpoints) {
+            try {
+                requests.put(endpoint, new ChatCompletionRequest(endpoint.model(), messages, temperature,
+                        tokenBudget.maxTokens(endpoint.model(), messages, operation)));
+            } catch (RuntimeException e) {
+                rejected = e;
+            }
+        }
+        if (requests.isEmpty()) {
+            throw rejected;
+        }
+        return requests;
     }
 
     /**
      * 解析灵感响应
      */
-    private List<String> parseInspirationResponse(String response) {
-        // 按换行分割
-        String[] lines = response.split("\n");
-        List<String> inspirations = new ArrayList<>();
-
-        for (String line : lines) {
-            String cleaned = line.trim();
-            // 移除数字编号
-            cleaned = cleaned.replaceFirst("^\\d+[.、]\\s*", "");
-            if (!cleaned.isEmpty() && cleaned.length() > 10) {
-                inspirations.add(cleaned);
+    private List<String> parseInspirationResponse(String response, int limit, Consumer<String> onIdea) {
+        InspirationLineParser parser = new InspirationLineParser(limit, onIdea);
+        parser.accept(response);
+        List<String> inspirations = parser.finish();
+        if (inspirations.isEmpty()) {
+            if (onIdea != null) {
+                onIdea.accept(response);
             }
+            return List.of(response);
         }
-
-        return inspirations.isEmpty() ? List.of(response) : inspirations;
+        return inspirations;
     }
 
     /**
-     * 获取用户对话历史
+     * 获取用户的对话线程
      */
-    public List<Conversation> getUserConversations(Long userId, int limit) {
-        return conversationRepository.findTop20ByUserIdOrderByCreatedAtDesc(userId)
-                .stream()
-                .limit(limit)
-                .toList();
+    public List<ConversationThread> getUserThreads(Long userId) {
+        return conversationContextService.getUserThreads(userId);
     }
 
     /**
@@ -349,5 +650,6 @@ public class AIService {
         }
 
         conversationRepository.delete(conversation);
+        searchIndex.remove(userId, List.of(conversationId));
     }
 }
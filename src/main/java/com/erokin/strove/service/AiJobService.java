@@ -0,0 +1,231 @@
+package com.erokin.strove.service;
+
+import com.erokin.strove.config.properties.AiProperties;
+import com.erokin.strove.dto.AiJobResponse;
+import com.erokin.strove.dto.BatchItemResult;
+import com.erokin.strove.dto.BatchRequest;
+import com.erokin.strove.entity.AiJob;
+import com.erokin.strove.repository.AiJobRepository;
+import com.erokin.strove.security.ApiKeyCipher;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 异步AI任务服务
+ * 提交后立即返回任务ID，由固定数量的工作线程执行；状态与结果保存在 ai_jobs 表，
+ * 客户端可轮询、长轮询或订阅SSE获取结果，服务重启后未完成的任务会重新入队
+ */
+@Service
+public class AiJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AiJobService.class);
+    private static final TypeReference<List<BatchItemResult>> RESULT_TYPE = new TypeReference<>() {
+    };
+
+    private final AiJobRepository aiJobRepository;
+    private final AIBatchService aiBatchService;
+    private final ApiKeyCipher apiKeyCipher;
+    private final ObjectMapper objectMapper;
+    private final AiProperties.Jobs properties;
+    private final ExecutorService workers;
+    private final ConcurrentMap<Long, CompletableFuture<Void>> completions = new ConcurrentHashMap<>();
+    private volatile boolean shuttingDown;
+
+    public AiJobService(AiJobRepository aiJobRepository, AIBatchService aiBatchService, ApiKeyCipher apiKeyCipher,
+                        ObjectMapper objectMapper, AiProperties aiProperties) {
+        this.aiJobRepository = aiJobRepository;
+        this.aiBatchService = aiBatchService;
+        this.apiKeyCipher = apiKeyCipher;
+        this.objectMapper = objectMapper;
+        this.properties = aiProperties.getJobs();
+        this.workers = Executors.newFixedThreadPool(properties.getWorkers(),
+                Thread.ofVirtual().name("ai-job-", 0).factory());
+    }
+
+    /**
+     * 提交异步任务
+     */
+    public AiJobResponse submit(Long userId, BatchRequest request) {
+        if (request.getApiKey() == null || request.getApiKey().isEmpty()) {
+            throw new RuntimeException("API密钥不能为空");
+        }
+        String encryptedApiKey = apiKeyCipher.encrypt(request.getApiKey());
+        request.setApiKey(null);
+
+        AiJob job = new AiJob();
+        job.setUserId(userId);
+        job.setPayload(toJson(request));
+        job.setEncryptedApiKey(encryptedApiKey);
+        job = aiJobRepository.save(job);
+
+        dispatch(job.getId());
+        return toResponse(job);
+    }
+
+    /**
+     * 查询任务，wait 大于0时在任务未完成前最多等待对应时长（长轮询）
+     */
+    public AiJobResponse getJob(Long userId, Long jobId, Duration wait) {
+        AiJob job = findJob(userId, jobId);
+        if (!job.isFinished() && !wait.isZero() && !wait.isNegative()) {
+            awaitCompletion(jobId, wait.compareTo(properties.getMaxWait()) > 0 ? properties.getMaxWait() : wait);
+            job = findJob(userId, jobId);
+        }
+        return toResponse(job);
+    }
+
+    /**
+     * 最近的任务列表（不含结果）
+     */
+    public List<AiJobResponse> getUserJobs(Long userId) {
+        return aiJobRepository.findTop20ByUserIdOrderByCreatedAtDesc(userId).stream()
+                .map(job -> new AiJobResponse(job, null))
+                .toList();
+    }
+
+    /**
+     * 启动后恢复未完成的任务
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverUnfinishedJobs() {
+        List<AiJob> unfinished = aiJobRepository.findByStatusInOrderByIdAsc(
+                List.of(AiJob.Status.PENDING, AiJob.Status.RUNNING));
+        for (AiJob job : unfinished) {
+            if (job.getAttempts() >= properties.getMaxAttempts()) {
+                finish(job, null, "任务多次执行中断，已放弃");
+                continue;
+            }
+            if (job.getStatus() == AiJob.Status.RUNNING) {
+                job.setStatus(AiJob.Status.PENDING);
+                aiJobRepository.save(job);
+            }
+            dispatch(job.getId());
+        }
+        if (!unfinished.isEmpty()) {
+            logger.info("恢复未完成的AI任务 {} 个", unfinished.size());
+        }
+    }
+
+    private void dispatch(Long jobId) {
+        workers.execute(() -> runJob(jobId));
+    }
+
+    private void runJob(Long jobId) {
+        AiJob job = aiJobRepository.findById(jobId).orElse(null);
+        if (job == null || job.isFinished()) {
+            return;
+        }
+        job.setStatus(AiJob.Status.RUNNING);
+        job.setStartedAt(LocalDateTime.now());
+        job.setAttempts(job.getAttempts() + 1);
+        job = aiJobRepository.save(job);
+
+        try {
+            BatchRequest request = objectMapper.readValue(job.getPayload(), BatchRequest.class);
+            request.setApiKey(apiKeyCipher.decrypt(job.getEncryptedApiKey()));
+            List<BatchItemResult> results = aiBatchService.run(job.getUserId(), request, null);
+            if (interruptedByShutdown(jobId)) {
+                return;
+            }
+            finish(job, toJson(results), null);
+        } catch (Exception e) {
+            if (interruptedByShutdown(jobId)) {
+                return;
+            }
+            logger.warn("AI任务 {} 执行失败: {}", jobId, e.getMessage());
+            finish(job, null, e.getMessage());
+        }
+    }
+
+    /**
+     * 停机中断的任务不写结果（被取消的子任务并非真实失败），保持 RUNNING 与加密的Key，下次启动时恢复
+     */
+    private boolean interruptedByShutdown(Long jobId) {
+        if (!shuttingDown) {
+            return false;
+        }
+        logger.info("停机中断AI任务 {}，保留待下次启动恢复", jobId);
+        return true;
+    }
+
+    private void finish(AiJob job, String result, String error) {
+        job.setStatus(error == null ? AiJob.Status.SUCCEEDED : AiJob.Status.FAILED);
+        job.setResult(result);
+        job.setError(error != null && error.length() > 1000 ? error.substring(0, 1000) : error);
+        job.setEncryptedApiKey(null);
+        job.setFinishedAt(LocalDateTime.now());
+        aiJobRepository.save(job);
+
+        CompletableFuture<Void> completion = completions.remove(job.getId());
+        if (completion != null) {
+            completion.complete(null);
+        }
+    }
+
+    private void awaitCompletion(Long jobId, Duration timeout) {
+        CompletableFuture<Void> completion = completions.computeIfAbsent(jobId, id -> new CompletableFuture<>());
+        // 注册等待后再确认一次，避免任务恰好在注册前完成而白等
+        if (aiJobRepository.findById(jobId).map(AiJob::isFinished).orElse(true)) {
+            completions.remove(jobId, completion);
+            return;
+        }
+        try {
+            completion.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            // 超时返回当前状态
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private AiJob findJob(Long userId, Long jobId) {
+        return aiJobRepository.findByIdAndUserId(jobId, userId)
+                .orElseThrow(() -> new RuntimeException("任务不存在"));
+    }
+
+    private AiJobResponse toResponse(AiJob job) {
+        List<BatchItemResult> results = null;
+        if (job.getResult() != null) {
+            try {
+                results = objectMapper.readValue(job.getResult(), RESULT_TYPE);
+            } catch (JsonProcessingException e) {
+                throw new RuntimeException("任务结果解析失败");
+            }
+        }
+        return new AiJobResponse(job, results);
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("任务数据序列化失败: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // 执行中的任务保持 RUNNING 状态，下次启动时恢复
+        shuttingDown = true;
+        workers.shutdownNow();
+    }
+}
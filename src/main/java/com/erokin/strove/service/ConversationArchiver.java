@@ -0,0 +1,126 @@
+package com.erokin.strove.service;
+
+import com.erokin.strove.config.properties.ConversationProperties;
+import com.erokin.strove.entity.Conversation;
+import com.erokin.strove.repository.ConversationRepository;
+import com.erokin.strove.search.ConversationSearchIndex;
+import com.erokin.strove.storage.ConversationArchive;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 对话冷数据归档
+ * 定期把超过保留时长的对话按用户分批写入归档文件，写入（并刷盘）成功后再从数据库删除；
+ * 删除前崩溃会在下次运行时重复归档同一批，读取时按ID去重。归档后的记录只读，可按页浏览、按ID查看或整体导出
+ */
+@Service
+public class ConversationArchiver {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConversationArchiver.class);
+
+    private final ConversationRepository conversationRepository;
+    private final ConversationArchive archive;
+    private final ConversationSearchIndex searchIndex;
+    private final ConversationProperties.Archive properties;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("conversation-archiver").daemon().factory());
+
+    public ConversationArchiver(ConversationRepository conversationRepository, ConversationArchive archive,
+                                ConversationSearchIndex searchIndex, ConversationProperties conversationProperties) {
+        this.conversationRepository = conversationRepository;
+        this.archive = archive;
+        this.searchIndex = searchIndex;
+        this.properties = conversationProperties.getArchive();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        long interval = properties.getInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::archiveAll, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 归档的对话，从新到旧
+     */
+    public List<Conversation> listArchived(Long userId, Long beforeId, int limit) {
+        try {
+            return archive.list(userId, beforeId, Math.max(1, Math.min(limit, 100)));
+        } catch (IOException e) {
+            throw new RuntimeException("读取归档失败: " + e.getMessage());
+        }
+    }
+
+    public Conversation getArchived(Long userId, Long conversationId) {
+        try {
+            return archive.find(userId, conversationId)
+                    .orElseThrow(() -> new RuntimeException("归档记录不存在"));
+        } catch (IOException e) {
+            throw new RuntimeException("读取归档失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 按时间顺序逐条输出用户的全部归档
+     */
+    public void exportArchived(Long userId, Consumer<Conversation> consumer) {
+        try {
+            archive.forEach(userId, consumer);
+        } catch (IOException e) {
+            throw new RuntimeException("读取归档失败: " + e.getMessage());
+        }
+    }
+
+    private void archiveAll() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(properties.getOlderThan());
+        try {
+            for (Long userId : conversationRepository.findUserIdsWithConversationsBefore(cutoff)) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                archiveUser(userId, cutoff);
+            }
+        } catch (Exception e) {
+            logger.error("对话归档失败: {}", e.getMessage());
+        }
+    }
+
+    private void archiveUser(Long userId, LocalDateTime cutoff) throws IOException {
+        long moved = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            List<Conversation> batch = conversationRepository.findByUserIdAndCreatedAtBeforeOrderByIdAsc(
+                    userId, cutoff, PageRequest.of(0, properties.getBatchSize()));
+            if (batch.isEmpty()) {
+                break;
+            }
+            archive.append(userId, batch);
+            List<Long> ids = batch.stream().map(Conversation::getId).toList();
+            conversationRepository.deleteAllByIdInBatch(ids);
+            searchIndex.remove(userId, ids);
+            moved += batch.size();
+        }
+        if (moved > 0) {
+            logger.info("已归档用户 {} 的 {} 条对话", userId, moved);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
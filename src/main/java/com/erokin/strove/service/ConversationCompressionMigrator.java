@@ -0,0 +1,125 @@
+package com.erokin.strove.service;
+
+import com.erokin.strove.config.properties.ConversationProperties;
+import com.erokin.strove.storage.TextCodec;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 存量对话记录压缩迁移
+ * 开启压缩后在后台按ID分批读取未压缩的行并改写为压缩格式，每批之间暂停以免影响在线请求；
+ * 直接读写原始字节，不经过实体加载。中途停止后下次启动从头扫描，已压缩的行会被跳过
+ */
+@Service
+public class ConversationCompressionMigrator {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConversationCompressionMigrator.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ConversationProperties.Compression properties;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(
+            Thread.ofVirtual().name("conversation-compression").factory());
+
+    public ConversationCompressionMigrator(JdbcTemplate jdbcTemplate, ConversationProperties conversationProperties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = conversationProperties.getCompression();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!properties.isEnabled() || !properties.isMigrateExisting()) {
+            return;
+        }
+        worker.execute(this::migrate);
+    }
+
+    void migrate() {
+        if (!isBinaryColumn("message") || !isBinaryColumn("response")) {
+            logger.warn("conversations 的 message/response 列不是BLOB类型，跳过压缩迁移");
+            return;
+        }
+        long lastId = 0;
+        long rows = 0;
+        long bytesBefore = 0;
+        long bytesAfter = 0;
+        logger.info("开始压缩存量对话记录，每批 {} 行", properties.getBatchSize());
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                List<Row> batch = jdbcTemplate.query(
+                        "SELECT id, message, response FROM conversations WHERE id > ? ORDER BY id LIMIT ?",
+                        (rs, i) -> new Row(rs.getLong("id"), rs.getBytes("message"), rs.getBytes("response")),
+                        lastId, properties.getBatchSize());
+                if (batch.isEmpty()) {
+                    break;
+                }
+                lastId = batch.get(batch.size() - 1).id();
+                List<Object[]> updates = new ArrayList<>();
+                for (Row row : batch) {
+                    byte[] message = recompress(row.message());
+                    byte[] response = recompress(row.response());
+                    if (message == row.message() && response == row.response()) {
+                        continue;
+                    }
+                    bytesBefore += length(row.message()) + length(row.response());
+                    bytesAfter += length(message) + length(response);
+                    updates.add(new Object[]{message, response, row.id()});
+                }
+                if (!updates.isEmpty()) {
+                    jdbcTemplate.batchUpdate("UPDATE conversations SET message = ?, response = ? WHERE id = ?", updates);
+                    rows += updates.size();
+                }
+                Thread.sleep(properties.getBatchPause().toMillis());
+            }
+            logger.info("存量对话记录压缩完成：改写 {} 行，{} 字节 -> {} 字节", rows, bytesBefore, bytesAfter);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.info("压缩迁移已中止，已改写 {} 行，最后处理的ID {}", rows, lastId);
+        } catch (Exception e) {
+            logger.error("压缩迁移失败（最后处理的ID {}）: {}", lastId, e.getMessage());
+        }
+    }
+
+    /**
+     * 已是带头部的格式或压缩无收益时返回原数组
+     */
+    private byte[] recompress(byte[] stored) {
+        if (stored == null || TextCodec.isEncoded(stored) || stored.length < properties.getMinBytes()) {
+            return stored;
+        }
+        byte[] encoded = TextCodec.encode(TextCodec.decode(stored), true, properties.getMinBytes(), properties.getLevel());
+        return TextCodec.isEncoded(encoded) ? encoded : stored;
+    }
+
+    private boolean isBinaryColumn(String column) {
+        try {
+            String type = jdbcTemplate.queryForObject(
+                "SELECT DATA_TYPE FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'conversations' AND COLUMN_NAME = ?",
+                String.class, column);
+            return type != null && type.toLowerCase().endsWith("blob");
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private static long length(byte[] value) {
+        return value == null ? 0 : value.length;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        worker.shutdownNow();
+    }
+
+    private record Row(long id, byte[] message, byte[] response) {
+    }
+}
@@ -0,0 +1,188 @@
+package com.erokin.strove.service;
+
+import com.erokin.strove.ai.openai.ChatMessage;
+import com.erokin.strove.ai.tokenizer.Tokenizer;
+import com.erokin.strove.config.properties.ConversationProperties;
+import com.erokin.strove.entity.Conversation;
+import com.erokin.strove.entity.ConversationThread;
+import com.erokin.strove.repository.ConversationRepository;
+import com.erokin.strove.repository.ConversationThreadRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * 多轮对话上下文
+ * 请求时只读取线程摘要和尚未并入摘要的近期轮次，按token预算从新到旧截取；
+ * 每轮结束后若未摘要部分超出预算，把较早的轮次增量合并进摘要（只处理新滚出的轮次，不重算全部历史）
+ */
+@Service
+public class ConversationContextService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConversationContextService.class);
+
+    // chat格式每条消息的固定开销
+    private static final int TOKENS_PER_MESSAGE = 4;
+
+    private final ConversationRepository conversationRepository;
+    private final ConversationThreadRepository threadRepository;
+    private final ConversationProperties conversationProperties;
+    private final Set<Long> folding = ConcurrentHashMap.newKeySet();
+
+    public ConversationContextService(ConversationRepository conversationRepository,
+                                      ConversationThreadRepository threadRepository,
+                                      ConversationProperties conversationProperties) {
+        this.conversationRepository = conversationRepository;
+        this.threadRepository = threadRepository;
+        this.conversationProperties = conversationProperties;
+    }
+
+    /**
+     * 获取用户的对话线程，threadId 为空时返回尚未保存的新线程，本轮成功后由 recordTurn 落库
+     */
+    public ConversationThread resolveThread(Long userId, Long threadId, String firstMessage) {
+        if (threadId != null) {
+            return threadRepository.findByIdAndUserId(threadId, userId)
+                    .orElseThrow(() -> new RuntimeException("对话线程不存在或无权访问"));
+        }
+        ConversationThread thread = new ConversationThread();
+        thread.setUserId(userId);
+        String title = firstMessage.strip();
+        thread.setTitle(title.length() > 50 ? title.substring(0, 50) : title);
+        return thread;
+    }
+
+    /**
+     * 记录线程新增了一轮对话：新线程在此时保存，已有线程刷新活跃时间
+     *
+     * @return 线程ID
+     */
+    public Long recordTurn(ConversationThread thread) {
+        if (thread.getId() == null) {
+            return threadRepository.save(thread).getId();
+        }
+        threadRepository.touch(thread.getId(), LocalDateTime.now());
+        return thread.getId();
+    }
+
+    public List<ConversationThread> getUserThreads(Long userId) {
+        return threadRepository.findTop50ByUserIdOrderByUpdatedAtDesc(userId);
+    }
+
+    /**
+     * 组装本轮请求的消息：摘要（如有）+ 预算内的近期轮次 + 本轮消息
+     */
+    public List<ChatMessage> buildMessages(ConversationThread thread, String message, Tokenizer tokenizer) {
+        List<ChatMessage> messages = new ArrayList<>();
+        if (thread.getSummary() != null && !thread.getSummary().isBlank()) {
+            messages.add(ChatMessage.system("以下是本次对话较早内容的摘要，请结合它继续对话：\n" + thread.getSummary()));
+        }
+        int budget = conversationProperties.getContext().getHistoryTokens();
+        List<Conversation> turns = recentTurns(thread);
+        int used = 0;
+        int included = 0;
+        for (Conversation turn : turns) {
+            int cost = turnTokens(turn, tokenizer);
+            if (used + cost > budget) {
+                break;
+            }
+            used += cost;
+            included++;
+        }
+        for (Conversation turn : turns.subList(0, included).reversed()) {
+            messages.add(ChatMessage.user(turn.getMessage()));
+            messages.add(ChatMessage.assistant(turn.getResponse() != null ? turn.getResponse() : ""));
+        }
+        messages.add(ChatMessage.user(message));
+        return messages;
+    }
+
+    /**
+     * 未摘要轮次超出预算时，把较早的部分并入摘要
+     * 只保留约一半预算的近期轮次，使下一次合并要再积累若干轮之后才发生；同一线程同时只有一个合并在进行
+     *
+     * @param summarizer 提示词 → 模型回复
+     */
+    public void foldIfNeeded(Long threadId, Tokenizer tokenizer, Function<String, String> summarizer) {
+        if (!folding.add(threadId)) {
+            return;
+        }
+        try {
+            ConversationThread thread = threadRepository.findById(threadId).orElse(null);
+            if (thread == null) {
+                return;
+            }
+            ConversationProperties.Context context = conversationProperties.getContext();
+            List<Conversation> turns = recentTurns(thread);
+            int total = 0;
+            for (Conversation turn : turns) {
+                total += turnTokens(turn, tokenizer);
+            }
+            if (total <= context.getHistoryTokens()) {
+                return;
+            }
+            int keep = 0;
+            int kept = 0;
+            for (Conversation turn : turns) {
+                int cost = turnTokens(turn, tokenizer);
+                if (kept + cost > context.getHistoryTokens() / 2) {
+                    break;
+                }
+                kept += cost;
+                keep++;
+            }
+            List<Conversation> overflow = new ArrayList<>(turns.subList(keep, turns.size()));
+            Collections.reverse(overflow);
+            String summary = summarizer.apply(buildSummaryPrompt(thread.getSummary(), overflow, context.getSummaryLength()));
+            if (summary == null || summary.isBlank()) {
+                return;
+            }
+            // 摘要生成期间线程可能已被修改，只更新摘要相关的列，且基准位置变化时放弃本次结果
+            long previous = thread.getSummarizedThrough() != null ? thread.getSummarizedThrough() : 0L;
+            threadRepository.updateSummary(threadId, summary.strip(), overflow.get(overflow.size() - 1).getId(), previous);
+        } catch (Exception e) {
+            // 摘要失败不影响对话，下一轮会再次尝试
+            logger.warn("更新对话摘要失败(threadId={}): {}", threadId, e.getMessage());
+        } finally {
+            folding.remove(threadId);
+        }
+    }
+
+    private List<Conversation> recentTurns(ConversationThread thread) {
+        if (thread.getId() == null) {
+            return List.of();
+        }
+        long after = thread.getSummarizedThrough() != null ? thread.getSummarizedThrough() : 0L;
+        return conversationRepository.findByThreadIdAndIdGreaterThanOrderByIdDesc(thread.getId(), after,
+                PageRequest.of(0, conversationProperties.getContext().getMaxTurns()));
+    }
+
+    private int turnTokens(Conversation turn, Tokenizer tokenizer) {
+        return 2 * TOKENS_PER_MESSAGE + tokenizer.countTokens(turn.getMessage())
+                + tokenizer.countTokens(turn.getResponse());
+    }
+
+    private String buildSummaryPrompt(String previous, List<Conversation> turns, int summaryLength) {
+        StringBuilder prompt = new StringBuilder();
+        prompt.append("请把下面的对话整理成一份不超过").append(summaryLength)
+              .append("字的摘要，保留关键事实、用户的偏好与要求以及尚未完成的事项。只输出摘要内容。\n\n");
+        if (previous != null && !previous.isBlank()) {
+            prompt.append("已有摘要：\n").append(previous).append("\n\n");
+        }
+        prompt.append("新增对话：\n");
+        for (Conversation turn : turns) {
+            prompt.append("用户：").append(turn.getMessage()).append('\n');
+            prompt.append("助手：").append(turn.getResponse()).append('\n');
+        }
+        return prompt.toString();
+    }
+}
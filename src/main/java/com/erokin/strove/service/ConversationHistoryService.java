@@ -0,0 +1,227 @@
+package com.erokin.strove.service;
+
+import com.erokin.strove.dto.ConversationPage;
+import com.erokin.strove.dto.ConversationSearchHit;
+import com.erokin.strove.dto.ConversationSearchResult;
+import com.erokin.strove.dto.ConversationSummary;
+import com.erokin.strove.entity.Conversation;
+import com.erokin.strove.repository.ConversationRepository;
+import com.erokin.strove.search.ConversationSearchIndex;
+import com.erokin.strove.search.TextTokenizer;
+import com.erokin.strove.storage.TextCodec;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 对话历史分页查询
+ * 按 (created_at, id) 游标分页，走 (user_id, created_at, id) 或 (document_id, created_at) 索引范围扫描，翻到多深耗时都一样。
+ * 列表只取正文开头一段生成预览（压缩存储的行取整列后解压），完整内容按ID单独加载
+ */
+@Service
+public class ConversationHistoryService {
+
+    private static final int PREVIEW_CHARS = 100;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int SNIPPET_BEFORE = 30;
+    // 未压缩的BLOB按字节截取，多取一些保证解码后仍能判断是否被截断
+    private static final int HEAD_LENGTH = (PREVIEW_CHARS + 1) * 4;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ConversationRepository conversationRepository;
+    private final ConversationSearchIndex searchIndex;
+
+    public ConversationHistoryService(JdbcTemplate jdbcTemplate, ConversationRepository conversationRepository,
+                                      ConversationSearchIndex searchIndex) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.conversationRepository = conversationRepository;
+        this.searchIndex = searchIndex;
+    }
+
+    /**
+     * 用户的对话记录，从新到旧
+     * @param cursor 上一页返回的 nextCursor，为空时从最新一条开始
+     */
+    public ConversationPage getUserConversations(Long userId, String cursor, int limit) {
+        return page("WHERE c.user_id = ?", List.of(userId), cursor, limit);
+    }
+
+    /**
+     * 文档关联的对话记录，从新到旧
+     * 文档归属在同一条查询中校验，文档不存在或不属于该用户时返回空页
+     */
+    public ConversationPage getDocumentConversations(Long userId, Long documentId, String cursor, int limit) {
+        return page("JOIN documents d ON d.id = c.document_id WHERE c.document_id = ? AND d.user_id = ? AND c.user_id = ?",
+                List.of(documentId, userId, userId), cursor, limit);
+    }
+
+    /**
+     * 全文检索对话记录，按相关度排序
+     * 命中ID来自进程内索引，再按主键加载内容生成片段；已不存在的记录顺带从索引移除
+     */
+    public ConversationSearchResult search(Long userId, String query, int limit) {
+        if (query == null || query.isBlank()) {
+            throw new RuntimeException("请输入搜索内容");
+        }
+        if (!searchIndex.isEnabled()) {
+            throw new RuntimeException("对话检索未开启");
+        }
+        long start = System.nanoTime();
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        ConversationSearchIndex.SearchResult result = searchIndex.search(userId, query.trim(), size);
+        List<Long> ids = result.hits().stream().map(ConversationSearchIndex.Hit::id).toList();
+        Map<Long, Conversation> conversations = new HashMap<>();
+        for (Conversation conversation : conversationRepository.findAllById(ids)) {
+            if (conversation.getUserId().equals(userId)) {
+                conversations.put(conversation.getId(), conversation);
+            }
+        }
+        List<Long> missing = ids.stream().filter(id -> !conversations.containsKey(id)).toList();
+        if (!missing.isEmpty()) {
+            searchIndex.remove(userId, missing);
+        }
+        List<String> terms = TextTokenizer.tokenize(query);
+        List<ConversationSearchHit> hits = new ArrayList<>();
+        for (ConversationSearchIndex.Hit hit : result.hits()) {
+            Conversation conversation = conversations.get(hit.id());
+            if (conversation != null) {
+                hits.add(new ConversationSearchHit(conversation.getId(), conversation.getThreadId(),
+                        conversation.getDocumentId(), snippet(conversation, terms), hit.score(),
+                        conversation.getCreatedAt()));
+            }
+        }
+        long tookMs = (System.nanoTime() - start) / 1_000_000;
+        return new ConversationSearchResult(hits, result.total() - missing.size(), tookMs, searchIndex.isReady());
+    }
+
+    /**
+     * 单条对话的完整内容
+     */
+    public Conversation getConversation(Long userId, Long conversationId) {
+        return conversationRepository.findByIdAndUserId(conversationId, userId)
+                .orElseThrow(() -> new RuntimeException("对话记录不存在"));
+    }
+
+    /**
+     * 用户的对话总数（不含已归档的记录）
+     */
+    public long countUserConversations(Long userId) {
+        return conversationRepository.countByUserId(userId);
+    }
+
+    private ConversationPage page(String filter, List<Object> filterArgs, String cursor, int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        StringBuilder sql = new StringBuilder("""
+                SELECT c.id, c.thread_id, c.document_id, c.created_at,
+                       CASE WHEN ASCII(c.message) = 0 THEN c.message ELSE LEFT(c.message, ?) END AS message_head,
+                       CASE WHEN ASCII(c.response) = 0 THEN c.response ELSE LEFT(c.response, ?) END AS response_head
+                FROM conversations c
+                """).append(filter);
+        List<Object> args = new ArrayList<>();
+        args.add(HEAD_LENGTH);
+        args.add(HEAD_LENGTH);
+        args.addAll(filterArgs);
+        if (cursor != null && !cursor.isBlank()) {
+            Cursor position = Cursor.decode(cursor);
+            // 展开成 created_at 上的范围条件，保证走索引
+            sql.append(" AND c.created_at <= ? AND (c.created_at < ? OR c.id < ?)");
+            args.add(position.createdAt());
+            args.add(position.createdAt());
+            args.add(position.id());
+        }
+        sql.append(" ORDER BY c.created_at DESC, c.id DESC LIMIT ?");
+        // 多取一条判断是否还有下一页
+        args.add(size + 1);
+
+        List<ConversationSummary> items = jdbcTemplate.query(sql.toString(), (rs, i) -> {
+            String message = TextCodec.decode(rs.getBytes("message_head"));
+            String response = TextCodec.decode(rs.getBytes("response_head"));
+            long threadId = rs.getLong("thread_id");
+            Long thread = rs.wasNull() ? null : threadId;
+            long documentId = rs.getLong("document_id");
+            Long document = rs.wasNull() ? null : documentId;
+            return new ConversationSummary(rs.getLong("id"), thread, document,
+                    preview(message), preview(response),
+                    isTruncated(message) || isTruncated(response),
+                    rs.getTimestamp("created_at").toLocalDateTime());
+        }, args.toArray());
+
+        String nextCursor = null;
+        if (items.size() > size) {
+            items = new ArrayList<>(items.subList(0, size));
+            ConversationSummary last = items.get(size - 1);
+            nextCursor = new Cursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        return new ConversationPage(items, nextCursor);
+    }
+
+    /**
+     * 最早命中的词附近的片段，消息中没有命中时取回复
+     */
+    private static String snippet(Conversation conversation, List<String> terms) {
+        for (String text : new String[]{conversation.getMessage(), conversation.getResponse()}) {
+            if (text == null) {
+                continue;
+            }
+            String lower = text.toLowerCase();
+            int position = -1;
+            for (String term : terms) {
+                int index = lower.indexOf(term);
+                if (index >= 0 && (position < 0 || index < position)) {
+                    position = index;
+                }
+            }
+            if (position >= 0) {
+                int from = Math.max(0, position - SNIPPET_BEFORE);
+                int to = Math.min(text.length(), from + PREVIEW_CHARS);
+                return (from > 0 ? "…" : "") + text.substring(from, to) + (to < text.length() ? "…" : "");
+            }
+        }
+        return preview(conversation.getMessage());
+    }
+
+    private static String preview(String text) {
+        if (!isTruncated(text)) {
+            return text;
+        }
+        int end = PREVIEW_CHARS;
+        if (Character.isHighSurrogate(text.charAt(end - 1))) {
+            end--;
+        }
+        return text.substring(0, end) + "…";
+    }
+
+    private static boolean isTruncated(String text) {
+        return text != null && text.length() > PREVIEW_CHARS;
+    }
+
+    /**
+     * 分页位置，对外编码为不透明字符串
+     */
+    private record Cursor(LocalDateTime createdAt, long id) {
+
+        String encode() {
+            String raw = createdAt + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Cursor decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+                int separator = raw.indexOf('|');
+                return new Cursor(LocalDateTime.parse(raw.substring(0, separator)),
+                        Long.parseLong(raw.substring(separator + 1)));
+            } catch (IllegalArgumentException | DateTimeParseException | StringIndexOutOfBoundsException e) {
+                throw new RuntimeException("无效的分页游标");
+            }
+        }
+    }
+}
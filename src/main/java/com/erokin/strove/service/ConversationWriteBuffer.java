@@ -0,0 +1,143 @@
+package com.erokin.strove.service;
+
+import com.erokin.strove.config.properties.ConversationProperties;
+import com.erokin.strove.entity.Conversation;
+import com.erokin.strove.repository.ConversationRepository;
+import com.erokin.strove.search.ConversationSearchIndex;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对话记录写入缓冲区
+ * AI调用在事务之外完成，对话记录进入队列后由单独的写线程批量插入，数据库连接只在真正写库时占用
+ */
+@Component
+public class ConversationWriteBuffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConversationWriteBuffer.class);
+
+    private final ConversationRepository conversationRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ConversationSearchIndex searchIndex;
+    private final ConversationProperties.WriteBuffer properties;
+    private final BlockingQueue<PendingWrite> queue;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    public ConversationWriteBuffer(ConversationRepository conversationRepository,
+                                   PlatformTransactionManager transactionManager,
+                                   ConversationProperties conversationProperties,
+                                   ConversationSearchIndex searchIndex) {
+        this.conversationRepository = conversationRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.searchIndex = searchIndex;
+        this.properties = conversationProperties.getWriteBuffer();
+        this.queue = new ArrayBlockingQueue<>(properties.getCapacity());
+        this.writer = new Thread(this::runWriter, "conversation-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * 提交一条对话记录，返回写入完成（含生成ID）后的实体
+     * 队列已满时退化为在调用线程同步写入，以此形成背压
+     */
+    public CompletableFuture<Conversation> enqueue(Conversation conversation) {
+        PendingWrite pending = new PendingWrite(conversation, new CompletableFuture<>());
+        if (!running || !queue.offer(pending)) {
+            flush(List.of(pending));
+        }
+        return pending.future();
+    }
+
+    private void runWriter() {
+        List<PendingWrite> batch = new ArrayList<>(properties.getBatchSize());
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingWrite first = queue.poll(properties.getFlushInterval().toMillis(), TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, properties.getBatchSize() - 1);
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingWrite> batch) {
+        List<Conversation> entities = batch.stream().map(PendingWrite::conversation).toList();
+        List<Conversation> written;
+        try {
+            List<Conversation> saved = transactionTemplate.execute(status -> conversationRepository.saveAll(entities));
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).future().complete(saved.get(i));
+            }
+            written = entities;
+        } catch (Exception e) {
+            if (batch.size() == 1) {
+                logger.error("写入对话记录失败: {}", e.getMessage());
+                batch.get(0).future().completeExceptionally(e);
+                return;
+            }
+            // 整批回滚，逐条重写，单条坏数据不连累同批的其他记录
+            logger.warn("批量写入对话记录失败({}条)，改为逐条写入: {}", batch.size(), e.getMessage());
+            written = saveEach(batch);
+        }
+        // 落库成功后加入检索索引，失败不影响写入
+        try {
+            written.forEach(searchIndex::add);
+        } catch (Exception e) {
+            logger.warn("对话记录加入检索索引失败: {}", e.getMessage());
+        }
+    }
+
+    private List<Conversation> saveEach(List<PendingWrite> batch) {
+        List<Conversation> written = new ArrayList<>(batch.size());
+        for (PendingWrite pending : batch) {
+            Conversation conversation = pending.conversation();
+            // 回滚前分配的ID已失效，按新记录重新插入
+            conversation.setId(null);
+            try {
+                Conversation saved = transactionTemplate.execute(status -> conversationRepository.save(conversation));
+                pending.future().complete(saved);
+                written.add(saved);
+            } catch (Exception e) {
+                logger.error("写入对话记录失败: {}", e.getMessage());
+                pending.future().completeExceptionally(e);
+            }
+        }
+        return written;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+        // 写线程退出后仍残留的记录同步写入，避免停机丢数据
+        List<PendingWrite> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            flush(remaining);
+        }
+    }
+
+    private record PendingWrite(Conversation conversation, CompletableFuture<Conversation> future) {
+    }
+}
@@ -0,0 +1,492 @@
+package com.erokin.strove.service;
+
+import com.erokin.strove.config.properties.DocumentProperties;
+import com.erokin.strove.dto.DocumentRevisionDetail;
+import com.erokin.strove.dto.DocumentRevisionSummary;
+import com.erokin.strove.dto.TextOperation;
+import com.erokin.strove.entity.Document;
+import com.erokin.strove.entity.DocumentRevision;
+import com.erokin.strove.repository.DocumentRepository;
+import com.erokin.strove.repository.DocumentRevisionRepository;
+import com.erokin.strove.storage.BinaryDelta;
+import com.erokin.strove.storage.TextCodec;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 文档修订历史
+ * 每次保存记录一个修订：相对上一修订的二进制差异，连续差异达到上限或差异过大时存完整快照，
+ * 因此还原任一修订最多应用 snapshotEvery 个差异。合并窗口内的连续保存合并为一个修订。
+ * 后台按保留策略精简旧修订，被删修订的后继改为相对前一个保留修订重新编码
+ */
+@Service
+public class DocumentRevisionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DocumentRevisionService.class);
+
+    // 差异按HTML标签、空白、单个汉字、其余连续字符切分
+    private static final Pattern DIFF_TOKEN = Pattern.compile("<[^>]*>|\\s+|\\p{IsHan}|[^\\s<\\p{IsHan}]+|<");
+    // 逐词比较的规模上限，超过时中间变化部分整体替换
+    private static final long MAX_DIFF_CELLS = 4_000_000L;
+    private static final int SNAPSHOT_LEVEL = 6;
+    private static final int MAX_CACHED_BASES = 256;
+
+    private final DocumentRevisionRepository revisionRepository;
+    private final DocumentRepository documentRepository;
+    private final DocumentProperties.Revisions properties;
+    private final TransactionTemplate transactionTemplate;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("document-revisions").daemon().factory());
+    // 上次完整精简的时间，只在后台线程中读写；启动后第一轮为空，检查全部文档
+    private LocalDateTime thinnedThrough;
+    // 文档ID -> 合并基准的内容。合并窗口内每次保存都相对同一基准重新编码，缓存后不必每次从快照重放；
+    // 同一修订号的内容不会改变，精简删掉基准后不再合并，因此无需失效
+    private final Map<Long, CachedContent> mergeBases = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, CachedContent> eldest) {
+            return size() > MAX_CACHED_BASES;
+        }
+    };
+
+    public DocumentRevisionService(DocumentRevisionRepository revisionRepository,
+                                   DocumentRepository documentRepository,
+                                   DocumentProperties documentProperties,
+                                   PlatformTransactionManager transactionManager) {
+        this.revisionRepository = revisionRepository;
+        this.documentRepository = documentRepository;
+        this.properties = documentProperties.getRevisions();
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        long interval = properties.getThinInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::thinAll, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 记录新建文档的内容，需在保存文档的同一事务内、版本号已刷新后调用
+     */
+    public void record(Document document) {
+        record(document, null, null);
+    }
+
+    /**
+     * 记录文档当前内容，需在保存文档的同一事务内、版本号已刷新后调用
+     *
+     * @param previousRevision 本次保存前的文档版本号
+     * @param previousContent  本次保存前的正文；最新修订正是该版本时直接作为其内容，不再从快照重放
+     */
+    public void record(Document document, Long previousRevision, String previousContent) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        byte[] content = bytes(document.getContent());
+        DocumentRevision tip = revisionRepository.findTopByDocumentIdOrderByRevisionDesc(document.getId()).orElse(null);
+        if (tip == null) {
+            revisionRepository.save(encode(newRevision(document, content), content, null, null));
+            return;
+        }
+        if (tip.getRevision() >= document.getRevision()) {
+            return;
+        }
+        byte[] tipContent = tip.getRevision().equals(previousRevision) ? bytes(previousContent) : materialize(tip);
+        if (Arrays.equals(tipContent, content) && Objects.equals(tip.getTitle(), document.getTitle())) {
+            return;
+        }
+        boolean merge = DocumentRevision.DELTA.equals(tip.getKind())
+                && tip.getCreatedAt().isAfter(LocalDateTime.now().minus(properties.getMergeWindow()));
+        if (merge) {
+            DocumentRevision base = revisionRepository
+                    .findByDocumentIdAndRevision(document.getId(), tip.getBaseRevision()).orElse(null);
+            if (base != null) {
+                // 窗口内的保存覆盖上一个修订，仍相对同一基准编码；
+                // 立即写入，期间被精简任务改写过时在此抛出乐观锁异常，由调用方按版本冲突处理
+                fill(tip, document);
+                encode(tip, content, baseContent(base), base);
+                revisionRepository.saveAndFlush(tip);
+                return;
+            }
+        }
+        revisionRepository.save(encode(newRevision(document, content), content, tipContent, tip));
+        // 新修订是差异时，窗口内的后续保存会以原最新修订为基准合并
+        cacheBase(document.getId(), tip.getRevision(), tipContent);
+    }
+
+    private byte[] baseContent(DocumentRevision base) {
+        CachedContent cached;
+        synchronized (mergeBases) {
+            cached = mergeBases.get(base.getDocumentId());
+        }
+        if (cached != null && cached.revision() == base.getRevision()) {
+            return cached.content();
+        }
+        byte[] content = materialize(base);
+        cacheBase(base.getDocumentId(), base.getRevision(), content);
+        return content;
+    }
+
+    private void cacheBase(Long documentId, long revision, byte[] content) {
+        synchronized (mergeBases) {
+            mergeBases.put(documentId, new CachedContent(revision, content));
+        }
+    }
+
+    public List<DocumentRevisionSummary> listRevisions(Long userId, Long documentId) {
+        checkOwner(userId, documentId);
+        return revisionRepository.findSummaries(documentId);
+    }
+
+    public DocumentRevisionDetail getRevision(Long userId, Long documentId, Long revision) {
+        checkOwner(userId, documentId);
+        DocumentRevision stored = find(documentId, revision);
+        return new DocumentRevisionDetail(stored.getRevision(), stored.getTitle(),
+                new String(materialize(stored), StandardCharsets.UTF_8), stored.getWordCount(), stored.getCreatedAt());
+    }
+
+    /**
+     * 两个修订之间的差异，以作用于 from 修订正文的编辑操作表示
+     */
+    public List<TextOperation> diff(Long userId, Long documentId, Long from, Long to) {
+        checkOwner(userId, documentId);
+        String before = new String(materialize(find(documentId, from)), StandardCharsets.UTF_8);
+        String after = new String(materialize(find(documentId, to)), StandardCharsets.UTF_8);
+        return diffOperations(before, after);
+    }
+
+    private void checkOwner(Long userId, Long documentId) {
+        if (!documentRepository.existsByIdAndUserId(documentId, userId)) {
+            throw new RuntimeException("文档不存在");
+        }
+    }
+
+    private DocumentRevision find(Long documentId, Long revision) {
+        return revisionRepository.findByDocumentIdAndRevision(documentId, revision)
+                .orElseThrow(() -> new RuntimeException("修订不存在"));
+    }
+
+    /**
+     * 从最近的快照开始依次应用差异
+     */
+    private byte[] materialize(DocumentRevision revision) {
+        if (DocumentRevision.SNAPSHOT.equals(revision.getKind())) {
+            return decodeSnapshot(revision);
+        }
+        DocumentRevision snapshot = revisionRepository
+                .findTopByDocumentIdAndKindAndRevisionLessThanEqualOrderByRevisionDesc(
+                        revision.getDocumentId(), DocumentRevision.SNAPSHOT, revision.getRevision())
+                .orElseThrow(() -> new RuntimeException("修订记录已损坏"));
+        List<DocumentRevision> chain = revisionRepository.findByDocumentIdAndRevisionBetweenOrderByRevisionAsc(
+                revision.getDocumentId(), snapshot.getRevision(), revision.getRevision());
+        byte[] content = null;
+        Long previous = null;
+        for (DocumentRevision step : chain) {
+            content = apply(step, content, previous);
+            previous = step.getRevision();
+        }
+        return content;
+    }
+
+    private static byte[] apply(DocumentRevision step, byte[] previousContent, Long previousRevision) {
+        if (DocumentRevision.SNAPSHOT.equals(step.getKind())) {
+            return decodeSnapshot(step);
+        }
+        if (previousContent == null || !step.getBaseRevision().equals(previousRevision)) {
+            throw new RuntimeException("修订记录已损坏");
+        }
+        return BinaryDelta.apply(previousContent, step.getData());
+    }
+
+    private static byte[] decodeSnapshot(DocumentRevision revision) {
+        return bytes(TextCodec.decode(revision.getData()));
+    }
+
+    private DocumentRevision newRevision(Document document, byte[] content) {
+        DocumentRevision revision = new DocumentRevision();
+        revision.setDocumentId(document.getId());
+        fill(revision, document);
+        return revision;
+    }
+
+    private static void fill(DocumentRevision revision, Document document) {
+        revision.setRevision(document.getRevision());
+        revision.setTitle(document.getTitle());
+        revision.setWordCount(document.getWordCount());
+        revision.setContentLength(document.getContent() == null ? 0 : document.getContent().length());
+    }
+
+    /**
+     * 相对 base 编码为差异；没有基准、链已到上限或差异过大时存快照
+     */
+    private DocumentRevision encode(DocumentRevision revision, byte[] content, byte[] baseContent, DocumentRevision base) {
+        if (base != null && base.getChainLength() + 1 < properties.getSnapshotEvery()) {
+            byte[] delta = BinaryDelta.encode(baseContent, content);
+            if (delta.length <= Math.max(64, content.length * properties.getMaxDeltaRatio())) {
+                revision.setKind(DocumentRevision.DELTA);
+                revision.setBaseRevision(base.getRevision());
+                revision.setChainLength(base.getChainLength() + 1);
+                revision.setData(delta);
+                revision.setStoredBytes(delta.length);
+                return revision;
+            }
+        }
+        byte[] snapshot = TextCodec.encode(new String(content, StandardCharsets.UTF_8), true, 0, SNAPSHOT_LEVEL);
+        revision.setKind(DocumentRevision.SNAPSHOT);
+        revision.setBaseRevision(null);
+        revision.setChainLength(0);
+        revision.setData(snapshot);
+        revision.setStoredBytes(snapshot.length);
+        return revision;
+    }
+
+    private void thinAll() {
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            Collection<Long> documentIds = thinnedThrough == null
+                    ? revisionRepository.findDocumentIdsWithRevisionsBefore(now.minus(properties.getKeepAllFor()))
+                    : documentsCrossingBuckets(thinnedThrough, now);
+            boolean complete = true;
+            for (Long documentId : documentIds) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                try {
+                    transactionTemplate.executeWithoutResult(status -> thin(documentId, now));
+                } catch (Exception e) {
+                    complete = false;
+                    logger.warn("精简文档 {} 的修订失败: {}", documentId, e.getMessage());
+                }
+            }
+            // 有文档失败时不前移，下一轮连同这一轮的范围重新检查
+            if (complete) {
+                thinnedThrough = now;
+            }
+        } catch (Exception e) {
+            logger.error("精简文档修订失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 上次精简之后有修订跨过分桶界限（进入按小时、按天、按周保留阶段）的文档；
+     * 其余文档的分桶与上次相同，无需再次精简
+     */
+    private Set<Long> documentsCrossingBuckets(LocalDateTime since, LocalDateTime now) {
+        Set<Long> documentIds = new LinkedHashSet<>();
+        for (Duration age : List.of(properties.getKeepAllFor(), properties.getHourlyFor(), properties.getDailyFor())) {
+            documentIds.addAll(revisionRepository.findDocumentIdsWithRevisionsCreatedBetween(
+                    since.minus(age), now.minus(age)));
+        }
+        return documentIds;
+    }
+
+    /**
+     * 按时间分桶，每桶保留最新的一个修订；最新修订始终保留。
+     * 顺序还原每个修订，保留修订的基准被删除时改为相对前一个保留修订重新编码
+     */
+    void thin(Long documentId, LocalDateTime now) {
+        List<DocumentRevision> revisions = revisionRepository.findByDocumentIdOrderByRevisionAsc(documentId);
+        Set<Long> keep = new HashSet<>();
+        Set<String> buckets = new HashSet<>();
+        for (int i = revisions.size() - 1; i >= 0; i--) {
+            DocumentRevision revision = revisions.get(i);
+            String bucket = bucket(revision, now);
+            if (i == revisions.size() - 1 || bucket == null || buckets.add(bucket)) {
+                keep.add(revision.getRevision());
+                if (bucket != null) {
+                    buckets.add(bucket);
+                }
+            }
+        }
+        if (keep.size() == revisions.size()) {
+            return;
+        }
+        List<DocumentRevision> removed = new ArrayList<>();
+        byte[] current = null;
+        Long currentRevision = null;
+        DocumentRevision previousKept = null;
+        byte[] previousKeptContent = null;
+        for (DocumentRevision revision : revisions) {
+            byte[] content = apply(revision, current, currentRevision);
+            current = content;
+            currentRevision = revision.getRevision();
+            if (!keep.contains(revision.getRevision())) {
+                removed.add(revision);
+                continue;
+            }
+            boolean isDelta = DocumentRevision.DELTA.equals(revision.getKind());
+            if (isDelta && (previousKept == null
+                    || !revision.getBaseRevision().equals(previousKept.getRevision())
+                    || revision.getChainLength() != previousKept.getChainLength() + 1)) {
+                encode(revision, content, previousKeptContent, previousKept);
+            }
+            previousKept = revision;
+            previousKeptContent = content;
+        }
+        revisionRepository.deleteAll(removed);
+        logger.info("文档 {} 精简修订 {} 个，保留 {} 个", documentId, removed.size(), keep.size());
+    }
+
+    /**
+     * 保留期内返回null（全部保留），之后依次按小时、天、周分桶
+     */
+    private String bucket(DocumentRevision revision, LocalDateTime now) {
+        LocalDateTime createdAt = revision.getCreatedAt();
+        if (createdAt.isAfter(now.minus(properties.getKeepAllFor()))) {
+            return null;
+        }
+        if (createdAt.isAfter(now.minus(properties.getHourlyFor()))) {
+            return "h" + createdAt.truncatedTo(ChronoUnit.HOURS);
+        }
+        if (createdAt.isAfter(now.minus(properties.getDailyFor()))) {
+            return "d" + createdAt.toLocalDate();
+        }
+        return "w" + createdAt.toLocalDate().toEpochDay() / 7;
+    }
+
+    /**
+     * 按词比较：去掉公共前后缀后对中间部分求最长公共子序列
+     */
+    static List<TextOperation> diffOperations(String before, String after) {
+        List<String> a = tokens(before);
+        List<String> b = tokens(after);
+        int prefix = 0;
+        while (prefix < a.size() && prefix < b.size() && a.get(prefix).equals(b.get(prefix))) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < a.size() - prefix && suffix < b.size() - prefix
+                && a.get(a.size() - 1 - suffix).equals(b.get(b.size() - 1 - suffix))) {
+            suffix++;
+        }
+        List<TextOperation> ops = new ArrayList<>();
+        append(ops, "retain", join(a, 0, prefix));
+        List<String> middleA = a.subList(prefix, a.size() - suffix);
+        List<String> middleB = b.subList(prefix, b.size() - suffix);
+        if ((long) middleA.size() * middleB.size() > MAX_DIFF_CELLS) {
+            append(ops, "delete", join(middleA, 0, middleA.size()));
+            append(ops, "insert", join(middleB, 0, middleB.size()));
+        } else {
+            int n = middleA.size();
+            int m = middleB.size();
+            int[][] lcs = new int[n + 1][m + 1];
+            for (int i = n - 1; i >= 0; i--) {
+                for (int j = m - 1; j >= 0; j--) {
+                    lcs[i][j] = middleA.get(i).equals(middleB.get(j))
+                            ? lcs[i + 1][j + 1] + 1
+                            : Math.max(lcs[i + 1][j], lcs[i][j + 1]);
+                }
+            }
+            int i = 0;
+            int j = 0;
+            while (i < n || j < m) {
+                if (i < n && j < m && middleA.get(i).equals(middleB.get(j))) {
+                    append(ops, "retain", middleA.get(i++));
+                    j++;
+                } else if (j < m && (i == n || lcs[i][j + 1] >= lcs[i + 1][j])) {
+                    append(ops, "insert", middleB.get(j++));
+                } else {
+                    append(ops, "delete", middleA.get(i++));
+                }
+            }
+        }
+        append(ops, "retain", join(a, a.size() - suffix, a.size()));
+        return ops;
+    }
+
+    /**
+     * 追加操作，与上一个同类操作合并
+     */
+    private static void append(List<TextOperation> ops, String type, String text) {
+        if (text.isEmpty()) {
+            return;
+        }
+        TextOperation last = ops.isEmpty() ? null : ops.get(ops.size() - 1);
+        switch (type) {
+            case "retain" -> {
+                if (last != null && last.getRetain() != null) {
+                    last.setRetain(last.getRetain() + text.length());
+                    return;
+                }
+                TextOperation op = new TextOperation();
+                op.setRetain(text.length());
+                ops.add(op);
+            }
+            case "delete" -> {
+                if (last != null && last.getDelete() != null) {
+                    last.setDelete(last.getDelete() + text.length());
+                    return;
+                }
+                TextOperation op = new TextOperation();
+                op.setDelete(text.length());
+                ops.add(op);
+            }
+            default -> {
+                if (last != null && last.getInsert() != null) {
+                    last.setInsert(last.getInsert() + text);
+                    return;
+                }
+                TextOperation op = new TextOperation();
+                op.setInsert(text);
+                ops.add(op);
+            }
+        }
+    }
+
+    private static List<String> tokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        Matcher matcher = DIFF_TOKEN.matcher(text);
+        while (matcher.find()) {
+            tokens.add(matcher.group());
+        }
+        return tokens;
+    }
+
+    private static String join(List<String> tokens, int from, int to) {
+        StringBuilder joined = new StringBuilder();
+        for (int i = from; i < to; i++) {
+            joined.append(tokens.get(i));
+        }
+        return joined.toString();
+    }
+
+    private static byte[] bytes(String text) {
+        return text == null ? new byte[0] : text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private record CachedContent(long revision, byte[] content) {
+    }
+}
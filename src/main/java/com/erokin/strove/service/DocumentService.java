@@ -1,8 +1,13 @@
 package com.erokin.strove.service;
 
+import com.erokin.strove.dto.DocumentPatchRequest;
+import com.erokin.strove.dto.DocumentPatchResult;
 import com.erokin.strove.dto.DocumentRequest;
+import com.erokin.strove.dto.DocumentRevisionDetail;
 import com.erokin.strove.entity.Document;
 import com.erokin.strove.repository.DocumentRepository;
+import com.erokin.strove.repository.DocumentRevisionRepository;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -14,10 +19,18 @@ import java.util.List;
 @Service
 public class DocumentService {
 
+    public static final String STALE_REVISION_MESSAGE = "文档已在其他地方修改，请刷新后重试";
+
     private final DocumentRepository documentRepository;
+    private final DocumentRevisionService revisionService;
+    private final DocumentRevisionRepository revisionRepository;
 
-    public DocumentService(DocumentRepository documentRepository) {
+    public DocumentService(DocumentRepository documentRepository,
+                           DocumentRevisionService revisionService,
+                           DocumentRevisionRepository revisionRepository) {
         this.documentRepository = documentRepository;
+        this.revisionService = revisionService;
+        this.revisionRepository = revisionRepository;
     }
 
     /**
@@ -31,11 +44,14 @@ public class DocumentService {
         document.setContent(request.getContent());
         document.setWordCount(calculateWordCount(request.getContent()));
 
-        return documentRepository.save(document);
+        Document saved = documentRepository.saveAndFlush(document);
+        revisionService.record(saved);
+        return saved;
     }
 
     /**
      * 更新文档
+     * 请求带有 baseRevision 时与增量保存一样做版本检查
      */
     @Transactional
     public Document updateDocument(Long userId, Long documentId, DocumentRequest request) {
@@ -45,12 +61,83 @@ public class DocumentService {
         if (!document.getUserId().equals(userId)) {
             throw new RuntimeException("无权修改此文档");
         }
+        if (request.getBaseRevision() != null && !document.getRevision().equals(request.getBaseRevision())) {
+            throw new RuntimeException(STALE_REVISION_MESSAGE);
+        }
 
+        Long previousRevision = document.getRevision();
+        String previousContent = document.getContent();
         document.setTitle(request.getTitle());
         document.setContent(request.getContent());
         document.setWordCount(calculateWordCount(request.getContent()));
 
-        return documentRepository.save(document);
+        try {
+            // 立即写入以取得新版本号
+            Document saved = documentRepository.saveAndFlush(document);
+            revisionService.record(saved, previousRevision, previousContent);
+            return saved;
+        } catch (ObjectOptimisticLockingFailureException e) {
+            throw new RuntimeException(STALE_REVISION_MESSAGE);
+        }
+    }
+
+    /**
+     * 增量保存文档
+     * 编辑操作基于 baseRevision，期间文档已被其他保存修改时拒绝，由客户端重新获取后再提交
+     */
+    @Transactional
+    public DocumentPatchResult patchDocument(Long userId, Long documentId, DocumentPatchRequest request) {
+        Document document = documentRepository.findById(documentId)
+                .orElseThrow(() -> new RuntimeException("文档不存在"));
+
+        if (!document.getUserId().equals(userId)) {
+            throw new RuntimeException("无权修改此文档");
+        }
+        if (!document.getRevision().equals(request.getBaseRevision())) {
+            throw new RuntimeException(STALE_REVISION_MESSAGE);
+        }
+
+        Long previousRevision = document.getRevision();
+        String previousContent = document.getContent();
+        TextDelta.Result result = TextDelta.apply(previousContent, request.getOps());
+        if (request.getTitle() != null && !request.getTitle().isBlank()) {
+            document.setTitle(request.getTitle());
+        }
+        document.setContent(result.content());
+        int wordCount = document.getWordCount() == null
+                ? calculateWordCount(result.content())
+                : document.getWordCount() + result.wordCountDelta();
+        document.setWordCount(wordCount);
+
+        try {
+            Document saved = documentRepository.saveAndFlush(document);
+            revisionService.record(saved, previousRevision, previousContent);
+            return new DocumentPatchResult(saved.getId(), saved.getRevision(), saved.getWordCount(), saved.getUpdatedAt());
+        } catch (ObjectOptimisticLockingFailureException e) {
+            // 校验之后、写入之前被并发保存
+            throw new RuntimeException(STALE_REVISION_MESSAGE);
+        }
+    }
+
+    /**
+     * 把文档恢复为某个修订的内容，恢复本身记为一个新修订
+     */
+    @Transactional
+    public Document restoreRevision(Long userId, Long documentId, Long revision) {
+        Document document = getDocument(userId, documentId);
+        DocumentRevisionDetail detail = revisionService.getRevision(userId, documentId, revision);
+        Long previousRevision = document.getRevision();
+        String previousContent = document.getContent();
+
+        if (detail.getTitle() != null) {
+            document.setTitle(detail.getTitle());
+        }
+        document.setContent(detail.getContent());
+        document.setWordCount(calculateWordCount(detail.getContent()));
+
+        Document saved = documentRepository.saveAndFlush(document);
+        revisionService.record(saved, previousRevision, previousContent);
+        return saved;
     }
 
     /**
@@ -86,6 +173,7 @@ public class DocumentService {
             throw new RuntimeException("无权删除此文档");
         }
 
+        revisionRepository.deleteByDocumentId(documentId);
         documentRepository.delete(document);
     }
 
@@ -97,6 +185,6 @@ public class DocumentService {
             return 0;
         }
         // 简单字数统计，去除空白字符
-        return content.replaceAll("\\s+", "").length();
+        return TextDelta.countWords(content, 0, content.length());
     }
 }
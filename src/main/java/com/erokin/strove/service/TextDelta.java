@@ -0,0 +1,72 @@
+package com.erokin.strove.service;
+
+import com.erokin.strove.dto.TextOperation;
+
+import java.util.List;
+
+/**
+ * 文本增量的应用
+ * 依次执行 retain/insert/delete，顺带统计删除与插入片段中的非空白字符数，
+ * 使字数可以在原值上增减而不必重新扫描全文（与全文统计口径一致）
+ */
+public final class TextDelta {
+
+    private TextDelta() {
+    }
+
+    public static Result apply(String base, List<TextOperation> ops) {
+        String source = base == null ? "" : base;
+        if (ops == null || ops.isEmpty()) {
+            return new Result(source, 0);
+        }
+        int inserted = 0;
+        for (TextOperation op : ops) {
+            if (op.getInsert() != null) {
+                inserted += op.getInsert().length();
+            }
+        }
+        StringBuilder out = new StringBuilder(source.length() + inserted);
+        int position = 0;
+        int wordCountDelta = 0;
+        for (TextOperation op : ops) {
+            int kinds = (op.getRetain() != null ? 1 : 0) + (op.getInsert() != null ? 1 : 0) + (op.getDelete() != null ? 1 : 0);
+            if (kinds != 1) {
+                throw new RuntimeException("编辑操作格式错误");
+            }
+            if (op.getInsert() != null) {
+                out.append(op.getInsert());
+                wordCountDelta += countWords(op.getInsert(), 0, op.getInsert().length());
+                continue;
+            }
+            int count = op.getRetain() != null ? op.getRetain() : op.getDelete();
+            if (count < 0 || count > source.length() - position) {
+                throw new RuntimeException("编辑操作超出文档长度");
+            }
+            if (op.getRetain() != null) {
+                out.append(source, position, position + count);
+            } else {
+                wordCountDelta -= countWords(source, position, position + count);
+            }
+            position += count;
+        }
+        out.append(source, position, source.length());
+        return new Result(out.toString(), wordCountDelta);
+    }
+
+    /**
+     * 非空白字符数，空白与 \s 相同（空格、制表、换行、回车、换页、垂直制表）
+     */
+    public static int countWords(String text, int from, int to) {
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\r' && c != '\f' && c != '\u000B') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public record Result(String content, int wordCountDelta) {
+    }
+}
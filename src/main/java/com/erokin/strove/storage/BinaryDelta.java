@@ -0,0 +1,129 @@
+package com.erokin.strove.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 字节级差异编码（复制/插入指令）
+ * 对基准按固定长度分块建哈希表，在目标上逐字节查找可复制的块并向前后扩展匹配，
+ * 其余字节作为插入数据。格式：基准长度、目标长度（变长整数），之后为指令序列：
+ * COPY(1) 偏移 长度，ADD(2) 长度 字节
+ */
+public final class BinaryDelta {
+
+    private static final int BLOCK = 16;
+    private static final byte COPY = 1;
+    private static final byte ADD = 2;
+
+    private BinaryDelta() {
+    }
+
+    public static byte[] encode(byte[] base, byte[] target) {
+        Map<Long, Integer> blocks = new HashMap<>();
+        for (int offset = 0; offset + BLOCK <= base.length; offset += BLOCK) {
+            blocks.putIfAbsent(hash(base, offset), offset);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, target.length / 8));
+        writeVarInt(out, base.length);
+        writeVarInt(out, target.length);
+        int literalStart = 0;
+        int position = 0;
+        while (position + BLOCK <= target.length) {
+            Integer candidate = blocks.get(hash(target, position));
+            if (candidate == null || !Arrays.equals(base, candidate, candidate + BLOCK, target, position, position + BLOCK)) {
+                position++;
+                continue;
+            }
+            int baseStart = candidate;
+            int targetStart = position;
+            // 向前扩展，吃掉尚未输出的插入数据
+            while (baseStart > 0 && targetStart > literalStart && base[baseStart - 1] == target[targetStart - 1]) {
+                baseStart--;
+                targetStart--;
+            }
+            int baseEnd = candidate + BLOCK;
+            int targetEnd = position + BLOCK;
+            while (baseEnd < base.length && targetEnd < target.length && base[baseEnd] == target[targetEnd]) {
+                baseEnd++;
+                targetEnd++;
+            }
+            writeAdd(out, target, literalStart, targetStart);
+            out.write(COPY);
+            writeVarInt(out, baseStart);
+            writeVarInt(out, baseEnd - baseStart);
+            position = targetEnd;
+            literalStart = targetEnd;
+        }
+        writeAdd(out, target, literalStart, target.length);
+        return out.toByteArray();
+    }
+
+    public static byte[] apply(byte[] base, byte[] delta) {
+        int[] position = {0};
+        int baseLength = readVarInt(delta, position);
+        if (baseLength != base.length) {
+            throw new IllegalArgumentException("差异与基准长度不符");
+        }
+        byte[] target = new byte[readVarInt(delta, position)];
+        int written = 0;
+        while (position[0] < delta.length) {
+            byte op = delta[position[0]++];
+            if (op == COPY) {
+                int offset = readVarInt(delta, position);
+                int length = readVarInt(delta, position);
+                System.arraycopy(base, offset, target, written, length);
+                written += length;
+            } else if (op == ADD) {
+                int length = readVarInt(delta, position);
+                System.arraycopy(delta, position[0], target, written, length);
+                position[0] += length;
+                written += length;
+            } else {
+                throw new IllegalArgumentException("未知的差异指令: " + op);
+            }
+        }
+        if (written != target.length) {
+            throw new IllegalArgumentException("差异数据不完整");
+        }
+        return target;
+    }
+
+    private static void writeAdd(ByteArrayOutputStream out, byte[] target, int from, int to) {
+        if (to <= from) {
+            return;
+        }
+        out.write(ADD);
+        writeVarInt(out, to - from);
+        out.write(target, from, to - from);
+    }
+
+    private static long hash(byte[] data, int offset) {
+        long hash = 1125899906842597L;
+        for (int i = offset; i < offset + BLOCK; i++) {
+            hash = 31 * hash + data[i];
+        }
+        return hash;
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarInt(byte[] data, int[] position) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data[position[0]++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+}
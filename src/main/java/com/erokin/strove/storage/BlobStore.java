@@ -0,0 +1,35 @@
+package com.erokin.strove.storage;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 只追加的对象存储
+ * 名称为以 / 分隔的相对路径；默认实现为本地磁盘，可替换为其他对象存储
+ */
+public interface BlobStore {
+
+    /**
+     * 追加写入
+     *
+     * @return 本次数据在对象中的起始偏移
+     */
+    long append(String name, byte[] data) throws IOException;
+
+    byte[] read(String name, long offset, int length) throws IOException;
+
+    /**
+     * 读取整个对象，不存在时返回空数组
+     */
+    byte[] readAll(String name) throws IOException;
+
+    /**
+     * 对象长度，不存在时返回0
+     */
+    long size(String name) throws IOException;
+
+    /**
+     * 列出某个目录下的对象名（不递归），按名称排序
+     */
+    List<String> list(String directory) throws IOException;
+}
@@ -0,0 +1,30 @@
+package com.erokin.strove.storage;
+
+import com.erokin.strove.config.properties.ConversationProperties;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * 对话内容的存储转换
+ * 开启压缩后写入带版本头的deflate数据（列需为BLOB，由 DatabaseAutoFixer 转换）；
+ * 读取时兼容未压缩的历史数据，对仓库调用方透明
+ */
+@Converter
+public class CompressedTextConverter implements AttributeConverter<String, byte[]> {
+
+    private final ConversationProperties.Compression properties;
+
+    public CompressedTextConverter(ConversationProperties conversationProperties) {
+        this.properties = conversationProperties.getCompression();
+    }
+
+    @Override
+    public byte[] convertToDatabaseColumn(String attribute) {
+        return TextCodec.encode(attribute, properties.isEnabled(), properties.getMinBytes(), properties.getLevel());
+    }
+
+    @Override
+    public String convertToEntityAttribute(byte[] dbData) {
+        return TextCodec.decode(dbData);
+    }
+}
@@ -0,0 +1,326 @@
+package com.erokin.strove.storage;
+
+import com.erokin.strove.config.properties.ConversationProperties;
+import com.erokin.strove.entity.Conversation;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 对话归档的分段文件格式
+ * 每个用户一个目录，其中按编号排列只追加的段文件（.seg）与对应的稀疏索引（.idx）。
+ * 段文件由若干块组成，每块按ID升序保存一批对话并整体deflate压缩；索引每块一条定长记录
+ * （ID范围、时间范围、偏移、长度），按ID或时间读取时只需解压命中的块。
+ * 段文件超过大小上限后开启新段。块写入后才追加索引，中途崩溃留下的残块不会被引用；
+ * 索引末尾残缺时该段不再追加，改写新段；搬迁过程中崩溃可能导致同一条记录被重复归档，读取时按ID去重
+ */
+@Component
+public class ConversationArchive {
+
+    private static final String ROOT = "conversations";
+    private static final int INDEX_ENTRY_BYTES = 48;
+    private static final byte BLOCK_MAGIC_0 = 'C';
+    private static final byte BLOCK_MAGIC_1 = 'A';
+    private static final byte BLOCK_VERSION = 1;
+    // magic(2) 版本(1) 保留(1) 原始长度(4) 压缩长度(4) CRC32(4)
+    private static final int BLOCK_HEADER_BYTES = 16;
+
+    private final BlobStore store;
+    private final ConversationProperties.Archive properties;
+
+    public ConversationArchive(BlobStore store, ConversationProperties conversationProperties) {
+        this.store = store;
+        this.properties = conversationProperties.getArchive();
+    }
+
+    /**
+     * 追加一批对话（需按ID升序），按块大小切分写入当前段
+     */
+    public void append(Long userId, List<Conversation> conversations) throws IOException {
+        String segment = currentSegment(userId);
+        for (int from = 0; from < conversations.size(); from += properties.getBlockRecords()) {
+            List<Conversation> chunk = conversations.subList(from,
+                    Math.min(conversations.size(), from + properties.getBlockRecords()));
+            byte[] block = encodeBlock(chunk);
+            long offset = store.append(segment + ".seg", block);
+            Conversation first = chunk.get(0);
+            Conversation last = chunk.get(chunk.size() - 1);
+            store.append(segment + ".idx", ByteBuffer.allocate(INDEX_ENTRY_BYTES)
+                    .putLong(first.getId())
+                    .putLong(last.getId())
+                    .putLong(toEpochMilli(first.getCreatedAt()))
+                    .putLong(toEpochMilli(last.getCreatedAt()))
+                    .putLong(offset)
+                    .putInt(block.length)
+                    .putInt(chunk.size())
+                    .array());
+            if (store.size(segment + ".seg") >= properties.getMaxSegmentBytes()) {
+                segment = segmentName(userId, segmentNumber(segment) + 1);
+            }
+        }
+    }
+
+    /**
+     * 从新到旧分页读取，beforeId 为空时从最新的归档开始
+     */
+    public List<Conversation> list(Long userId, Long beforeId, int limit) throws IOException {
+        List<Conversation> result = new ArrayList<>();
+        Set<Long> seen = new HashSet<>();
+        List<String> segments = segments(userId);
+        for (int s = segments.size() - 1; s >= 0 && result.size() < limit; s--) {
+            String segment = segments.get(s);
+            List<IndexEntry> index = readIndex(segment);
+            for (int i = index.size() - 1; i >= 0 && result.size() < limit; i--) {
+                IndexEntry entry = index.get(i);
+                if (beforeId != null && entry.firstId() >= beforeId) {
+                    continue;
+                }
+                List<Conversation> block = readBlock(userId, segment, entry);
+                for (int r = block.size() - 1; r >= 0 && result.size() < limit; r--) {
+                    Conversation conversation = block.get(r);
+                    if ((beforeId == null || conversation.getId() < beforeId) && seen.add(conversation.getId())) {
+                        result.add(conversation);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 按ID查找，只解压索引范围覆盖该ID的块
+     */
+    public Optional<Conversation> find(Long userId, Long id) throws IOException {
+        for (String segment : segments(userId)) {
+            for (IndexEntry entry : readIndex(segment)) {
+                if (id < entry.firstId() || id > entry.lastId()) {
+                    continue;
+                }
+                for (Conversation conversation : readBlock(userId, segment, entry)) {
+                    if (conversation.getId().equals(id)) {
+                        return Optional.of(conversation);
+                    }
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * 从旧到新遍历全部归档（导出用），一次只解压一个块
+     */
+    public void forEach(Long userId, Consumer<Conversation> consumer) throws IOException {
+        Set<Long> seen = new HashSet<>();
+        for (String segment : segments(userId)) {
+            for (IndexEntry entry : readIndex(segment)) {
+                for (Conversation conversation : readBlock(userId, segment, entry)) {
+                    if (seen.add(conversation.getId())) {
+                        consumer.accept(conversation);
+                    }
+                }
+            }
+        }
+    }
+
+    private String currentSegment(Long userId) throws IOException {
+        List<String> segments = segments(userId);
+        if (segments.isEmpty()) {
+            return segmentName(userId, 1);
+        }
+        String last = segments.get(segments.size() - 1);
+        // 索引末尾有残缺记录时继续追加会错位，直接开启新段
+        boolean torn = store.size(last + ".idx") % INDEX_ENTRY_BYTES != 0;
+        return torn || store.size(last + ".seg") >= properties.getMaxSegmentBytes()
+                ? segmentName(userId, segmentNumber(last) + 1)
+                : last;
+    }
+
+    /**
+     * 用户的段名（不含扩展名），按编号升序
+     */
+    private List<String> segments(Long userId) throws IOException {
+        List<String> segments = new ArrayList<>();
+        for (String name : store.list(ROOT + "/" + userId)) {
+            if (name.endsWith(".idx")) {
+                segments.add(name.substring(0, name.length() - ".idx".length()));
+            }
+        }
+        return segments;
+    }
+
+    private static String segmentName(Long userId, int number) {
+        return ROOT + "/" + userId + "/" + String.format("%08d", number);
+    }
+
+    private static int segmentNumber(String segment) {
+        return Integer.parseInt(segment.substring(segment.lastIndexOf('/') + 1));
+    }
+
+    private List<IndexEntry> readIndex(String segment) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(store.readAll(segment + ".idx"));
+        // 末尾不完整的记录（写入中途崩溃）忽略
+        int entries = buffer.remaining() / INDEX_ENTRY_BYTES;
+        List<IndexEntry> index = new ArrayList<>(entries);
+        for (int i = 0; i < entries; i++) {
+            index.add(new IndexEntry(buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong(),
+                    buffer.getLong(), buffer.getInt(), buffer.getInt()));
+        }
+        return index;
+    }
+
+    private byte[] encodeBlock(List<Conversation> conversations) throws IOException {
+        ByteArrayOutputStream raw = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(raw);
+        for (Conversation conversation : conversations) {
+            out.writeLong(conversation.getId());
+            writeNullableLong(out, conversation.getThreadId());
+            writeNullableLong(out, conversation.getDocumentId());
+            out.writeLong(toEpochMilli(conversation.getCreatedAt()));
+            writeText(out, conversation.getMessage());
+            writeText(out, conversation.getResponse());
+        }
+        byte[] rawBytes = raw.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(rawBytes);
+        byte[] compressed = deflate(rawBytes);
+        return ByteBuffer.allocate(BLOCK_HEADER_BYTES + compressed.length)
+                .put(BLOCK_MAGIC_0).put(BLOCK_MAGIC_1).put(BLOCK_VERSION).put((byte) 0)
+                .putInt(rawBytes.length)
+                .putInt(compressed.length)
+                .putInt((int) crc.getValue())
+                .put(compressed)
+                .array();
+    }
+
+    private List<Conversation> readBlock(Long userId, String segment, IndexEntry entry) throws IOException {
+        ByteBuffer block = ByteBuffer.wrap(store.read(segment + ".seg", entry.offset(), entry.length()));
+        if (block.get() != BLOCK_MAGIC_0 || block.get() != BLOCK_MAGIC_1) {
+            throw new IOException("归档块格式错误: " + segment + "@" + entry.offset());
+        }
+        byte version = block.get();
+        if (version != BLOCK_VERSION) {
+            throw new IOException("不支持的归档块版本: " + version);
+        }
+        block.get();
+        int rawLength = block.getInt();
+        int compressedLength = block.getInt();
+        int checksum = block.getInt();
+        byte[] raw = inflate(block.array(), BLOCK_HEADER_BYTES, compressedLength, rawLength);
+        CRC32 crc = new CRC32();
+        crc.update(raw);
+        if ((int) crc.getValue() != checksum) {
+            throw new IOException("归档块校验失败: " + segment + "@" + entry.offset());
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw));
+        List<Conversation> conversations = new ArrayList<>(entry.count());
+        for (int i = 0; i < entry.count(); i++) {
+            Conversation conversation = new Conversation();
+            conversation.setId(in.readLong());
+            conversation.setUserId(userId);
+            conversation.setThreadId(readNullableLong(in));
+            conversation.setDocumentId(readNullableLong(in));
+            conversation.setCreatedAt(LocalDateTime.ofInstant(Instant.ofEpochMilli(in.readLong()), ZoneOffset.UTC));
+            conversation.setMessage(readText(in));
+            conversation.setResponse(readText(in));
+            conversations.add(conversation);
+        }
+        return conversations;
+    }
+
+    private static void writeNullableLong(DataOutputStream out, Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value);
+        }
+    }
+
+    private static Long readNullableLong(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readLong() : null;
+    }
+
+    private static void writeText(DataOutputStream out, String text) throws IOException {
+        if (text == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = text.getBytes(java.nio.charset.StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readText(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, java.nio.charset.StandardCharsets.UTF_8);
+    }
+
+    private static long toEpochMilli(LocalDateTime time) {
+        return time == null ? 0 : time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] data, int offset, int length, int rawLength) throws IOException {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(data, offset, length);
+            byte[] out = new byte[rawLength];
+            int read = 0;
+            while (read < rawLength) {
+                int n = inflater.inflate(out, read, rawLength - read);
+                if (n == 0 && (inflater.finished() || inflater.needsInput())) {
+                    break;
+                }
+                read += n;
+            }
+            if (read != rawLength) {
+                throw new IOException("归档块已损坏");
+            }
+            return out;
+        } catch (DataFormatException e) {
+            throw new IOException("归档块已损坏", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private record IndexEntry(long firstId, long lastId, long firstCreatedAt, long lastCreatedAt,
+                              long offset, int length, int count) {
+    }
+}
@@ -0,0 +1,100 @@
+package com.erokin.strove.storage;
+
+import com.erokin.strove.config.properties.ConversationProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * 本地磁盘实现，app.conversation.archive.store=local（默认）时启用
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.conversation.archive", name = "store", havingValue = "local", matchIfMissing = true)
+public class LocalBlobStore implements BlobStore {
+
+    private final Path root;
+    private final boolean fsync;
+
+    public LocalBlobStore(ConversationProperties conversationProperties) {
+        ConversationProperties.Archive properties = conversationProperties.getArchive();
+        this.root = Path.of(properties.getDir()).toAbsolutePath().normalize();
+        this.fsync = properties.isFsync();
+    }
+
+    @Override
+    public long append(String name, byte[] data) throws IOException {
+        Path path = resolve(name);
+        Files.createDirectories(path.getParent());
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            long offset = channel.size();
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            long position = offset;
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            if (fsync) {
+                channel.force(false);
+            }
+            return offset;
+        }
+    }
+
+    @Override
+    public byte[] read(String name, long offset, int length) throws IOException {
+        try (FileChannel channel = FileChannel.open(resolve(name), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            long position = offset;
+            while (buffer.hasRemaining()) {
+                int n = channel.read(buffer, position);
+                if (n < 0) {
+                    throw new EOFException("归档文件已截断: " + name);
+                }
+                position += n;
+            }
+            return buffer.array();
+        }
+    }
+
+    @Override
+    public byte[] readAll(String name) throws IOException {
+        Path path = resolve(name);
+        return Files.exists(path) ? Files.readAllBytes(path) : new byte[0];
+    }
+
+    @Override
+    public long size(String name) throws IOException {
+        Path path = resolve(name);
+        return Files.exists(path) ? Files.size(path) : 0;
+    }
+
+    @Override
+    public List<String> list(String directory) throws IOException {
+        Path dir = resolve(directory);
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(Files::isRegularFile)
+                    .map(file -> directory + "/" + file.getFileName())
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path resolve(String name) {
+        Path path = root.resolve(name).normalize();
+        if (!path.startsWith(root)) {
+            throw new IllegalArgumentException("非法的归档路径: " + name);
+        }
+        return path;
+    }
+}
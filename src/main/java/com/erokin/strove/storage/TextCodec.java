@@ -0,0 +1,129 @@
+package com.erokin.strove.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 文本存储编码
+ * 压缩后的格式：0x00 'C' 版本(1) 编码(1) 原文字节数(4, 大端) 负载。
+ * 未压缩的内容按原样存为UTF-8字节，与历史数据一致；正常文本不会以0x00开头，借此区分两种格式
+ */
+public final class TextCodec {
+
+    public static final int VERSION = 1;
+
+    private static final byte MAGIC_0 = 0x00;
+    private static final byte MAGIC_1 = 'C';
+    private static final byte CODEC_PLAIN = 0;
+    private static final byte CODEC_DEFLATE = 1;
+    private static final int HEADER_LENGTH = 8;
+
+    private TextCodec() {
+    }
+
+    /**
+     * 编码为存储字节
+     *
+     * @param compress 是否尝试压缩；不足 minBytes 或压缩后没有变小时按原样存储
+     */
+    public static byte[] encode(String text, boolean compress, int minBytes, int level) {
+        if (text == null) {
+            return null;
+        }
+        byte[] raw = text.getBytes(StandardCharsets.UTF_8);
+        if (compress && raw.length >= minBytes) {
+            byte[] compressed = deflate(raw, level);
+            if (compressed.length + HEADER_LENGTH < raw.length) {
+                return withHeader(CODEC_DEFLATE, raw.length, compressed);
+            }
+        }
+        if (raw.length > 0 && raw[0] == MAGIC_0) {
+            // 极少见的以NUL开头的文本，加头部避免被误认为压缩格式
+            return withHeader(CODEC_PLAIN, raw.length, raw);
+        }
+        return raw;
+    }
+
+    public static String decode(byte[] stored) {
+        if (stored == null) {
+            return null;
+        }
+        if (!isEncoded(stored)) {
+            return new String(stored, StandardCharsets.UTF_8);
+        }
+        if (stored[2] != VERSION) {
+            throw new IllegalStateException("不支持的文本存储格式版本: " + stored[2]);
+        }
+        int length = ((stored[4] & 0xff) << 24) | ((stored[5] & 0xff) << 16)
+                | ((stored[6] & 0xff) << 8) | (stored[7] & 0xff);
+        return switch (stored[3]) {
+            case CODEC_PLAIN -> new String(stored, HEADER_LENGTH, length, StandardCharsets.UTF_8);
+            case CODEC_DEFLATE -> new String(inflate(stored, length), StandardCharsets.UTF_8);
+            default -> throw new IllegalStateException("不支持的文本压缩格式: " + stored[3]);
+        };
+    }
+
+    /**
+     * 是否为带头部的格式（已压缩或已转义）
+     */
+    public static boolean isEncoded(byte[] stored) {
+        return stored != null && stored.length >= HEADER_LENGTH && stored[0] == MAGIC_0 && stored[1] == MAGIC_1;
+    }
+
+    private static byte[] withHeader(byte codec, int length, byte[] payload) {
+        byte[] out = new byte[HEADER_LENGTH + payload.length];
+        out[0] = MAGIC_0;
+        out[1] = MAGIC_1;
+        out[2] = VERSION;
+        out[3] = codec;
+        out[4] = (byte) (length >>> 24);
+        out[5] = (byte) (length >>> 16);
+        out[6] = (byte) (length >>> 8);
+        out[7] = (byte) length;
+        System.arraycopy(payload, 0, out, HEADER_LENGTH, payload.length);
+        return out;
+    }
+
+    private static byte[] deflate(byte[] raw, int level) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 3));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] stored, int length) {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(stored, HEADER_LENGTH, stored.length - HEADER_LENGTH);
+            byte[] out = new byte[length];
+            int read = 0;
+            while (read < length) {
+                int n = inflater.inflate(out, read, length - read);
+                if (n == 0 && (inflater.finished() || inflater.needsInput())) {
+                    break;
+                }
+                read += n;
+            }
+            if (read != length) {
+                throw new IllegalStateException("压缩数据已损坏");
+            }
+            return out;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("压缩数据已损坏", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.erokin.strove.ai;
+
+import com.erokin.strove.ai.tokenizer.Tokenizer;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MarkdownChunkerTest {
+
+    // 每个非空白字符计1个token，便于精确控制片段大小
+    private static final Tokenizer CHARS = new Tokenizer() {
+        @Override
+        public String name() {
+            return "chars";
+        }
+
+        @Override
+        public int countTokens(String text) {
+            return (int) text.chars().filter(c -> !Character.isWhitespace(c)).count();
+        }
+    };
+
+    @Test
+    void chunksReassembleToTheOriginalText() {
+        String text = "\n\n# 标题一\n\n第一段内容。\n\n第二段内容。\n\n## 标题二\n\n第三段。  \n\n";
+        List<MarkdownChunker.Chunk> chunks = MarkdownChunker.split(text, 12, CHARS);
+
+        assertThat(join(chunks)).isEqualTo(text);
+        assertThat(chunks).allSatisfy(chunk -> assertThat(chunk.body()).isEqualTo(chunk.body().strip()));
+    }
+
+    @Test
+    void headingsStartNewChunks() {
+        String text = "# 一\n\n甲\n\n# 二\n\n乙\n";
+        List<MarkdownChunker.Chunk> chunks = MarkdownChunker.split(text, 1000, CHARS);
+
+        assertThat(chunks).extracting(MarkdownChunker.Chunk::body)
+                .containsExactly("# 一\n\n甲", "# 二\n\n乙");
+    }
+
+    @Test
+    void adjacentParagraphsAreMergedUpToTheLimit() {
+        String text = "aaaa\n\nbbbb\n\ncccc\n";
+        List<MarkdownChunker.Chunk> chunks = MarkdownChunker.split(text, 8, CHARS);
+
+        assertThat(chunks).extracting(MarkdownChunker.Chunk::body)
+                .containsExactly("aaaa\n\nbbbb", "cccc");
+    }
+
+    @Test
+    void fencedCodeBlocksAreNeverSplit() {
+        String text = "说明\n\n```java\nint a = 1;\n\nint b = 2;\n```\n\n结尾\n";
+        List<MarkdownChunker.Chunk> chunks = MarkdownChunker.split(text, 3, CHARS);
+
+        assertThat(chunks).extracting(MarkdownChunker.Chunk::body)
+                .contains("```java\nint a = 1;\n\nint b = 2;\n```");
+        assertThat(join(chunks)).isEqualTo(text);
+    }
+
+    @Test
+    void oversizedParagraphsFallBackToSentences() {
+        String text = "第一句话。第二句话！第三句话？Fourth one. Fifth.";
+        List<MarkdownChunker.Chunk> chunks = MarkdownChunker.split(text, 10, CHARS);
+
+        assertThat(chunks).hasSizeGreaterThan(1);
+        assertThat(chunks).allSatisfy(chunk -> assertThat(CHARS.countTokens(chunk.body())).isLessThanOrEqualTo(10));
+        assertThat(join(chunks)).isEqualTo(text);
+    }
+
+    @Test
+    void assembleKeepsOriginalSurroundingWhitespace() {
+        MarkdownChunker.Chunk chunk = MarkdownChunker.split("\n\n正文\n\n", 100, CHARS).get(0);
+
+        assertThat(chunk.assemble("  润色后  \n")).isEqualTo("\n\n润色后\n\n");
+    }
+
+    private static String join(List<MarkdownChunker.Chunk> chunks) {
+        StringBuilder joined = new StringBuilder();
+        chunks.forEach(chunk -> joined.append(chunk.leading()).append(chunk.body()).append(chunk.trailing()));
+        return joined.toString();
+    }
+}
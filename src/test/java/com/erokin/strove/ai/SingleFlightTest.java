@@ -0,0 +1,152 @@
+package com.erokin.strove.ai;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    private final SingleFlight singleFlight = new SingleFlight();
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+        singleFlight.shutdown();
+    }
+
+    @Test
+    void concurrentCallersShareOneUpstreamCall() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+
+        Future<String> first = callers.submit(() -> singleFlight.execute("k", null, publish -> {
+            calls.incrementAndGet();
+            started.countDown();
+            await(release);
+            return "result";
+        }));
+        started.await(5, TimeUnit.SECONDS);
+        Future<String> second = callers.submit(() -> singleFlight.execute("k", null, publish -> {
+            calls.incrementAndGet();
+            return "other";
+        }));
+        waitUntil(() -> singleFlight.getCoalescedCount() == 1);
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("result");
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("result");
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void cancellingTheFirstCallerDoesNotFailOthers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+
+        Future<String> first = callers.submit(() -> singleFlight.execute("k", null, publish -> {
+            started.countDown();
+            await(release);
+            return "result";
+        }));
+        started.await(5, TimeUnit.SECONDS);
+        Future<String> second = callers.submit(() -> singleFlight.execute("k", null, publish -> "other"));
+        waitUntil(() -> singleFlight.getCoalescedCount() == 1);
+
+        first.cancel(true);
+        release.countDown();
+
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("result");
+    }
+
+    @Test
+    void upstreamIsCancelledWhenEveryCallerLeaves() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CompletableFuture<Boolean> interrupted = new CompletableFuture<>();
+
+        Future<String> only = callers.submit(() -> singleFlight.execute("k", null, publish -> {
+            started.countDown();
+            try {
+                Thread.sleep(10_000);
+                interrupted.complete(false);
+            } catch (InterruptedException e) {
+                interrupted.complete(true);
+            }
+            return "late";
+        }));
+        started.await(5, TimeUnit.SECONDS);
+        only.cancel(true);
+
+        assertThat(interrupted.get(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void upstreamErrorsReachEveryCaller() {
+        assertThatThrownBy(() -> singleFlight.execute("k", null, publish -> {
+            throw new RuntimeException("API服务暂时不可用");
+        })).hasMessage("API服务暂时不可用");
+    }
+
+    @Test
+    void streamingCallersReceiveContentInOrder() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch firstDelta = new CountDownLatch(1);
+        List<String> early = new CopyOnWriteArrayList<>();
+        List<String> late = new CopyOnWriteArrayList<>();
+
+        Future<String> first = callers.submit(() -> singleFlight.execute("k", early::add, publish -> {
+            publish.accept("你好");
+            firstDelta.countDown();
+            await(release);
+            publish.accept("，世界");
+            return "你好，世界";
+        }));
+        firstDelta.await(5, TimeUnit.SECONDS);
+        Future<String> second = callers.submit(() -> singleFlight.execute("k", late::add, publish -> "x"));
+        waitUntil(() -> singleFlight.getCoalescedCount() == 1);
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("你好，世界");
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("你好，世界");
+        assertThat(String.join("", early)).isEqualTo("你好，世界");
+        assertThat(String.join("", late)).isEqualTo("你好，世界");
+    }
+
+    @Test
+    void blockingUpstreamResultIsDeliveredToStreamingCallers() {
+        List<String> deltas = new CopyOnWriteArrayList<>();
+        String result = singleFlight.execute("k", deltas::add, publish -> "完整结果");
+        assertThat(result).isEqualTo("完整结果");
+        assertThat(deltas).containsExactly("完整结果");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("请求已取消");
+        }
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+}
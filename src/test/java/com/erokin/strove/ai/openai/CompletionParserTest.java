@@ -0,0 +1,93 @@
+package com.erokin.strove.ai.openai;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CompletionParserTest {
+
+    private final CompletionParser parser = new CompletionParser(new JsonFactory());
+
+    @Test
+    void parsesFirstChoiceAndUsage() throws IOException {
+        String json = """
+                {"id":"x","object":"chat.completion","choices":[
+                  {"index":0,"message":{"role":"assistant","content":"你好"},"finish_reason":"stop"},
+                  {"index":1,"message":{"role":"assistant","content":"ignored"},"finish_reason":"stop"}],
+                 "usage":{"prompt_tokens":12,"completion_tokens":3,"total_tokens":15,
+                          "prompt_tokens_details":{"cached_tokens":0}}}
+                """;
+
+        ChatCompletionResult result = parser.parse(body(json));
+
+        assertThat(result.content()).isEqualTo("你好");
+        assertThat(result.finishReason()).isEqualTo("stop");
+        assertThat(result.promptTokens()).isEqualTo(12);
+        assertThat(result.completionTokens()).isEqualTo(3);
+    }
+
+    @Test
+    void parsesStreamingDelta() throws IOException {
+        byte[] frame = "{\"choices\":[{\"delta\":{\"content\":\"增量\"},\"finish_reason\":null}]}"
+                .getBytes(StandardCharsets.UTF_8);
+
+        ChatCompletionResult result = parser.parseChunk(frame, 0, frame.length);
+
+        assertThat(result.content()).isEqualTo("增量");
+        assertThat(result.finishReason()).isNull();
+        assertThat(result.promptTokens()).isEqualTo(-1);
+    }
+
+    @Test
+    void parsesChunkInsideALargerBuffer() throws IOException {
+        byte[] buffer = "data: {\"choices\":[{\"delta\":{\"content\":\"ok\"}}]}\n".getBytes(StandardCharsets.UTF_8);
+
+        ChatCompletionResult result = parser.parseChunk(buffer, 6, buffer.length - 7);
+
+        assertThat(result.content()).isEqualTo("ok");
+    }
+
+    @Test
+    void parsesQianwenNativeEnvelope() throws IOException {
+        String json = """
+                {"output":{"choices":[{"message":{"role":"assistant","content":"千问"},"finish_reason":"stop"}]},
+                 "usage":{"input_tokens":5,"output_tokens":2},"request_id":"r"}
+                """;
+
+        ChatCompletionResult result = parser.parse(body(json));
+
+        assertThat(result.content()).isEqualTo("千问");
+        assertThat(result.promptTokens()).isEqualTo(5);
+        assertThat(result.completionTokens()).isEqualTo(2);
+    }
+
+    @Test
+    void surfacesOpenAiErrors() {
+        String json = "{\"error\":{\"message\":\"Incorrect API key\",\"type\":\"invalid_request_error\"}}";
+
+        assertThatThrownBy(() -> parser.parse(body(json))).hasMessage("API错误: Incorrect API key");
+    }
+
+    @Test
+    void surfacesQianwenErrors() {
+        String json = "{\"code\":\"InvalidApiKey\",\"message\":\"Invalid API-key provided.\",\"request_id\":\"r\"}";
+
+        assertThatThrownBy(() -> parser.parse(body(json))).hasMessage("API错误: Invalid API-key provided.");
+    }
+
+    @Test
+    void rejectsResponsesWithoutContent() {
+        assertThatThrownBy(() -> parser.parse(body("{\"choices\":[]}"))).hasMessage("API返回格式错误");
+        assertThatThrownBy(() -> parser.parse(body("[1,2]"))).hasMessage("API返回格式错误");
+    }
+
+    private static ByteArrayInputStream body(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
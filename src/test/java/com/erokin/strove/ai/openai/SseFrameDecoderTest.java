@@ -0,0 +1,94 @@
+package com.erokin.strove.ai.openai;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SseFrameDecoderTest {
+
+    private final SseFrameDecoder decoder = new SseFrameDecoder(64 * 1024);
+
+    @Test
+    void extractsDataPayloadsAndSkipsOtherLines() throws IOException {
+        String body = ": keep-alive\nevent: message\ndata: {\"a\":1}\n\nid: 7\ndata:{\"b\":2}  \r\n\ndata: [DONE]\n";
+
+        assertThat(frames(stream(body))).containsExactly("{\"a\":1}", "{\"b\":2}");
+    }
+
+    @Test
+    void stopsAtDoneMarker() throws IOException {
+        String body = "data: first\n\ndata: [DONE]\n\ndata: after\n";
+
+        assertThat(frames(stream(body))).containsExactly("first");
+    }
+
+    @Test
+    void reassemblesLinesSplitAcrossReads() throws IOException {
+        StringBuilder body = new StringBuilder();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            String payload = "{\"content\":\"第" + i + "段 " + "x".repeat(i * 37) + "\"}";
+            expected.add(payload);
+            body.append("data: ").append(payload).append("\r\n\r\n");
+        }
+
+        assertThat(frames(oneByteAtATime(stream(body.toString())))).containsExactlyElementsOf(expected);
+        assertThat(frames(stream(body.toString()))).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    void handlesFinalLineWithoutNewline() throws IOException {
+        assertThat(frames(oneByteAtATime(stream("data: tail")))).containsExactly("tail");
+    }
+
+    @Test
+    void handlerCanStopEarly() throws IOException {
+        List<String> seen = new ArrayList<>();
+        decoder.decode(stream("data: 1\ndata: 2\ndata: 3\n"), (data, offset, length) -> {
+            seen.add(new String(data, offset, length, StandardCharsets.UTF_8));
+            return seen.size() < 2;
+        });
+
+        assertThat(seen).containsExactly("1", "2");
+    }
+
+    @Test
+    void rejectsFramesLargerThanTheLimit() {
+        SseFrameDecoder small = new SseFrameDecoder(16);
+        InputStream body = oneByteAtATime(stream("data: " + "x".repeat(100) + "\n"));
+
+        assertThatThrownBy(() -> small.decode(body, (data, offset, length) -> true))
+                .hasMessageContaining("数据帧过大");
+    }
+
+    private List<String> frames(InputStream body) throws IOException {
+        List<String> frames = new ArrayList<>();
+        decoder.decode(body, (data, offset, length) -> {
+            frames.add(new String(data, offset, length, StandardCharsets.UTF_8));
+            return true;
+        });
+        return frames;
+    }
+
+    private static InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static InputStream oneByteAtATime(InputStream in) {
+        return new FilterInputStream(in) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return super.read(b, off, Math.min(1, len));
+            }
+        };
+    }
+}
@@ -0,0 +1,69 @@
+package com.erokin.strove.ai.tokenizer;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BpeTokenizerTest {
+
+    private static BpeTokenizer tokenizer;
+
+    /**
+     * 256个单字节 + 少量合并规则的 tiktoken 格式词表
+     */
+    @BeforeAll
+    static void loadVocabulary() throws IOException {
+        StringBuilder vocab = new StringBuilder();
+        for (int b = 0; b < 256; b++) {
+            vocab.append(Base64.getEncoder().encodeToString(new byte[]{(byte) b})).append(' ').append(b).append('\n');
+        }
+        String[] merges = {"he", "ll", "hell", "hello", " w", "or", " wor", " world", "你"};
+        int rank = 256;
+        for (String merge : merges) {
+            vocab.append(Base64.getEncoder().encodeToString(merge.getBytes(StandardCharsets.UTF_8)))
+                    .append(' ').append(rank++).append('\n');
+        }
+        // 格式不正确的行被忽略
+        vocab.append("not-a-token-line\n");
+        tokenizer = BpeTokenizer.load("test", BpeTokenizer.CL100K_PATTERN,
+                new ByteArrayInputStream(vocab.toString().getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    @Test
+    void emptyTextHasNoTokens() {
+        assertThat(tokenizer.countTokens(null)).isZero();
+        assertThat(tokenizer.countTokens("")).isZero();
+        assertThat(tokenizer.name()).isEqualTo("test");
+    }
+
+    @Test
+    void wholePiecesInTheVocabularyAreOneToken() {
+        assertThat(tokenizer.countTokens("hello")).isEqualTo(1);
+        assertThat(tokenizer.countTokens("hello world")).isEqualTo(2);
+    }
+
+    @Test
+    void mergesByRankWithinAPiece() {
+        // he + ll -> hell，剩下 x
+        assertThat(tokenizer.countTokens("hellx")).isEqualTo(2);
+        // 没有可用的合并时按字节计
+        assertThat(tokenizer.countTokens("xyz")).isEqualTo(3);
+        // " w" 之后 "o" 没有可合并的对象
+        assertThat(tokenizer.countTokens(" wold")).isEqualTo(4);
+    }
+
+    @Test
+    void splitsNumbersAndMultibyteText() {
+        // 数字按至多三位切分，每位一个字节
+        assertThat(tokenizer.countTokens("12345")).isEqualTo(5);
+        // 整段命中词表时为一个token；"你好" 不在词表中，且字节之间没有合并规则
+        assertThat(tokenizer.countTokens("你")).isEqualTo(1);
+        assertThat(tokenizer.countTokens("你好")).isEqualTo(6);
+    }
+}
@@ -0,0 +1,81 @@
+package com.erokin.strove.ai.tokenizer;
+
+import com.erokin.strove.ai.openai.ChatMessage;
+import com.erokin.strove.config.properties.AiProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TokenBudgetTest {
+
+    private final AiProperties properties = new AiProperties();
+    private final TokenBudget budget = new TokenBudget(new Tokenizers(properties), properties);
+
+    @Test
+    void matchesTheMostSpecificBuiltinPrefix() {
+        assertThat(budget.limits("gpt-4o-mini-2024-07-18")).isEqualTo(new TokenBudget.ModelLimits(128_000, 16_384));
+        assertThat(budget.limits("gpt-4.5-preview")).isEqualTo(new TokenBudget.ModelLimits(128_000, 16_384));
+        assertThat(budget.limits("gpt-4-0613")).isEqualTo(new TokenBudget.ModelLimits(8_192, 8_192));
+        assertThat(budget.limits("openai/GPT-5-mini").contextWindow()).isEqualTo(400_000);
+        assertThat(budget.limits("qwen3-max-preview").maxOutput()).isEqualTo(65_536);
+        assertThat(budget.limits("qwen3-235b-a22b").contextWindow()).isEqualTo(131_072);
+    }
+
+    @Test
+    void unknownModelsAreNeitherRejectedNorCapped() {
+        List<ChatMessage> huge = List.of(ChatMessage.user("很长的内容".repeat(20_000)));
+
+        assertThat(budget.maxTokens("some-relay-model", huge, TokenBudget.Operation.CHAT)).isNull();
+        assertThat(budget.maxTokens("some-relay-model", huge, TokenBudget.Operation.POLISH)).isNull();
+        assertThat(budget.maxTokens(null, huge, TokenBudget.Operation.SUMMARY)).isNull();
+        assertThat(budget.maxTokens("some-relay-model", huge, TokenBudget.Operation.PROBE)).isEqualTo(16);
+    }
+
+    @Test
+    void chatGetsTheRemainingWindowUpToTheOutputLimit() {
+        List<ChatMessage> messages = List.of(ChatMessage.user("hello"));
+
+        assertThat(budget.maxTokens("gpt-4o", messages, TokenBudget.Operation.CHAT)).isEqualTo(16_384);
+        int prompt = budget.promptTokens("gpt-4", messages);
+        assertThat(budget.maxTokens("gpt-4", messages, TokenBudget.Operation.CHAT)).isEqualTo(8_192 - prompt);
+    }
+
+    @Test
+    void operationsUseTheirOwnBudgets() {
+        List<ChatMessage> messages = List.of(ChatMessage.system("润色"), ChatMessage.user("short text"));
+
+        assertThat(budget.maxTokens("gpt-4o", messages, TokenBudget.Operation.INSPIRATION)).isEqualTo(1024);
+        assertThat(budget.maxTokens("gpt-4o", messages, TokenBudget.Operation.PROBE)).isEqualTo(16);
+        // 润色至少预留 min-output
+        assertThat(budget.maxTokens("gpt-4o", messages, TokenBudget.Operation.POLISH)).isEqualTo(256);
+    }
+
+    @Test
+    void rejectsPromptsThatLeaveNoRoomForTheReply() {
+        List<ChatMessage> huge = List.of(ChatMessage.user("word ".repeat(20_000)));
+
+        assertThatThrownBy(() -> budget.maxTokens("gpt-4", huge, TokenBudget.Operation.CHAT))
+                .hasMessageStartingWith("输入内容过长");
+    }
+
+    @Test
+    void configuredOverridesWinAndMissingFieldsStayUnlimited() {
+        AiProperties.ModelLimit relay = new AiProperties.ModelLimit();
+        relay.setContextWindow(32_000);
+        relay.setMaxOutput(2_000);
+        AiProperties.ModelLimit windowOnly = new AiProperties.ModelLimit();
+        windowOnly.setContextWindow(1_000);
+        properties.getTokens().getModels().put("gpt-4o", relay);
+        properties.getTokens().getModels().put("my-model", windowOnly);
+        List<ChatMessage> messages = List.of(ChatMessage.user("hello"));
+
+        assertThat(budget.maxTokens("gpt-4o", messages, TokenBudget.Operation.CHAT)).isEqualTo(2_000);
+        assertThat(budget.maxTokens("my-model-v2", messages, TokenBudget.Operation.CHAT)).isNull();
+        assertThatThrownBy(() -> budget.maxTokens("my-model-v2",
+                List.of(ChatMessage.user("word ".repeat(5_000))), TokenBudget.Operation.CHAT))
+                .hasMessageStartingWith("输入内容过长");
+    }
+}
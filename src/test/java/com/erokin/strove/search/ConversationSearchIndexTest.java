@@ -0,0 +1,149 @@
+package com.erokin.strove.search;
+
+import com.erokin.strove.config.properties.ConversationProperties;
+import com.erokin.strove.entity.Conversation;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ConversationSearchIndexTest {
+
+    private static final long USER = 1L;
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final ConversationSearchIndex index = new ConversationSearchIndex(jdbcTemplate, enabled());
+
+    @Test
+    void ranksDocumentsWithMoreQueryTermsFirst() {
+        add(1, "how to cook rice", "boil water first");
+        add(2, "rice and beans recipe", "cook the beans with rice");
+        add(3, "weather today", "sunny");
+
+        ConversationSearchIndex.SearchResult result = index.search(USER, "cook rice", 10);
+
+        assertThat(ids(result)).containsExactly(2L, 1L);
+        assertThat(result.total()).isEqualTo(2);
+    }
+
+    @Test
+    void rareTermsOutweighCommonOnes() {
+        add(1, "java spring", "spring boot");
+        add(2, "java basics", "java syntax");
+        add(3, "java streams", "java collectors");
+
+        ConversationSearchIndex.SearchResult result = index.search(USER, "java spring", 10);
+
+        assertThat(ids(result).get(0)).isEqualTo(1L);
+    }
+
+    @Test
+    void shorterDocumentsScoreHigherForTheSameFrequency() {
+        add(1, "kafka", "");
+        add(2, "kafka consumer group rebalance offsets partitions lag", "");
+
+        assertThat(ids(index.search(USER, "kafka", 10))).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void expandsSingleCjkCharacterToBigrams() {
+        add(1, "今天天气很好", "");
+        add(2, "明天下雨", "");
+
+        assertThat(ids(index.search(USER, "天", 10))).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(ids(index.search(USER, "天气", 10))).containsExactly(1L);
+    }
+
+    @Test
+    void skipsRemovedDocumentsAndOtherUsers() {
+        add(1, "deploy script", "");
+        add(2, "deploy pipeline", "");
+        Conversation other = conversation(3, "deploy", "");
+        other.setUserId(2L);
+        index.add(other);
+
+        index.remove(USER, List.of(1L));
+
+        assertThat(ids(index.search(USER, "deploy", 10))).containsExactly(2L);
+        assertThat(ids(index.search(2L, "deploy", 10))).containsExactly(3L);
+    }
+
+    @Test
+    void honoursLimitButReportsTotal() {
+        for (long id = 1; id <= 5; id++) {
+            add(id, "note " + id, "");
+        }
+
+        ConversationSearchIndex.SearchResult result = index.search(USER, "note", 2);
+
+        assertThat(result.hits()).hasSize(2);
+        assertThat(result.total()).isEqualTo(5);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void catchUpRescansOverlapBelowHighestIndexedId() throws Exception {
+        // ID 100 先于 95 提交并写入快照，95 晚提交
+        add(100, "late commit", "");
+        List<Object[]> rows = List.of(new Object[]{95L, "late commit missing", ""}, new Object[]{100L, "late commit", ""});
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(), any()))
+                .thenAnswer(invocation -> map(invocation.getArgument(1), rows))
+                .thenReturn(List.of());
+
+        long added = index.catchUp();
+
+        verify(jdbcTemplate).query(anyString(), any(RowMapper.class), eq(90L), eq(500));
+        assertThat(added).isEqualTo(1);
+        assertThat(ids(index.search(USER, "missing", 10))).containsExactly(95L);
+    }
+
+    private static List<Object> map(RowMapper<Object> mapper, List<Object[]> rows) throws Exception {
+        List<Object> mapped = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            Object[] row = rows.get(i);
+            ResultSet rs = mock(ResultSet.class);
+            when(rs.getLong("id")).thenReturn((Long) row[0]);
+            when(rs.getLong("user_id")).thenReturn(USER);
+            when(rs.getBytes("message")).thenReturn(((String) row[1]).getBytes(StandardCharsets.UTF_8));
+            when(rs.getBytes("response")).thenReturn(((String) row[2]).getBytes(StandardCharsets.UTF_8));
+            mapped.add(mapper.mapRow(rs, i));
+        }
+        return mapped;
+    }
+
+    private static ConversationProperties enabled() {
+        ConversationProperties properties = new ConversationProperties();
+        properties.getSearch().setEnabled(true);
+        properties.getSearch().setCatchUpOverlap(10);
+        return properties;
+    }
+
+    private void add(long id, String message, String response) {
+        index.add(conversation(id, message, response));
+    }
+
+    private static Conversation conversation(long id, String message, String response) {
+        Conversation conversation = new Conversation();
+        conversation.setId(id);
+        conversation.setUserId(USER);
+        conversation.setMessage(message);
+        conversation.setResponse(response);
+        return conversation;
+    }
+
+    private static List<Long> ids(ConversationSearchIndex.SearchResult result) {
+        return result.hits().stream().map(ConversationSearchIndex.Hit::id).toList();
+    }
+}
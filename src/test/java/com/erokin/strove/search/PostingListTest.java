@@ -0,0 +1,77 @@
+package com.erokin.strove.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PostingListTest {
+
+    @Test
+    void appendsInOrderAndDecodesLargeGaps() {
+        PostingList list = new PostingList();
+        list.add(1, 3);
+        list.add(200, 1);
+        list.add(5_000_000_000L, 70_000);
+
+        assertThat(entries(list)).containsExactly("1:3", "200:1", "5000000000:70000");
+        assertThat(list.count()).isEqualTo(3);
+    }
+
+    @Test
+    void insertsOutOfOrderAndIgnoresDuplicates() {
+        PostingList list = new PostingList();
+        list.add(10, 1);
+        list.add(30, 3);
+        list.add(20, 2);
+        list.add(5, 5);
+        list.add(20, 9);
+
+        assertThat(entries(list)).containsExactly("5:5", "10:1", "20:2", "30:3");
+    }
+
+    @Test
+    void retainsOnlyMatchingDocuments() {
+        PostingList list = new PostingList();
+        for (long id = 1; id <= 10; id++) {
+            list.add(id, (int) id);
+        }
+
+        list.retain(id -> id % 3 == 0);
+
+        assertThat(entries(list)).containsExactly("3:3", "6:6", "9:9");
+        list.add(12, 1);
+        assertThat(entries(list)).endsWith("12:1");
+    }
+
+    @Test
+    void survivesWriteReadRoundTrip() throws IOException {
+        PostingList list = new PostingList();
+        for (long id = 1; id <= 1000; id += 7) {
+            list.add(id, (int) (id % 5) + 1);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        list.write(new DataOutputStream(bytes));
+
+        PostingList copy = PostingList.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertThat(entries(copy)).isEqualTo(entries(list));
+        assertThat(copy.sizeInBytes()).isEqualTo(list.sizeInBytes());
+        // 读回后仍可继续追加
+        copy.add(2000, 1);
+        assertThat(copy.count()).isEqualTo(list.count() + 1);
+    }
+
+    private static List<String> entries(PostingList list) {
+        List<String> entries = new ArrayList<>();
+        list.forEach((id, frequency) -> entries.add(id + ":" + frequency));
+        return entries;
+    }
+}
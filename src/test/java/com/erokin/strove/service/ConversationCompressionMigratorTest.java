@@ -0,0 +1,99 @@
+package com.erokin.strove.service;
+
+import com.erokin.strove.config.properties.ConversationProperties;
+import com.erokin.strove.storage.TextCodec;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ConversationCompressionMigratorTest {
+
+    private static final String LONG_TEXT = "<p>需要压缩的较长对话内容。</p>".repeat(50);
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final ConversationProperties properties = new ConversationProperties();
+
+    ConversationCompressionMigratorTest() {
+        properties.getCompression().setEnabled(true);
+        properties.getCompression().setBatchPause(Duration.ZERO);
+        when(jdbcTemplate.queryForObject(anyString(), eq(String.class), anyString())).thenReturn("mediumblob");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void rewritesOnlyRowsThatAreStillPlain() throws Exception {
+        byte[] plain = LONG_TEXT.getBytes(StandardCharsets.UTF_8);
+        byte[] encoded = TextCodec.encode(LONG_TEXT, true, 0, 6);
+        byte[] shortText = "短".getBytes(StandardCharsets.UTF_8);
+        List<byte[][]> rows = List.of(
+                new byte[][]{encoded, encoded},
+                new byte[][]{plain, shortText},
+                new byte[][]{shortText, null});
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(), any()))
+                .thenAnswer(invocation -> map(invocation.getArgument(1), rows))
+                .thenReturn(List.of());
+
+        new ConversationCompressionMigrator(jdbcTemplate, properties).migrate();
+
+        ArgumentCaptor<List<Object[]>> updates = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), updates.capture());
+        assertThat(updates.getValue()).hasSize(1);
+        Object[] update = updates.getValue().get(0);
+        assertThat(TextCodec.isEncoded((byte[]) update[0])).isTrue();
+        assertThat(TextCodec.decode((byte[]) update[0])).isEqualTo(LONG_TEXT);
+        assertThat(update[1]).isSameAs(shortText);
+        assertThat(update[2]).isEqualTo(2L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void skipsBatchesThatAreAlreadyEncoded() throws Exception {
+        byte[] encoded = TextCodec.encode(LONG_TEXT, true, 0, 6);
+        List<byte[][]> rows = List.<byte[][]>of(new byte[][]{encoded, encoded});
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(), any()))
+                .thenAnswer(invocation -> map(invocation.getArgument(1), rows))
+                .thenReturn(List.of());
+
+        new ConversationCompressionMigrator(jdbcTemplate, properties).migrate();
+
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), any(List.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void doesNothingWhenColumnsAreNotBinary() {
+        when(jdbcTemplate.queryForObject(anyString(), eq(String.class), anyString())).thenReturn("text");
+
+        new ConversationCompressionMigrator(jdbcTemplate, properties).migrate();
+
+        verify(jdbcTemplate, never()).query(anyString(), any(RowMapper.class), any(), any());
+    }
+
+    private static List<Object> map(RowMapper<?> mapper, List<byte[][]> rows) throws Exception {
+        List<Object> mapped = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            ResultSet rs = mock(ResultSet.class);
+            when(rs.getLong("id")).thenReturn(i + 1L);
+            when(rs.getBytes("message")).thenReturn(rows.get(i)[0]);
+            when(rs.getBytes("response")).thenReturn(rows.get(i)[1]);
+            mapped.add(mapper.mapRow(rs, i));
+        }
+        return mapped;
+    }
+}
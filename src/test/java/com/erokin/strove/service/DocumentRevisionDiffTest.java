@@ -0,0 +1,72 @@
+package com.erokin.strove.service;
+
+import com.erokin.strove.dto.TextOperation;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DocumentRevisionDiffTest {
+
+    @Test
+    void opsTransformBeforeIntoAfter() {
+        String[][] cases = {
+                {"", ""},
+                {"", "<p>新文档</p>"},
+                {"<p>整篇删除</p>", ""},
+                {"<p>hello world</p>", "<p>hello brave new world</p>"},
+                {"<p>今天天气很好</p>", "<p>今天天气不好</p>"},
+                {"<h1>标题</h1><p>第一段</p><p>第二段</p>", "<h1>新标题</h1><p>第二段</p><p>第三段</p>"},
+                {"a b c d e f", "f e d c b a"},
+        };
+        for (String[] c : cases) {
+            List<TextOperation> ops = DocumentRevisionService.diffOperations(c[0], c[1]);
+
+            assertThat(TextDelta.apply(c[0], ops).content()).as("%s -> %s", c[0], c[1]).isEqualTo(c[1]);
+        }
+    }
+
+    @Test
+    void identicalTextIsASingleRetain() {
+        List<TextOperation> ops = DocumentRevisionService.diffOperations("<p>不变</p>", "<p>不变</p>");
+
+        assertThat(ops).hasSize(1);
+        assertThat(ops.get(0).getRetain()).isEqualTo("<p>不变</p>".length());
+        assertThat(DocumentRevisionService.diffOperations("", "")).isEmpty();
+    }
+
+    @Test
+    void replacesWholeWordsNotCharacters() {
+        List<TextOperation> ops = DocumentRevisionService.diffOperations("the quick fox", "the quiet fox");
+
+        assertThat(ops).extracting(DocumentRevisionDiffTest::describe)
+                .containsExactly("retain 4", "insert quiet", "delete 5", "retain 4");
+    }
+
+    @Test
+    void comparesHanCharactersIndividually() {
+        List<TextOperation> ops = DocumentRevisionService.diffOperations("今天天气很好", "今天天气不好");
+
+        assertThat(ops).extracting(DocumentRevisionDiffTest::describe)
+                .containsExactly("retain 4", "insert 不", "delete 1", "retain 1");
+    }
+
+    @Test
+    void keepsUnchangedTagsAroundEditedText() {
+        List<TextOperation> ops = DocumentRevisionService.diffOperations("<p><b>old</b></p>", "<p><b>new</b></p>");
+
+        assertThat(ops).extracting(DocumentRevisionDiffTest::describe)
+                .containsExactly("retain 6", "insert new", "delete 3", "retain 8");
+    }
+
+    private static String describe(TextOperation op) {
+        if (op.getRetain() != null) {
+            return "retain " + op.getRetain();
+        }
+        if (op.getInsert() != null) {
+            return "insert " + op.getInsert();
+        }
+        return "delete " + op.getDelete();
+    }
+}
@@ -0,0 +1,200 @@
+package com.erokin.strove.service;
+
+import com.erokin.strove.config.properties.DocumentProperties;
+import com.erokin.strove.entity.Document;
+import com.erokin.strove.entity.DocumentRevision;
+import com.erokin.strove.repository.DocumentRepository;
+import com.erokin.strove.repository.DocumentRevisionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DocumentRevisionServiceTest {
+
+    private static final long USER_ID = 1L;
+    private static final long DOCUMENT_ID = 10L;
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 6, 15, 12, 0);
+
+    private final List<DocumentRevision> stored = new ArrayList<>();
+    private final Map<Long, String> contents = new HashMap<>();
+    private final List<String> paragraphs = new ArrayList<>();
+    private final DocumentRevisionRepository revisionRepository = mock(DocumentRevisionRepository.class);
+    private DocumentRevisionService service;
+    // 新修订的创建时间
+    private LocalDateTime clock;
+    private Document document;
+
+    @BeforeEach
+    void setUp() {
+        DocumentProperties properties = new DocumentProperties();
+        properties.getRevisions().setSnapshotEvery(4);
+        DocumentRepository documentRepository = mock(DocumentRepository.class);
+        when(documentRepository.existsByIdAndUserId(DOCUMENT_ID, USER_ID)).thenReturn(true);
+        service = new DocumentRevisionService(revisionRepository, documentRepository, properties,
+                mock(PlatformTransactionManager.class));
+        stubRepository();
+        for (int i = 0; i < 30; i++) {
+            paragraphs.add("<p>第" + i + "段：这是一段用来测试修订历史的正文内容，保存时只改动其中一段。</p>");
+        }
+        document = new Document();
+        document.setId(DOCUMENT_ID);
+        document.setUserId(USER_ID);
+        document.setTitle("修订测试");
+    }
+
+    @Test
+    void thinKeepsOneRevisionPerBucketAndEveryKeptRevisionMaterialises() {
+        save(NOW.minusDays(200).withHour(1));   // 1 按周
+        save(NOW.minusDays(200).withHour(2));   // 2
+        save(NOW.minusDays(200).withHour(3));   // 3
+        save(NOW.minusDays(30).withHour(1));    // 4 按天
+        save(NOW.minusDays(30).withHour(2));    // 5
+        save(NOW.minusDays(30).withHour(3));    // 6
+        save(NOW.minusDays(29));                // 7
+        save(NOW.minusDays(3).withMinute(5));   // 8 按小时
+        save(NOW.minusDays(3).withMinute(20));  // 9
+        save(NOW.minusDays(3).withMinute(50));  // 10
+        save(NOW.minusDays(3).plusHours(1));    // 11
+        save(NOW.minusHours(2));                // 12 全部保留
+        save(NOW.minusHours(1));                // 13
+        save(NOW.minusMinutes(30));             // 14
+
+        service.thin(DOCUMENT_ID, NOW);
+
+        assertThat(stored).extracting(DocumentRevision::getRevision)
+                .containsExactly(3L, 6L, 7L, 10L, 11L, 12L, 13L, 14L);
+        assertThat(stored).anyMatch(r -> DocumentRevision.DELTA.equals(r.getKind()));
+        for (DocumentRevision revision : stored) {
+            if (DocumentRevision.DELTA.equals(revision.getKind())) {
+                assertThat(stored).extracting(DocumentRevision::getRevision).contains(revision.getBaseRevision());
+            }
+            assertThat(materialized(revision.getRevision())).as("修订 %d", revision.getRevision())
+                    .isEqualTo(contents.get(revision.getRevision()));
+        }
+    }
+
+    @Test
+    void thinIsIdempotent() {
+        for (int day = 60; day > 0; day--) {
+            save(NOW.minusDays(day));
+        }
+        service.thin(DOCUMENT_ID, NOW);
+        List<Long> kept = stored.stream().map(DocumentRevision::getRevision).toList();
+
+        service.thin(DOCUMENT_ID, NOW);
+
+        assertThat(stored).extracting(DocumentRevision::getRevision).isEqualTo(kept);
+        for (Long revision : kept) {
+            assertThat(materialized(revision)).isEqualTo(contents.get(revision));
+        }
+    }
+
+    @Test
+    void recordUsesPreviousContentForTip() {
+        for (int i = 0; i < 3; i++) {
+            save(NOW.minusDays(10 - i));
+        }
+        clearInvocations(revisionRepository);
+
+        save(NOW.minusDays(1));
+
+        verify(revisionRepository, never()).findByDocumentIdAndRevisionBetweenOrderByRevisionAsc(anyLong(), anyLong(), anyLong());
+        verify(revisionRepository, never())
+                .findTopByDocumentIdAndKindAndRevisionLessThanEqualOrderByRevisionDesc(anyLong(), anyString(), anyLong());
+        assertThat(materialized(4L)).isEqualTo(contents.get(4L));
+    }
+
+    @Test
+    void mergeWindowReusesCachedBase() {
+        save(NOW.minusDays(2));
+        save(NOW.minusDays(1));
+        // 相对修订2的差异，之后的保存在合并窗口内
+        save(LocalDateTime.now());
+        clearInvocations(revisionRepository);
+
+        save(LocalDateTime.now());
+        save(LocalDateTime.now());
+
+        verify(revisionRepository, never()).findByDocumentIdAndRevisionBetweenOrderByRevisionAsc(anyLong(), anyLong(), anyLong());
+        assertThat(stored).extracting(DocumentRevision::getRevision).containsExactly(1L, 2L, 5L);
+        assertThat(stored.get(2).getBaseRevision()).isEqualTo(2L);
+        assertThat(materialized(5L)).isEqualTo(contents.get(5L));
+    }
+
+    /**
+     * 改动一段正文后按保存流程记录一个修订
+     */
+    private void save(LocalDateTime createdAt) {
+        Long previousRevision = document.getRevision();
+        String previousContent = document.getContent();
+        long revision = previousRevision == null ? 1 : previousRevision + 1;
+        int changed = (int) (revision * 7 % paragraphs.size());
+        paragraphs.set(changed, "<p>第" + changed + "段在第" + revision + "次保存时改写。</p>");
+        document.setContent(String.join("", paragraphs));
+        document.setWordCount(document.getContent().length());
+        document.setRevision(revision);
+        contents.put(revision, document.getContent());
+        clock = createdAt;
+        if (previousRevision == null) {
+            service.record(document);
+        } else {
+            service.record(document, previousRevision, previousContent);
+        }
+    }
+
+    private String materialized(long revision) {
+        return service.getRevision(USER_ID, DOCUMENT_ID, revision).getContent();
+    }
+
+    private void stubRepository() {
+        when(revisionRepository.findTopByDocumentIdOrderByRevisionDesc(DOCUMENT_ID))
+                .thenAnswer(i -> stored.isEmpty() ? Optional.empty() : Optional.of(stored.get(stored.size() - 1)));
+        when(revisionRepository.findByDocumentIdAndRevision(any(), any()))
+                .thenAnswer(i -> stored.stream().filter(r -> r.getRevision().equals(i.getArgument(1))).findFirst());
+        when(revisionRepository.findTopByDocumentIdAndKindAndRevisionLessThanEqualOrderByRevisionDesc(any(), any(), any()))
+                .thenAnswer(i -> stored.stream()
+                        .filter(r -> r.getKind().equals(i.getArgument(1))
+                                && r.getRevision() <= i.<Long>getArgument(2))
+                        .max(Comparator.comparing(DocumentRevision::getRevision)));
+        when(revisionRepository.findByDocumentIdAndRevisionBetweenOrderByRevisionAsc(any(), any(), any()))
+                .thenAnswer(i -> stored.stream()
+                        .filter(r -> r.getRevision() >= i.<Long>getArgument(1) && r.getRevision() <= i.<Long>getArgument(2))
+                        .toList());
+        when(revisionRepository.findByDocumentIdOrderByRevisionAsc(DOCUMENT_ID)).thenAnswer(i -> new ArrayList<>(stored));
+        when(revisionRepository.save(any())).thenAnswer(i -> persist(i.getArgument(0)));
+        when(revisionRepository.saveAndFlush(any())).thenAnswer(i -> persist(i.getArgument(0)));
+        doAnswer(i -> {
+            Iterable<DocumentRevision> removed = i.getArgument(0);
+            removed.forEach(stored::remove);
+            return null;
+        }).when(revisionRepository).deleteAll(any());
+    }
+
+    private DocumentRevision persist(DocumentRevision revision) {
+        if (!stored.contains(revision)) {
+            revision.setCreatedAt(clock);
+            stored.add(revision);
+        }
+        stored.sort(Comparator.comparing(DocumentRevision::getRevision));
+        return revision;
+    }
+}
@@ -0,0 +1,82 @@
+package com.erokin.strove.service;
+
+import com.erokin.strove.dto.TextOperation;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TextDeltaTest {
+
+    @Test
+    void appliesOpsAndKeepsUncoveredTail() {
+        TextDelta.Result result = TextDelta.apply("hello world", List.of(retain(6), delete(5), insert("there"), insert("!")));
+
+        assertThat(result.content()).isEqualTo("hello there!");
+        assertThat(TextDelta.apply("abcdef", List.of(retain(2), insert("X"))).content()).isEqualTo("abXcdef");
+    }
+
+    @Test
+    void emptyOpsReturnTheBase() {
+        assertThat(TextDelta.apply("same", List.of()).content()).isEqualTo("same");
+        assertThat(TextDelta.apply(null, null).content()).isEmpty();
+        assertThat(TextDelta.apply(null, List.of(insert("new"))).content()).isEqualTo("new");
+    }
+
+    @Test
+    void wordCountDeltaMatchesFullRecount() {
+        String base = "第一段 内容\n\tsecond line";
+        List<TextOperation> ops = List.of(retain(4), delete(3), insert(" 新的 文字 "), retain(2), delete(7));
+
+        TextDelta.Result result = TextDelta.apply(base, ops);
+
+        assertThat(result.content()).isEqualTo("第一段  新的 文字 \tsine");
+        assertThat(result.wordCountDelta()).isEqualTo(
+                TextDelta.countWords(result.content(), 0, result.content().length())
+                        - TextDelta.countWords(base, 0, base.length()));
+    }
+
+    @Test
+    void whitespaceDoesNotCount() {
+        assertThat(TextDelta.apply("a", List.of(retain(1), insert(" \t\n\r\f\u000B"))).wordCountDelta()).isZero();
+    }
+
+    @Test
+    void rejectsOpsPastTheEnd() {
+        assertThatThrownBy(() -> TextDelta.apply("abc", List.of(retain(4))))
+                .hasMessage("编辑操作超出文档长度");
+        assertThatThrownBy(() -> TextDelta.apply("abc", List.of(retain(2), delete(2))))
+                .hasMessage("编辑操作超出文档长度");
+        assertThatThrownBy(() -> TextDelta.apply("abc", List.of(delete(-1))))
+                .hasMessage("编辑操作超出文档长度");
+    }
+
+    @Test
+    void rejectsMalformedOps() {
+        TextOperation both = retain(1);
+        both.setInsert("x");
+
+        assertThatThrownBy(() -> TextDelta.apply("abc", List.of(both))).hasMessage("编辑操作格式错误");
+        assertThatThrownBy(() -> TextDelta.apply("abc", List.of(new TextOperation()))).hasMessage("编辑操作格式错误");
+    }
+
+    private static TextOperation retain(int count) {
+        TextOperation op = new TextOperation();
+        op.setRetain(count);
+        return op;
+    }
+
+    private static TextOperation delete(int count) {
+        TextOperation op = new TextOperation();
+        op.setDelete(count);
+        return op;
+    }
+
+    private static TextOperation insert(String text) {
+        TextOperation op = new TextOperation();
+        op.setInsert(text);
+        return op;
+    }
+}
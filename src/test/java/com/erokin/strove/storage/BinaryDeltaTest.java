@@ -0,0 +1,114 @@
+package com.erokin.strove.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BinaryDeltaTest {
+
+    @Test
+    void roundTripsEdgeCases() {
+        assertRoundTrip(new byte[0], new byte[0]);
+        assertRoundTrip(new byte[0], bytes("全新的内容"));
+        assertRoundTrip(bytes("将被全部删除的内容"), new byte[0]);
+        assertRoundTrip(bytes("short"), bytes("shorter"));
+    }
+
+    @Test
+    void identicalContentEncodesAsACopy() {
+        byte[] text = bytes("<p>" + "同一段落的内容。".repeat(200) + "</p>");
+
+        byte[] delta = assertRoundTrip(text, text);
+
+        assertThat(delta.length).isLessThan(16);
+    }
+
+    @Test
+    void smallEditsProduceSmallDeltas() {
+        String paragraph = "<p>第%d段：这是用于测试差异编码的正文内容，包含一些 English words 和数字 %d。</p>\n";
+        StringBuilder before = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            before.append(paragraph.formatted(i, i * 7));
+        }
+        String after = before.toString().replace("第150段", "第一百五十段").replace("数字 700", "数字 701");
+
+        byte[] delta = assertRoundTrip(bytes(before.toString()), bytes(after));
+
+        assertThat(delta.length).isLessThan(200);
+    }
+
+    @Test
+    void roundTripsRandomEdits() {
+        Random random = new Random(42);
+        for (int round = 0; round < 50; round++) {
+            byte[] base = new byte[random.nextInt(5000)];
+            random.nextBytes(base);
+            byte[] target = mutate(base, random);
+
+            assertRoundTrip(base, target);
+        }
+    }
+
+    @Test
+    void rejectsAMismatchedBase() {
+        byte[] delta = BinaryDelta.encode(bytes("abcdefghijklmnop"), bytes("abcdefghijklmnopq"));
+
+        assertThatThrownBy(() -> BinaryDelta.apply(bytes("abc"), delta))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static byte[] assertRoundTrip(byte[] base, byte[] target) {
+        byte[] delta = BinaryDelta.encode(base, target);
+        assertThat(BinaryDelta.apply(base, delta)).isEqualTo(target);
+        return delta;
+    }
+
+    // 随机插入、删除、移动若干片段
+    private static byte[] mutate(byte[] base, Random random) {
+        byte[] data = base;
+        for (int edit = random.nextInt(6); edit >= 0; edit--) {
+            int at = data.length == 0 ? 0 : random.nextInt(data.length);
+            int length = random.nextInt(Math.max(1, Math.min(200, data.length - at + 1)));
+            byte[] next;
+            switch (random.nextInt(3)) {
+                case 0 -> {
+                    byte[] insert = new byte[random.nextInt(100)];
+                    random.nextBytes(insert);
+                    next = concat(slice(data, 0, at), insert, slice(data, at, data.length));
+                }
+                case 1 -> next = concat(slice(data, 0, at), slice(data, Math.min(data.length, at + length), data.length));
+                default -> next = concat(slice(data, at, data.length), slice(data, 0, at));
+            }
+            data = next;
+        }
+        return data;
+    }
+
+    private static byte[] slice(byte[] data, int from, int to) {
+        byte[] out = new byte[to - from];
+        System.arraycopy(data, from, out, 0, out.length);
+        return out;
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        int length = 0;
+        for (byte[] part : parts) {
+            length += part.length;
+        }
+        byte[] out = new byte[length];
+        int position = 0;
+        for (byte[] part : parts) {
+            System.arraycopy(part, 0, out, position, part.length);
+            position += part.length;
+        }
+        return out;
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,206 @@
+package com.erokin.strove.storage;
+
+import com.erokin.strove.config.properties.ConversationProperties;
+import com.erokin.strove.entity.Conversation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConversationArchiveTest {
+
+    private static final Long USER_ID = 7L;
+    private static final String SEGMENT = "conversations/7/00000001";
+
+    private MemoryBlobStore store;
+    private ConversationProperties properties;
+    private ConversationArchive archive;
+
+    @BeforeEach
+    void setUp() {
+        store = new MemoryBlobStore();
+        properties = new ConversationProperties();
+        properties.getArchive().setBlockRecords(3);
+        archive = new ConversationArchive(store, properties);
+    }
+
+    @Test
+    void roundTripsAllFields() throws IOException {
+        Conversation conversation = conversation(1);
+        conversation.setThreadId(11L);
+        conversation.setResponse(null);
+        archive.append(USER_ID, List.of(conversation));
+
+        Conversation read = archive.find(USER_ID, 1L).orElseThrow();
+
+        assertThat(read.getUserId()).isEqualTo(USER_ID);
+        assertThat(read.getThreadId()).isEqualTo(11L);
+        assertThat(read.getDocumentId()).isNull();
+        assertThat(read.getCreatedAt()).isEqualTo(conversation.getCreatedAt());
+        assertThat(read.getMessage()).isEqualTo(conversation.getMessage());
+        assertThat(read.getResponse()).isNull();
+    }
+
+    @Test
+    void ignoresTornTrailingIndexEntry() throws IOException {
+        archive.append(USER_ID, conversations(1, 5));
+        // 模拟写索引中途崩溃：末尾只有半条记录
+        store.append(SEGMENT + ".idx", new byte[20]);
+
+        assertThat(ids(archive.list(USER_ID, null, 10))).containsExactly(5L, 4L, 3L, 2L, 1L);
+        assertThat(archive.find(USER_ID, 4L)).isPresent();
+
+        // 残缺的段不再追加，新记录写入下一段
+        archive.append(USER_ID, conversations(6, 8));
+        assertThat(store.size("conversations/7/00000002.idx")).isPositive();
+        assertThat(ids(archive.list(USER_ID, null, 10))).containsExactly(8L, 7L, 6L, 5L, 4L, 3L, 2L, 1L);
+        List<Long> exported = new ArrayList<>();
+        archive.forEach(USER_ID, c -> exported.add(c.getId()));
+        assertThat(exported).containsExactly(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L);
+    }
+
+    @Test
+    void deduplicatesBatchArchivedTwice() throws IOException {
+        // 搬迁后删除数据库行之前崩溃，下次会把同一批再归档一次
+        archive.append(USER_ID, conversations(1, 4));
+        archive.append(USER_ID, conversations(1, 4));
+
+        assertThat(ids(archive.list(USER_ID, null, 10))).containsExactly(4L, 3L, 2L, 1L);
+        List<Long> exported = new ArrayList<>();
+        archive.forEach(USER_ID, c -> exported.add(c.getId()));
+        assertThat(exported).containsExactly(1L, 2L, 3L, 4L);
+    }
+
+    @Test
+    void rollsOverToNewSegmentAtMaxSegmentBytes() throws IOException {
+        properties.getArchive().setMaxSegmentBytes(1);
+
+        archive.append(USER_ID, conversations(1, 6));
+        archive.append(USER_ID, conversations(7, 7));
+
+        assertThat(store.list("conversations/7")).containsExactly(
+                "conversations/7/00000001.idx", "conversations/7/00000001.seg",
+                "conversations/7/00000002.idx", "conversations/7/00000002.seg",
+                "conversations/7/00000003.idx", "conversations/7/00000003.seg");
+        assertThat(ids(archive.list(USER_ID, null, 10))).containsExactly(7L, 6L, 5L, 4L, 3L, 2L, 1L);
+        assertThat(archive.find(USER_ID, 2L).orElseThrow().getId()).isEqualTo(2L);
+    }
+
+    @Test
+    void pagesWithBeforeIdAcrossBlocks() throws IOException {
+        archive.append(USER_ID, conversations(1, 10));
+
+        List<Conversation> first = archive.list(USER_ID, null, 4);
+        List<Conversation> second = archive.list(USER_ID, last(first), 4);
+        List<Conversation> third = archive.list(USER_ID, last(second), 4);
+
+        assertThat(ids(first)).containsExactly(10L, 9L, 8L, 7L);
+        assertThat(ids(second)).containsExactly(6L, 5L, 4L, 3L);
+        assertThat(ids(third)).containsExactly(2L, 1L);
+        assertThat(archive.list(USER_ID, 1L, 4)).isEmpty();
+    }
+
+    @Test
+    void findReadsOnlyCoveringBlock() throws IOException {
+        archive.append(USER_ID, conversations(1, 10));
+        store.blockReads = 0;
+
+        assertThat(archive.find(USER_ID, 5L).orElseThrow().getMessage()).isEqualTo("问题5");
+        assertThat(store.blockReads).isEqualTo(1);
+
+        store.blockReads = 0;
+        assertThat(archive.find(USER_ID, 42L)).isEmpty();
+        assertThat(store.blockReads).isZero();
+    }
+
+    @Test
+    void rejectsBlockWithChecksumMismatch() throws IOException {
+        archive.append(USER_ID, conversations(1, 3));
+        // 块头第12~15字节为CRC32
+        store.corrupt(SEGMENT + ".seg", 12);
+
+        assertThatThrownBy(() -> archive.find(USER_ID, 2L))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("校验失败");
+    }
+
+    private static List<Conversation> conversations(long fromId, long toId) {
+        return LongStream.rangeClosed(fromId, toId).mapToObj(ConversationArchiveTest::conversation).toList();
+    }
+
+    private static Conversation conversation(long id) {
+        Conversation conversation = new Conversation();
+        conversation.setId(id);
+        conversation.setUserId(USER_ID);
+        conversation.setCreatedAt(LocalDateTime.of(2025, 1, 1, 0, 0).plusMinutes(id));
+        conversation.setMessage("问题" + id);
+        conversation.setResponse("回答" + id);
+        return conversation;
+    }
+
+    private static List<Long> ids(List<Conversation> conversations) {
+        return conversations.stream().map(Conversation::getId).toList();
+    }
+
+    private static Long last(List<Conversation> conversations) {
+        return conversations.get(conversations.size() - 1).getId();
+    }
+
+    /**
+     * 内存实现，记录段文件的块读取次数
+     */
+    private static class MemoryBlobStore implements BlobStore {
+
+        private final Map<String, byte[]> objects = new TreeMap<>();
+        private int blockReads;
+
+        @Override
+        public long append(String name, byte[] data) {
+            byte[] existing = objects.getOrDefault(name, new byte[0]);
+            byte[] merged = Arrays.copyOf(existing, existing.length + data.length);
+            System.arraycopy(data, 0, merged, existing.length, data.length);
+            objects.put(name, merged);
+            return existing.length;
+        }
+
+        @Override
+        public byte[] read(String name, long offset, int length) {
+            if (name.endsWith(".seg")) {
+                blockReads++;
+            }
+            return Arrays.copyOfRange(objects.get(name), (int) offset, (int) offset + length);
+        }
+
+        @Override
+        public byte[] readAll(String name) {
+            return objects.getOrDefault(name, new byte[0]).clone();
+        }
+
+        @Override
+        public long size(String name) {
+            return objects.getOrDefault(name, new byte[0]).length;
+        }
+
+        @Override
+        public List<String> list(String directory) {
+            return objects.keySet().stream()
+                    .filter(name -> name.startsWith(directory + "/")
+                            && name.indexOf('/', directory.length() + 1) < 0)
+                    .toList();
+        }
+
+        void corrupt(String name, int position) {
+            objects.get(name)[position] ^= 0x5A;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.erokin.strove.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TextCodecTest {
+
+    private static final String REPETITIVE = "<p>这是一段会重复出现的文本内容。</p>\n".repeat(100);
+
+    @Test
+    void compressesAndRoundTrips() {
+        byte[] stored = TextCodec.encode(REPETITIVE, true, 256, 6);
+
+        assertThat(TextCodec.isEncoded(stored)).isTrue();
+        assertThat(stored.length).isLessThan(REPETITIVE.getBytes(StandardCharsets.UTF_8).length / 4);
+        assertThat(TextCodec.decode(stored)).isEqualTo(REPETITIVE);
+    }
+
+    @Test
+    void storesPlainUtf8BelowMinBytesOrWhenDisabled() {
+        String text = "短文本，短文本，短文本";
+
+        byte[] stored = TextCodec.encode(text, true, 256, 6);
+
+        assertThat(stored).isEqualTo(text.getBytes(StandardCharsets.UTF_8));
+        assertThat(TextCodec.isEncoded(stored)).isFalse();
+        assertThat(TextCodec.decode(stored)).isEqualTo(text);
+        assertThat(TextCodec.encode(REPETITIVE, false, 0, 6)).isEqualTo(REPETITIVE.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void keepsIncompressibleInputAsIs() {
+        // 没有重复的短文本，压缩结果加上头部不会更小
+        String text = "Qx7#mZ2!kP9@wL4$vN8%jR3^";
+
+        byte[] stored = TextCodec.encode(text, true, 0, 9);
+
+        assertThat(TextCodec.isEncoded(stored)).isFalse();
+        assertThat(stored).isEqualTo(text.getBytes(StandardCharsets.UTF_8));
+        assertThat(TextCodec.decode(stored)).isEqualTo(text);
+    }
+
+    @Test
+    void escapesTextStartingWithNul() {
+        String text = "\u0000Cxyz 以NUL开头的文本";
+
+        byte[] stored = TextCodec.encode(text, false, 0, 6);
+
+        assertThat(TextCodec.isEncoded(stored)).isTrue();
+        assertThat(stored[3]).isZero();
+        assertThat(TextCodec.decode(stored)).isEqualTo(text);
+        assertThat(TextCodec.decode(TextCodec.encode("\u0000", true, 0, 6))).isEqualTo("\u0000");
+    }
+
+    @Test
+    void handlesNullAndEmpty() {
+        assertThat(TextCodec.encode(null, true, 0, 6)).isNull();
+        assertThat(TextCodec.decode(null)).isNull();
+        assertThat(TextCodec.decode(TextCodec.encode("", true, 0, 6))).isEmpty();
+    }
+
+    @Test
+    void rejectsUnknownVersionOrCodec() {
+        byte[] stored = TextCodec.encode(REPETITIVE, true, 0, 6);
+        byte[] futureVersion = stored.clone();
+        futureVersion[2] = 9;
+        byte[] unknownCodec = stored.clone();
+        unknownCodec[3] = 7;
+
+        assertThatThrownBy(() -> TextCodec.decode(futureVersion)).isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("版本");
+        assertThatThrownBy(() -> TextCodec.decode(unknownCodec)).isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("压缩格式");
+    }
+
+    @Test
+    void rejectsCorruptDeflateData() {
+        byte[] stored = TextCodec.encode(REPETITIVE, true, 0, 6);
+        byte[] truncated = java.util.Arrays.copyOf(stored, stored.length / 2);
+        byte[] garbled = stored.clone();
+        for (int i = 8; i < garbled.length; i++) {
+            garbled[i] = (byte) 0xFF;
+        }
+
+        assertThatThrownBy(() -> TextCodec.decode(truncated)).hasMessage("压缩数据已损坏");
+        assertThatThrownBy(() -> TextCodec.decode(garbled)).hasMessage("压缩数据已损坏");
+    }
+}